@@ -0,0 +1,47 @@
+import benchmarks.Workload;
+
+/**
+ * Adds a one-week booking through BASIC.addBooking to properties of a BASIC instance of the given size,
+ * then takes it back out of the calendar and the user's list so the dataset does not grow between calls.
+ * Each call books a different property, and the stays move forward in time as the properties are cycled.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class AddBookingWorkload implements Workload {
+    private static final int USERS = 1000;
+    private static final int FIRST_DAY = EpochDay.of(2024, 1, 1);
+
+    private BASIC basic;
+    private Property[] properties;
+    private User[] users;
+    private int next;
+
+    @Override
+    public void setUp(int size, String variant) {
+        basic = BenchmarkData.basic(USERS, size);
+        properties = basic.properties.toArray(new Property[0]);
+        users = basic.users.toArray(new User[0]);
+        // Existing bookings, so every add searches a populated calendar
+        for (int i = 0; i < size * 4; i++) {
+            Property property = properties[i % size];
+            int startDay = FIRST_DAY + (i / size) * 30;
+            basic.addBooking(new Booking(users[i % USERS], property, startDay, startDay + 7, true));
+        }
+    }
+
+    @Override
+    public long run() {
+        int call = next++;
+        Property property = properties[call % properties.length];
+        User user = users[call % users.length];
+        int startDay = FIRST_DAY + 200 + (call / properties.length) % 1000 * 7;
+        Booking booking = new Booking(user, property, startDay, startDay + 7, false);
+        boolean added = basic.addBooking(booking);
+        if (added) {
+            property.getCalendar().remove(booking);
+            user.getBookings().remove(user.getBookings().size() - 1);
+        }
+        return added ? 1 : 0;
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures city plus date-range availability search over 100k properties in a single city,
+ * each with a history of bookings.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class AvailabilitySearchBenchmark {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) {
+        int propertyCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int bookingsPerProperty = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Random random = new Random(42);
+        BASIC basic = new BASIC();
+        int baseDay = (int) (System.currentTimeMillis() / DAY_MILLIS);
+
+        for (int id = 1; id <= propertyCount; id++) {
+            Property property = id % 3 == 0
+                    ? new FullProperty(id, 1 + random.nextInt(4), 2 + random.nextInt(5), "Limassol", 50 + random.nextInt(300), 50 + random.nextInt(150))
+                    : new SharedProperty(id, 1 + random.nextInt(4), 2 + random.nextInt(5), "Limassol", 50 + random.nextInt(150));
+            basic.properties.add(property);
+            for (int b = 0; b < bookingsPerProperty; b++) {
+                int start = baseDay + random.nextInt(365);
+                int nights = 1 + random.nextInt(7);
+                property.getCalendar().add(new Booking(null, property, toDate(start), toDate(start + nights)),
+                        property.getBookingCapacity());
+            }
+        }
+
+        AvailabilitySearch search = basic.getAvailabilitySearch();
+        int queries = 200;
+        int matched = 0;
+        for (int warmup = 0; warmup < queries; warmup++) {
+            int start = baseDay + random.nextInt(365);
+            matched += search.findAvailable("Limassol", start, start + 5, 2, 0, false).size();
+        }
+        long elapsed = 0;
+        for (int q = 0; q < queries; q++) {
+            int start = baseDay + random.nextInt(365);
+            long begin = System.nanoTime();
+            List<Property> results = search.findAvailable("Limassol", start, start + 5, 2, 0, true);
+            elapsed += System.nanoTime() - begin;
+            matched += results.size();
+        }
+        System.out.printf("%d properties, %d bookings each: %.2f ms/query (cheapest first), %d matches total%n",
+                propertyCount, bookingsPerProperty, elapsed / 1e6 / queries, matched);
+    }
+
+    private static Date toDate(int epochDay) {
+        // Noon avoids landing on the previous day in zones west of UTC
+        return new Date(epochDay * DAY_MILLIS + DAY_MILLIS / 2);
+    }
+}
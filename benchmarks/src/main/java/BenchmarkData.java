@@ -0,0 +1,92 @@
+import java.util.Random;
+
+/**
+ * Builds the deterministic datasets the JMH workloads run against.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public final class BenchmarkData {
+    private static final String[] CITIES = {"Nicosia", "Limassol", "Larnaca", "Paphos", "Famagusta", "Kyrenia"};
+    private static final int REGISTRATION_DAY = EpochDay.of(2010, 1, 1);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Create a user of the given kind.
+     *
+     * @param id   The user ID.
+     * @param kind 0 for a host, 1 for a standard customer, 2 for a gold customer.
+     * @return The user.
+     */
+    public static User user(int id, int kind) {
+        int birthDay = EpochDay.of(1960 + id % 40, 1 + id % 12, 1 + id % 28);
+        switch (kind) {
+            case 0:
+                return new Host(id, birthDay, "Host" + id, "Surname" + id, REGISTRATION_DAY, id);
+            case 1:
+                return new StandardCustomer(id, birthDay, "Customer" + id, "Surname" + id, REGISTRATION_DAY + id % 6000, "Card");
+            default:
+                return new GoldCustomer(id, birthDay, "Gold" + id, "Surname" + id, REGISTRATION_DAY, "PayPal", 1 + id % 3);
+        }
+    }
+
+    /**
+     * Create a mix of shared and full properties across the sample cities.
+     *
+     * @param id     The property ID.
+     * @param random The source of the property attributes.
+     * @return The property.
+     */
+    public static Property property(int id, Random random) {
+        int bedRooms = 1 + random.nextInt(5);
+        String city = CITIES[random.nextInt(CITIES.length)];
+        double price = 20 + random.nextInt(300);
+        return random.nextBoolean()
+                ? new FullProperty(id, bedRooms, bedRooms + 2, city, 40 + random.nextInt(300), price)
+                : new SharedProperty(id, bedRooms, bedRooms + 1, city, price);
+    }
+
+    /**
+     * Create a BASIC instance holding the given numbers of users (a mix of all kinds) and properties,
+     * the properties owned by the hosts among the users.
+     *
+     * @param users      The number of users, with IDs 1 to users.
+     * @param properties The number of properties, with IDs 1 to properties.
+     * @return The populated instance.
+     */
+    public static BASIC basic(int users, int properties) {
+        Random random = new Random(42);
+        BASIC basic = new BASIC();
+        for (int id = 1; id <= users; id++) {
+            basic.users.add(user(id, id % 3));
+        }
+        int hosts = users / 3;
+        for (int id = 1; id <= properties; id++) {
+            Property property = property(id, random);
+            if (hosts > 0) {
+                // Every third user is a host; spread the properties over them
+                property.setHost((Host) basic.getUserById(3 * (1 + (id - 1) % hosts)));
+            }
+            basic.properties.add(property);
+        }
+        return basic;
+    }
+
+    /**
+     * Draw random IDs in [1, size], to be cycled through by a workload.
+     *
+     * @param size  The largest ID.
+     * @param count The number of IDs to draw; a power of two so workloads can cycle with a mask.
+     * @return The IDs.
+     */
+    public static int[] randomIds(int size, int count) {
+        Random random = new Random(7);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = 1 + random.nextInt(size);
+        }
+        return ids;
+    }
+}
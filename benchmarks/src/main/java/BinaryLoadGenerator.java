@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for the binary protocol: every connection keeps a fixed number of pipelined requests in
+ * flight (a mix of user and property lookups, bookings, booking costs and price comparisons) and the run
+ * reports throughput and latency percentiles, first without pipelining and then with the given depth.
+ * Without a host argument a BinaryProtocolServer is started in-process over a generated dataset:
+ * {@code java -cp benchmarks/target/benchmarks.jar BinaryLoadGenerator 8 32 200000 [host port]}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class BinaryLoadGenerator {
+    private static final int USERS = 100_000;
+    private static final int PROPERTIES = 100_000;
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        BinaryProtocolServer server = null;
+        InetSocketAddress address;
+        if (args.length > 4) {
+            address = new InetSocketAddress(args[3], Integer.parseInt(args[4]));
+        } else {
+            server = BinaryProtocolServer.start(BenchmarkData.basic(USERS, PROPERTIES), 0);
+            address = new InetSocketAddress("localhost", server.getPort());
+        }
+        // Warm up, then measure without and with pipelining
+        run(address, connections, depth, requests / 2, false);
+        run(address, connections, 1, requests, true);
+        run(address, connections, depth, requests, true);
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static void run(InetSocketAddress address, int connections, int depth, int requests, boolean report)
+            throws InterruptedException {
+        int perConnection = requests / connections;
+        long[][] latencies = new long[connections][];
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        long begin = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            Thread thread = new Thread(() -> {
+                try {
+                    latencies[connection] = drive(address, connection, depth, perConnection, failures);
+                } catch (IOException e) {
+                    latencies[connection] = new long[0];
+                    failures.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        if (!report) {
+            return;
+        }
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d connections, pipeline depth %d: %.0f ops/s, p50 %.1f us, p99 %.1f us, %d failures%n",
+                connections, depth, all.length / seconds,
+                all.length == 0 ? 0 : all[all.length / 2] / 1e3,
+                all.length == 0 ? 0 : all[(int) (all.length * 0.99)] / 1e3, failures.get());
+    }
+
+    /**
+     * Send the given number of requests over one connection, keeping up to depth of them in flight.
+     *
+     * @return The latency of every request in nanoseconds.
+     */
+    private static long[] drive(InetSocketAddress address, int connection, int depth, int count, AtomicInteger failures)
+            throws IOException {
+        long[] latencies = new long[count];
+        long[] sentAt = new long[depth];
+        Random random = new Random(connection);
+        ByteBuffer out = ByteBuffer.allocate(depth * 32);
+        ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.socket().setTcpNoDelay(true);
+            int sent = 0;
+            int received = 0;
+            while (received < count) {
+                // Top the pipeline up and send the new requests in one write
+                out.clear();
+                while (sent < count && sent - received < depth) {
+                    writeRequest(out, sent, random);
+                    sentAt[sent % depth] = System.nanoTime();
+                    sent++;
+                }
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                if (channel.read(in) < 0) {
+                    throw new IOException("Connection closed by the server");
+                }
+                in.flip();
+                while (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+                    int length = in.getInt();
+                    int next = in.position() + length;
+                    int requestId = in.getInt();
+                    byte status = in.get();
+                    if (requestId != received) {
+                        throw new IOException("Response " + requestId + " arrived out of order");
+                    }
+                    if (status == BinaryProtocolServer.BAD_REQUEST) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[received] = System.nanoTime() - sentAt[received % depth];
+                    received++;
+                    in.position(next);
+                }
+                in.compact();
+            }
+        }
+        return latencies;
+    }
+
+    private static void writeRequest(ByteBuffer out, int requestId, Random random) {
+        int kind = random.nextInt(10);
+        int lengthAt = out.position();
+        out.putInt(0).putInt(requestId);
+        if (kind < 4) {
+            out.put(BinaryProtocolServer.GET_USER).putInt(1 + random.nextInt(USERS));
+        } else if (kind < 7) {
+            out.put(BinaryProtocolServer.GET_PROPERTY).putInt(1 + random.nextInt(PROPERTIES));
+        } else if (kind == 7) {
+            int startDay = FIRST_DAY + random.nextInt(3650);
+            out.put(BinaryProtocolServer.ADD_BOOKING).putInt(1 + random.nextInt(USERS))
+                    .putInt(1 + random.nextInt(PROPERTIES)).putInt(startDay).putInt(startDay + 1 + random.nextInt(3));
+        } else if (kind == 8) {
+            out.put(BinaryProtocolServer.GET_BOOKING_COST).putInt(1 + random.nextInt(USERS)).putInt(1 + random.nextInt(PROPERTIES));
+        } else {
+            out.put(BinaryProtocolServer.COMPARE_PRICES).putInt(1 + random.nextInt(PROPERTIES)).putInt(1 + random.nextInt(PROPERTIES));
+        }
+        out.putInt(lengthAt, out.position() - lengthAt - 4);
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs the full booking report of the BookingStore over a synthetic set of bookings on fork-join pools of
+ * 1, 2, 4, ... threads up to the number of cores, and prints the time and speedup of each, checking that
+ * every pool produces the same report. The bookings are loaded straight into the store's columns, so the
+ * heap only needs room for the columns (about 21 bytes per booking, twice that while they grow).
+ * Run with a large heap, for example:
+ * {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar BookingAnalyticsBenchmark 50000000}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class BookingAnalyticsBenchmark {
+    private static final int PROPERTIES = 100_000;
+    private static final int USERS = 100_000;
+    private static final String[] PAYMENT_METHODS = {"Card", "Cash", "Transfer", "PayPal"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+        Random random = new Random(42);
+        List<Property> properties = new ArrayList<>(PROPERTIES);
+        for (int id = 1; id <= PROPERTIES; id++) {
+            int bedRooms = 1 + random.nextInt(5);
+            double price = 20 + random.nextInt(300);
+            properties.add(random.nextBoolean()
+                    ? new FullProperty(id, bedRooms, bedRooms + 2, "Nicosia", 40 + random.nextInt(300), price)
+                    : new SharedProperty(id, bedRooms, bedRooms + 1, "Nicosia", price));
+        }
+        List<User> users = new ArrayList<>(USERS);
+        for (int id = 1; id <= USERS; id++) {
+            String method = PAYMENT_METHODS[id % PAYMENT_METHODS.length];
+            users.add(id % 3 == 0
+                    ? new GoldCustomer(id, 0, "First", "Last", 0, method, 1 + id % 3)
+                    : new StandardCustomer(id, 0, "First", "Last", random.nextInt(20_000), method));
+        }
+
+        long start = System.nanoTime();
+        BookingStore store = new BookingStore();
+        for (int i = 0; i < count; i++) {
+            int startDay = 19_000 + random.nextInt(1000);
+            store.add(users.get(random.nextInt(USERS)), properties.get(random.nextInt(PROPERTIES)),
+                    startDay, startDay + 1 + random.nextInt(14), random.nextInt(4) != 0);
+        }
+        System.out.printf("%-26s %10.1f ms%n", "load " + count + " bookings", (System.nanoTime() - start) / 1e6);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        BookingStore.BookingReport expected = null;
+        double singleMs = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            BookingStore.BookingReport report = null;
+            for (int warmup = 0; warmup < 3; warmup++) {
+                report = store.report(pool);
+            }
+            start = System.nanoTime();
+            int runs = 5;
+            for (int run = 0; run < runs; run++) {
+                report = store.report(pool);
+            }
+            double ms = (System.nanoTime() - start) / 1e6 / runs;
+            pool.shutdown();
+            if (expected == null) {
+                expected = report;
+                singleMs = ms;
+            }
+            System.out.printf("%-26s %10.1f ms  speedup %.2fx%s%n", threads + (threads == 1 ? " thread" : " threads"),
+                    ms, singleMs / ms, report.equals(expected) ? "" : "  REPORT DIFFERS");
+            if (threads == cores) {
+                break;
+            }
+        }
+        System.out.println(expected);
+    }
+}
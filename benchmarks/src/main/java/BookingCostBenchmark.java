@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares pricing bookings one at a time through Booking.netCost with pricing the same bookings as one
+ * primitive batch through the BookingCostEngine, and checks that both produce identical costs.
+ * Run with a large heap, for example:
+ * {@code java -Xmx3g -cp benchmarks/target/benchmarks.jar BookingCostBenchmark}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class BookingCostBenchmark {
+    private static final int PROPERTIES = 100_000;
+    private static final int USERS = 100_000;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Random random = new Random(42);
+        List<Property> properties = new ArrayList<>(PROPERTIES);
+        for (int id = 1; id <= PROPERTIES; id++) {
+            int bedRooms = 1 + random.nextInt(5);
+            double price = 20 + random.nextInt(300);
+            properties.add(random.nextBoolean()
+                    ? new FullProperty(id, bedRooms, bedRooms + 2, "Nicosia", 40 + random.nextInt(300), price)
+                    : new SharedProperty(id, bedRooms, bedRooms + 1, "Nicosia", price));
+        }
+        List<User> users = new ArrayList<>(USERS);
+        Date registered = new Date(0);
+        for (int id = 1; id <= USERS; id++) {
+            users.add(id % 3 == 0
+                    ? new GoldCustomer(id, null, "First", "Last", registered, "Card", 1 + id % 3)
+                    : new StandardCustomer(id, null, "First", "Last", registered, "Card"));
+        }
+
+        int[] propertyIds = new int[count];
+        int[] userIds = new int[count];
+        int[] startDays = new int[count];
+        int[] endDays = new int[count];
+        List<Booking> bookings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            propertyIds[i] = 1 + random.nextInt(PROPERTIES);
+            userIds[i] = 1 + random.nextInt(USERS);
+            startDays[i] = 19_000 + random.nextInt(1000);
+            endDays[i] = startDays[i] + 1 + random.nextInt(14);
+            bookings.add(new Booking(users.get(userIds[i] - 1), properties.get(propertyIds[i] - 1),
+                    new Date(startDays[i] * DAY_MILLIS), new Date(endDays[i] * DAY_MILLIS)));
+        }
+
+        DiscountEngine discounts = new DiscountEngine(DiscountRules.DEFAULT);
+        BookingCostEngine engine = new BookingCostEngine(users, properties, discounts);
+        double[] costs = new double[count];
+        for (int warmup = 0; warmup < 3; warmup++) {
+            engine.price(propertyIds, userIds, startDays, endDays, costs);
+        }
+        long start = System.nanoTime();
+        double batchTotal = engine.price(propertyIds, userIds, startDays, endDays, costs);
+        double batchMs = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        double singleTotal = 0;
+        int mismatches = 0;
+        for (int i = 0; i < count; i++) {
+            Booking booking = bookings.get(i);
+            double cost = booking.netCost(discounts.discountOf(booking.getUser()));
+            singleTotal += cost;
+            if (Double.doubleToRawLongBits(cost) != Double.doubleToRawLongBits(costs[i])) {
+                mismatches++;
+            }
+        }
+        double singleMs = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("%-26s %10.1f ms  total %.2f%n", "one at a time", singleMs, singleTotal);
+        System.out.printf("%-26s %10.1f ms  total %.2f%n", "batch (" + Runtime.getRuntime().availableProcessors() + " cores)", batchMs, batchTotal);
+        System.out.printf("%-26s %10d%n", "cost mismatches", mismatches);
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Books random stays from 1 to 32 threads, once behind a single global lock and once through the striped
+ * BookingService, and reports the throughput of each. After every run it checks that no property was
+ * overbooked and that the calendars and the users' booking lists agree.
+ * Throughput only scales with the number of cores the machine has; run for example:
+ * {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar BookingStressBenchmark 2000000}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class BookingStressBenchmark {
+    private static final int USERS = 10_000;
+    private static final int PROPERTIES = 100_000;
+    private static final int FIRST_DAY = EpochDay.of(2025, 1, 1);
+    private static final int WINDOW_DAYS = 730;
+
+    public static void main(String[] args) throws InterruptedException {
+        int bookings = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.printf("%-8s %18s %18s%n", "threads", "global lock", "striped service");
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            double global = run(threads, bookings, true);
+            double striped = run(threads, bookings, false);
+            System.out.printf("%-8d %14.0f op/s %14.0f op/s%n", threads, global, striped);
+        }
+    }
+
+    private static double run(int threads, int bookings, boolean globalLock) throws InterruptedException {
+        BASIC basic = BenchmarkData.basic(USERS, PROPERTIES);
+        BookingService service = basic.getBookingService();
+        Object lock = new Object();
+        AtomicLong added = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        int perThread = bookings / threads;
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                for (int i = 0; i < perThread; i++) {
+                    int userId = 1 + random.nextInt(USERS);
+                    int propertyId = 1 + random.nextInt(PROPERTIES);
+                    int startDay = FIRST_DAY + random.nextInt(WINDOW_DAYS);
+                    int endDay = startDay + 1 + random.nextInt(3);
+                    if (globalLock) {
+                        synchronized (lock) {
+                            // The single-threaded path the application used before the booking service
+                            Property property = basic.getPropertyById(propertyId);
+                            Booking booking = new Booking(basic.getUserById(userId), property, startDay, endDay, false);
+                            if (property.getCalendar().add(booking, property.getBookingCapacity())) {
+                                booking.getUser().addBooking(booking);
+                                count++;
+                            }
+                        }
+                    } else if (service.book(userId, propertyId, startDay, endDay) != null) {
+                        count++;
+                    }
+                }
+                added.addAndGet(count);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        verify(basic, added.get());
+        return perThread * (double) threads / seconds;
+    }
+
+    private static void verify(BASIC basic, long added) {
+        long inCalendars = 0;
+        for (Property property : basic.properties) {
+            BookingCalendar calendar = property.getCalendar();
+            inCalendars += calendar.size();
+            int capacity = property.getBookingCapacity();
+            calendar.forEachOverlapping(FIRST_DAY, FIRST_DAY + WINDOW_DAYS + 3, booking -> {
+                for (int day = booking.getStartDay(); day < booking.getEndDay(); day++) {
+                    if (calendar.countOccupants(day) > capacity) {
+                        throw new IllegalStateException("Property " + property.getPropertyId()
+                                + " is overbooked on " + EpochDay.format(day));
+                    }
+                }
+            });
+        }
+        long inUserLists = 0;
+        for (User user : basic.users) {
+            inUserLists += user.getBookings().size();
+        }
+        if (inCalendars != added || inUserLists != added) {
+            throw new IllegalStateException("Booked " + added + ", calendars hold " + inCalendars
+                    + ", user lists hold " + inUserLists);
+        }
+    }
+}
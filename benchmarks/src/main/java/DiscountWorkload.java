@@ -0,0 +1,38 @@
+import benchmarks.Workload;
+
+/**
+ * Calls getDiscountForUser on customers of one kind: variant "gold" or "standard". The variants
+ * "engine-gold" and "engine-standard" look the same customers' discounts up in a DiscountEngine instead,
+ * for a day fixed when the workload is set up, as a batch of invoices does.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class DiscountWorkload implements Workload {
+    private Customer[] customers;
+    private DiscountEngine engine;
+    private int day;
+    private int next;
+
+    @Override
+    public void setUp(int size, String variant) {
+        int kind = variant.endsWith("gold") ? 2 : 1;
+        customers = new Customer[size];
+        for (int i = 0; i < size; i++) {
+            customers[i] = (Customer) BenchmarkData.user(i + 1, kind);
+        }
+        if (variant.startsWith("engine-")) {
+            engine = new DiscountEngine(DiscountRules.DEFAULT);
+            day = EpochDay.today();
+        }
+    }
+
+    @Override
+    public long run() {
+        if (next == customers.length) {
+            next = 0;
+        }
+        Customer customer = customers[next++];
+        return Double.doubleToRawLongBits(engine == null ? customer.getDiscountForUser() : engine.discountOf(customer, day));
+    }
+}
@@ -0,0 +1,163 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds many keep-alive connections to the HTTP API open at the same time and sends user lookups and
+ * bookings over all of them, reporting throughput and latency percentiles.
+ * Without a host argument the API is started in-process over a generated dataset; client and server then
+ * share the process's file descriptor limit, so raise it (ulimit -n) for more than about 9000 connections,
+ * or run the server separately and pass its address. Run on Java 21 or later to serve on virtual threads:
+ * {@code java -Xmx2g -cp benchmarks/target/benchmarks.jar HttpConnectionsBenchmark 5000 20 [host port]}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class HttpConnectionsBenchmark {
+    private static final int USERS = 100_000;
+    private static final int PROPERTIES = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int requestsPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        HttpApi api = null;
+        InetSocketAddress address;
+        if (args.length > 3) {
+            address = new InetSocketAddress(args[2], Integer.parseInt(args[3]));
+        } else {
+            api = HttpApi.start(BenchmarkData.basic(USERS, PROPERTIES), 0);
+            address = new InetSocketAddress("localhost", api.getPort());
+        }
+
+        ExecutorService clients = newClientExecutor();
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+        long[][] latencies = new long[connections][];
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            tasks.add(clients.submit(() -> {
+                long[] times = new long[requestsPerConnection];
+                try (Socket socket = new Socket()) {
+                    socket.connect(address, 30_000);
+                    socket.setTcpNoDelay(true);
+                    connected.countDown();
+                    go.await();
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    for (int i = 0; i < requestsPerConnection; i++) {
+                        long start = System.nanoTime();
+                        if (i % 4 == 3) {
+                            // Every fourth request books a night; a conflict (409) still counts as served
+                            int day = EpochDay.of(2030, 1, 1) + (connection * requestsPerConnection + i) % 3650;
+                            String body = "{\"userId\":" + (1 + connection % USERS) + ",\"propertyId\":"
+                                    + (1 + (connection * 31 + i) % PROPERTIES) + ",\"startDate\":\"" + EpochDay.format(day)
+                                    + "\",\"endDate\":\"" + EpochDay.format(day + 1) + "\"}";
+                            write(out, "POST /bookings HTTP/1.1\r\nHost: basic\r\nContent-Length: "
+                                    + body.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n" + body);
+                        } else {
+                            write(out, "GET /users/" + (1 + (connection + i * 7919) % USERS) + " HTTP/1.1\r\nHost: basic\r\n\r\n");
+                        }
+                        int status = readResponse(in);
+                        times[i] = System.nanoTime() - start;
+                        if (status != 200 && status != 201 && status != 409) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (IOException | InterruptedException e) {
+                    connected.countDown();
+                    failures.incrementAndGet();
+                    times = Arrays.copyOf(times, 0);
+                }
+                latencies[connection] = times;
+                return null;
+            }));
+        }
+
+        connected.await();
+        long begin = System.nanoTime();
+        go.countDown();
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.SECONDS);
+        if (api != null) {
+            api.close();
+        }
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d concurrent connections, %d requests, %d failures%n", connections, all.length, failures.get());
+        System.out.printf("throughput %.0f req/s%n", all.length / seconds);
+        if (all.length > 0) {
+            System.out.printf("latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6, all[all.length - 1] / 1e6);
+        }
+    }
+
+    private static void write(OutputStream out, String request) throws IOException {
+        out.write(request.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Read one HTTP/1.1 response with a Content-Length (or no) body and return its status code.
+     */
+    private static int readResponse(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int status = -1;
+        int contentLength = 0;
+        while (true) {
+            line.setLength(0);
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) {
+                    throw new IOException("Connection closed by the server");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            if (line.length() == 0) {
+                break;
+            }
+            String header = line.toString();
+            if (status < 0) {
+                status = Integer.parseInt(header.substring(9, 12));
+            } else if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        for (int i = 0; i < contentLength; i++) {
+            if (in.read() < 0) {
+                throw new IOException("Truncated response body");
+            }
+        }
+        return status;
+    }
+
+    private static ExecutorService newClientExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
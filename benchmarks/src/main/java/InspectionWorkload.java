@@ -0,0 +1,37 @@
+import benchmarks.Workload;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Records inspection reports through BASIC.addInspectionToProperty on properties of a BASIC instance of
+ * the given size, with System.out discarding the confirmation messages.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class InspectionWorkload implements Workload {
+    private BASIC basic;
+    private int[] ids;
+    private int next;
+    private PrintStream originalOut;
+
+    @Override
+    public void setUp(int size, String variant) {
+        basic = BenchmarkData.basic(0, size);
+        ids = BenchmarkData.randomIds(size, 1 << 16);
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Override
+    public long run() {
+        int propertyId = ids[next++ & (ids.length - 1)];
+        basic.addInspectionToProperty(propertyId, "Routine inspection, no issues found");
+        return propertyId;
+    }
+
+    @Override
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+}
@@ -0,0 +1,39 @@
+import benchmarks.Workload;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Renders every user (variant "users") or property (variant "properties") of a BASIC instance of the
+ * given size through listUsers/listProperties, with System.out discarding the text.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class ListingWorkload implements Workload {
+    private BASIC basic;
+    private boolean users;
+    private PrintStream originalOut;
+
+    @Override
+    public void setUp(int size, String variant) {
+        users = "users".equals(variant);
+        basic = users ? BenchmarkData.basic(size, 0) : BenchmarkData.basic(0, size);
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Override
+    public long run() {
+        if (users) {
+            basic.listUsers();
+        } else {
+            basic.listProperties();
+        }
+        return basic.users.size() + basic.properties.size();
+    }
+
+    @Override
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+}
@@ -0,0 +1,65 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Measures how quickly a BASIC instance backed by a mapped snapshot serves its first lookups,
+ * compared with materializing every record up front.
+ * Run with {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar MappedSnapshotBenchmark [users] [bookingsPerUser]}.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class MappedSnapshotBenchmark {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int bookingsPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int properties = users;
+        Path file = Files.createTempFile("basic", ".snapshot");
+
+        BASIC source = new BASIC();
+        for (int id = 1; id <= users; id++) {
+            source.users.add(new GoldCustomer(id, new Date(0), "First" + id % 1000, "Last" + id % 5000, new Date(0), "Credit Card", 1 + id % 3));
+        }
+        for (int id = 1; id <= properties; id++) {
+            source.properties.add(new SharedProperty(id, 2, 4, "City" + id % 50, 100));
+        }
+        for (int id = 1; id <= users; id++) {
+            for (int b = 0; b < bookingsPerUser; b++) {
+                long start = (long) (id * bookingsPerUser + b) * DAY_MILLIS + DAY_MILLIS / 2;
+                source.addBooking(new Booking(source.getUserById(id), source.getPropertyById(1 + (id + b) % properties),
+                        new Date(start), new Date(start + DAY_MILLIS)));
+            }
+        }
+        long begin = System.nanoTime();
+        MappedSnapshot.write(file, source, 1);
+        System.out.printf("wrote %,d users, %,d properties, %,d bookings (%,d MB) in %.2fs%n", users, properties,
+                (long) users * bookingsPerUser, Files.size(file) >> 20, (System.nanoTime() - begin) / 1e9);
+        source = null;
+        System.gc();
+
+        Random random = new Random(7);
+        begin = System.nanoTime();
+        BASIC lazy = new BASIC();
+        lazy.attachSnapshot(MappedSnapshot.open(file));
+        User first = lazy.getUserById(1 + random.nextInt(users));
+        double firstLookupMs = (System.nanoTime() - begin) / 1e6;
+        begin = System.nanoTime();
+        int found = first == null ? 0 : 1;
+        for (int i = 0; i < 100_000; i++) {
+            if (lazy.getPropertyById(1 + random.nextInt(properties)) != null) {
+                found++;
+            }
+        }
+        double lookupsMs = (System.nanoTime() - begin) / 1e6;
+        begin = System.nanoTime();
+        int total = lazy.users.size() + lazy.properties.size();
+        double fullMs = (System.nanoTime() - begin) / 1e6;
+        System.out.printf("open + first lookup: %.1f ms; 100k random property lookups: %.1f ms (%d found); "
+                + "materializing the remaining %,d entities: %.0f ms%n", firstLookupMs, lookupsMs, found, total, fullMs);
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares marking bookings paid one at a time with the batched PaymentSettlement pipeline, against a stub
+ * payment processor with a fixed latency per call. The single-item path finds each booking by scanning its
+ * user's bookings, calls the processor for that booking alone and marks it paid; the pipeline settles
+ * batches of confirmations on a few workers while a consumer thread takes the results. Every seventh
+ * payment is declined, and the settled results are checked against the bookings marked paid.
+ * Run for example with:
+ * {@code java -cp benchmarks/target/benchmarks.jar PaymentSettlementBenchmark 200000 1000}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PaymentSettlementBenchmark {
+    private static final int USERS = 30_000;
+    private static final int PROPERTIES = 10_000;
+    private static final long CALL_MICROS = 2000;
+    private static final long BOOKING_MICROS = 1;
+    private static final int DECLINE_EVERY = 7;
+    private static final int SINGLE_ITEM_SAMPLE = 1000;
+    private static final int WORKERS = 4;
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        BASIC basic = BenchmarkData.basic(USERS, PROPERTIES);
+        BookingService service = basic.getBookingService();
+        Random random = new Random(42);
+        List<PaymentSettlement.Confirmation> confirmations = new ArrayList<>(count);
+        int day = EpochDay.of(2030, 1, 1);
+        while (confirmations.size() < count) {
+            // Customers only, so the payments spread over their preferred payment methods
+            int userId = 1 + random.nextInt(USERS);
+            if (userId % 3 == 0) {
+                continue;
+            }
+            int propertyId = 1 + random.nextInt(PROPERTIES);
+            int startDay = day + random.nextInt(3650);
+            if (service.book(userId, propertyId, startDay, startDay + 1 + random.nextInt(7)) != null) {
+                confirmations.add(new PaymentSettlement.Confirmation(userId, propertyId, startDay));
+            }
+        }
+        System.out.printf("%d unpaid bookings, processor latency %d us per call + %d us per booking%n",
+                count, CALL_MICROS, BOOKING_MICROS);
+
+        // The single-item path is measured on a sample; at one processor call each it is latency bound
+        StubPaymentProcessor single = new StubPaymentProcessor(CALL_MICROS, BOOKING_MICROS, DECLINE_EVERY);
+        int singlePaid = 0;
+        long start = System.nanoTime();
+        for (PaymentSettlement.Confirmation confirmation : confirmations.subList(0, SINGLE_ITEM_SAMPLE)) {
+            for (Booking booking : basic.getUserById(confirmation.userId()).getBookings()) {
+                if (booking.getProperty().getPropertyId() == confirmation.propertyId()
+                        && booking.getStartDay() == confirmation.startDay()) {
+                    if (single.settle(null, List.of(booking))[0] && basic.setBookingPaid(booking, true)) {
+                        singlePaid++;
+                    }
+                    break;
+                }
+            }
+        }
+        double singleRate = SINGLE_ITEM_SAMPLE / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("%-28s %12.0f payments/s%n", "single item", singleRate);
+
+        StubPaymentProcessor batched = new StubPaymentProcessor(CALL_MICROS, BOOKING_MICROS, DECLINE_EVERY);
+        List<PaymentSettlement.Confirmation> rest = confirmations.subList(SINGLE_ITEM_SAMPLE, count);
+        PaymentSettlement settlement = PaymentSettlement.start(basic, batched, 16, 4 * batchSize, WORKERS);
+        int[] settled = {0};
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < rest.size(); i++) {
+                    if (settlement.take().settled()) {
+                        settled[0]++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        start = System.nanoTime();
+        consumer.start();
+        for (int from = 0; from < rest.size(); from += batchSize) {
+            settlement.submit(rest.subList(from, Math.min(from + batchSize, rest.size())));
+        }
+        consumer.join();
+        double batchedRate = rest.size() / ((System.nanoTime() - start) / 1e9);
+        settlement.close();
+        System.out.printf("%-28s %12.0f payments/s  %.0fx, %d processor calls%n",
+                "batches of " + batchSize + ", " + WORKERS + " workers", batchedRate, batchedRate / singleRate,
+                batched.getCalls());
+
+        int expected = rest.size() - rest.size() / DECLINE_EVERY;
+        if (settled[0] != expected) {
+            throw new IllegalStateException(settled[0] + " settled, expected " + expected);
+        }
+        int paid = 0;
+        for (User user : basic.users) {
+            for (Booking booking : user.getBookings()) {
+                if (booking.isPaid()) {
+                    paid++;
+                }
+            }
+        }
+        if (paid != singlePaid + settled[0]) {
+            throw new IllegalStateException(paid + " bookings paid, expected " + (singlePaid + settled[0]));
+        }
+    }
+}
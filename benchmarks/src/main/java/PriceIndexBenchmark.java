@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares answering "the 20 cheapest listings" by sorting every property per request with reading the
+ * first entries of the PriceIndex, and measures the cost of keeping the index updated on price changes.
+ * Run with a large heap, for example:
+ * {@code java -Xmx2g -cp benchmarks/target/benchmarks.jar PriceIndexBenchmark}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PriceIndexBenchmark {
+    private static final String[] CITIES = {"Nicosia", "Limassol", "Larnaca", "Paphos", "Famagusta", "Kyrenia", "Ayia Napa", "Protaras"};
+    private static final int TOP = 20;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        List<Property> properties = new ArrayList<>(count);
+        PropertyEvents events = new PropertyEvents();
+        PriceIndex index = new PriceIndex();
+        events.addListener(index);
+        for (int id = 1; id <= count; id++) {
+            int bedRooms = 1 + random.nextInt(5);
+            double price = 20 + random.nextInt(300);
+            String city = CITIES[random.nextInt(CITIES.length)];
+            Property property = random.nextBoolean()
+                    ? new FullProperty(id, bedRooms, bedRooms + 2, city, 40 + random.nextInt(300), price)
+                    : new SharedProperty(id, bedRooms, bedRooms + 1, city, price);
+            properties.add(property);
+            events.added(property);
+            index.added(property);
+        }
+
+        long sink = 0;
+        for (int warmup = 0; warmup < 3; warmup++) {
+            sink += sortedTop(properties).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            sink += sortedTop(properties).size();
+        }
+        double sortMs = (System.nanoTime() - start) / 1e6 / 5;
+
+        int queries = 200_000;
+        for (int i = 0; i < queries; i++) {
+            sink += index.cheapest(TOP).size();
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            sink += index.cheapestInCity(CITIES[i & 7], TOP).size();
+        }
+        double indexUs = (System.nanoTime() - start) / 1e3 / queries;
+
+        int updates = 200_000;
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            properties.get(random.nextInt(count)).setPricePerDay(20 + random.nextInt(300));
+        }
+        double updateUs = (System.nanoTime() - start) / 1e3 / updates;
+
+        System.out.printf("%-32s %12.1f ms%n", "sort all, take " + TOP, sortMs);
+        System.out.printf("%-32s %12.2f us%n", "index cheapest " + TOP + " in city", indexUs);
+        System.out.printf("%-32s %12.2f us%n", "price change (re-key)", updateUs);
+        if (sink == 42) {
+            System.out.println(sink); // Keep the queries from being eliminated
+        }
+    }
+
+    private static List<Property> sortedTop(List<Property> properties) {
+        List<Property> sorted = new ArrayList<>(properties);
+        sorted.sort(null);
+        return sorted.subList(0, TOP);
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares sorting properties by price per day when every comparison recomputes the price with sorting
+ * through the cached price of {@link Property#calculatePricePerDay()}.
+ * Run with a large heap, for example:
+ * {@code java -Xmx2g -cp benchmarks/target/benchmarks.jar PriceSortBenchmark}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PriceSortBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        List<Property> properties = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            int bedRooms = 1 + random.nextInt(5);
+            double price = 20 + random.nextInt(300);
+            properties.add(random.nextBoolean()
+                    ? new FullProperty(id, bedRooms, bedRooms + 2, "Nicosia", 40 + random.nextInt(300), price)
+                    : new SharedProperty(id, bedRooms, bedRooms + 1, "Nicosia", price));
+        }
+        Comparator<Property> recomputing = (a, b) -> Double.compare(a.computePricePerDay(), b.computePricePerDay());
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+            sort(properties, recomputing, random);
+            sort(properties, null, random);
+        }
+        double recomputed = 0;
+        double cached = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            recomputed += sort(properties, recomputing, random);
+            cached += sort(properties, null, random);
+        }
+        System.out.printf("%-28s %10.1f ms%n", "recomputed per comparison", recomputed / ROUNDS);
+        System.out.printf("%-28s %10.1f ms%n", "cached (compareTo)", cached / ROUNDS);
+    }
+
+    private static double sort(List<Property> properties, Comparator<Property> comparator, Random random) {
+        List<Property> copy = new ArrayList<>(properties);
+        Collections.shuffle(copy, random);
+        long start = System.nanoTime();
+        copy.sort(comparator);
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
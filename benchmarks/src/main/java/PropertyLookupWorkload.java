@@ -0,0 +1,24 @@
+import benchmarks.Workload;
+
+/**
+ * Looks properties up by ID in a BASIC instance of the given size.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PropertyLookupWorkload implements Workload {
+    private BASIC basic;
+    private int[] ids;
+    private int next;
+
+    @Override
+    public void setUp(int size, String variant) {
+        basic = BenchmarkData.basic(0, size);
+        ids = BenchmarkData.randomIds(size, 1 << 16);
+    }
+
+    @Override
+    public long run() {
+        return basic.getPropertyById(ids[next++ & (ids.length - 1)]).getPropertyId();
+    }
+}
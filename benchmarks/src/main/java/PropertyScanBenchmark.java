@@ -0,0 +1,144 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares analytical scans over Property objects with the same scans over the columnar PropertyStore:
+ * per-city price statistics, a bedroom/room filter count, the 10 cheapest properties, and a multi-predicate
+ * query (full properties in Limassol with at least 3 bedrooms at up to 200 per day) answered by the
+ * store's bitmap indexes.
+ * Run with a large heap, for example:
+ * {@code java -Xmx2g -cp benchmarks/target/benchmarks.jar PropertyScanBenchmark}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PropertyScanBenchmark {
+    private static final String[] CITIES = {"Nicosia", "Limassol", "Larnaca", "Paphos", "Famagusta", "Kyrenia", "Ayia Napa", "Protaras"};
+    private static final int ROUNDS = 10;
+    private static final PropertyQuery QUERY = new PropertyQuery()
+            .city("Limassol").type(PropertyStore.FULL).minBedRooms(3).maxPrice(200);
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        List<Property> properties = new ArrayList<>(count);
+        PropertyStore store = new PropertyStore();
+        for (int id = 1; id <= count; id++) {
+            String city = CITIES[random.nextInt(CITIES.length)];
+            int bedRooms = 1 + random.nextInt(5);
+            double price = 20 + random.nextInt(300);
+            Property property = random.nextBoolean()
+                    ? new FullProperty(id, bedRooms, bedRooms + 2, city, 40 + random.nextInt(300), price)
+                    : new SharedProperty(id, bedRooms, bedRooms + 1, city, price);
+            properties.add(property);
+            store.added(property);
+        }
+
+        System.out.printf("%-22s %12s %12s%n", "scan", "objects ms", "columns ms");
+        for (int warmup = 0; warmup < 3; warmup++) {
+            objectStats(properties);
+            store.statsByCity();
+            objectCount(properties, "Limassol", 3, 4);
+            store.count(store.cities().find("Limassol"), 3, 4);
+            objectCheapest(properties, 10);
+            store.cheapestRows(10);
+            objectQuery(properties);
+            store.query(QUERY);
+        }
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += objectStats(properties);
+        }
+        double objects = millisPerRound(start);
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += store.statsByCity().size();
+        }
+        System.out.printf("%-22s %12.2f %12.2f%n", "stats by city", objects, millisPerRound(start));
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += objectCount(properties, "Limassol", 3, 4);
+        }
+        objects = millisPerRound(start);
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += store.count(store.cities().find("Limassol"), 3, 4);
+        }
+        System.out.printf("%-22s %12.2f %12.2f%n", "filtered count", objects, millisPerRound(start));
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += objectCheapest(properties, 10).size();
+        }
+        objects = millisPerRound(start);
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += store.cheapestRows(10).length;
+        }
+        System.out.printf("%-22s %12.2f %12.2f%n", "10 cheapest", objects, millisPerRound(start));
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += objectQuery(properties);
+        }
+        objects = millisPerRound(start);
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += store.query(QUERY).length;
+        }
+        System.out.printf("%-22s %12.2f %12.2f%n", "indexed query", objects, millisPerRound(start));
+        if (sink == 42) {
+            System.out.println(sink); // Keep the scans from being eliminated
+        }
+    }
+
+    private static double millisPerRound(long start) {
+        return (System.nanoTime() - start) / 1e6 / ROUNDS;
+    }
+
+    private static int objectStats(List<Property> properties) {
+        Map<String, double[]> stats = new HashMap<>();
+        for (Property property : properties) {
+            double price = property.calculatePricePerDay();
+            double[] city = stats.computeIfAbsent(property.getCity(),
+                    c -> new double[]{0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY});
+            city[0]++;
+            city[1] += price;
+            city[2] = Math.min(city[2], price);
+            city[3] = Math.max(city[3], price);
+        }
+        return stats.size();
+    }
+
+    private static int objectCount(List<Property> properties, String city, int minBedRooms, int minRooms) {
+        int count = 0;
+        for (Property property : properties) {
+            if (property.getCity().equals(city) && property.getNoBedRooms() >= minBedRooms && property.getNoRooms() >= minRooms) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int objectQuery(List<Property> properties) {
+        int count = 0;
+        for (Property property : properties) {
+            if (property instanceof FullProperty && property.getCity().equalsIgnoreCase("Limassol")
+                    && property.getNoBedRooms() >= 3 && property.calculatePricePerDay() <= 200) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static List<Property> objectCheapest(List<Property> properties, int k) {
+        List<Property> sorted = new ArrayList<>(properties);
+        sorted.sort(null);
+        return sorted.subList(0, k);
+    }
+}
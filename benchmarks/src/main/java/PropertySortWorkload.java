@@ -0,0 +1,34 @@
+import benchmarks.Workload;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sorts a shuffled copy of the given number of properties by price using Property.compareTo.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PropertySortWorkload implements Workload {
+    private List<Property> properties;
+    private final List<Property> copy = new ArrayList<>();
+
+    @Override
+    public void setUp(int size, String variant) {
+        Random random = new Random(42);
+        properties = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            properties.add(BenchmarkData.property(id, random));
+        }
+        Collections.shuffle(properties, random);
+    }
+
+    @Override
+    public long run() {
+        copy.clear();
+        copy.addAll(properties);
+        Collections.sort(copy);
+        return copy.get(0).getPropertyId();
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.Random;
+
+/**
+ * Measures EntityRegistry removal cost as the number of registered users grows, and how long the
+ * compaction steps that reclaim the emptied slots take: the total, and the longest single step, which is
+ * the longest the registry lock is held. Half the users are removed in random order.
+ * Run with a large heap for the 10M step, for example:
+ * {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar RegistryDeletionBenchmark}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class RegistryDeletionBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : SIZES[SIZES.length - 1];
+        System.out.printf("%12s %14s %14s %14s %14s%n", "entities", "ns/removal", "compact ms", "steps", "max step us");
+        for (int size : SIZES) {
+            if (size > maxSize) {
+                break;
+            }
+            EntityRegistry<User> registry = new EntityRegistry<>(User.class, User::getUserId);
+            for (int id = 1; id <= size; id++) {
+                registry.add(new Host(id, null, "First", "Last", null, id));
+            }
+            int[] ids = shuffledIds(size);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < size / 2; i++) {
+                registry.remove(ids[i]);
+            }
+            double removalNs = (double) (System.nanoTime() - start) / (size / 2);
+
+            int steps = 0;
+            long longestStep = 0;
+            start = System.nanoTime();
+            boolean more = true;
+            while (more) {
+                long stepStart = System.nanoTime();
+                more = registry.compact(RegistryCompactor.STEP_SLOTS);
+                longestStep = Math.max(longestStep, System.nanoTime() - stepStart);
+                steps++;
+            }
+            double compactMs = (System.nanoTime() - start) / 1e6;
+            if (registry.size() != size - size / 2) {
+                throw new IllegalStateException("Registry holds " + registry.size() + " users");
+            }
+            System.out.printf("%12d %14.1f %14.1f %14d %14.1f%n", size, removalNs, compactMs, steps, longestStep / 1e3);
+        }
+    }
+
+    private static int[] shuffledIds(int size) {
+        Random random = new Random(42);
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return ids;
+    }
+}
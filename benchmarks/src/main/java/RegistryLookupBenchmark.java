@@ -0,0 +1,61 @@
+import java.util.Random;
+
+/**
+ * Measures EntityRegistry lookup latency as the number of registered users grows.
+ * Run with a large heap for the 10M step, for example:
+ * {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar RegistryLookupBenchmark}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class RegistryLookupBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+    private static final int LOOKUPS = 5_000_000;
+
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : SIZES[SIZES.length - 1];
+        System.out.printf("%12s %14s %14s%n", "entities", "ns/lookup", "ns/miss");
+        for (int size : SIZES) {
+            if (size > maxSize) {
+                break;
+            }
+            EntityRegistry<User> registry = new EntityRegistry<>(User.class, User::getUserId);
+            for (int id = 1; id <= size; id++) {
+                registry.add(new Host(id, null, "First" , "Last", null, id));
+            }
+            int[] hits = randomIds(size, 1);
+            int[] misses = randomIds(size, size + 1);
+
+            // Warm up before measuring
+            run(registry, hits);
+            run(registry, misses);
+            double hitNs = run(registry, hits);
+            double missNs = run(registry, misses);
+            System.out.printf("%12d %14.1f %14.1f%n", size, hitNs, missNs);
+        }
+    }
+
+    private static int[] randomIds(int size, int base) {
+        Random random = new Random(42);
+        int[] ids = new int[LOOKUPS];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = base + random.nextInt(size);
+        }
+        return ids;
+    }
+
+    private static double run(EntityRegistry<User> registry, int[] ids) {
+        long found = 0;
+        long start = System.nanoTime();
+        for (int id : ids) {
+            if (registry.get(id) != null) {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found < 0) {
+            System.out.println(found); // Keep the loop from being eliminated
+        }
+        return (double) elapsed / ids.length;
+    }
+}
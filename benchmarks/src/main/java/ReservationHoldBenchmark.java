@@ -0,0 +1,62 @@
+import java.util.Random;
+
+/**
+ * Measures the timing wheel behind ReservationHolds with millions of pending holds: the cost of placing a
+ * hold, of cancelling one (a payment), and of expiring the rest as the clock advances tick by tick through
+ * the time to live. Holds are placed over a minute of simulated arrivals with a 15 minute time to live,
+ * and two in three are paid before they expire.
+ * Run with a large heap for the largest step, for example:
+ * {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar ReservationHoldBenchmark}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class ReservationHoldBenchmark {
+    private static final int[] SIZES = {100_000, 1_000_000, 10_000_000};
+    private static final long TTL_MILLIS = 15 * 60 * 1000;
+    private static final long ARRIVAL_MILLIS = 60 * 1000;
+
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : SIZES[SIZES.length - 1];
+        System.out.printf("%12s %14s %14s %14s %14s%n", "holds", "ns/hold", "ns/cancel", "ns/expiry", "max tick us");
+        for (int size : SIZES) {
+            if (size > maxSize) {
+                break;
+            }
+            Random random = new Random(42);
+            TimingWheel<Integer> wheel = new TimingWheel<>(ReservationHolds.TICK_MILLIS, 0);
+            @SuppressWarnings("unchecked")
+            TimingWheel.Timer<Integer>[] timers = new TimingWheel.Timer[size];
+
+            long start = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                long arrival = random.nextInt((int) ARRIVAL_MILLIS);
+                timers[i] = wheel.schedule(i, arrival + TTL_MILLIS);
+            }
+            double holdNs = (double) (System.nanoTime() - start) / size;
+
+            int cancelled = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                if (i % 3 != 0 && wheel.cancel(timers[i])) {
+                    cancelled++;
+                }
+            }
+            double cancelNs = (double) (System.nanoTime() - start) / cancelled;
+
+            int[] expired = {0};
+            long longestTick = 0;
+            start = System.nanoTime();
+            for (long now = 0; now <= ARRIVAL_MILLIS + TTL_MILLIS; now += ReservationHolds.TICK_MILLIS) {
+                long tickStart = System.nanoTime();
+                wheel.advance(now, id -> expired[0]++);
+                longestTick = Math.max(longestTick, System.nanoTime() - tickStart);
+            }
+            double expiryNs = (double) (System.nanoTime() - start) / expired[0];
+            if (expired[0] + cancelled != size || wheel.size() != 0) {
+                throw new IllegalStateException(expired[0] + " expired and " + cancelled + " cancelled of " + size);
+            }
+            System.out.printf("%12d %14.1f %14.1f %14.1f %14.1f%n", size, holdNs, cancelNs, expiryNs, longestTick / 1e3);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares pricing stays against a PriceCalendar with summing the rate of every night of the stay, for
+ * properties with ten years of daily rates: weekends at 1.25, two high seasons a year at 1.5 and a few
+ * event nights at 3. Stays are 1 to 60 nights long, and both ways must agree on every cost. Also measures
+ * replacing a week and a whole season of rates, which rebuilds only the chunks the range touches.
+ * Run for example with:
+ * {@code java -cp benchmarks/target/benchmarks.jar SeasonalPricingBenchmark 5000000}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class SeasonalPricingBenchmark {
+    private static final int YEARS = 10;
+    private static final int CALENDARS = 64;
+    private static final int MAX_STAY = 60;
+
+    public static void main(String[] args) {
+        int stays = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Random random = new Random(42);
+        int firstDay = EpochDay.of(2030, 1, 1);
+        int days = YEARS * 365;
+        PriceCalendar[] calendars = new PriceCalendar[CALENDARS];
+        for (int c = 0; c < CALENDARS; c++) {
+            calendars[c] = PriceCalendar.FLAT.withRates(firstDay, seasonalRates(firstDay, days, random));
+        }
+        int[] calendarOf = new int[stays];
+        int[] startDays = new int[stays];
+        int[] endDays = new int[stays];
+        for (int i = 0; i < stays; i++) {
+            calendarOf[i] = random.nextInt(CALENDARS);
+            startDays[i] = firstDay + random.nextInt(days - MAX_STAY);
+            endDays[i] = startDays[i] + 1 + random.nextInt(MAX_STAY);
+        }
+        double pricePerDay = 120;
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            double nightly = 0;
+            for (int i = 0; i < stays; i++) {
+                PriceCalendar rates = calendars[calendarOf[i]];
+                double cost = 0;
+                for (int day = startDays[i]; day < endDays[i]; day++) {
+                    cost += pricePerDay * rates.rate(day);
+                }
+                nightly += cost;
+            }
+            double nightlyNs = (double) (System.nanoTime() - start) / stays;
+
+            start = System.nanoTime();
+            double summed = 0;
+            for (int i = 0; i < stays; i++) {
+                summed += pricePerDay * calendars[calendarOf[i]].sum(startDays[i], endDays[i]);
+            }
+            double summedNs = (double) (System.nanoTime() - start) / stays;
+            if (Math.abs(nightly - summed) > 1e-9 * nightly) {
+                throw new IllegalStateException("Costs differ: " + nightly + " and " + summed);
+            }
+            System.out.printf("round %d: per night %.1f ns/stay, prefix sums %.1f ns/stay  %.1fx%n",
+                    round, nightlyNs, summedNs, nightlyNs / summedNs);
+        }
+
+        double[] week = new double[7];
+        double[] season = new double[90];
+        Arrays.fill(week, 2);
+        Arrays.fill(season, 1.75);
+        int updates = 100_000;
+        for (double[] range : new double[][]{week, season}) {
+            long start = System.nanoTime();
+            PriceCalendar rates = calendars[0];
+            for (int i = 0; i < updates; i++) {
+                rates = rates.withRates(firstDay + random.nextInt(days - range.length), range);
+            }
+            System.out.printf("replace %d nights: %.0f ns/update%n", range.length,
+                    (double) (System.nanoTime() - start) / updates);
+        }
+    }
+
+    private static double[] seasonalRates(int firstDay, int days, Random random) {
+        double[] rates = new double[days];
+        for (int i = 0; i < days; i++) {
+            int day = firstDay + i;
+            int dayOfYear = i % 365;
+            double rate = Math.floorMod(day + 3, 7) >= 5 ? 1.25 : 1;
+            if (dayOfYear >= 170 && dayOfYear < 240 || dayOfYear >= 350) {
+                rate = 1.5;
+            }
+            if (random.nextInt(100) == 0) {
+                rate = 3;
+            }
+            rates[i] = rate;
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,95 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures sustained booking write throughput through the write-ahead log, group-commit fsync batching
+ * with concurrent durable writers, and recovery time from snapshot plus log tail.
+ * The default run logs 10M bookings; pass a smaller count as the first argument for a quick run, e.g.
+ * {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar StorageEngineBenchmark 1000000}.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class StorageEngineBenchmark {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) throws Exception {
+        int bookings = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int properties = Math.max(1, bookings / 100);
+        int users = Math.max(1, bookings / 100);
+        Path directory = Files.createTempDirectory("basic-storage");
+
+        // Sustained writes: background fsync every 10ms, a snapshot every half of the run
+        BASIC basic = new BASIC();
+        StorageEngine storage = StorageEngine.open(directory, basic, false, bookings / 2 + 7);
+        for (int id = 1; id <= users; id++) {
+            basic.users.add(new StandardCustomer(id, new Date(0), "First", "Last", new Date(0), "Credit Card"));
+        }
+        for (int id = 1; id <= properties; id++) {
+            basic.properties.add(new FullProperty(id, 2, 4, "Nicosia", 150, 120));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < bookings; i++) {
+            Property property = basic.getPropertyById(1 + i % properties);
+            long firstNight = (long) (i / properties) * 3 * DAY_MILLIS + DAY_MILLIS / 2;
+            basic.addBooking(new Booking(basic.getUserById(1 + i % users), property,
+                    new Date(firstNight), new Date(firstNight + 2 * DAY_MILLIS)));
+        }
+        storage.close();
+        double writeSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("logged %,d bookings in %.1fs: %,.0f bookings/s (incl. one snapshot)%n",
+                bookings, writeSeconds, bookings / writeSeconds);
+
+        // Recovery: latest snapshot plus the records logged after it
+        basic = null;
+        System.gc();
+        start = System.nanoTime();
+        BASIC recovered = new BASIC();
+        StorageEngine.open(directory, recovered, true, Integer.MAX_VALUE).close();
+        double recoverySeconds = (System.nanoTime() - start) / 1e9;
+        long recoveredBookings = 0;
+        for (User user : recovered.users) {
+            recoveredBookings += user.getBookings().size();
+        }
+        System.out.printf("recovered %,d bookings in %.1fs%n", recoveredBookings, recoverySeconds);
+
+        groupCommit(directory.resolve("group-commit.log"), 8, 2_000);
+    }
+
+    /**
+     * Concurrent writers that each wait for durability; group commit lets them share fsyncs.
+     */
+    private static void groupCommit(Path file, int threads, int recordsPerThread) throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(file, 0);
+        AtomicLong failures = new AtomicLong();
+        Thread[] writers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int writer = t;
+            writers[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < recordsPerThread; i++) {
+                        int value = i;
+                        wal.awaitDurable(wal.append(StorageEngine.ADD_BOOKING, out -> {
+                            out.writeInt(writer);
+                            out.writeInt(value);
+                        }));
+                    }
+                } catch (IOException e) {
+                    failures.incrementAndGet();
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        wal.close();
+        System.out.printf("group commit: %d writers, %,d durable appends in %.2fs: %,.0f appends/s (%d failures)%n",
+                threads, threads * recordsPerThread, seconds, threads * recordsPerThread / seconds, failures.get());
+    }
+}
@@ -0,0 +1,87 @@
+import java.lang.management.ManagementFactory;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Allocation profile of the date hot paths: bytes allocated and time per operation for the former
+ * java.util.Date / SimpleDateFormat / Calendar code next to the epoch-day replacements.
+ * Uses the HotSpot per-thread allocation counter, so run it on a HotSpot JVM:
+ * {@code java -cp benchmarks/target/benchmarks.jar TemporalAllocationBenchmark}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class TemporalAllocationBenchmark {
+    private static final int OPERATIONS = 2_000_000;
+    private static final String[] DATES = {"01/01/2010", "15/06/1985", "22/09/1990", "29/02/2024", "31/12/2023", "10/10/2023"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        Date registration = new Date(EpochDay.toMillis(EpochDay.parse("01/03/2012")));
+        StandardCustomer customer = new StandardCustomer(1, null, "First", "Last", registration, "Card");
+        Booking booking = new Booking(customer, new SharedProperty(1, 2, 3, "Nicosia", 100),
+                EpochDay.parse("10/10/2023"), EpochDay.parse("20/10/2023"), false);
+        Date startDate = booking.getStartDate();
+        Date endDate = booking.getEndDate();
+        StringBuilder out = new StringBuilder(16);
+
+        System.out.printf("%-34s %12s %12s%n", "operation", "bytes/op", "ns/op");
+        measure("parse: SimpleDateFormat", i -> {
+            SimpleDateFormat format = new SimpleDateFormat("dd/MM/yyyy");
+            format.setLenient(false);
+            try {
+                return format.parse(DATES[i % DATES.length]).getTime();
+            } catch (ParseException e) {
+                return 0;
+            }
+        });
+        measure("parse: EpochDay", i -> EpochDay.parse(DATES[i % DATES.length]));
+
+        SimpleDateFormat shared = new SimpleDateFormat("dd/MM/yyyy");
+        measure("format: SimpleDateFormat", i -> shared.format(startDate).length());
+        measure("format: EpochDay.appendTo", i -> {
+            out.setLength(0);
+            return EpochDay.appendTo(19_000 + i % 1000, out).length();
+        });
+
+        measure("discount: two Calendars", i -> {
+            Calendar current = Calendar.getInstance();
+            Calendar registered = Calendar.getInstance();
+            registered.setTime(registration);
+            int years = current.get(Calendar.YEAR) - registered.get(Calendar.YEAR);
+            if (registered.get(Calendar.DAY_OF_YEAR) > current.get(Calendar.DAY_OF_YEAR)) {
+                years--;
+            }
+            return years >= 10 ? 2 : 0;
+        });
+        measure("discount: epoch days", i -> (long) customer.getDiscountForUser());
+
+        measure("nights: Date millis", i -> (endDate.getTime() - startDate.getTime()) / (24 * 60 * 60 * 1000));
+        measure("nights: epoch days", i -> booking.getNights());
+        double discount = customer.getDiscountForUser();
+        measure("net cost", i -> (long) booking.netCost(discount));
+    }
+
+    private static void measure(String name, IntToLongFunction operation) {
+        long sink = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            sink += operation.applyAsLong(i); // Warm up so the JIT has compiled the path
+        }
+        long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            sink += operation.applyAsLong(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+        System.out.printf("%-34s %12.1f %12.1f%n", name, (double) bytes / OPERATIONS, (double) elapsed / OPERATIONS);
+        if (sink == 42) {
+            System.out.println(sink); // Keep the operations from being eliminated
+        }
+    }
+}
@@ -0,0 +1,38 @@
+import benchmarks.Workload;
+import java.util.Random;
+
+/**
+ * Calculates Booking.totalCost for a set of bookings of the given size.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class TotalCostWorkload implements Workload {
+    private Booking[] bookings;
+    private int next;
+
+    @Override
+    public void setUp(int size, String variant) {
+        Random random = new Random(42);
+        int propertyCount = Math.max(1, size / 10);
+        Property[] properties = new Property[propertyCount];
+        for (int i = 0; i < propertyCount; i++) {
+            properties[i] = BenchmarkData.property(i + 1, random);
+        }
+        User user = BenchmarkData.user(1, 2);
+        bookings = new Booking[size];
+        int firstDay = EpochDay.of(2024, 1, 1);
+        for (int i = 0; i < size; i++) {
+            int startDay = firstDay + random.nextInt(365);
+            bookings[i] = new Booking(user, properties[random.nextInt(propertyCount)], startDay, startDay + 1 + random.nextInt(14), false);
+        }
+    }
+
+    @Override
+    public long run() {
+        if (next == bookings.length) {
+            next = 0;
+        }
+        return Double.doubleToRawLongBits(bookings[next++].totalCost());
+    }
+}
@@ -0,0 +1,24 @@
+import benchmarks.Workload;
+
+/**
+ * Looks users up by ID in a BASIC instance of the given size.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class UserLookupWorkload implements Workload {
+    private BASIC basic;
+    private int[] ids;
+    private int next;
+
+    @Override
+    public void setUp(int size, String variant) {
+        basic = BenchmarkData.basic(size, 0);
+        ids = BenchmarkData.randomIds(size, 1 << 16);
+    }
+
+    @Override
+    public long run() {
+        return basic.getUserById(ids[next++ & (ids.length - 1)]).getUserId();
+    }
+}
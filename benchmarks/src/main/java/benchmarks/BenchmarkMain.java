@@ -0,0 +1,32 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar: runs JMH and writes the results as JSON to jmh-result.json unless the
+ * command line chooses another result format or file, so successive releases can be compared.
+ * Example: {@code java -jar benchmarks/target/benchmarks.jar LookupBenchmark -p size=1000}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!options.contains("-rff")) {
+            options.add("-rff");
+            options.add("jmh-result.json");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BASIC.addBooking against populated calendars, and Booking.totalCost.
+ * The size is the number of properties for addBooking and the number of bookings for totalCost.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Workload addBooking;
+    private Workload totalCost;
+
+    @Setup
+    public void setUp() {
+        addBooking = Workload.create("AddBookingWorkload", size, null);
+        totalCost = Workload.create("TotalCostWorkload", size, null);
+    }
+
+    @Benchmark
+    public long addBooking() {
+        return addBooking.run();
+    }
+
+    @Benchmark
+    public long totalCost() {
+        return totalCost.run();
+    }
+}
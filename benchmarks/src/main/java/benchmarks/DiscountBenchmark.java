@@ -0,0 +1,47 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * getDiscountForUser for gold and standard customers, and the same discounts looked up through the
+ * precomputed tiers of a DiscountEngine.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscountBenchmark {
+    @Param({"gold", "standard", "engine-gold", "engine-standard"})
+    public String variant;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Workload discount;
+
+    @Setup
+    public void setUp() {
+        discount = Workload.create("DiscountWorkload", size, variant);
+    }
+
+    @Benchmark
+    public long discountForUser() {
+        return discount.run();
+    }
+}
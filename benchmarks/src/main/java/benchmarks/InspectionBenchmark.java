@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recording inspection reports with BASIC.addInspectionToProperty.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InspectionBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Workload inspection;
+
+    @Setup
+    public void setUp() {
+        inspection = Workload.create("InspectionWorkload", size, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        inspection.tearDown();
+    }
+
+    @Benchmark
+    public long addInspection() {
+        return inspection.run();
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering every user or property with listUsers/listProperties.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingBenchmark {
+    @Param({"users", "properties"})
+    public String variant;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Workload listing;
+
+    @Setup
+    public void setUp() {
+        listing = Workload.create("ListingWorkload", size, variant);
+    }
+
+    @TearDown
+    public void tearDown() {
+        listing.tearDown();
+    }
+
+    @Benchmark
+    public long list() {
+        return listing.run();
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BASIC.getUserById and BASIC.getPropertyById at random IDs.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Workload users;
+    private Workload properties;
+
+    @Setup
+    public void setUp() {
+        users = Workload.create("UserLookupWorkload", size, null);
+        properties = Workload.create("PropertyLookupWorkload", size, null);
+    }
+
+    @Benchmark
+    public long userLookup() {
+        return users.run();
+    }
+
+    @Benchmark
+    public long propertyLookup() {
+        return properties.run();
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+/**
+ * One operation of the BASIC application prepared for measurement.
+ * JMH only accepts benchmark classes in a named package, while the application lives in the default
+ * package, which named packages cannot refer to. The operations are therefore written as default-package
+ * classes implementing this interface, and the JMH benchmarks load them by name once per trial; the
+ * measured call is a plain interface call the JIT inlines.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public interface Workload {
+
+    /**
+     * Build the dataset the operation runs against.
+     *
+     * @param size    The dataset size (number of users, properties or bookings, depending on the operation).
+     * @param variant The variant of the operation to run, or null if it has none.
+     */
+    void setUp(int size, String variant);
+
+    /**
+     * Run the operation once.
+     *
+     * @return A value derived from the result, returned to JMH so the work is not eliminated.
+     */
+    long run();
+
+    /**
+     * Release anything the workload changed globally, such as System.out.
+     */
+    default void tearDown() {
+    }
+
+    /**
+     * Create and set up a workload.
+     *
+     * @param className The name of the default-package workload class.
+     * @param size      The dataset size.
+     * @param variant   The variant of the operation, or null.
+     * @return The workload, ready to run.
+     */
+    static Workload create(String className, int size, String variant) {
+        Workload workload;
+        try {
+            workload = (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create workload " + className, e);
+        }
+        workload.setUp(size, variant);
+        return workload;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * A day-granularity bitmap over epoch days.
+ * Days are grouped in blocks of 512 (eight 64-bit words, roughly a year and a half) held in a directory
+ * array, and blocks are only allocated once a day inside them is marked, so a property costs nothing for
+ * periods it was never booked.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class AvailabilityBitmap {
+    private static final int BLOCK_SHIFT = 9;
+    private static final int WORDS_PER_BLOCK = 1 << (BLOCK_SHIFT - 6);
+
+    /**
+     * Blocks indexed by (block number - firstBlock); null entries have no marked days.
+     */
+    private long[][] blocks = new long[0][];
+    private int firstBlock;
+
+    /**
+     * Mark every day in [start, end).
+     *
+     * @param start The first day to mark (epoch day).
+     * @param end   The end of the range (epoch day, exclusive).
+     */
+    public void mark(int start, int end) {
+        for (int day = start; day < end; ) {
+            int wordEnd = nextWordBoundary(day, end);
+            long[] words = blockForWrite(day >> BLOCK_SHIFT);
+            words[(day >> 6) & (WORDS_PER_BLOCK - 1)] |= mask(day, wordEnd);
+            day = wordEnd;
+        }
+    }
+
+    /**
+     * Clear every day in [start, end).
+     *
+     * @param start The first day to clear (epoch day).
+     * @param end   The end of the range (epoch day, exclusive).
+     */
+    public void clear(int start, int end) {
+        for (int day = start; day < end; ) {
+            int wordEnd = nextWordBoundary(day, end);
+            long[] words = block(day >> BLOCK_SHIFT);
+            if (words != null) {
+                words[(day >> 6) & (WORDS_PER_BLOCK - 1)] &= ~mask(day, wordEnd);
+            }
+            day = wordEnd;
+        }
+    }
+
+    /**
+     * Check whether a single day is marked.
+     *
+     * @param day The epoch day.
+     * @return true if the day is marked; otherwise, false.
+     */
+    public boolean isMarked(int day) {
+        long[] words = block(day >> BLOCK_SHIFT);
+        return words != null && (words[(day >> 6) & (WORDS_PER_BLOCK - 1)] & (1L << day)) != 0;
+    }
+
+    /**
+     * Check whether any day in [start, end) is marked, testing up to 64 days per step.
+     *
+     * @param start The first day of the range (epoch day).
+     * @param end   The end of the range (epoch day, exclusive).
+     * @return true if at least one day in the range is marked; otherwise, false.
+     */
+    public boolean anyMarked(int start, int end) {
+        for (int day = start; day < end; ) {
+            long[] words = block(day >> BLOCK_SHIFT);
+            if (words == null) {
+                // Nothing marked in this block, jump to the next one
+                day = ((day >> BLOCK_SHIFT) + 1) << BLOCK_SHIFT;
+                continue;
+            }
+            int wordEnd = nextWordBoundary(day, end);
+            if ((words[(day >> 6) & (WORDS_PER_BLOCK - 1)] & mask(day, wordEnd)) != 0) {
+                return true;
+            }
+            day = wordEnd;
+        }
+        return false;
+    }
+
+    private long[] block(int blockNumber) {
+        int slot = blockNumber - firstBlock;
+        return slot >= 0 && slot < blocks.length ? blocks[slot] : null;
+    }
+
+    private long[] blockForWrite(int blockNumber) {
+        if (blocks.length == 0) {
+            blocks = new long[1][];
+            firstBlock = blockNumber;
+        } else if (blockNumber < firstBlock) {
+            long[][] grown = new long[blocks.length + (firstBlock - blockNumber)][];
+            System.arraycopy(blocks, 0, grown, firstBlock - blockNumber, blocks.length);
+            blocks = grown;
+            firstBlock = blockNumber;
+        } else if (blockNumber - firstBlock >= blocks.length) {
+            long[][] grown = new long[blockNumber - firstBlock + 1][];
+            System.arraycopy(blocks, 0, grown, 0, blocks.length);
+            blocks = grown;
+        }
+        int slot = blockNumber - firstBlock;
+        if (blocks[slot] == null) {
+            blocks[slot] = new long[WORDS_PER_BLOCK];
+        }
+        return blocks[slot];
+    }
+
+    private static int nextWordBoundary(int day, int end) {
+        return (int) Math.min(end, (((long) day >> 6) + 1) << 6);
+    }
+
+    /**
+     * Bit mask for the days [day, wordEnd) which all fall into the same 64-bit word.
+     */
+    private static long mask(int day, int wordEnd) {
+        return (-1L << day) & (-1L >>> (63 - ((wordEnd - 1) & 63)));
+    }
+}
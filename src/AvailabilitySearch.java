@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Answers "which properties in city C are free between D1 and D2" without scanning every property and booking.
+ * Properties are kept in per-city posting lists next to their full-nights bitmaps, so a candidate is rejected
+ * by testing up to 64 nights at a time without touching the property or its booking tree.
+ * Subscribed to property changes, it moves a property to its new city's list when the city changes.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class AvailabilitySearch implements EntityRegistry.Listener<Property>, PropertyListener {
+    private static final Comparator<Ranked> BY_PRICE = Comparator.comparingDouble(Ranked::price);
+
+    private final HashMap<String, Postings> postingsByCity = new HashMap<>();
+    private final IntObjectHashMap<Postings> indexedIn = new IntObjectHashMap<>();
+
+    /**
+     * Add a newly registered property to its city's posting list.
+     *
+     * @param property The added property.
+     */
+    @Override
+    public void added(Property property) {
+        Postings postings = postingsByCity.computeIfAbsent(cityKey(property.getCity()), key -> new Postings());
+        postings.add(property);
+        indexedIn.put(property.getPropertyId(), postings);
+    }
+
+    /**
+     * Move a property whose city changed from its old city's posting list to the new one.
+     *
+     * @param property The changed property.
+     */
+    @Override
+    public void propertyChanged(Property property) {
+        Postings postings = indexedIn.get(property.getPropertyId());
+        if (postings != null && postings != postingsByCity.get(cityKey(property.getCity()))) {
+            removed(property);
+            added(property);
+        }
+    }
+
+    /**
+     * Remove a deleted property from the posting list it was indexed under.
+     *
+     * @param property The removed property.
+     */
+    @Override
+    public void removed(Property property) {
+        Postings postings = indexedIn.remove(property.getPropertyId());
+        if (postings != null) {
+            postings.remove(property);
+        }
+    }
+
+    /**
+     * Find the properties in a city that can take one more booking on every night of [startDay, endDay).
+     *
+     * @param city          The city to search in (case-insensitive).
+     * @param startDay      The first night of the stay (epoch day).
+     * @param endDay        The checkout day (epoch day, exclusive).
+     * @param minBedRooms   The minimum number of bedrooms, or 0 for no filter.
+     * @param minRooms      The minimum number of rooms, or 0 for no filter.
+     * @param cheapestFirst Whether to order the results by calculated price per day.
+     * @return The matching properties.
+     */
+    public List<Property> findAvailable(String city, int startDay, int endDay, int minBedRooms, int minRooms,
+                                        boolean cheapestFirst) {
+        if (startDay >= endDay) {
+            throw new IllegalArgumentException("A stay must end after it starts");
+        }
+        Postings postings = postingsByCity.get(cityKey(city));
+        if (postings == null) {
+            return new ArrayList<>();
+        }
+        List<Property> results = new ArrayList<>();
+        for (int i = 0; i < postings.size; i++) {
+            if (postings.fullNights[i].anyMarked(startDay, endDay)) {
+                continue;
+            }
+            Property property = postings.properties[i];
+            if (property.getNoBedRooms() >= minBedRooms && property.getNoRooms() >= minRooms) {
+                results.add(property);
+            }
+        }
+        return cheapestFirst ? sortByPrice(results) : results;
+    }
+
+    /**
+     * Get the number of properties listed in a city.
+     *
+     * @param city The city name (case-insensitive).
+     * @return The number of properties in the city.
+     */
+    public int countInCity(String city) {
+        Postings postings = postingsByCity.get(cityKey(city));
+        return postings == null ? 0 : postings.size;
+    }
+
+    /**
+     * Sort properties by calculated price per day, computing each price only once.
+     */
+    private static List<Property> sortByPrice(List<Property> properties) {
+        Ranked[] ranked = new Ranked[properties.size()];
+        for (int i = 0; i < ranked.length; i++) {
+            Property property = properties.get(i);
+            ranked[i] = new Ranked(property.calculatePricePerDay(), property);
+        }
+        Arrays.sort(ranked, BY_PRICE);
+        List<Property> sorted = new ArrayList<>(ranked.length);
+        for (Ranked entry : ranked) {
+            sorted.add(entry.property());
+        }
+        return sorted;
+    }
+
+    private static String cityKey(String city) {
+        return city == null ? "" : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Ranked(double price, Property property) {
+    }
+
+    /**
+     * The properties of one city with their full-nights bitmaps in parallel arrays.
+     * Order is not significant, so removal moves the last entry into the gap.
+     */
+    private static final class Postings {
+        Property[] properties = new Property[8];
+        AvailabilityBitmap[] fullNights = new AvailabilityBitmap[8];
+        int size;
+
+        void add(Property property) {
+            if (size == properties.length) {
+                properties = Arrays.copyOf(properties, size * 2);
+                fullNights = Arrays.copyOf(fullNights, size * 2);
+            }
+            properties[size] = property;
+            fullNights[size] = property.getCalendar().getFullNights();
+            size++;
+        }
+
+        void remove(Property property) {
+            for (int i = 0; i < size; i++) {
+                if (properties[i] == property) {
+                    size--;
+                    properties[i] = properties[size];
+                    fullNights[i] = fullNights[size];
+                    properties[size] = null;
+                    fullNights[size] = null;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -2,9 +2,13 @@
  * @version JDK 20.0.2
  * @author albaraa zeinoglu
  */
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 
 /**
@@ -15,22 +19,194 @@ import java.util.*;
 public class BASIC {
 
     /**
-     * List of users registered in the system.
+     * List of users registered in the system (a view over the user registry).
      */
-    public ArrayList<User> users;
+    public List<User> users;
 
     /**
-     * List of properties available in the system.
+     * List of properties available in the system (a view over the property registry).
      */
-    public ArrayList<Property> properties;
+    public List<Property> properties;
+
+    /**
+     * Users indexed by their unique ID.
+     */
+    private final EntityRegistry<User> userRegistry;
+
+    /**
+     * Properties indexed by their unique ID.
+     */
+    private final EntityRegistry<Property> propertyRegistry;
+
+    /**
+     * City and date-range availability search over the registered properties.
+     */
+    private final AvailabilitySearch availabilitySearch;
+
+    /**
+     * Forwards property change notifications to the indexes that mirror property fields.
+     */
+    private final PropertyEvents propertyEvents;
+
+    /**
+     * Columnar copy of the registered properties for analytical scans.
+     */
+    private final PropertyStore propertyStore;
+
+    /**
+     * Properties ordered by calculated price per day.
+     */
+    private final PriceIndex priceIndex;
+
+    /**
+     * Per-host listings and revenue, kept current from property, price and booking events.
+     */
+    private final HostLedger hostLedger;
+
+    /**
+     * Booked nights, occupancy and revenue per city and month, kept current from property and booking events.
+     */
+    private final OccupancyRollup occupancyRollup;
+
+    /**
+     * Every booking in flat columns, for reports over all bookings.
+     */
+    private final BookingStore bookingStore;
+
+    /**
+     * Each user's discount under the current rules, precomputed per tier.
+     */
+    private final DiscountEngine discountEngine;
+
+    /**
+     * Thread-safe booking operations, locking one stripe of properties per booking.
+     */
+    private final BookingService bookingService;
+
+    /**
+     * Serializes registry changes, listings and checkpoints between front ends that serve several clients.
+     */
+    private final ReentrantLock registryLock = new ReentrantLock();
+
+    /**
+     * Durable storage the mutations are logged to, or null when the state only lives in memory.
+     */
+    private StorageEngine storage;
 
 
     /**
      * Constructs a new instance of the BASIC application with empty lists of users and properties.
      */
     public BASIC() {
-        this.users = new ArrayList<>();
-        this.properties = new ArrayList<>();
+        this.userRegistry = new EntityRegistry<>(User.class, User::getUserId);
+        this.propertyRegistry = new EntityRegistry<>(Property.class, Property::getPropertyId);
+        this.users = userRegistry.view();
+        this.properties = propertyRegistry.view();
+        this.availabilitySearch = new AvailabilitySearch();
+        propertyRegistry.addListener(availabilitySearch);
+        this.propertyEvents = new PropertyEvents();
+        this.propertyStore = new PropertyStore();
+        propertyRegistry.addListener(propertyEvents);
+        propertyRegistry.addListener(propertyStore);
+        propertyEvents.addListener(availabilitySearch);
+        propertyEvents.addListener(propertyStore);
+        this.priceIndex = new PriceIndex();
+        propertyRegistry.addListener(priceIndex);
+        propertyEvents.addListener(priceIndex);
+        // The ledger counts a property's existing bookings before the booking service can add more
+        this.hostLedger = new HostLedger();
+        propertyRegistry.addListener(hostLedger);
+        propertyEvents.addListener(hostLedger);
+        this.occupancyRollup = new OccupancyRollup();
+        propertyRegistry.addListener(occupancyRollup);
+        propertyEvents.addListener(occupancyRollup);
+        this.discountEngine = new DiscountEngine(DiscountRules.DEFAULT);
+        userRegistry.addListener(discountEngine);
+        this.bookingStore = new BookingStore(discountEngine);
+        propertyRegistry.addListener(bookingStore);
+        this.bookingService = new BookingService(1024);
+        // Removal listeners run in reverse order, so the booking service cancels the bookings of a removed
+        // user or property before the removal reaches the ledger, the rollup and the booking store
+        userRegistry.addListener(hostLedger.userListener());
+        userRegistry.addListener(bookingStore.userListener());
+        userRegistry.addListener(bookingService.userListener());
+        propertyRegistry.addListener(bookingService.propertyListener());
+        bookingService.addListener(hostLedger);
+        bookingService.addListener(occupancyRollup);
+        bookingService.addListener(bookingStore);
+    }
+
+    /**
+     * Connects a storage engine that every subsequent mutation is logged to.
+     * Called by {@link StorageEngine#open} once the stored state has been recovered.
+     *
+     * @param storage The storage engine.
+     */
+    public void attachStorage(StorageEngine storage) {
+        this.storage = storage;
+        userRegistry.addListener(new EntityRegistry.Listener<>() {
+            @Override
+            public void added(User user) {
+                storage.logUserAdded(user);
+            }
+
+            @Override
+            public void removed(User user) {
+                storage.logUserDeleted(user.getUserId());
+            }
+
+            @Override
+            public void restored(User user) {
+                // Already stored in the snapshot it was loaded from
+            }
+        });
+        propertyRegistry.addListener(new EntityRegistry.Listener<>() {
+            @Override
+            public void added(Property property) {
+                storage.logPropertyAdded(property);
+            }
+
+            @Override
+            public void removed(Property property) {
+                storage.logPropertyDeleted(property.getPropertyId());
+            }
+
+            @Override
+            public void restored(Property property) {
+                // Already stored in the snapshot it was loaded from
+            }
+        });
+        bookingService.addListener(new BookingListener() {
+            @Override
+            public void bookingAdded(Booking booking) {
+                storage.logBookingAdded(booking);
+            }
+
+            @Override
+            public void paymentChanged(Booking booking) {
+                storage.logPaymentChanged(booking);
+            }
+
+            @Override
+            public void bookingCancelled(Booking booking) {
+                // A removed user or property is already gone from the service; its removal is logged instead
+                if (bookingService.getUser(booking.getUser().getUserId()) == booking.getUser()
+                        && bookingService.getProperty(booking.getProperty().getPropertyId()) == booking.getProperty()) {
+                    storage.logBookingCancelled(booking);
+                }
+            }
+        });
+    }
+
+    /**
+     * Backs the user and property registries with a mapped snapshot.
+     * Users and properties are materialized the first time they are looked up, and all remaining ones
+     * are loaded the first time the lists are iterated.
+     *
+     * @param snapshot The mapped snapshot.
+     */
+    public void attachSnapshot(MappedSnapshot snapshot) {
+        snapshot.install(userRegistry, propertyRegistry);
     }
 
     /**
@@ -139,6 +315,13 @@ public class BASIC {
      * Ends the application and exits the program.
      */
     public void exit() {
+        if (storage != null) {
+            try {
+                storage.close();
+            } catch (IOException e) {
+                System.out.println("Could not close storage: " + e.getMessage());
+            }
+        }
         System.out.println("Exiting the application. Thank you for using BASIC!");
         System.exit(0);
     }
@@ -163,7 +346,7 @@ public class BASIC {
         int userId = scanner.nextInt();
         scanner.nextLine(); // Consume the newline
 
-        if (getUserById(userId) != null) {
+        if (userRegistry.contains(userId)) {
             System.out.println("A user with this ID already exists. Please use a unique ID.");
             return;
         }
@@ -183,10 +366,10 @@ public class BASIC {
         System.out.print("Enter Registration Date in format (dd/MM/yyyy): ");
         String registrationDateStr = scanner.nextLine();
 
-        Date dateOfBirth = parseDate(dateOfBirthStr);
-        Date registrationDate = parseDate(registrationDateStr);
+        int dateOfBirth = parseDate(dateOfBirthStr);
+        int registrationDate = parseDate(registrationDateStr);
 
-        if (dateOfBirth == null || registrationDate == null) {
+        if (dateOfBirth == EpochDay.NONE || registrationDate == EpochDay.NONE) {
             System.out.println("Invalid Date format for Date of Birth or Registration Date.");
             return;
         }
@@ -208,23 +391,17 @@ public class BASIC {
         }
 
         if (newUser != null) {
-            users.add(newUser);
+            userRegistry.add(newUser);
             System.out.println("User added successfully: " + newUser);
         }
     }
 
-    private Date parseDate(String dateStr) {
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-        sdf.setLenient(false);
-        try {
-            return sdf.parse(dateStr);
-        } catch (ParseException e) {
-            return null;
-        }
+    private int parseDate(String dateStr) {
+        return EpochDay.parse(dateStr == null ? null : dateStr.trim());
     }
 
 
-    private Host createHost(Scanner scanner, int userId, String firstName, String lastName, Date dateOfBirth, Date registrationDate) {
+    private Host createHost(Scanner scanner, int userId, String firstName, String lastName, int dateOfBirth, int registrationDate) {
         // Assume we collect the tax number here
         System.out.print("Enter tax number: ");
         double taxNumber = scanner.nextDouble();
@@ -232,14 +409,14 @@ public class BASIC {
         return new Host(userId, dateOfBirth, firstName, lastName, registrationDate, taxNumber);
     }
 
-    private StandardCustomer createStandardCustomer(Scanner scanner, int userId, String firstName, String lastName, Date dateOfBirth, Date registrationDate) {
+    private StandardCustomer createStandardCustomer(Scanner scanner, int userId, String firstName, String lastName, int dateOfBirth, int registrationDate) {
         // Assume we collect the preferred payment method here
         System.out.print("Enter preferred payment method: ");
         String paymentMethod = scanner.nextLine();
         return new StandardCustomer(userId, dateOfBirth, firstName, lastName, registrationDate,paymentMethod);
     }
 
-    private GoldCustomer createGoldCustomer(Scanner scanner, int userId, String firstName, String lastName, Date dateOfBirth, Date registrationDate) {
+    private GoldCustomer createGoldCustomer(Scanner scanner, int userId, String firstName, String lastName, int dateOfBirth, int registrationDate) {
         // Assume we collect the preferred payment method and gold level here
         System.out.print("Enter preferred payment method: ");
         String paymentMethod = scanner.nextLine();
@@ -260,13 +437,8 @@ public class BASIC {
      * @param userId The ID of the user to retrieve.
      * @return The User object with the specified ID, or null if not found.
      */
-    private User getUserById(int userId) {
-        for (User user : users) {
-            if (user.getUserId() == userId) {
-                return user;
-            }
-        }
-        return null; // User not found
+    public User getUserById(int userId) {
+        return userRegistry.get(userId);
     }
 
     /**
@@ -275,13 +447,33 @@ public class BASIC {
      * @param propertyId The unique ID of the property to retrieve.
      * @return The Property object if found, or null if no property with the given ID exists.
      */
-    private Property getPropertyById(int propertyId) {
-        for (Property property : properties) {
-            if (property.getPropertyId() == propertyId) {
-                return property;
-            }
-        }
-        return null; // Property not found
+    public Property getPropertyById(int propertyId) {
+        return propertyRegistry.get(propertyId);
+    }
+
+    /**
+     * Reads one page of users in ascending ID order.
+     *
+     * @param afterUserId The user ID the previous page ended at, or Integer.MIN_VALUE for the first page.
+     * @param limit       The maximum number of users to return.
+     * @param filter      Selects the users to return, or null for all.
+     * @return The page; its next cursor continues the listing.
+     */
+    public EntityRegistry.Page<User> pageUsers(int afterUserId, int limit, Predicate<? super User> filter) {
+        return userRegistry.page(afterUserId, limit, filter);
+    }
+
+    /**
+     * Reads one page of properties in ascending ID order.
+     *
+     * @param afterPropertyId The property ID the previous page ended at, or Integer.MIN_VALUE for the first page.
+     * @param limit           The maximum number of properties to return.
+     * @param filter          Selects the properties to return, or null for all.
+     * @return The page; its next cursor continues the listing.
+     */
+    public EntityRegistry.Page<Property> pageProperties(int afterPropertyId, int limit,
+                                                        Predicate<? super Property> filter) {
+        return propertyRegistry.page(afterPropertyId, limit, filter);
     }
 
     /**
@@ -290,28 +482,38 @@ public class BASIC {
      * @param userId The unique ID of the user to be deleted.
      */
     public void deleteUser(int userId) {
-        User user = getUserById(userId);
-        if (user != null) {
-            users.remove(user);
+        if (removeUser(userId) != null) {
             System.out.println("User deleted successfully.");
         } else {
             System.out.println("User not found.");
         }
     }
 
+    /**
+     * Removes a user from the BASIC system and cancels the user's bookings. If the user is a host, the
+     * host's properties stay registered without a host.
+     *
+     * @param userId The unique ID of the user to be removed.
+     * @return The removed user, or null if no user has this ID.
+     */
+    public User removeUser(int userId) {
+        if (getUserById(userId) == null) {
+            return null;
+        }
+        // Load the properties the user booked, so cancelling the bookings reaches their calendars
+        for (Booking booking : bookingService.getBookings(userId)) {
+            getPropertyById(booking.getProperty().getPropertyId());
+        }
+        return userRegistry.remove(userId);
+    }
+
     /**
      * Retrieves and displays the details of a user given their unique ID.
      *
      * @param userId The unique ID of the user whose details are to be displayed.
      */
     public void getUserDetails(int userId) {
-        User foundUser = null;
-        for (User user : users) {
-            if (user.getUserId() == userId) {
-                foundUser = user;
-                break;
-            }
-        }
+        User foundUser = getUserById(userId);
         if (foundUser != null) {
             System.out.println(foundUser);
         } else {
@@ -325,11 +527,10 @@ public class BASIC {
      * @param propertyId The unique ID of the property whose details are to be displayed.
      */
     public void getPropertyDetails(int propertyId) {
-        for (Property property : properties) {
-            if (property.getPropertyId() == propertyId) {
-                System.out.println(property);  // This will use the toString() method of the Property class
-                return;
-            }
+        Property property = getPropertyById(propertyId);
+        if (property != null) {
+            System.out.println(property);  // This will use the toString() method of the Property class
+            return;
         }
         System.out.println("Property with given ID not found.");
     }
@@ -350,7 +551,7 @@ public class BASIC {
         int propertyId = scanner.nextInt();
         scanner.nextLine(); // Consume the newline
 
-        if (getPropertyById(propertyId) != null) {
+        if (propertyRegistry.contains(propertyId)) {
             System.out.println("A property with this ID already exists. Please use a unique ID.");
             return;
         }
@@ -378,11 +579,12 @@ public class BASIC {
         int hostUserId = scanner.nextInt();
         scanner.nextLine(); // Consume newline
 
-        Host host = (Host) getUserById(hostUserId);
-        if (host == null) {
+        User hostUser = getUserById(hostUserId);
+        if (!(hostUser instanceof Host)) {
             System.out.println("Host with user ID " + hostUserId + " does not exist. Please create the host first.");
             return;
         }
+        Host host = (Host) hostUser;
 
         Property newProperty;
         switch (propertyType) {
@@ -400,7 +602,7 @@ public class BASIC {
                 return;
         }
 
-        properties.add(newProperty);
+        propertyRegistry.add(newProperty);
         System.out.println("Property added successfully: " + newProperty);
     }
 
@@ -411,15 +613,42 @@ public class BASIC {
      * @param propertyId The unique ID of the property to be deleted.
      */
     public void deleteProperty(int propertyId) {
-        Property property = getPropertyById(propertyId);
-        if (property != null) {
-            properties.remove(property);
+        if (removeProperty(propertyId) != null) {
             System.out.println("Property deleted successfully.");
         } else {
             System.out.println("Property not found.");
         }
     }
 
+    /**
+     * Removes a property from the BASIC system and cancels its bookings.
+     *
+     * @param propertyId The unique ID of the property to be removed.
+     * @return The removed property, or null if no property has this ID.
+     */
+    public Property removeProperty(int propertyId) {
+        if (getPropertyById(propertyId) == null) {
+            return null;
+        }
+        // Load the users who booked the property, so cancelling the bookings reaches their booking lists
+        for (Booking booking : bookingService.getPropertyBookings(propertyId)) {
+            getUserById(booking.getUser().getUserId());
+        }
+        return propertyRegistry.remove(propertyId);
+    }
+
+    /**
+     * Reclaims a bounded number of the slots that removals left in the user and property registries.
+     * Must be called while holding the registry lock; see {@link RegistryCompactor}.
+     *
+     * @param maxSlots The maximum number of slots each registry examines.
+     * @return true if either registry still has slots to reclaim; otherwise, false.
+     */
+    public boolean compactRegistries(int maxSlots) {
+        boolean users = userRegistry.compact(maxSlots);
+        return propertyRegistry.compact(maxSlots) | users;
+    }
+
     public void addBooking() {
         Scanner scanner = new Scanner(System.in);
 
@@ -445,32 +674,116 @@ public class BASIC {
 
         System.out.print("Enter booking start date (dd/MM/yyyy): ");
         String startDateStr = scanner.nextLine();
-        Date startDate = parseDate(startDateStr);
-        if (startDate == null) {
+        int startDay = parseDate(startDateStr);
+        if (startDay == EpochDay.NONE) {
             System.out.println("Invalid start date format.");
             return;
         }
 
         System.out.print("Enter booking end date (dd/MM/yyyy): ");
         String endDateStr = scanner.nextLine();
-        Date endDate = parseDate(endDateStr);
-        if (endDate == null) {
+        int endDay = parseDate(endDateStr);
+        if (endDay == EpochDay.NONE) {
             System.out.println("Invalid end date format.");
             return;
         }
 
-        if (startDate.after(endDate)) {
+        if (startDay >= endDay) {
             System.out.println("Start date must be before end date.");
             return;
         }
 
-        Booking newBooking = new Booking(user, property, startDate, endDate, false);
-        // Assuming User class has a method to add a booking to its booking list
-        user.addBooking(newBooking);
+        Booking newBooking = new Booking(user, property, startDay, endDay, false);
+        if (!addBooking(newBooking)) {
+            System.out.println("Property ID " + propertyId + " is already booked for some of these dates.");
+            return;
+        }
 
         System.out.println("Booking added successfully.");
     }
 
+    /**
+     * Records a booking in its property's calendar and in the user's booking list.
+     * The booking is rejected if the property is already fully booked on any night of the stay.
+     * Bookings go through the booking service, so this may be called from several threads once
+     * {@link #getBookingService()} has loaded every user and property.
+     *
+     * @param booking The booking to add.
+     * @return true if the booking was added; false if it conflicts with existing bookings.
+     */
+    public boolean addBooking(Booking booking) {
+        // Looking the property and user up makes sure they are fully loaded when backed by a snapshot
+        getPropertyById(booking.getProperty().getPropertyId());
+        getUserById(booking.getUser().getUserId());
+        if (!bookingService.add(booking)) {
+            return false;
+        }
+        checkpointIfDue();
+        return true;
+    }
+
+    /**
+     * Writes a checkpoint if enough mutations have been logged since the last one.
+     * Bookings made directly through the booking service leave this to the caller, which must make sure
+     * no user or property is registered or removed concurrently.
+     */
+    public void checkpointIfDue() {
+        if (storage != null) {
+            storage.checkpointIfDue();
+        }
+    }
+
+    /**
+     * Writes a checkpoint if one is due and no front end holds the registry lock, for background threads
+     * that book or pay through the booking service. A busy front end leaves the checkpoint to a later call.
+     * Must not be called while holding a booking lock stripe.
+     */
+    public void checkpointInBackground() {
+        if (isCheckpointDue() && registryLock.tryLock()) {
+            try {
+                checkpointIfDue();
+            } finally {
+                registryLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Check whether enough mutations have been logged since the last checkpoint to write a new one.
+     *
+     * @return true if {@link #checkpointIfDue()} would write a checkpoint; otherwise, false.
+     */
+    public boolean isCheckpointDue() {
+        return storage != null && storage.isCheckpointDue();
+    }
+
+    /**
+     * Displays the bookings staying in a property on the night of the given date.
+     *
+     * @param propertyId The unique ID of the property.
+     * @param dateStr    The date in format dd/MM/yyyy.
+     */
+    public void getPropertyOccupants(int propertyId, String dateStr) {
+        Property property = getPropertyById(propertyId);
+        if (property == null) {
+            System.out.println("Property with ID " + propertyId + " does not exist.");
+            return;
+        }
+        int day = parseDate(dateStr);
+        if (day == EpochDay.NONE) {
+            System.out.println("Invalid date format.");
+            return;
+        }
+        List<Booking> occupants = property.getCalendar().getOccupants(day);
+        if (occupants.isEmpty()) {
+            System.out.println("Property ID " + propertyId + " is free on " + dateStr + ".");
+            return;
+        }
+        for (Booking booking : occupants) {
+            System.out.println(booking);
+        }
+    }
+
     /**
      * Calculates and displays the cost of a booking for a given user ID and property ID.
      *
@@ -482,7 +795,9 @@ public class BASIC {
         if (user != null) {
             for (Booking booking : user.getBookings()) {
                 if (booking.getProperty().getPropertyId() == propertyId) {
-                    System.out.println("Booking cost for user ID " + userId + " and property ID " + propertyId + " is: " + booking.totalCost());
+                    double discount = discountEngine.discountOf(user);
+                    System.out.println("Booking cost for user ID " + userId + " and property ID " + propertyId + " is: " + booking.netCost(discount)
+                            + " (" + discount + "% discount on " + booking.totalCost() + ")");
                     return;
                 }
             }
@@ -508,31 +823,47 @@ public class BASIC {
     }
 
     /**
-     * Lists all the users registered in the BASIC system.
+     * Lists all the users registered in the BASIC system, one tab-separated row per user in ID order.
      */
     public void listUsers() {
         if (users.isEmpty()) {
             System.out.println("There are no users to display.");
-        } else {
-            for (User user : users) {
-                System.out.println(user);
-            }
+            return;
+        }
+        try {
+            ListingWriter writer = new ListingWriter(System.out);
+            writer.writeLine("ID\tType\tFirst name\tLast name\tDate of birth\tRegistered\tDiscount");
+            writer.writeUsers(this, null);
+            writer.flush();
+        } catch (IOException e) {
+            System.out.println("Could not list the users: " + e.getMessage());
         }
     }
 
     /**
-     * Lists all the properties available in the BASIC system.
+     * Lists all the properties available in the BASIC system, one tab-separated row per property in ID order.
      */
     public void listProperties() {
         if (properties.isEmpty()) {
             System.out.println("There are no properties to display.");
-        } else {
-            for (Property property : properties) {
-                System.out.println(property);
-            }
+            return;
+        }
+        try {
+            ListingWriter writer = new ListingWriter(System.out);
+            writer.writeLine("ID\tType\tCity\tBedrooms\tRooms\tSize\tPrice per day\tCalculated price per day");
+            writer.writeProperties(this, null);
+            writer.flush();
+        } catch (IOException e) {
+            System.out.println("Could not list the properties: " + e.getMessage());
         }
     }
 
+    /**
+     * Get the discount a user receives today under the current discount rules.
+     *
+     * @param userId The unique ID of the user.
+     * @return The discount in percent; 0 for hosts and unknown users.
+     */
     public double getDiscountForUser(int userId) {
         User user = getUserById(userId);
         if (user == null) {
@@ -540,38 +871,435 @@ public class BASIC {
             System.out.println("User with ID " + userId + " does not exist.");
             return 0.0;
         }
+        return discountEngine.discountOf(user);
+    }
 
-        if (user instanceof GoldCustomer) {
-            GoldCustomer goldCustomer = (GoldCustomer) user;
-            return goldCustomer.getDiscountForUser(); // Use the method from GoldCustomer
-        } else if (user instanceof StandardCustomer) {
-            StandardCustomer standardCustomer = (StandardCustomer) user;
-            return standardCustomer.getDiscountForUser(); // Use the method from StandardCustomer
-        } else {
-            return 0.0; // No discount for other types of users
-        }
+    /**
+     * Get the engine that resolves each user's discount under the current rules.
+     *
+     * @return The discount engine.
+     */
+    public DiscountEngine getDiscountEngine() {
+        return discountEngine;
+    }
+
+    /**
+     * Replaces the discount rules, for example to add a loyalty tier, without changing any customer class.
+     * Discounts looked up through this instance, its reports and its APIs follow the new rules.
+     *
+     * @param rules The new discount rules.
+     */
+    public void setDiscountRules(DiscountRules rules) {
+        discountEngine.setRules(rules);
     }
 
     public void addInspectionToProperty(int propertyId, String inspectionReport) {
+        // Get the current date without time
+        int inspectionDate = EpochDay.today();
+
+        if (!addInspection(propertyId, inspectionDate, inspectionReport)) {
+            System.out.println("Property with ID " + propertyId + " does not exist.");
+            return;
+        }
+
+        System.out.println("Inspection added for property ID " + propertyId + " on " + EpochDay.format(inspectionDate) + ": " + inspectionReport);
+    }
+
+    /**
+     * Records an inspection report for a property. Earlier reports, including ones from the same day, are kept.
+     *
+     * @param propertyId       The unique ID of the property.
+     * @param day              The inspection date as an epoch day.
+     * @param inspectionReport The inspection report.
+     * @return true if the report was recorded; false if no property has this ID.
+     */
+    public boolean addInspection(int propertyId, int day, String inspectionReport) {
         Property property = getPropertyById(propertyId);
         if (property == null) {
-            System.out.println("Property with ID " + propertyId + " does not exist.");
+            return false;
+        }
+        property.addInspection(day, inspectionReport);
+        if (storage != null) {
+            storage.logInspectionAdded(propertyId, day, inspectionReport);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the properties that have not been inspected in the last given number of days, including the
+     * ones never inspected.
+     *
+     * @param days The number of days; a property inspected today or in the days before counts as inspected.
+     * @return The overdue properties in no particular order.
+     */
+    public List<Property> getPropertiesNotInspectedSince(int days) {
+        PropertyStore store = getPropertyStore();
+        int[] rows = store.rowsNotInspectedSince(EpochDay.today() - days);
+        List<Property> overdue = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            overdue.add(store.view(row));
+        }
+        return overdue;
+    }
+
+    /**
+     * Displays the properties that have not been inspected in the last given number of days, with the date
+     * of their latest inspection.
+     *
+     * @param days The number of days.
+     */
+    public void listPropertiesNotInspectedSince(int days) {
+        List<Property> overdue = getPropertiesNotInspectedSince(days);
+        if (overdue.isEmpty()) {
+            System.out.println("Every property has been inspected in the last " + days + " days.");
             return;
         }
+        for (Property property : overdue) {
+            InspectionLog inspections = property.getInspections();
+            System.out.println("Property ID " + property.getPropertyId() + " (" + property.getCity() + "): "
+                    + (inspections.isEmpty() ? "never inspected"
+                    : "last inspected on " + EpochDay.format(inspections.latestDay()) + ": " + inspections.latestReport()));
+        }
+    }
 
-        // Get the current date without time
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        Date inspectionDate = calendar.getTime();
+    /**
+     * Displays the properties in a city that are free for the whole stay, cheapest first.
+     *
+     * @param city         The city to search in.
+     * @param startDateStr The first night of the stay in format dd/MM/yyyy.
+     * @param endDateStr   The checkout date in format dd/MM/yyyy.
+     * @param minBedRooms  The minimum number of bedrooms, or 0 for no filter.
+     * @param minRooms     The minimum number of rooms, or 0 for no filter.
+     */
+    public void searchAvailableProperties(String city, String startDateStr, String endDateStr, int minBedRooms, int minRooms) {
+        int startDay = parseDate(startDateStr);
+        int endDay = parseDate(endDateStr);
+        if (startDay == EpochDay.NONE || endDay == EpochDay.NONE) {
+            System.out.println("Invalid date format.");
+            return;
+        }
+        if (startDay >= endDay) {
+            System.out.println("Start date must be before end date.");
+            return;
+        }
+        List<Property> available = getAvailabilitySearch().findAvailable(city, startDay, endDay,
+                minBedRooms, minRooms, true);
+        if (available.isEmpty()) {
+            System.out.println("No available properties in " + city + " for these dates.");
+            return;
+        }
+        for (Property property : available) {
+            System.out.println(property);
+        }
+    }
+
+    /**
+     * Get the availability search engine over the registered properties.
+     *
+     * @return The availability search engine.
+     */
+    public AvailabilitySearch getAvailabilitySearch() {
+        propertyRegistry.loadAll();
+        return availabilitySearch;
+    }
+
+    /**
+     * Get the columnar property store over the registered properties.
+     *
+     * @return The property store.
+     */
+    public PropertyStore getPropertyStore() {
+        propertyRegistry.loadAll();
+        return propertyStore;
+    }
+
+    /**
+     * Finds the properties matching a query through the property store's secondary indexes.
+     *
+     * @param query The query.
+     * @return The matching properties in no particular order.
+     */
+    public List<Property> findProperties(PropertyQuery query) {
+        PropertyStore store = getPropertyStore();
+        int[] rows = store.query(query);
+        List<Property> found = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            found.add(store.view(row));
+        }
+        return found;
+    }
+
+    /**
+     * Displays the number of properties and the lowest, highest and average price per day in each city.
+     */
+    public void listCityStatistics() {
+        List<PropertyStore.CityStats> stats = getPropertyStore().statsByCity();
+        if (stats.isEmpty()) {
+            System.out.println("No properties in the system.");
+            return;
+        }
+        for (PropertyStore.CityStats city : stats) {
+            System.out.printf("%s: %d properties, price per day from %.2f to %.2f (average %.2f)%n",
+                    city.city(), city.count(), city.minPrice(), city.maxPrice(), city.averagePrice());
+        }
+    }
+
+    /**
+     * Changes the base price per day of a property.
+     *
+     * @param propertyId  The unique ID of the property.
+     * @param pricePerDay The new base price per day.
+     * @return true if the price was changed; false if no property has this ID.
+     */
+    public boolean setPropertyPrice(int propertyId, double pricePerDay) {
+        Property property = getPropertyById(propertyId);
+        if (property == null) {
+            return false;
+        }
+        property.setPricePerDay(pricePerDay);
+        if (storage != null) {
+            storage.logPriceChanged(propertyId, pricePerDay);
+        }
+        return true;
+    }
+
+    /**
+     * Changes the number of bedrooms of a property, and with it the booking capacity of a shared property.
+     *
+     * @param propertyId The unique ID of the property.
+     * @param noBedRooms The new number of bedrooms.
+     * @return true if the bedrooms were changed; false if no property has this ID.
+     */
+    public boolean setPropertyBedRooms(int propertyId, int noBedRooms) {
+        // Looking the property up makes sure its calendar is loaded when backed by a snapshot
+        return getPropertyById(propertyId) != null && bookingService.setBedRooms(propertyId, noBedRooms);
+    }
+
+    /**
+     * Reassigns a property to another registered host, moving its bookings and revenue to that host's account.
+     *
+     * @param propertyId The unique ID of the property.
+     * @param hostUserId The user ID of the new host.
+     * @return true if the host was changed; false if no property has this ID or no host has that user ID.
+     */
+    public boolean setPropertyHost(int propertyId, int hostUserId) {
+        User host = getUserById(hostUserId);
+        return host instanceof Host && getPropertyById(propertyId) != null
+                && bookingService.setHost(propertyId, (Host) host);
+    }
+
+    /**
+     * Changes the seasonal rates of a range of a property's nights, for example to charge 1.5 times the
+     * price per day over a holiday. Nights outside the range keep their rates.
+     *
+     * @param propertyId The unique ID of the property.
+     * @param fromDay    The first night of the range (epoch day).
+     * @param rates      The rate of each night of the range, in order; 1 charges the price per day.
+     * @return true if the rates were changed; false if no property has this ID.
+     * @throws IllegalArgumentException if a rate is negative or not finite.
+     */
+    public boolean setPropertyRates(int propertyId, int fromDay, double[] rates) {
+        // Looking the property up makes sure its calendar is loaded when backed by a snapshot
+        if (getPropertyById(propertyId) == null || !bookingService.setRates(propertyId, fromDay, rates)) {
+            return false;
+        }
+        if (storage != null) {
+            storage.logRatesChanged(propertyId, fromDay, rates);
+        }
+        return true;
+    }
 
-        // Add the inspection report to the property's inspection HashMap
-        // If there's already an inspection for today, it will be replaced
-        property.getInspection().put(inspectionDate, inspectionReport);
+    /**
+     * Creates a batch pricing engine over the current property prices and customer discounts under the current
+     * discount rules.
+     *
+     * @return The booking cost engine.
+     */
+    public BookingCostEngine newBookingCostEngine() {
+        return new BookingCostEngine(users, properties, discountEngine);
+    }
 
-        System.out.println("Inspection added for property ID " + propertyId + " on " + inspectionDate + ": " + inspectionReport);
+    /**
+     * Get the thread-safe booking service over the registered users and properties.
+     * Every user and property is loaded first, so the service's lookups and bookings never touch the
+     * (single-threaded) registries.
+     *
+     * @return The booking service.
+     */
+    public BookingService getBookingService() {
+        userRegistry.loadAll();
+        propertyRegistry.loadAll();
+        return bookingService;
+    }
+
+    /**
+     * Marks a booking as paid or unpaid, keeping the host ledger and the stored state up to date.
+     *
+     * @param booking The booking.
+     * @param paid    true if the booking has been paid; otherwise, false.
+     * @return true if the payment state changed; false if it already had this state.
+     */
+    public boolean setBookingPaid(Booking booking, boolean paid) {
+        // Looking the property up makes sure its calendar is loaded when backed by a snapshot
+        getPropertyById(booking.getProperty().getPropertyId());
+        boolean changed = bookingService.setPaid(booking, paid);
+        if (changed) {
+            checkpointIfDue();
+        }
+        return changed;
+    }
+
+    /**
+     * Cancels a booking, keeping the aggregates and the stored state up to date.
+     *
+     * @param booking The booking.
+     * @return true if the booking was cancelled; false if it was not booked.
+     */
+    public boolean cancelBooking(Booking booking) {
+        // Looking the property up makes sure its calendar is loaded when backed by a snapshot
+        getPropertyById(booking.getProperty().getPropertyId());
+        boolean cancelled = bookingService.cancel(booking);
+        if (cancelled) {
+            checkpointIfDue();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Get the per-host listings and revenue.
+     *
+     * @return The host ledger.
+     */
+    public HostLedger getHostLedger() {
+        propertyRegistry.loadAll();
+        return hostLedger;
+    }
+
+    /**
+     * Displays a host's listings, booked nights, gross revenue and unpaid balance, with the tax number.
+     *
+     * @param hostUserId The user ID of the host.
+     */
+    public void displayHostSummary(int hostUserId) {
+        User user = getUserById(hostUserId);
+        if (!(user instanceof Host)) {
+            System.out.println("Host with user ID " + hostUserId + " does not exist.");
+            return;
+        }
+        HostLedger.Account account = getHostLedger().getAccount(hostUserId);
+        System.out.println("Host ID " + hostUserId + ", tax number " + String.format("%.0f", ((Host) user).getTaxNumber()));
+        if (account == null) {
+            System.out.println("No properties listed.");
+            return;
+        }
+        System.out.printf("%d active listings, %d booked nights, gross revenue %.2f, unpaid balance %.2f%n",
+                account.getActiveListings(), account.getBookedNights(), account.getGrossRevenue(), account.getUnpaidBalance());
+        for (Property property : account.getProperties()) {
+            System.out.println("Property ID " + property.getPropertyId() + " in " + property.getCity());
+        }
+    }
+
+    /**
+     * Get the booked nights, occupancy and revenue per city and month.
+     *
+     * @return The occupancy rollup.
+     */
+    public OccupancyRollup getOccupancyRollup() {
+        propertyRegistry.loadAll();
+        return occupancyRollup;
+    }
+
+    /**
+     * Displays the booked nights, occupancy and revenue of a city for every month in a range.
+     *
+     * @param city The city name.
+     * @param from The first month.
+     * @param to   The last month, inclusive.
+     */
+    public void displayOccupancy(String city, YearMonth from, YearMonth to) {
+        if (from.isAfter(to)) {
+            System.out.println("The first month must not be after the last month.");
+            return;
+        }
+        OccupancyRollup rollup = getOccupancyRollup();
+        for (OccupancyRollup.MonthStats month : rollup.range(city, from, to)) {
+            System.out.printf("%s %s: %d booked nights, occupancy %.1f%%, revenue %.2f, unpaid %.2f%n", city, month.month(),
+                    month.bookedNights(), month.occupancyRate() * 100, month.revenue(), month.unpaidRevenue());
+        }
+        OccupancyRollup.RangeStats total = rollup.total(city, from, to);
+        System.out.printf("%s total: %d booked nights, occupancy %.1f%%, revenue %.2f, unpaid %.2f%n", city,
+                total.bookedNights(), total.occupancyRate() * 100, total.revenue(), total.unpaidRevenue());
+    }
+
+    /**
+     * Get the flat store of every booking, for reports over all bookings.
+     *
+     * @return The booking store.
+     */
+    public BookingStore getBookingStore() {
+        propertyRegistry.loadAll();
+        return bookingStore;
+    }
+
+    /**
+     * Displays revenue by property type, discounts by customer type, the average stay and the unpaid
+     * amount by payment method over every booking.
+     */
+    public void displayBookingReport() {
+        BookingStore.BookingReport report = getBookingStore().report();
+        if (report.bookings() == 0) {
+            System.out.println("No bookings available.");
+            return;
+        }
+        System.out.printf("%d bookings, %d nights, average stay %.2f nights%n", report.bookings(), report.nights(),
+                report.averageStay());
+        System.out.printf("Revenue: shared properties %.2f, full properties %.2f%n", report.sharedRevenue(),
+                report.fullRevenue());
+        System.out.printf("Discounts: standard customers %.2f, gold customers %.2f%n", report.standardDiscounts(),
+                report.goldDiscounts());
+        for (Map.Entry<String, Double> unpaid : report.unpaidByPaymentMethod().entrySet()) {
+            System.out.printf("Unpaid by %s: %.2f%n", unpaid.getKey(), unpaid.getValue());
+        }
+    }
+
+    /**
+     * Get the lock that front ends serving several clients at once hold while they register or remove
+     * users and properties, record inspections, iterate the registries or write a checkpoint.
+     * Lookups and bookings through the booking service do not need it.
+     *
+     * @return The registry lock.
+     */
+    public ReentrantLock getRegistryLock() {
+        return registryLock;
+    }
+
+    /**
+     * Get the price-ordered index over the registered properties.
+     *
+     * @return The price index.
+     */
+    public PriceIndex getPriceIndex() {
+        propertyRegistry.loadAll();
+        return priceIndex;
+    }
+
+    /**
+     * Displays the cheapest properties, optionally limited to one city.
+     *
+     * @param count The number of properties to display.
+     * @param city  The city to list, or null for every city.
+     */
+    public void listCheapestProperties(int count, String city) {
+        List<Property> cheapest = city == null
+                ? getPriceIndex().cheapest(count)
+                : getPriceIndex().cheapestInCity(city, count);
+        if (cheapest.isEmpty()) {
+            System.out.println("No properties found.");
+            return;
+        }
+        for (Property property : cheapest) {
+            System.out.printf("%.2f per day: %s%n", property.calculatePricePerDay(), property);
+        }
     }
 
     public void comparePropertyPricesPerDay(int propertyId1, int propertyId2) {
@@ -604,13 +1332,63 @@ public class BASIC {
 
     /**
      * The entry point of the BASIC application.
+     * If a storage directory is given, the state is recovered from it and every change is logged to it;
+     * otherwise the application starts from the sample data and keeps everything in memory.
+     * With {@code --http <port>} the application serves the HTTP/JSON API, and with {@code --binary <port>}
+     * the binary protocol for high-rate clients, instead of the console menu. When serving,
+     * {@code --hold-minutes <minutes>} releases unpaid bookings that are not paid within that time.
      *
-     * @param args Command-line arguments.
+     * @param args Command-line arguments: an optional storage directory, {@code --http <port>},
+     *             {@code --binary <port>} and {@code --hold-minutes <minutes>}.
+     * @throws IOException if the storage directory cannot be opened or the port cannot be bound.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        String storageDirectory = null;
+        int httpPort = -1;
+        int binaryPort = -1;
+        long holdMinutes = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--http") && i + 1 < args.length) {
+                httpPort = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--binary") && i + 1 < args.length) {
+                binaryPort = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--hold-minutes") && i + 1 < args.length) {
+                holdMinutes = Long.parseLong(args[++i]);
+            } else {
+                storageDirectory = args[i];
+            }
+        }
+
         BASIC basic = new BASIC();
-        PopulateData.populate(basic);
+        if (storageDirectory != null) {
+            StorageEngine.open(Paths.get(storageDirectory), basic, true, 100_000);
+            if (basic.users.isEmpty()) {
+                PopulateData.populate(basic);
+            }
+        } else {
+            PopulateData.populate(basic);
+        }
 
-        basic.menu();
+        if (binaryPort >= 0 || httpPort >= 0) {
+            RegistryCompactor compactor = RegistryCompactor.start(basic, 10);
+            Runtime.getRuntime().addShutdownHook(new Thread(compactor::close));
+            if (holdMinutes > 0) {
+                ReservationHolds holds = ReservationHolds.start(basic, TimeUnit.MINUTES.toMillis(holdMinutes));
+                Runtime.getRuntime().addShutdownHook(new Thread(holds::close));
+            }
+        }
+        if (binaryPort >= 0) {
+            BinaryProtocolServer server = BinaryProtocolServer.start(basic, binaryPort);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            System.out.println("Serving the BASIC binary protocol on port " + server.getPort());
+        }
+        if (httpPort >= 0) {
+            HttpApi api = HttpApi.start(basic, httpPort);
+            Runtime.getRuntime().addShutdownHook(new Thread(api::close));
+            System.out.println("Serving the BASIC API on port " + api.getPort());
+        }
+        if (httpPort < 0 && binaryPort < 0) {
+            basic.menu();
+        }
     }
 }
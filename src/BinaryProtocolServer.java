@@ -0,0 +1,491 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the hot BASIC operations over a compact length-prefixed binary protocol on a single non-blocking
+ * NIO selector thread, for integrations that send bursts of small requests.
+ *
+ * Every frame is a big-endian int length (of the bytes that follow) and a body. A request body is an int
+ * request ID chosen by the client, an opcode byte and the arguments; a response body is the request ID,
+ * a status byte and, for {@link #OK}, the result. Clients may pipeline: any number of requests can be sent
+ * without waiting, responses come back in request order, and every response produced from one read of the
+ * socket goes out in one write. Lookups are answered on the selector thread; a booking, which may wait for
+ * the log to reach the disk or write a checkpoint, runs on a worker thread while the connection's later
+ * requests wait in its input buffer, and the selector thread writes its response and carries on with them
+ * once it is done. Other connections are served meanwhile.
+ *
+ * <ul>
+ *     <li>{@link #GET_USER} (int userId): int userId, byte kind (0 host, 1 standard, 2 gold),
+ *         string firstName, string lastName, int dateOfBirth, int registrationDate (epoch days),
+ *         double discount</li>
+ *     <li>{@link #GET_PROPERTY} (int propertyId): int propertyId, byte kind (1 shared, 2 full), int noBedRooms,
+ *         int noRooms, string city, double pricePerDay, double calculatedPricePerDay</li>
+ *     <li>{@link #ADD_BOOKING} (int userId, int propertyId, int startDay, int endDay): no result;
+ *         {@link #CONFLICT} if the property is fully booked on some night</li>
+ *     <li>{@link #GET_BOOKING_COST} (int userId, int propertyId): double netCost, double totalCost of the
+ *         user's first booking of the property</li>
+ *     <li>{@link #COMPARE_PRICES} (int propertyId1, int propertyId2): int comparison (negative if the first
+ *         property is cheaper per day)</li>
+ * </ul>
+ * Strings are an unsigned short byte count followed by UTF-8 bytes. Unknown IDs answer {@link #NOT_FOUND}.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class BinaryProtocolServer implements Closeable {
+    static final byte GET_USER = 1;
+    static final byte GET_PROPERTY = 2;
+    static final byte ADD_BOOKING = 3;
+    static final byte GET_BOOKING_COST = 4;
+    static final byte COMPARE_PRICES = 5;
+
+    static final byte OK = 0;
+    static final byte NOT_FOUND = 1;
+    static final byte CONFLICT = 2;
+    static final byte BAD_REQUEST = 3;
+
+    /**
+     * The largest frame body accepted; a longer length prefix closes the connection.
+     */
+    static final int MAX_FRAME = 64 * 1024;
+
+    /**
+     * Reading from a connection pauses while this many response bytes are waiting to be sent to it.
+     */
+    private static final int OUTPUT_HIGH_WATER = 1 << 20;
+
+    private final BASIC basic;
+    private final BookingService bookings;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread eventLoop;
+    private final ExecutorService workers;
+    // Connections whose booking a worker finished, for the selector thread to answer
+    private final Queue<SelectionKey> completed = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    private BinaryProtocolServer(BASIC basic, InetSocketAddress address) throws IOException {
+        this.basic = basic;
+        this.bookings = basic.getBookingService();
+        this.workers = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "basic-binary-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 4096);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.eventLoop = new Thread(this::run, "basic-binary-server");
+    }
+
+    /**
+     * Start serving a BASIC instance.
+     *
+     * @param basic The BASIC instance.
+     * @param port  The TCP port to listen on, or 0 for any free port.
+     * @return The running server.
+     * @throws IOException if the port cannot be bound.
+     */
+    public static BinaryProtocolServer start(BASIC basic, int port) throws IOException {
+        BinaryProtocolServer server = new BinaryProtocolServer(basic, new InetSocketAddress(port));
+        server.eventLoop.start();
+        return server;
+    }
+
+    /**
+     * Get the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stop the event loop and close every connection.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            eventLoop.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdown();
+    }
+
+    // ------------------------------------------------------------------ event loop
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                answerCompleted();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isWritable()) {
+                                flush(key);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                read(key);
+                            }
+                        }
+                    } catch (IOException e) {
+                        disconnect(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Binary protocol server stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                disconnect(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection());
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        if (channel.read(connection.in) < 0) {
+            disconnect(key);
+            return;
+        }
+        handleFrames(key);
+    }
+
+    private void answerCompleted() {
+        SelectionKey key;
+        while ((key = completed.poll()) != null) {
+            if (!key.isValid()) {
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            Output out = connection.output();
+            int lengthAt = out.beginFrame(connection.bookingRequestId);
+            out.status(connection.bookingStatus);
+            out.endFrame(lengthAt);
+            connection.busy = false;
+            try {
+                handleFrames(key);
+            } catch (IOException e) {
+                disconnect(key);
+            }
+        }
+    }
+
+    private void handleFrames(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer in = connection.in;
+        in.flip();
+        // A booking on a worker holds back the requests after it, so they see it and are answered after it
+        while (!connection.busy && in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length < 5 || length > MAX_FRAME) {
+                disconnect(key);
+                return;
+            }
+            if (in.remaining() < 4 + length) {
+                break;
+            }
+            int frameEnd = in.position() + 4 + length;
+            in.position(in.position() + 4);
+            handle(in, frameEnd, key);
+            in.position(frameEnd);
+        }
+        in.compact();
+        if (in.position() == in.capacity()) {
+            // A frame larger than the buffer (but within MAX_FRAME) is still arriving
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(in.capacity() * 2, MAX_FRAME + 4));
+            in.flip();
+            connection.in = larger.put(in);
+        }
+        flush(key);
+    }
+
+    private void flush(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer out = connection.out;
+        out.flip();
+        ((SocketChannel) key.channel()).write(out);
+        out.compact();
+        int pending = out.position();
+        int interest = pending > 0 ? SelectionKey.OP_WRITE : 0;
+        if (pending < OUTPUT_HIGH_WATER && !connection.busy) {
+            interest |= SelectionKey.OP_READ;
+        }
+        key.interestOps(interest);
+    }
+
+    private void disconnect(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // The connection is gone either way
+        }
+    }
+
+    // ------------------------------------------------------------------ requests
+
+    private void handle(ByteBuffer in, int frameEnd, SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+        int requestId = in.getInt();
+        byte opcode = in.get();
+        int argumentBytes = frameEnd - in.position();
+        if (opcode == ADD_BOOKING && argumentBytes >= 16) {
+            int userId = in.getInt();
+            int propertyId = in.getInt();
+            int startDay = in.getInt();
+            int endDay = in.getInt();
+            connection.busy = true;
+            connection.bookingRequestId = requestId;
+            workers.execute(() -> {
+                byte status;
+                try {
+                    status = addBooking(userId, propertyId, startDay, endDay);
+                } catch (RuntimeException e) {
+                    status = BAD_REQUEST;
+                }
+                // The queue hands the status over to the selector thread
+                connection.bookingStatus = status;
+                completed.add(key);
+                selector.wakeup();
+            });
+            return;
+        }
+        Output out = connection.output();
+        int lengthAt = out.beginFrame(requestId);
+        try {
+            dispatch(in, opcode, argumentBytes, out);
+        } catch (RuntimeException e) {
+            // For example a user or property removed by another front end halfway through a booking
+            out.rewind(lengthAt);
+            out.status(BAD_REQUEST);
+        }
+        out.endFrame(lengthAt);
+    }
+
+    private void dispatch(ByteBuffer in, byte opcode, int argumentBytes, Output out) {
+        switch (opcode) {
+            case GET_USER:
+                if (argumentBytes < 4) {
+                    out.status(BAD_REQUEST);
+                } else {
+                    writeUser(out, bookings.getUser(in.getInt()), basic.getDiscountEngine());
+                }
+                break;
+            case GET_PROPERTY:
+                if (argumentBytes < 4) {
+                    out.status(BAD_REQUEST);
+                } else {
+                    writeProperty(out, bookings.getProperty(in.getInt()));
+                }
+                break;
+            case ADD_BOOKING:
+                // Too short for its arguments; complete booking requests go to a worker
+                out.status(BAD_REQUEST);
+                break;
+            case GET_BOOKING_COST:
+                if (argumentBytes < 8) {
+                    out.status(BAD_REQUEST);
+                } else {
+                    writeBookingCost(out, in.getInt(), in.getInt());
+                }
+                break;
+            case COMPARE_PRICES:
+                if (argumentBytes < 8) {
+                    out.status(BAD_REQUEST);
+                } else {
+                    comparePrices(out, in.getInt(), in.getInt());
+                }
+                break;
+            default:
+                out.status(BAD_REQUEST);
+        }
+    }
+
+    private static void writeUser(Output out, User user, DiscountEngine discounts) {
+        if (user == null) {
+            out.status(NOT_FOUND);
+            return;
+        }
+        out.status(OK);
+        out.putInt(user.getUserId());
+        out.put((byte) (user instanceof Host ? 0 : user instanceof GoldCustomer ? 2 : 1));
+        out.putString(user.getFirstName());
+        out.putString(user.getLastName());
+        out.putInt(user.getDateOfBirthDay());
+        out.putInt(user.getRegistrationDay());
+        out.putDouble(discounts.discountOf(user));
+    }
+
+    private static void writeProperty(Output out, Property property) {
+        if (property == null) {
+            out.status(NOT_FOUND);
+            return;
+        }
+        out.status(OK);
+        out.putInt(property.getPropertyId());
+        out.put(property instanceof FullProperty ? PropertyStore.FULL : PropertyStore.SHARED);
+        out.putInt(property.getNoBedRooms());
+        out.putInt(property.getNoRooms());
+        out.putString(property.getCity());
+        out.putDouble(property.getPricePerDay());
+        out.putDouble(property.calculatePricePerDay());
+    }
+
+    // Runs on a worker thread
+    private byte addBooking(int userId, int propertyId, int startDay, int endDay) {
+        if (startDay >= endDay) {
+            return BAD_REQUEST;
+        }
+        if (bookings.getUser(userId) == null || bookings.getProperty(propertyId) == null) {
+            return NOT_FOUND;
+        }
+        byte status = bookings.book(userId, propertyId, startDay, endDay) != null ? OK : CONFLICT;
+        basic.checkpointInBackground();
+        return status;
+    }
+
+    private void writeBookingCost(Output out, int userId, int propertyId) {
+        for (Booking booking : bookings.getBookings(userId)) {
+            if (booking.getProperty().getPropertyId() == propertyId) {
+                out.status(OK);
+                out.putDouble(booking.netCost(basic.getDiscountEngine().discountOf(booking.getUser())));
+                out.putDouble(booking.totalCost());
+                return;
+            }
+        }
+        out.status(NOT_FOUND);
+    }
+
+    private void comparePrices(Output out, int propertyId1, int propertyId2) {
+        Property property1 = bookings.getProperty(propertyId1);
+        Property property2 = bookings.getProperty(propertyId2);
+        if (property1 == null || property2 == null) {
+            out.status(NOT_FOUND);
+            return;
+        }
+        out.status(OK);
+        out.putInt(property1.compareTo(property2));
+    }
+
+    /**
+     * The buffers of one client connection.
+     */
+    private static final class Connection {
+        ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+        ByteBuffer out = ByteBuffer.allocate(16 * 1024);
+        private final Output output = new Output(this);
+        // While busy, a worker is making the booking with this request ID; it leaves its status here
+        boolean busy;
+        int bookingRequestId;
+        byte bookingStatus;
+
+        Output output() {
+            return output;
+        }
+    }
+
+    /**
+     * Appends response frames to a connection's output buffer, growing it as needed.
+     */
+    private static final class Output {
+        private final Connection connection;
+
+        Output(Connection connection) {
+            this.connection = connection;
+        }
+
+        int beginFrame(int requestId) {
+            ensure(8);
+            int lengthAt = connection.out.position();
+            connection.out.putInt(0).putInt(requestId);
+            return lengthAt;
+        }
+
+        void rewind(int lengthAt) {
+            connection.out.position(lengthAt + 8);
+        }
+
+        void endFrame(int lengthAt) {
+            connection.out.putInt(lengthAt, connection.out.position() - lengthAt - 4);
+        }
+
+        void status(byte status) {
+            put(status);
+        }
+
+        void put(byte value) {
+            ensure(1);
+            connection.out.put(value);
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            connection.out.putInt(value);
+        }
+
+        void putDouble(double value) {
+            ensure(8);
+            connection.out.putDouble(value);
+        }
+
+        void putString(String value) {
+            byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, 0xFFFF);
+            ensure(2 + length);
+            connection.out.putShort((short) length).put(bytes, 0, length);
+        }
+
+        private void ensure(int bytes) {
+            ByteBuffer out = connection.out;
+            if (out.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+                out.flip();
+                connection.out = larger.put(out);
+            }
+        }
+    }
+}
@@ -9,9 +9,9 @@ import java.util.Date;
 public class Booking {
     private User user;
     private Property property;
-    private Date startDate;
-    private Date endDate;
-    private boolean isPaid;
+    private int startDay;
+    private int endDay;
+    private volatile boolean isPaid;
 
     /**
      * Constructs a booking with complete information.
@@ -23,10 +23,23 @@ public class Booking {
      * @param isPaid    Indicates whether the booking is paid.
      */
     public Booking(User user, Property property, Date startDate, Date endDate, boolean isPaid) {
+        this(user, property, EpochDay.of(startDate), EpochDay.of(endDate), isPaid);
+    }
+
+    /**
+     * Constructs a booking with dates given as epoch days.
+     *
+     * @param user     The user making the booking.
+     * @param property The property being booked.
+     * @param startDay The first night of the booking as an epoch day.
+     * @param endDay   The checkout day of the booking as an epoch day.
+     * @param isPaid   Indicates whether the booking is paid.
+     */
+    public Booking(User user, Property property, int startDay, int endDay, boolean isPaid) {
         this.user = user;
         this.property = property;
-        this.startDate = startDate;
-        this.endDate = endDate;
+        this.startDay = startDay;
+        this.endDay = endDay;
         this.isPaid = isPaid;
     }
 
@@ -84,7 +97,7 @@ public class Booking {
      * @return The start date of the booking.
      */
     public Date getStartDate() {
-        return startDate;
+        return EpochDay.toDate(startDay);
     }
 
     /**
@@ -93,7 +106,7 @@ public class Booking {
      * @param startDate The start date of the booking.
      */
     public void setStartDate(Date startDate) {
-        this.startDate = startDate;
+        this.startDay = EpochDay.of(startDate);
     }
 
     /**
@@ -102,7 +115,7 @@ public class Booking {
      * @return The end date of the booking.
      */
     public Date getEndDate() {
-        return endDate;
+        return EpochDay.toDate(endDay);
     }
 
     /**
@@ -111,7 +124,25 @@ public class Booking {
      * @param endDate The end date of the booking.
      */
     public void setEndDate(Date endDate) {
-        this.endDate = endDate;
+        this.endDay = EpochDay.of(endDate);
+    }
+
+    /**
+     * Gets the first night of the booking as an epoch day.
+     *
+     * @return The epoch day of the start date.
+     */
+    public int getStartDay() {
+        return startDay;
+    }
+
+    /**
+     * Gets the checkout day of the booking as an epoch day (the night of this day is not included).
+     *
+     * @return The epoch day of the end date.
+     */
+    public int getEndDay() {
+        return endDay;
     }
 
     /**
@@ -125,22 +156,65 @@ public class Booking {
 
     /**
      * Sets the payment status of the booking.
+     * A booking of a registered property is updated through {@link BookingService#setPaid}, which notifies
+     * the booking listeners, so for example paying it cancels its reservation hold at once.
      *
      * @param isPaid Indicates whether the booking is paid.
      */
     public void setPaid(boolean isPaid) {
+        BookingService service = property == null ? null : property.getBookingService();
+        // The service turns down a booking that is not in its property's calendar
+        if (service == null || !service.setPaid(this, isPaid)) {
+            this.isPaid = isPaid;
+        }
+    }
+
+    /**
+     * Sets the payment status of the booking without telling anyone, for {@link BookingService#setPaid}.
+     *
+     * @param isPaid Indicates whether the booking is paid.
+     */
+    void markPaid(boolean isPaid) {
         this.isPaid = isPaid;
     }
 
     /**
-     * Calculates the total cost of the booking based on the property's price per day.
+     * Gets the number of nights of the booking.
+     *
+     * @return The number of nights.
+     */
+    public int getNights() {
+        return endDay - startDay;
+    }
+
+    /**
+     * Gets the sum of the property's seasonal rates over the nights of the booking: the nights, each
+     * counted at its rate.
+     *
+     * @return The number of nights priced at the property's price per day.
+     */
+    public double getPricedNights() {
+        return property.getRates().sum(startDay, endDay);
+    }
+
+    /**
+     * Calculates the total cost of the booking based on the property's price per day and seasonal rates.
      *
      * @return The total cost of the booking.
      */
     public double totalCost() {
-        long duration = endDate.getTime() - startDate.getTime();
-        long days = duration / (24 * 60 * 60 * 1000);
-        return property.calculatePricePerDay() * days;
+        return property.calculateStayCost(startDay, endDay);
+    }
+
+    /**
+     * Calculates the cost of the booking after a discount, normally the user's discount from the
+     * {@link DiscountEngine} of the current rules. Uses the same pricing function as {@link BookingCostEngine}.
+     *
+     * @param discountPercent The discount in percent.
+     * @return The cost of the booking after discount.
+     */
+    public double netCost(double discountPercent) {
+        return BookingCostEngine.cost(property.calculatePricePerDay(), getPricedNights(), discountPercent);
     }
 
     /**
@@ -153,8 +227,8 @@ public class Booking {
         return "Booking{" +
                 "user=" + user +
                 ", property=" + property +
-                ", startDate=" + startDate +
-                ", endDate=" + endDate +
+                ", startDate=" + EpochDay.format(startDay) +
+                ", endDate=" + EpochDay.format(endDay) +
                 ", isPaid=" + isPaid +
                 '}';
     }
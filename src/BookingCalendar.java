@@ -0,0 +1,400 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The booking calendar of a single property.
+ * Bookings are stored as half-open epoch-day intervals [start, end) in an AVL tree ordered by start day
+ * and augmented with the maximum end day of each subtree, so overlap checks and "who is staying on day X"
+ * queries run in O(log n + k) no matter how many historical bookings the property has.
+ * Nights on which the property is fully booked are also tracked in an {@link AvailabilityBitmap}
+ * for fast availability scans.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class BookingCalendar {
+    private Node root;
+    private int size;
+    private long nextSequence;
+    private final AvailabilityBitmap fullNights = new AvailabilityBitmap();
+
+    /**
+     * Add a booking if the property still has room for it on every night of the stay.
+     *
+     * @param booking  The booking to add.
+     * @param capacity The number of bookings the property can host on the same night.
+     * @return true if the booking was added, false if it conflicts with existing bookings.
+     */
+    public boolean add(Booking booking, int capacity) {
+        int start = booking.getStartDay();
+        int end = booking.getEndDay();
+        if (!isAvailable(start, end, capacity)) {
+            return false;
+        }
+        root = insert(root, new Node(start, end, nextSequence++, booking));
+        size++;
+        if (capacity == 1) {
+            fullNights.mark(start, end);
+        } else {
+            for (int day = start; day < end; day++) {
+                if (countOccupants(day) >= capacity) {
+                    fullNights.mark(day, day + 1);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove a booking from the calendar, releasing its nights.
+     *
+     * @param booking The booking to remove.
+     * @return true if the booking was in the calendar; otherwise, false.
+     */
+    public boolean remove(Booking booking) {
+        Node node = find(root, booking.getStartDay(), candidate -> candidate == booking);
+        if (node == null) {
+            return false;
+        }
+        root = delete(root, node.start, node.sequence);
+        size--;
+        // Every night of the removed stay now has at least one free place
+        fullNights.clear(node.start, node.end);
+        return true;
+    }
+
+    /**
+     * Find a booking that starts on the given day, descending the tree by start day.
+     *
+     * @param start The first night of the booking (epoch day).
+     * @param match The condition the booking must meet.
+     * @return A matching booking starting on that day, or null if there is none.
+     */
+    public Booking find(int start, Predicate<Booking> match) {
+        Node node = find(root, start, match);
+        return node == null ? null : node.booking;
+    }
+
+    /**
+     * Check whether a stay fits into the calendar.
+     *
+     * @param start    The first night of the stay (epoch day).
+     * @param end      The checkout day (epoch day, exclusive).
+     * @param capacity The number of bookings the property can host on the same night.
+     * @return true if no night in [start, end) is already at capacity; otherwise, false.
+     */
+    public boolean isAvailable(int start, int end, int capacity) {
+        if (start >= end) {
+            throw new IllegalArgumentException("A stay must end after it starts");
+        }
+        if (capacity <= 1) {
+            return capacity == 1 && !anyOverlap(root, start, end);
+        }
+        List<Booking> overlapping = new ArrayList<>();
+        forEachOverlapping(start, end, overlapping::add);
+        if (overlapping.size() < capacity) {
+            return true;
+        }
+        return maxConcurrent(overlapping, start, end) < capacity;
+    }
+
+    /**
+     * Check whether the property has room on every night of [start, end) using the full-nights bitmap.
+     * This is the fast path used by availability search; it tests up to 64 nights per step.
+     *
+     * @param start The first night of the stay (epoch day).
+     * @param end   The checkout day (epoch day, exclusive).
+     * @return true if no night in the range is fully booked; otherwise, false.
+     */
+    public boolean hasRoom(int start, int end) {
+        return !fullNights.anyMarked(start, end);
+    }
+
+    /**
+     * Rebuild the full-nights bitmap after the number of bookings the property can host on the same night
+     * changed, for example when the bedrooms of a shared property changed. Bookings already in the calendar
+     * are kept even if they now exceed the capacity; their nights simply count as full.
+     *
+     * @param capacity The new number of bookings the property can host on the same night.
+     */
+    public void recomputeFullNights(int capacity) {
+        List<Booking> bookings = new ArrayList<>(size);
+        forEachOverlapping(Integer.MIN_VALUE, Integer.MAX_VALUE, bookings::add);
+        // Nights are only ever marked inside a booking, so clearing the stays clears the whole bitmap
+        for (Booking booking : bookings) {
+            fullNights.clear(booking.getStartDay(), booking.getEndDay());
+        }
+        // Sweep the arrivals and departures in day order and mark every run of nights at capacity
+        long[] events = new long[bookings.size() * 2];
+        int i = 0;
+        for (Booking booking : bookings) {
+            events[i++] = (long) booking.getStartDay() * 2 + 1;
+            events[i++] = (long) booking.getEndDay() * 2;
+        }
+        Arrays.sort(events);
+        int current = 0;
+        int fullFrom = 0;
+        for (long event : events) {
+            int day = (int) (event >> 1);
+            if ((event & 1) == 1) {
+                if (++current == Math.max(capacity, 1)) {
+                    fullFrom = day;
+                }
+            } else if (current-- == Math.max(capacity, 1)) {
+                fullNights.mark(fullFrom, day);
+            }
+        }
+    }
+
+    /**
+     * Get the bitmap of nights on which the property is fully booked.
+     *
+     * @return The full-nights bitmap.
+     */
+    public AvailabilityBitmap getFullNights() {
+        return fullNights;
+    }
+
+    /**
+     * Get the bookings that include the night of the given day.
+     *
+     * @param day The epoch day.
+     * @return The bookings whose stay covers that night.
+     */
+    public List<Booking> getOccupants(int day) {
+        List<Booking> occupants = new ArrayList<>();
+        forEachOverlapping(day, day + 1, occupants::add);
+        return occupants;
+    }
+
+    /**
+     * Count the bookings that include the night of the given day.
+     *
+     * @param day The epoch day.
+     * @return The number of bookings staying that night.
+     */
+    public int countOccupants(int day) {
+        int[] count = new int[1];
+        forEachOverlapping(day, day + 1, booking -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Visit every booking that shares at least one night with [start, end), in start-day order.
+     *
+     * @param start  The first night of the range (epoch day).
+     * @param end    The end of the range (epoch day, exclusive).
+     * @param action The action to run for each overlapping booking.
+     */
+    public void forEachOverlapping(int start, int end, Consumer<Booking> action) {
+        visitOverlapping(root, start, end, action);
+    }
+
+    /**
+     * Get the number of bookings in the calendar.
+     *
+     * @return The number of bookings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Compute the highest number of simultaneous bookings on any night in [start, end).
+     */
+    private static int maxConcurrent(List<Booking> bookings, int start, int end) {
+        // Encode each boundary as day * 2 + kind so departures sort before arrivals on the same day
+        long[] events = new long[bookings.size() * 2];
+        int i = 0;
+        for (Booking booking : bookings) {
+            events[i++] = (long) Math.max(booking.getStartDay(), start) * 2 + 1;
+            events[i++] = (long) Math.min(booking.getEndDay(), end) * 2;
+        }
+        Arrays.sort(events);
+        int current = 0;
+        int max = 0;
+        for (long event : events) {
+            if ((event & 1) == 1) {
+                max = Math.max(max, ++current);
+            } else {
+                current--;
+            }
+        }
+        return max;
+    }
+
+    // ------------------------------------------------------------------ interval tree
+
+    /**
+     * A booking interval in the tree, keyed by (start, sequence).
+     */
+    private static final class Node {
+        final int start;
+        final int end;
+        final long sequence;
+        final Booking booking;
+        int maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(int start, int end, long sequence, Booking booking) {
+            this.start = start;
+            this.end = end;
+            this.sequence = sequence;
+            this.booking = booking;
+            this.maxEnd = end;
+        }
+    }
+
+    private static boolean anyOverlap(Node node, int start, int end) {
+        while (node != null && node.maxEnd > start) {
+            if (node.start < end && node.end > start) {
+                return true;
+            }
+            // If the left subtree reaches past start it must hold an overlap or nothing on the right can
+            if (node.left != null && node.left.maxEnd > start) {
+                node = node.left;
+            } else if (node.start < end) {
+                node = node.right;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static void visitOverlapping(Node node, int start, int end, Consumer<Booking> action) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        visitOverlapping(node.left, start, end, action);
+        if (node.start < end) {
+            if (node.end > start) {
+                action.accept(node.booking);
+            }
+            visitOverlapping(node.right, start, end, action);
+        }
+    }
+
+    private static Node find(Node node, int start, Predicate<Booking> match) {
+        if (node == null) {
+            return null;
+        }
+        if (start < node.start) {
+            return find(node.left, start, match);
+        }
+        if (start > node.start) {
+            return find(node.right, start, match);
+        }
+        if (match.test(node.booking)) {
+            return node;
+        }
+        Node found = find(node.left, start, match);
+        return found != null ? found : find(node.right, start, match);
+    }
+
+    private static int compare(int start, long sequence, Node node) {
+        int byStart = Integer.compare(start, node.start);
+        return byStart != 0 ? byStart : Long.compare(sequence, node.sequence);
+    }
+
+    private static Node insert(Node node, Node fresh) {
+        if (node == null) {
+            return fresh;
+        }
+        if (compare(fresh.start, fresh.sequence, node) < 0) {
+            node.left = insert(node.left, fresh);
+        } else {
+            node.right = insert(node.right, fresh);
+        }
+        return rebalance(node);
+    }
+
+    private static Node delete(Node node, int start, long sequence) {
+        int cmp = compare(start, sequence, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, sequence);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, sequence);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return rebalance(node);
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return rebalance(node);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        int maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Prices bookings in bulk.
+ * Bookings are given as parallel primitive arrays (property ID, user ID, first night and checkout day as
+ * epoch days); the engine resolves each property's price per day, seasonal rates and each user's discount
+ * from tables captured when it is created, and prices fixed-size chunks of the batch in parallel on the
+ * common fork-join pool. A stay's rates are summed from the property's {@link PriceCalendar} in constant
+ * time, however long the stay.
+ *
+ * Every booking is priced by {@link #cost(double, double, double)}, the same function
+ * {@link Booking#netCost(double)} uses, so a batch result is bit-identical to pricing the booking on its own
+ * with the discount the same engine gives its user.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class BookingCostEngine {
+    private static final int CHUNK = 1 << 14;
+
+    private final IntIntHashMap propertySlots = new IntIntHashMap(-1);
+    private final double[] pricesPerDay;
+    private final PriceCalendar[] rates;
+    private final IntIntHashMap userSlots = new IntIntHashMap(-1);
+    private final double[] discounts;
+
+    /**
+     * Constructs an engine over the current prices of the given properties and today's discounts of the
+     * given users from a discount engine.
+     * Later price, rate or discount changes are not seen; create a new engine to pick them up.
+     *
+     * @param users          The users whose bookings may be priced.
+     * @param properties     The properties whose bookings may be priced.
+     * @param discountEngine Resolves the discount of each user.
+     */
+    public BookingCostEngine(Iterable<User> users, Iterable<Property> properties, DiscountEngine discountEngine) {
+        int count = 0;
+        double[] prices = new double[64];
+        PriceCalendar[] calendars = new PriceCalendar[64];
+        for (Property property : properties) {
+            if (count == prices.length) {
+                prices = Arrays.copyOf(prices, count * 2);
+                calendars = Arrays.copyOf(calendars, count * 2);
+            }
+            prices[count] = property.calculatePricePerDay();
+            // Calendars are immutable, so the engine keeps pricing with the rates it was created with
+            calendars[count] = property.getRates();
+            propertySlots.put(property.getPropertyId(), count++);
+        }
+        this.pricesPerDay = prices;
+        this.rates = calendars;
+
+        count = 0;
+        int today = EpochDay.today();
+        double[] userDiscounts = new double[64];
+        for (User user : users) {
+            if (count == userDiscounts.length) {
+                userDiscounts = Arrays.copyOf(userDiscounts, count * 2);
+            }
+            userDiscounts[count] = discountEngine.discountOf(user, today);
+            userSlots.put(user.getUserId(), count++);
+        }
+        this.discounts = userDiscounts;
+    }
+
+    /**
+     * Calculate the cost of a stay.
+     *
+     * @param pricePerDay     The calculated price per day of the property.
+     * @param pricedNights    The sum of the seasonal rates over the nights; the number of nights without
+     *                        seasonal rates.
+     * @param discountPercent The customer's discount in percent (for example 2.0 for 2%).
+     * @return The cost after the discount.
+     */
+    public static double cost(double pricePerDay, double pricedNights, double discountPercent) {
+        double gross = pricePerDay * pricedNights;
+        return gross - gross * discountPercent / 100;
+    }
+
+    /**
+     * Price a batch of bookings.
+     *
+     * @param propertyIds The property ID of each booking.
+     * @param userIds     The user ID of each booking.
+     * @param startDays   The first night of each booking (epoch day).
+     * @param endDays     The checkout day of each booking (epoch day, exclusive).
+     * @param costs       Receives the cost of each booking after discount; at least as long as the batch.
+     * @return The sum of the costs, added chunk by chunk in index order so it does not depend on scheduling.
+     * @throws IllegalArgumentException if the arrays differ in length, or a booking refers to an unknown
+     *                                  property or user.
+     */
+    public double price(int[] propertyIds, int[] userIds, int[] startDays, int[] endDays, double[] costs) {
+        int count = propertyIds.length;
+        if (userIds.length != count || startDays.length != count || endDays.length != count || costs.length < count) {
+            throw new IllegalArgumentException("Booking arrays must have the same length");
+        }
+        int chunks = (count + CHUNK - 1) / CHUNK;
+        double[] chunkTotals = new double[chunks];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * CHUNK;
+            int to = Math.min(from + CHUNK, count);
+            double total = 0;
+            for (int i = from; i < to; i++) {
+                int property = propertySlots.get(propertyIds[i]);
+                int user = userSlots.get(userIds[i]);
+                if (property < 0 || user < 0) {
+                    throw new IllegalArgumentException("Booking " + i + " refers to an unknown "
+                            + (property < 0 ? "property " + propertyIds[i] : "user " + userIds[i]));
+                }
+                double cost = cost(pricesPerDay[property], rates[property].sum(startDays[i], endDays[i]), discounts[user]);
+                costs[i] = cost;
+                total += cost;
+            }
+            chunkTotals[chunk] = total;
+        });
+        double total = 0;
+        for (double chunkTotal : chunkTotals) {
+            total += chunkTotal;
+        }
+        return total;
+    }
+}
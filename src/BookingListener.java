@@ -0,0 +1,33 @@
+/**
+ * Receives notifications when bookings are added or cancelled through the booking service.
+ * Notifications are delivered on the booking thread while the property's lock stripe is held, so
+ * listeners must be quick and must not book themselves.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public interface BookingListener {
+
+    /**
+     * Called after a booking has been added to its property's calendar and its user's booking list.
+     *
+     * @param booking The added booking.
+     */
+    void bookingAdded(Booking booking);
+
+    /**
+     * Called after a booking has been removed from its property's calendar and its user's booking list.
+     *
+     * @param booking The cancelled booking.
+     */
+    default void bookingCancelled(Booking booking) {
+    }
+
+    /**
+     * Called after a booking has been marked as paid or unpaid through the booking service.
+     *
+     * @param booking The booking; {@link Booking#isPaid()} holds the new state.
+     */
+    default void paymentChanged(Booking booking) {
+    }
+}
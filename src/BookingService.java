@@ -0,0 +1,515 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe booking operations over the registered users and properties.
+ * Every property maps to one of a fixed set of lock stripes by its ID; a booking only locks the stripe of
+ * its property while it checks and updates that property's calendar, so bookings for different properties
+ * run in parallel. A user's booking list is appended to under the user's monitor.
+ *
+ * User and property lookups read concurrent maps that follow the registries, so they never block.
+ * Registering and removing users and properties stays single-threaded; only bookings and lookups may run
+ * on many threads at once. Removing a user or property cancels its bookings, and a booking that races with
+ * the removal of its user or property is rejected, so no booking is left pointing at a removed entity.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class BookingService {
+    private final ConcurrentHashMap<Integer, User> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Property> properties = new ConcurrentHashMap<>();
+    private final List<BookingListener> listeners = new CopyOnWriteArrayList<>();
+    // Bookings claimed for settlement, each mapped to whether its hold expired while it was claimed;
+    // only changed under the booking's property stripe
+    private final ConcurrentHashMap<Booking, Boolean> claims = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final int stripeShift;
+
+    /**
+     * Constructs a service with the given number of lock stripes.
+     *
+     * @param stripeCount The number of lock stripes; rounded up to a power of two.
+     */
+    public BookingService(int stripeCount) {
+        int count = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stripeShift = 32 - Integer.numberOfTrailingZeros(count);
+    }
+
+    /**
+     * Get a listener that keeps the user lookups in step with a user registry.
+     *
+     * @return The user registry listener.
+     */
+    public EntityRegistry.Listener<User> userListener() {
+        return new EntityRegistry.Listener<>() {
+            @Override
+            public void added(User user) {
+                users.put(user.getUserId(), user);
+            }
+
+            @Override
+            public void removed(User user) {
+                users.remove(user.getUserId(), user);
+                // Bookings added from here on see the user gone and roll back
+                List<Booking> bookings;
+                synchronized (user) {
+                    bookings = new ArrayList<>(user.getBookings());
+                }
+                for (Booking booking : bookings) {
+                    cancel(booking);
+                }
+            }
+        };
+    }
+
+    /**
+     * Get a listener that keeps the property lookups in step with a property registry.
+     *
+     * @return The property registry listener.
+     */
+    public EntityRegistry.Listener<Property> propertyListener() {
+        return new EntityRegistry.Listener<>() {
+            @Override
+            public void added(Property property) {
+                properties.put(property.getPropertyId(), property);
+                property.setBookingService(BookingService.this);
+            }
+
+            @Override
+            public void removed(Property property) {
+                properties.remove(property.getPropertyId(), property);
+                property.setBookingService(null);
+                ReentrantLock lock = stripeOf(property.getPropertyId());
+                lock.lock();
+                try {
+                    // Bookings taking the stripe from here on see the property gone
+                    for (Booking booking : calendarOf(property)) {
+                        cancelLocked(booking);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    /**
+     * Register a listener that is told about every booking added or cancelled through the service.
+     *
+     * @param listener The listener to register.
+     */
+    public void addListener(BookingListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Get a user by ID without blocking.
+     *
+     * @param userId The unique ID of the user.
+     * @return The user, or null if no user with this ID is registered.
+     */
+    public User getUser(int userId) {
+        return users.get(userId);
+    }
+
+    /**
+     * Get a property by ID without blocking.
+     *
+     * @param propertyId The unique ID of the property.
+     * @return The property, or null if no property with this ID is registered.
+     */
+    public Property getProperty(int propertyId) {
+        return properties.get(propertyId);
+    }
+
+    /**
+     * Book a stay for a user.
+     *
+     * @param userId     The unique ID of the user.
+     * @param propertyId The unique ID of the property.
+     * @param startDay   The first night of the stay (epoch day).
+     * @param endDay     The checkout day (epoch day, exclusive).
+     * @return The new unpaid booking, or null if the property is fully booked on some night of the stay, or the
+     * user or property was removed while booking.
+     * @throws IllegalArgumentException if the user or property does not exist, or the stay does not end
+     *                                  after it starts.
+     */
+    public Booking book(int userId, int propertyId, int startDay, int endDay) {
+        User user = users.get(userId);
+        if (user == null) {
+            throw new IllegalArgumentException("User ID " + userId + " does not exist.");
+        }
+        Property property = properties.get(propertyId);
+        if (property == null) {
+            throw new IllegalArgumentException("Property ID " + propertyId + " does not exist.");
+        }
+        Booking booking = new Booking(user, property, startDay, endDay, false);
+        return add(booking) ? booking : null;
+    }
+
+    /**
+     * Record a booking in its property's calendar and in the user's booking list.
+     *
+     * @param booking The booking to add.
+     * @return true if the booking was added; false if it conflicts with existing bookings, or its user or
+     * property has been removed.
+     */
+    public boolean add(Booking booking) {
+        Property property = booking.getProperty();
+        ReentrantLock lock = stripeOf(property.getPropertyId());
+        lock.lock();
+        try {
+            if (properties.get(property.getPropertyId()) != property
+                    || !property.getCalendar().add(booking, property.getBookingCapacity())) {
+                return false;
+            }
+            User user = booking.getUser();
+            synchronized (user) {
+                if (users.get(user.getUserId()) != user) {
+                    property.getCalendar().remove(booking);
+                    return false;
+                }
+                user.addBooking(booking);
+            }
+            for (BookingListener listener : listeners) {
+                listener.bookingAdded(booking);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove a booking from its property's calendar and from the user's booking list.
+     *
+     * @param booking The booking to remove.
+     * @return true if the booking was in the calendar; otherwise, false.
+     */
+    public boolean cancel(Booking booking) {
+        ReentrantLock lock = stripeOf(booking.getProperty().getPropertyId());
+        lock.lock();
+        try {
+            return cancelLocked(booking);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancel a booking only if it is still unpaid, for example when its reservation hold expires.
+     * The payment state is checked under the property's stripe, so a concurrent {@link #setPaid} either
+     * completes first and keeps the booking, or comes after the booking is gone. A booking claimed for
+     * settlement may be charged at any moment, so it is kept until {@link #unclaim}, which releases it then
+     * if it is still unpaid.
+     *
+     * @param booking The booking to release.
+     * @return true if the booking was unpaid and has been cancelled; otherwise, false.
+     */
+    public boolean release(Booking booking) {
+        ReentrantLock lock = stripeOf(booking.getProperty().getPropertyId());
+        lock.lock();
+        try {
+            if (booking.isPaid()) {
+                return false;
+            }
+            if (claims.containsKey(booking)) {
+                claims.put(booking, Boolean.TRUE);
+                return false;
+            }
+            return cancelLocked(booking);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean cancelLocked(Booking booking) {
+        if (!booking.getProperty().getCalendar().remove(booking)) {
+            return false;
+        }
+        User user = booking.getUser();
+        synchronized (user) {
+            user.getBookings().remove(booking);
+        }
+        for (BookingListener listener : listeners) {
+            listener.bookingCancelled(booking);
+        }
+        return true;
+    }
+
+    /**
+     * Get a copy of a property's bookings that is safe to read while other threads book.
+     *
+     * @param propertyId The unique ID of the property.
+     * @return The property's bookings in start-day order, or an empty list if the property does not exist.
+     */
+    public List<Booking> getPropertyBookings(int propertyId) {
+        Property property = properties.get(propertyId);
+        if (property == null) {
+            return new ArrayList<>();
+        }
+        ReentrantLock lock = stripeOf(propertyId);
+        lock.lock();
+        try {
+            return calendarOf(property);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find a user's booking of a property by its start day, with one lookup in the property's calendar.
+     * If the user has several bookings starting that day, an unpaid one is preferred.
+     *
+     * @param userId     The unique ID of the user.
+     * @param propertyId The unique ID of the property.
+     * @param startDay   The first night of the booking (epoch day).
+     * @return The booking, or null if there is none.
+     */
+    public Booking findBooking(int userId, int propertyId, int startDay) {
+        Property property = properties.get(propertyId);
+        if (property == null) {
+            return null;
+        }
+        ReentrantLock lock = stripeOf(propertyId);
+        lock.lock();
+        try {
+            BookingCalendar calendar = property.getCalendar();
+            Booking booking = calendar.find(startDay, candidate -> candidate.getUser().getUserId() == userId && !candidate.isPaid());
+            return booking != null ? booking : calendar.find(startDay, candidate -> candidate.getUser().getUserId() == userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find a user's unpaid booking of a property by its start day and claim it for settlement, in one step
+     * under the property's stripe, so two threads never claim the same booking. Claimed bookings are passed
+     * over, so several bookings with the same user, property and start day are claimed one by one. A claimed
+     * booking is not released when its reservation hold expires; the caller must {@link #unclaim} it once it
+     * is paid or its payment has failed.
+     *
+     * @param userId     The unique ID of the user.
+     * @param propertyId The unique ID of the property.
+     * @param startDay   The first night of the booking (epoch day).
+     * @return The claimed booking, or null if every such booking is paid or claimed, or there is none.
+     */
+    public Booking claimUnpaid(int userId, int propertyId, int startDay) {
+        Property property = properties.get(propertyId);
+        if (property == null) {
+            return null;
+        }
+        ReentrantLock lock = stripeOf(propertyId);
+        lock.lock();
+        try {
+            Booking booking = property.getCalendar().find(startDay, candidate ->
+                    candidate.getUser().getUserId() == userId && !candidate.isPaid() && !claims.containsKey(candidate));
+            if (booking != null) {
+                claims.put(booking, Boolean.FALSE);
+            }
+            return booking;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop the claim on a booking. If its reservation hold expired while it was claimed and it is still
+     * unpaid, it is released now.
+     *
+     * @param booking The claimed booking.
+     * @return true if the booking has been released; otherwise, false.
+     */
+    public boolean unclaim(Booking booking) {
+        ReentrantLock lock = stripeOf(booking.getProperty().getPropertyId());
+        lock.lock();
+        try {
+            return Boolean.TRUE.equals(claims.remove(booking)) && !booking.isPaid() && cancelLocked(booking);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static List<Booking> calendarOf(Property property) {
+        List<Booking> bookings = new ArrayList<>();
+        property.getCalendar().forEachOverlapping(Integer.MIN_VALUE, Integer.MAX_VALUE, bookings::add);
+        return bookings;
+    }
+
+    /**
+     * Mark a booking as paid or unpaid and notify the listeners.
+     * {@link Booking#setPaid} comes here for a booking of a registered property, so aggregates over unpaid
+     * bookings and reservation holds stay correct however the payment is recorded.
+     *
+     * @param booking The booking.
+     * @param paid    true if the booking has been paid; otherwise, false.
+     * @return true if the payment state changed; false if it already had this state or is no longer booked,
+     * for example because it was cancelled while the payment was being processed.
+     */
+    public boolean setPaid(Booking booking, boolean paid) {
+        Property property = booking.getProperty();
+        ReentrantLock lock = stripeOf(property.getPropertyId());
+        lock.lock();
+        try {
+            if (booking.isPaid() == paid
+                    || property.getCalendar().find(booking.getStartDay(), candidate -> candidate == booking) == null) {
+                return false;
+            }
+            booking.markPaid(paid);
+            for (BookingListener listener : listeners) {
+                listener.paymentChanged(booking);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Set the seasonal rates of a range of a property's nights while no booking of the property changes,
+     * so the listeners that reweigh its bookings see a consistent calendar.
+     *
+     * @param propertyId The unique ID of the property.
+     * @param fromDay    The first night of the range (epoch day).
+     * @param rates      The rate of each night of the range, in order.
+     * @return true if the rates were set; false if no property has this ID.
+     */
+    public boolean setRates(int propertyId, int fromDay, double[] rates) {
+        Property property = properties.get(propertyId);
+        if (property == null) {
+            return false;
+        }
+        ReentrantLock lock = stripeOf(propertyId);
+        lock.lock();
+        try {
+            property.setRates(fromDay, rates);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Set the number of bedrooms of a property while no booking of the property changes, so a change of
+     * booking capacity recomputes the full nights of a calendar that concurrent bookings cannot see half done.
+     *
+     * @param propertyId The unique ID of the property.
+     * @param noBedRooms The number of bedrooms to set.
+     * @return true if the bedrooms were set; false if no property has this ID.
+     */
+    public boolean setBedRooms(int propertyId, int noBedRooms) {
+        Property property = properties.get(propertyId);
+        if (property == null) {
+            return false;
+        }
+        ReentrantLock lock = stripeOf(propertyId);
+        lock.lock();
+        try {
+            property.setNoBedRooms(noBedRooms);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reassign a property to another host, under the property's lock so that the host ledger moves the
+     * property's bookings between accounts while none are added or cancelled.
+     *
+     * @param propertyId The unique ID of the property.
+     * @param host       The new host, or null for no host.
+     * @return true if the host was set; false if no property has this ID.
+     */
+    public boolean setHost(int propertyId, Host host) {
+        Property property = properties.get(propertyId);
+        if (property == null) {
+            return false;
+        }
+        ReentrantLock lock = stripeOf(propertyId);
+        lock.lock();
+        try {
+            property.setHost(host);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check whether a property has room for a stay, consistently with concurrent bookings.
+     *
+     * @param propertyId The unique ID of the property.
+     * @param startDay   The first night of the stay (epoch day).
+     * @param endDay     The checkout day (epoch day, exclusive).
+     * @return true if the property exists and is not fully booked on any night of the stay.
+     */
+    public boolean isAvailable(int propertyId, int startDay, int endDay) {
+        Property property = properties.get(propertyId);
+        if (property == null) {
+            return false;
+        }
+        ReentrantLock lock = stripeOf(propertyId);
+        lock.lock();
+        try {
+            return property.getCalendar().isAvailable(startDay, endDay, property.getBookingCapacity());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get a copy of a user's bookings that is safe to read while other threads book.
+     *
+     * @param userId The unique ID of the user.
+     * @return The user's bookings, or an empty list if the user does not exist.
+     */
+    public List<Booking> getBookings(int userId) {
+        User user = users.get(userId);
+        if (user == null) {
+            return new ArrayList<>();
+        }
+        synchronized (user) {
+            return new ArrayList<>(user.getBookings());
+        }
+    }
+
+    /**
+     * Block every booking until {@link #unlockAll()} is called, for example while a snapshot is written.
+     * The stripes are taken in index order, so this never deadlocks with bookings or another caller.
+     */
+    public void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Release the stripes taken by {@link #lockAll()}.
+     */
+    public void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    /**
+     * Get the number of lock stripes.
+     *
+     * @return The number of stripes, a power of two.
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    private ReentrantLock stripeOf(int propertyId) {
+        // Fibonacci hashing spreads consecutive IDs over the stripes
+        return stripes.length == 1 ? stripes[0] : stripes[(propertyId * 0x9E3779B9) >>> stripeShift];
+    }
+}
@@ -0,0 +1,553 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Every booking in one flat set of primitive columns, for reports that make full passes over all bookings.
+ *
+ * A booking is a row: the slot of its user, the slot of its property, its first night, its number of nights
+ * and a flags byte. Users and properties get a dense slot the first time one of their bookings is stored, so
+ * a report resolves each user's discount and payment method and each property's type and price once, into
+ * arrays indexed by slot, and then runs as a fork-join reduction over contiguous ranges of rows instead of
+ * following users to their booking lists and each booking to its objects.
+ *
+ * The store is kept current from booking events, and picks up the bookings already in the calendar of a
+ * property restored from storage. A cancelled booking's row is freed and reused by a later booking; the rows
+ * of one property are chained so a cancellation or payment finds its row by walking only that property's
+ * bookings, matching the user, the nights and the payment state. Removing a user or property cancels its
+ * bookings first; its slot is then freed for reuse once no row refers to it.
+ *
+ * Booking events arrive on several lock stripes at once, so each is handed to an {@link UpdateQueue} with the
+ * user, nights and payment state it had at the time, and applied by whichever thread holds the store's lock;
+ * a booking never waits for the store. A report only holds the lock while it captures the columns, after
+ * applying the queued events, so it counts every booking made before it started; bookings added, paid or
+ * cancelled during the pass may or may not be counted.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class BookingStore implements EntityRegistry.Listener<Property>, BookingListener {
+    private static final int INITIAL_ROWS = 1024;
+    private static final byte LIVE = 1;
+    private static final byte PAID = 2;
+    private static final byte OTHER = 0;
+    private static final byte STANDARD = 1;
+    private static final byte GOLD = 2;
+    /**
+     * Rows per leaf task of a report: large enough to amortize the task, small enough to balance the cores.
+     */
+    private static final int LEAF_ROWS = 1 << 16;
+
+    private final DiscountEngine discountEngine;
+    private final UpdateQueue updates = new UpdateQueue();
+    private int[] userSlots = new int[INITIAL_ROWS];
+    private int[] propertySlots = new int[INITIAL_ROWS];
+    private int[] startDays = new int[INITIAL_ROWS];
+    private int[] nights = new int[INITIAL_ROWS];
+    private int[] nextRows = new int[INITIAL_ROWS]; // next row of the same property, or -1
+    private byte[] flags = new byte[INITIAL_ROWS];
+    private int rowLimit;
+    private int liveRows;
+    private int[] freeRows = new int[16];
+    private int freeCount;
+
+    private final IdentityHashMap<User, Integer> userSlotOf = new IdentityHashMap<>();
+    private final IdentityHashMap<Property, Integer> propertySlotOf = new IdentityHashMap<>();
+    private User[] users = new User[64];
+    private int[] userRowCounts = new int[64];
+    private int userSlotLimit;
+    private int[] freeUserSlots = new int[16];
+    private int freeUserSlotCount;
+    private Property[] properties = new Property[64];
+    private int[] firstRows = new int[64]; // first row of each property slot, or -1
+    private int propertySlotLimit;
+    private int[] freePropertySlots = new int[16];
+    private int freePropertySlotCount;
+
+    /**
+     * Constructs an empty store whose reports use the default discount rules.
+     */
+    public BookingStore() {
+        this(new DiscountEngine(DiscountRules.DEFAULT));
+    }
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param discountEngine Resolves the discount of each user in a report.
+     */
+    public BookingStore(DiscountEngine discountEngine) {
+        this.discountEngine = discountEngine;
+    }
+
+    // ------------------------------------------------------------------ maintenance
+
+    @Override
+    public void added(Property property) {
+        updates.lock();
+        try {
+            // A property restored from storage arrives with its bookings already in its calendar
+            property.getCalendar().forEachOverlapping(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    booking -> store(booking.getUser(), property, booking.getStartDay(), booking.getEndDay(),
+                            booking.isPaid()));
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    @Override
+    public void removed(Property property) {
+        updates.lock();
+        try {
+            Integer slot = propertySlotOf.get(property);
+            if (slot != null && firstRows[slot] < 0) {
+                propertySlotOf.remove(property);
+                properties[slot] = null;
+                freePropertySlots = push(freePropertySlots, freePropertySlotCount++, slot);
+            }
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    /**
+     * Get a listener that frees the slot of a removed user once its bookings have been cancelled.
+     *
+     * @return The user registry listener.
+     */
+    public EntityRegistry.Listener<User> userListener() {
+        return new EntityRegistry.Listener<>() {
+            @Override
+            public void added(User user) {
+            }
+
+            @Override
+            public void removed(User user) {
+                updates.lock();
+                try {
+                    Integer slot = userSlotOf.get(user);
+                    if (slot != null && userRowCounts[slot] == 0) {
+                        userSlotOf.remove(user);
+                        users[slot] = null;
+                        freeUserSlots = push(freeUserSlots, freeUserSlotCount++, slot);
+                    }
+                } finally {
+                    updates.unlock();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void bookingAdded(Booking booking) {
+        User user = booking.getUser();
+        Property property = booking.getProperty();
+        int startDay = booking.getStartDay();
+        int endDay = booking.getEndDay();
+        boolean paid = booking.isPaid();
+        updates.submit(() -> store(user, property, startDay, endDay, paid));
+    }
+
+    @Override
+    public void bookingCancelled(Booking booking) {
+        User user = booking.getUser();
+        Property property = booking.getProperty();
+        int startDay = booking.getStartDay();
+        int stay = booking.getNights();
+        boolean paid = booking.isPaid();
+        updates.submit(() -> free(rowOf(user, property, startDay, stay, paid)));
+    }
+
+    @Override
+    public void paymentChanged(Booking booking) {
+        User user = booking.getUser();
+        Property property = booking.getProperty();
+        int startDay = booking.getStartDay();
+        int stay = booking.getNights();
+        boolean paid = booking.isPaid();
+        updates.submit(() -> {
+            int row = rowOf(user, property, startDay, stay, !paid);
+            if (row >= 0) {
+                flags[row] = paid ? LIVE | PAID : LIVE;
+            }
+        });
+    }
+
+    /**
+     * Store a booking.
+     *
+     * @param booking The booking.
+     */
+    public void add(Booking booking) {
+        add(booking.getUser(), booking.getProperty(), booking.getStartDay(), booking.getEndDay(), booking.isPaid());
+    }
+
+    /**
+     * Store a booking given by its parts, for bulk loads that never materialize Booking objects.
+     * Rows stored this way can only be cancelled or paid through a Booking with the same property and
+     * first night.
+     *
+     * @param user     The user who booked.
+     * @param property The booked property.
+     * @param startDay The first night as an epoch day.
+     * @param endDay   The checkout day as an epoch day.
+     * @param paid     Whether the booking is paid.
+     */
+    public void add(User user, Property property, int startDay, int endDay, boolean paid) {
+        updates.lock();
+        try {
+            store(user, property, startDay, endDay, paid);
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    private void store(User user, Property property, int startDay, int endDay, boolean paid) {
+        int propertySlot = propertySlot(property);
+        int userSlot = userSlot(user);
+        int row = allocateRow();
+        userSlots[row] = userSlot;
+        userRowCounts[userSlot]++;
+        propertySlots[row] = propertySlot;
+        startDays[row] = startDay;
+        nights[row] = endDay - startDay;
+        flags[row] = paid ? LIVE | PAID : LIVE;
+        nextRows[row] = firstRows[propertySlot];
+        firstRows[propertySlot] = row;
+        liveRows++;
+    }
+
+    private void free(int row) {
+        if (row < 0) {
+            return;
+        }
+        int property = propertySlots[row];
+        if (firstRows[property] == row) {
+            firstRows[property] = nextRows[row];
+        } else {
+            int previous = firstRows[property];
+            while (nextRows[previous] != row) {
+                previous = nextRows[previous];
+            }
+            nextRows[previous] = nextRows[row];
+        }
+        flags[row] = 0;
+        liveRows--;
+        userRowCounts[userSlots[row]]--;
+        freeRows = push(freeRows, freeCount++, row);
+    }
+
+    /**
+     * Get the number of stored bookings.
+     *
+     * @return The number of live rows.
+     */
+    public int size() {
+        updates.lock();
+        try {
+            return liveRows;
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    /**
+     * Find the row of a booking among its property's rows. Bookings of the same user, property and nights
+     * with the same payment state are interchangeable, so any one of them will do.
+     */
+    private int rowOf(User bookedBy, Property bookedProperty, int startDay, int stay, boolean paid) {
+        Integer property = propertySlotOf.get(bookedProperty);
+        Integer user = userSlotOf.get(bookedBy);
+        if (property == null || user == null) {
+            return -1;
+        }
+        byte flag = paid ? LIVE | PAID : LIVE;
+        for (int row = firstRows[property]; row >= 0; row = nextRows[row]) {
+            if (startDays[row] == startDay && nights[row] == stay && userSlots[row] == user && flags[row] == flag) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rowLimit == flags.length) {
+            int capacity = rowLimit * 2;
+            userSlots = Arrays.copyOf(userSlots, capacity);
+            propertySlots = Arrays.copyOf(propertySlots, capacity);
+            startDays = Arrays.copyOf(startDays, capacity);
+            nights = Arrays.copyOf(nights, capacity);
+            nextRows = Arrays.copyOf(nextRows, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+        return rowLimit++;
+    }
+
+    private int userSlot(User user) {
+        Integer slot = userSlotOf.get(user);
+        if (slot == null) {
+            if (freeUserSlotCount > 0) {
+                slot = freeUserSlots[--freeUserSlotCount];
+            } else {
+                slot = userSlotLimit++;
+                if (slot == users.length) {
+                    users = Arrays.copyOf(users, slot * 2);
+                    userRowCounts = Arrays.copyOf(userRowCounts, slot * 2);
+                }
+            }
+            users[slot] = user;
+            userSlotOf.put(user, slot);
+        }
+        return slot;
+    }
+
+    private int propertySlot(Property property) {
+        Integer slot = propertySlotOf.get(property);
+        if (slot == null) {
+            if (freePropertySlotCount > 0) {
+                slot = freePropertySlots[--freePropertySlotCount];
+            } else {
+                slot = propertySlotLimit++;
+                if (slot == properties.length) {
+                    properties = Arrays.copyOf(properties, slot * 2);
+                    firstRows = Arrays.copyOf(firstRows, slot * 2);
+                }
+            }
+            properties[slot] = property;
+            firstRows[slot] = -1;
+            propertySlotOf.put(property, slot);
+        }
+        return slot;
+    }
+
+    private static int[] push(int[] stack, int size, int value) {
+        int[] grown = size == stack.length ? Arrays.copyOf(stack, size * 2) : stack;
+        grown[size] = value;
+        return grown;
+    }
+
+    // ------------------------------------------------------------------ reports
+
+    /**
+     * Report on every stored booking, on the common fork-join pool.
+     *
+     * @return The report.
+     */
+    public BookingReport report() {
+        return report(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Report on every stored booking: revenue by property type, discounts by customer type, the average
+     * stay, and the unpaid amount by preferred payment method. Costs use the current prices, seasonal rates
+     * and discounts under the engine's current rules, as {@link Booking#totalCost()} and
+     * {@link Booking#netCost(double)} do. The rows are split the same way whatever the pool, so the sums do not depend on the number of threads.
+     *
+     * @param pool The pool the reduction runs on.
+     * @return The report.
+     */
+    public BookingReport report(ForkJoinPool pool) {
+        int[] userColumn;
+        int[] propertyColumn;
+        int[] startColumn;
+        int[] nightColumn;
+        byte[] flagColumn;
+        int rows;
+        User[] userObjects;
+        int userCount;
+        Property[] propertyObjects;
+        int propertyCount;
+        updates.lock();
+        try {
+            userColumn = userSlots;
+            propertyColumn = propertySlots;
+            startColumn = startDays;
+            nightColumn = nights;
+            flagColumn = flags;
+            rows = rowLimit;
+            userObjects = users;
+            userCount = userSlotLimit;
+            propertyObjects = properties;
+            propertyCount = propertySlotLimit;
+        } finally {
+            updates.unlock();
+        }
+        // Growing a column copies it, so the captured arrays keep every row below the captured limit
+        Tables tables = new Tables(userColumn, propertyColumn, startColumn, nightColumn, flagColumn, rows,
+                userObjects, userCount, propertyObjects, propertyCount, discountEngine);
+        Totals totals = pool.invoke(new ReportTask(tables, 0, tables.rowLimit));
+        Map<String, Double> unpaid = new LinkedHashMap<>();
+        for (int method = 0; method < tables.paymentMethods.size(); method++) {
+            unpaid.put(tables.paymentMethods.get(method), totals.unpaidByMethod[method]);
+        }
+        return new BookingReport(totals.bookings, totals.nights,
+                totals.bookings == 0 ? 0 : (double) totals.nights / totals.bookings,
+                totals.revenue[PropertyStore.SHARED], totals.revenue[PropertyStore.FULL],
+                totals.discounts[STANDARD], totals.discounts[GOLD], unpaid);
+    }
+
+    /**
+     * The columns up to the row limit at the start of a report, and what each user and property slot
+     * resolves to.
+     */
+    private static final class Tables {
+        private final int[] userSlots;
+        private final int[] propertySlots;
+        private final int[] startDays;
+        private final int[] nights;
+        private final byte[] flags;
+        private final int rowLimit;
+        private final byte[] customerTypes;
+        private final double[] discounts;
+        private final int[] paymentMethodCodes;
+        private final List<String> paymentMethods = new ArrayList<>();
+        private final byte[] propertyTypes;
+        private final double[] prices;
+        private final PriceCalendar[] rates;
+
+        private Tables(int[] userSlots, int[] propertySlots, int[] startDays, int[] nights, byte[] flags,
+                       int rowLimit, User[] users, int userCount, Property[] properties, int propertyCount,
+                       DiscountEngine discountEngine) {
+            this.userSlots = userSlots;
+            this.propertySlots = propertySlots;
+            this.startDays = startDays;
+            this.nights = nights;
+            this.flags = flags;
+            this.rowLimit = rowLimit;
+            this.customerTypes = new byte[userCount];
+            this.discounts = new double[userCount];
+            this.paymentMethodCodes = new int[userCount];
+            StringDictionary methods = new StringDictionary();
+            int today = EpochDay.today();
+            for (int slot = 0; slot < userCount; slot++) {
+                User user = users[slot];
+                customerTypes[slot] = user instanceof GoldCustomer ? GOLD : user instanceof StandardCustomer ? STANDARD : OTHER;
+                discounts[slot] = user == null ? 0 : discountEngine.discountOf(user, today);
+                String method = user instanceof Customer ? ((Customer) user).getPreferredPaymentMethod() : null;
+                paymentMethodCodes[slot] = methods.encode(method == null ? "none" : method);
+            }
+            for (int code = 0; code < methods.size(); code++) {
+                paymentMethods.add(methods.decode(code));
+            }
+            this.propertyTypes = new byte[propertyCount];
+            this.prices = new double[propertyCount];
+            this.rates = new PriceCalendar[propertyCount];
+            for (int slot = 0; slot < propertyCount; slot++) {
+                Property property = properties[slot];
+                propertyTypes[slot] = property instanceof FullProperty ? PropertyStore.FULL : PropertyStore.SHARED;
+                // A freed slot has no live rows
+                prices[slot] = property == null ? 0 : property.calculatePricePerDay();
+                rates[slot] = property == null ? PriceCalendar.FLAT : property.getRates();
+            }
+        }
+    }
+
+    /**
+     * The sums over a range of rows.
+     */
+    private static final class Totals {
+        private long bookings;
+        private long nights;
+        private final double[] revenue = new double[3];
+        private final double[] discounts = new double[3];
+        private final double[] unpaidByMethod;
+
+        private Totals(int paymentMethods) {
+            this.unpaidByMethod = new double[paymentMethods];
+        }
+
+        private Totals merge(Totals other) {
+            bookings += other.bookings;
+            nights += other.nights;
+            for (int i = 0; i < revenue.length; i++) {
+                revenue[i] += other.revenue[i];
+                discounts[i] += other.discounts[i];
+            }
+            for (int i = 0; i < unpaidByMethod.length; i++) {
+                unpaidByMethod[i] += other.unpaidByMethod[i];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Sums a range of rows, splitting it in halves down to {@value #LEAF_ROWS} rows.
+     */
+    private static final class ReportTask extends RecursiveTask<Totals> {
+        private static final long serialVersionUID = 1L;
+
+        private final Tables tables;
+        private final int from;
+        private final int to;
+
+        private ReportTask(Tables tables, int from, int to) {
+            this.tables = tables;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > LEAF_ROWS) {
+                int middle = (from + to) >>> 1;
+                ReportTask right = new ReportTask(tables, middle, to);
+                right.fork();
+                Totals left = new ReportTask(tables, from, middle).compute();
+                return left.merge(right.join());
+            }
+            Tables t = tables;
+            Totals totals = new Totals(t.paymentMethods.size());
+            for (int row = from; row < to; row++) {
+                byte flag = t.flags[row];
+                if ((flag & LIVE) == 0) {
+                    continue;
+                }
+                int user = t.userSlots[row];
+                int property = t.propertySlots[row];
+                if (user >= t.discounts.length || property >= t.prices.length) {
+                    // A row reused for a booking of a user or property seen after the report started
+                    continue;
+                }
+                int start = t.startDays[row];
+                int stay = t.nights[row];
+                double pricedNights = t.rates[property].sum(start, start + stay);
+                double gross = t.prices[property] * pricedNights;
+                double net = BookingCostEngine.cost(t.prices[property], pricedNights, t.discounts[user]);
+                totals.bookings++;
+                totals.nights += stay;
+                totals.revenue[t.propertyTypes[property]] += gross;
+                totals.discounts[t.customerTypes[user]] += gross - net;
+                if ((flag & PAID) == 0) {
+                    totals.unpaidByMethod[t.paymentMethodCodes[user]] += net;
+                }
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * The result of a report over every stored booking.
+     *
+     * @param bookings             The number of bookings.
+     * @param nights               The number of nights booked.
+     * @param averageStay          The average number of nights per booking, or 0 without bookings.
+     * @param sharedRevenue        The total cost of the bookings of shared properties.
+     * @param fullRevenue          The total cost of the bookings of full properties.
+     * @param standardDiscounts    The discounts given to standard customers.
+     * @param goldDiscounts        The discounts given to gold customers.
+     * @param unpaidByPaymentMethod The cost after discount of the unpaid bookings, by the user's preferred
+     *                             payment method ("none" for users without one), in order of first appearance.
+     */
+    public record BookingReport(long bookings, long nights, double averageStay, double sharedRevenue,
+                                double fullRevenue, double standardDiscounts, double goldDiscounts,
+                                Map<String, Double> unpaidByPaymentMethod) {
+    }
+}
@@ -24,6 +24,21 @@ public abstract class Customer extends User {
         this.preferredPaymentMethod = preferredPaymentMethod;
     }
 
+    /**
+     * Constructs a customer with dates given as epoch days.
+     *
+     * @param userId               The unique ID of the customer.
+     * @param dateOfBirth          The date of birth as an epoch day, or EpochDay.NONE.
+     * @param firstName            The first name of the customer.
+     * @param lastName             The last name of the customer.
+     * @param registrationDate     The registration date as an epoch day, or EpochDay.NONE.
+     * @param preferredPaymentMethod The preferred payment method of the customer.
+     */
+    public Customer(int userId, int dateOfBirth, String firstName, String lastName, int registrationDate, String preferredPaymentMethod) {
+        super(userId, dateOfBirth, firstName, lastName, registrationDate);
+        this.preferredPaymentMethod = preferredPaymentMethod;
+    }
+
     /**
      * Get the preferred payment method of the customer.
      *
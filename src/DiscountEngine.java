@@ -0,0 +1,222 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resolves the discount of every user through a compact table of precomputed tiers, indexed by user ID.
+ * Each user gets an immutable tier holding its discount under the current {@link DiscountRules} and the
+ * range of days over which that discount holds: forever for hosts and gold customers, and from the
+ * registration anniversary that reached a standard customer's loyalty tier until the anniversary that
+ * reaches the next one. A lookup is two array reads and a few field reads, and today's date is only worked
+ * out from the clock when the day changes; the discount is only recomputed when the date leaves that
+ * range, when the rules change, or when the kind of user, or the gold level or registration date it was
+ * computed from, has changed since.
+ *
+ * The table is a directory of pages of {@value #PAGE_SIZE} tiers, so it takes no boxed keys or map nodes
+ * and only grows as far as the highest user ID; users with a negative ID are not cached. Lookups take no
+ * lock: the rules and today's date are read through volatile references, and a tier is replaced, never
+ * changed, through an atomic array, so a thread either sees a whole tier or recomputes it. Only adding a
+ * page or growing the directory takes a lock. Two threads recomputing the same tier store equal ones.
+ *
+ * A tier depends only on the user's kind and inputs, never on the user object, so it keeps no reference to
+ * its user, and a tier left for a replaced or removed user is only used if the next user with that ID would
+ * get the same one. The table drops the tier of a user removed from the registry, and a lookup that stored a
+ * tier while a user was being removed drops it again.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class DiscountEngine implements EntityRegistry.Listener<User> {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int OTHER = 0;
+    private static final int STANDARD = 1;
+    private static final int GOLD = 2;
+
+    private volatile DiscountRules rules;
+    // Pages of tiers by user ID; the directory is replaced by a larger copy under the grow lock
+    private volatile AtomicReferenceArray<AtomicReferenceArray<CachedTier>> pages =
+            new AtomicReferenceArray<>(16);
+    private final ReentrantLock growLock = new ReentrantLock();
+    // Counted up before and after a removal drops a tier, so it is odd while one is in progress and a lookup
+    // can tell it raced with one
+    private final AtomicInteger removals = new AtomicInteger();
+    // Today, and the instants it starts and ends, so the clock is only converted to a date once a day
+    private volatile Today today = new Today(0, Long.MAX_VALUE, Long.MIN_VALUE);
+
+    /**
+     * Constructs an engine with an empty table.
+     *
+     * @param rules The discount rules.
+     */
+    public DiscountEngine(DiscountRules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Get the current discount rules.
+     *
+     * @return The rules.
+     */
+    public DiscountRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Replace the discount rules. Every discount is recomputed when it is next looked up.
+     *
+     * @param rules The new rules.
+     */
+    public void setRules(DiscountRules rules) {
+        // Tiers computed under the old rules no longer match and are replaced on their next lookup
+        this.rules = rules;
+    }
+
+    /**
+     * Get the discount a user receives on bookings today.
+     *
+     * @param user The user.
+     * @return The discount in percent.
+     */
+    public double discountOf(User user) {
+        long now = System.currentTimeMillis();
+        Today current = today;
+        if (now < current.startMillis() || now >= current.endMillis()) {
+            int day = EpochDay.ofMillis(now);
+            current = new Today(day, EpochDay.toMillis(day), EpochDay.toMillis(day + 1));
+            today = current;
+        }
+        return lookup(user, current.day());
+    }
+
+    /**
+     * Get the discount a user receives on bookings on a given day.
+     *
+     * @param user The user.
+     * @param day  The day (epoch day).
+     * @return The discount in percent.
+     */
+    public double discountOf(User user, int day) {
+        return lookup(user, day);
+    }
+
+    // ------------------------------------------------------------------ registry events
+
+    @Override
+    public void added(User user) {
+        // Tiers are computed when a discount is first looked up
+    }
+
+    @Override
+    public void removed(User user) {
+        removals.incrementAndGet();
+        AtomicReferenceArray<CachedTier> page = page(user.getUserId(), false);
+        if (page != null) {
+            // A replacement with the same ID just recomputes its tier
+            page.set(user.getUserId() & PAGE_MASK, null);
+        }
+        removals.incrementAndGet();
+    }
+
+    // ------------------------------------------------------------------ table
+
+    private double lookup(User user, int day) {
+        DiscountRules current = rules;
+        int kind = kindOf(user);
+        int input = inputOf(user);
+        AtomicReferenceArray<CachedTier> page = page(user.getUserId(), false);
+        int slot = user.getUserId() & PAGE_MASK;
+        CachedTier tier = page == null ? null : page.get(slot);
+        if (tier != null && tier.rules() == current && tier.kind() == kind && tier.input() == input
+                && day >= tier.validFrom() && day < tier.validUntil()) {
+            return tier.discount();
+        }
+        int removalCount = removals.get();
+        tier = tierOf(user, kind, input, current, day);
+        page = page == null ? page(user.getUserId(), true) : page;
+        if (page != null) {
+            page.set(slot, tier);
+            if ((removalCount & 1) != 0 || removals.get() != removalCount) {
+                // The user may have been removed since its tier was dropped; keep the table free of it
+                page.compareAndSet(slot, tier, null);
+            }
+        }
+        return tier.discount();
+    }
+
+    /**
+     * Get the page holding a user ID's tier.
+     *
+     * @param create Whether to add the page, growing the directory if needed, when it does not exist.
+     * @return The page, or null if it does not exist and is not created or the ID is negative.
+     */
+    private AtomicReferenceArray<CachedTier> page(int userId, boolean create) {
+        if (userId < 0) {
+            return null;
+        }
+        int index = userId >>> PAGE_BITS;
+        AtomicReferenceArray<AtomicReferenceArray<CachedTier>> directory = pages;
+        AtomicReferenceArray<CachedTier> page = index < directory.length() ? directory.get(index) : null;
+        if (page != null || !create) {
+            return page;
+        }
+        growLock.lock();
+        try {
+            directory = pages;
+            if (index >= directory.length()) {
+                AtomicReferenceArray<AtomicReferenceArray<CachedTier>> grown =
+                        new AtomicReferenceArray<>(Math.max(index + 1, directory.length() * 2));
+                for (int i = 0; i < directory.length(); i++) {
+                    grown.set(i, directory.get(i));
+                }
+                // Pages are only added under the lock, so none is lost in the copy
+                pages = grown;
+                directory = grown;
+            }
+            page = directory.get(index);
+            if (page == null) {
+                page = new AtomicReferenceArray<>(PAGE_SIZE);
+                directory.set(index, page);
+            }
+            return page;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    private static CachedTier tierOf(User user, int kind, int input, DiscountRules rules, int day) {
+        if (kind == GOLD) {
+            return new CachedTier(rules, kind, input, rules.goldDiscount(input), Integer.MIN_VALUE,
+                    Integer.MAX_VALUE);
+        } else if (kind == STANDARD) {
+            int registered = user.getRegistrationDay();
+            int years = EpochDay.yearsBetween(registered, day);
+            int since = rules.loyaltyDiscountSince(years);
+            int next = rules.nextLoyaltyChange(years);
+            // Every day before the first anniversary, including those before registration, counts 0 years
+            return new CachedTier(rules, kind, input, rules.loyaltyDiscount(years),
+                    since == 0 ? Integer.MIN_VALUE : EpochDay.plusYears(registered, since),
+                    registered == EpochDay.NONE || next == Integer.MAX_VALUE ? Integer.MAX_VALUE
+                            : EpochDay.plusYears(registered, next));
+        }
+        return new CachedTier(rules, kind, input, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static int kindOf(User user) {
+        return user instanceof GoldCustomer ? GOLD : user instanceof StandardCustomer ? STANDARD : OTHER;
+    }
+
+    private static int inputOf(User user) {
+        return user instanceof GoldCustomer ? ((GoldCustomer) user).getGoldLevel() : user.getRegistrationDay();
+    }
+
+    // The discount of a kind of user under some rules, which holds for the days [validFrom, validUntil)
+    // while the gold level or registration date it was computed from is unchanged
+    private record CachedTier(DiscountRules rules, int kind, int input, double discount, int validFrom,
+                              int validUntil) {
+    }
+
+    private record Today(int day, long startMillis, long endMillis) {
+    }
+}
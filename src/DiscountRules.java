@@ -0,0 +1,125 @@
+import java.util.List;
+
+/**
+ * The discount rules for customers, as data: a list of tiers by gold level for gold customers and a list of
+ * tiers by years since registration for standard customers. A tier applies from its threshold up to the
+ * next tier's, and gives a fixed percentage plus an optional percentage per level or year above its
+ * threshold; values below the first tier get no discount. Hosts never get a discount.
+ *
+ * The default rules are the ones the customer classes apply: gold customers get their gold level in
+ * percent, and standard customers get 2% once they have been registered for 10 years. Other rules are
+ * built from tiers, for example {@code new DiscountRules(goldTiers, List.of(new Tier(5, 1, 0), new Tier(10,
+ * 2.5, 0)))}, without a new customer class.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public final class DiscountRules {
+    /**
+     * The rules of {@link GoldCustomer#getDiscountForUser()} and {@link StandardCustomer#getDiscountForUser()}.
+     */
+    public static final DiscountRules DEFAULT = new DiscountRules(
+            List.of(new Tier(0, 0, 1)),
+            List.of(new Tier(0, 0, 0), new Tier(10, 2, 0)));
+
+    private final Tier[] goldTiers;
+    private final Tier[] loyaltyTiers;
+
+    /**
+     * Constructs a set of rules.
+     *
+     * @param goldTiers    The tiers by gold level, in increasing order of their thresholds.
+     * @param loyaltyTiers The tiers by whole years since registration, in increasing order of their thresholds.
+     * @throws IllegalArgumentException if the thresholds of a list are not strictly increasing.
+     */
+    public DiscountRules(List<Tier> goldTiers, List<Tier> loyaltyTiers) {
+        this.goldTiers = sorted(goldTiers);
+        this.loyaltyTiers = sorted(loyaltyTiers);
+    }
+
+    /**
+     * Get the discount of a gold customer.
+     *
+     * @param goldLevel The customer's gold level.
+     * @return The discount in percent.
+     */
+    public double goldDiscount(int goldLevel) {
+        return discount(goldTiers, goldLevel);
+    }
+
+    /**
+     * Get the discount of a standard customer.
+     *
+     * @param years The whole years since the customer registered.
+     * @return The discount in percent.
+     */
+    public double loyaltyDiscount(int years) {
+        return discount(loyaltyTiers, years);
+    }
+
+    /**
+     * Get the fewest whole years since registration that give the same loyalty discount as a given number.
+     *
+     * @param years The whole years since the customer registered.
+     * @return The first year count from which the discount has stayed the same.
+     */
+    public int loyaltyDiscountSince(int years) {
+        int tier = tierOf(loyaltyTiers, years);
+        if (tier < 0) {
+            return 0;
+        }
+        return loyaltyTiers[tier].percentPerStep() != 0 ? years : loyaltyTiers[tier].from();
+    }
+
+    /**
+     * Get the next number of whole years since registration at which the loyalty discount may change.
+     *
+     * @param years The whole years since the customer registered.
+     * @return The next year count with another discount, or {@link Integer#MAX_VALUE} if it never changes.
+     */
+    public int nextLoyaltyChange(int years) {
+        int tier = tierOf(loyaltyTiers, years);
+        if (tier >= 0 && loyaltyTiers[tier].percentPerStep() != 0) {
+            return years + 1;
+        }
+        return tier + 1 < loyaltyTiers.length ? loyaltyTiers[tier + 1].from() : Integer.MAX_VALUE;
+    }
+
+    private static double discount(Tier[] tiers, int value) {
+        int tier = tierOf(tiers, value);
+        if (tier < 0) {
+            return 0;
+        }
+        return tiers[tier].percent() + tiers[tier].percentPerStep() * ((double) value - tiers[tier].from());
+    }
+
+    private static int tierOf(Tier[] tiers, int value) {
+        // Tier lists are short; the last tier whose threshold is reached applies
+        int tier = -1;
+        while (tier + 1 < tiers.length && tiers[tier + 1].from() <= value) {
+            tier++;
+        }
+        return tier;
+    }
+
+    private static Tier[] sorted(List<Tier> tiers) {
+        Tier[] array = tiers.toArray(new Tier[0]);
+        for (int i = 1; i < array.length; i++) {
+            if (array[i].from() <= array[i - 1].from()) {
+                throw new IllegalArgumentException("Tier thresholds must be strictly increasing: "
+                        + array[i - 1].from() + ", " + array[i].from());
+            }
+        }
+        return array;
+    }
+
+    /**
+     * A discount tier.
+     *
+     * @param from           The lowest gold level or number of years the tier applies to.
+     * @param percent        The discount in percent at the threshold.
+     * @param percentPerStep The discount added per level or year above the threshold.
+     */
+    public record Tier(int from, double percent, double percentPerStep) {
+    }
+}
@@ -0,0 +1,566 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A registry of entities (users, properties) indexed by their unique int ID.
+ * Lookups, duplicate checks and deletions go through a primitive open-addressing index,
+ * while {@link #view()} exposes the registered entities as a list for iteration.
+ * The entities are kept in an array of slots in registration order. Removing an entity only empties its slot
+ * (a tombstone), so it costs O(1); {@link #compact} later slides the remaining entities over the empty slots
+ * a bounded number of slots at a time, either from a background {@link RegistryCompactor} or, when empty
+ * slots outnumber the entities, a little on every removal.
+ * A registry can be backed by a {@link Loader} (for example a mapped snapshot) that supplies entities
+ * the first time their ID is looked up.
+ * {@link #page} reads the entities in ID order, a page at a time, from a sorted array of the registered IDs
+ * that is only re-sorted when IDs were registered out of order.
+ *
+ * @param <T> The type of entity held by the registry.
+ * @author Albaraa
+ * @version 1.0
+ */
+public class EntityRegistry<T> {
+    /**
+     * Removals compact inline once empty slots exceed the entities by this many.
+     */
+    private static final int INLINE_COMPACT_THRESHOLD = 1024;
+    /**
+     * The slots examined by each inline compaction step; a few per removal reclaim the slots faster than
+     * removals empty them.
+     */
+    private static final int INLINE_COMPACT_SLOTS = 64;
+
+    private final Class<T> type;
+    private final ToIntFunction<T> idFunction;
+    private final IntObjectHashMap<T> index;
+    private final IntIntHashMap slotsById = new IntIntHashMap(-1);
+    private Object[] slots = new Object[16];
+    private int slotLimit;
+    private int liveCount;
+    private int firstHole = Integer.MAX_VALUE; // no empty slot below this one
+    private int compactRead = -1; // the pass in progress moves slots[compactRead..] down to compactWrite
+    private int compactWrite;
+    private final View view;
+    private final List<Listener<T>> listeners = new ArrayList<>();
+    private Loader<T> loader;
+    private int[] orderedIds = new int[16];
+    private int orderedCount;
+    private boolean ordered = true; // orderedIds[0..orderedCount) ascending; removed IDs may still be in it
+    private int removedIds;
+
+    /**
+     * Constructs an empty registry.
+     *
+     * @param type       The type of entity held by the registry.
+     * @param idFunction Extracts the unique ID of an entity.
+     */
+    public EntityRegistry(Class<T> type, ToIntFunction<T> idFunction) {
+        this.type = type;
+        this.idFunction = idFunction;
+        this.index = new IntObjectHashMap<>();
+        this.view = new View();
+    }
+
+    /**
+     * Get the entity with the given ID.
+     *
+     * @param id The unique ID of the entity.
+     * @return The entity, or null if no entity with this ID is registered.
+     */
+    public T get(int id) {
+        T entity = index.get(id);
+        if (entity == null && loader != null) {
+            entity = loader.load(id);
+        }
+        return entity;
+    }
+
+    /**
+     * Check whether an entity with the given ID is registered.
+     *
+     * @param id The unique ID to check.
+     * @return true if the ID is taken; otherwise, false.
+     */
+    public boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Register a new entity.
+     *
+     * @param entity The entity to register.
+     * @return true if the entity was added, false if its ID is already taken.
+     */
+    public boolean add(T entity) {
+        int id = idFunction.applyAsInt(entity);
+        if (contains(id)) {
+            return false;
+        }
+        index.put(id, entity);
+        appendSlot(id, entity);
+        appendId(id);
+        view.touch();
+        for (Listener<T> listener : listeners) {
+            listener.added(entity);
+        }
+        return true;
+    }
+
+    /**
+     * Remove the entity with the given ID.
+     * The listeners are notified in the reverse of the order they were registered in, so a listener that
+     * builds on the ones registered before it (for example by cancelling the entity's bookings, which they
+     * count) runs while they still hold the entity.
+     *
+     * @param id The unique ID of the entity to remove.
+     * @return The removed entity, or null if no entity with this ID was registered.
+     */
+    public T remove(int id) {
+        return remove(id, true);
+    }
+
+    private T remove(int id, boolean compactInline) {
+        if (get(id) == null) {
+            return null;
+        }
+        T entity = index.remove(id);
+        if (entity != null) {
+            int slot = slotsById.remove(id);
+            slots[slot] = null;
+            liveCount--;
+            firstHole = Math.min(firstHole, slot);
+            removedIds++;
+            view.touch();
+            for (int i = listeners.size() - 1; i >= 0; i--) {
+                listeners.get(i).removed(entity);
+            }
+            if (compactInline && slotLimit - liveCount > liveCount + INLINE_COMPACT_THRESHOLD) {
+                // Removals outpace the background compaction, or there is none
+                compact(INLINE_COMPACT_SLOTS);
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Slide registered entities over the slots emptied by removals, examining at most the given number of
+     * slots, and continue where the previous call stopped. Entities keep their registration order.
+     *
+     * @param maxSlots The maximum number of slots to examine.
+     * @return true if empty slots remain; otherwise, false.
+     */
+    public boolean compact(int maxSlots) {
+        if (slotLimit == liveCount) {
+            return false;
+        }
+        if (compactRead < 0) {
+            compactRead = Math.min(firstHole, slotLimit);
+            compactWrite = compactRead;
+            firstHole = Integer.MAX_VALUE;
+        }
+        boolean moved = false;
+        for (int examined = 0; examined < maxSlots && compactRead < slotLimit; examined++, compactRead++) {
+            Object entity = slots[compactRead];
+            if (entity == null) {
+                continue;
+            }
+            if (compactRead != compactWrite) {
+                slots[compactWrite] = entity;
+                slots[compactRead] = null;
+                slotsById.put(idOf(entity), compactWrite);
+                moved = true;
+            }
+            compactWrite++;
+        }
+        if (compactRead == slotLimit) {
+            // Pass complete; removals behind the write position during the pass lowered firstHole again
+            slotLimit = compactWrite;
+            compactRead = -1;
+            if (slotLimit == liveCount) {
+                firstHole = Integer.MAX_VALUE;
+            }
+            if (slots.length > 64 && slots.length > slotLimit * 4) {
+                slots = Arrays.copyOf(slots, Math.max(16, slotLimit * 2));
+            }
+        }
+        if (moved) {
+            view.touch();
+        }
+        return slotLimit != liveCount;
+    }
+
+    /**
+     * Get the number of slots emptied by removals and not reclaimed by {@link #compact} yet.
+     *
+     * @return The number of empty slots.
+     */
+    public int emptySlots() {
+        return slotLimit - liveCount;
+    }
+
+    /**
+     * Register an entity supplied by the loader.
+     * Listeners are notified through {@link Listener#restored}, so indexes pick the entity up while
+     * persistence does not log it again.
+     *
+     * @param entity The restored entity.
+     */
+    public void restore(T entity) {
+        int id = idFunction.applyAsInt(entity);
+        if (index.putIfAbsent(id, entity) != null) {
+            return;
+        }
+        appendSlot(id, entity);
+        appendId(id);
+        view.touch();
+        for (Listener<T> listener : listeners) {
+            listener.restored(entity);
+        }
+    }
+
+    /**
+     * Back the registry with a loader that supplies entities on a lookup miss.
+     * The loader is asked for everything it still holds before the registry is first iterated or counted.
+     *
+     * @param loader The loader.
+     */
+    public void setLoader(Loader<T> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Materialize every entity the loader still holds and detach it.
+     */
+    public void loadAll() {
+        if (loader != null) {
+            Loader<T> pending = loader;
+            loader = null;
+            pending.loadAll();
+        }
+    }
+
+    /**
+     * Register a listener that is told about every entity added to or removed from the registry.
+     * Secondary indexes use this to stay consistent with the registry.
+     *
+     * @param listener The listener to register.
+     */
+    public void addListener(Listener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Get the number of registered entities.
+     *
+     * @return The number of entities.
+     */
+    public int size() {
+        loadAll();
+        return liveCount;
+    }
+
+    /**
+     * Read one page of the registered entities in ascending ID order.
+     * Paging is keyset-based: a page starts after the given ID, so entities added or removed between calls
+     * never shift later pages, and each page costs O(log n + scanned entities).
+     *
+     * @param afterId The ID the previous page ended at ({@link Page#nextCursor()}), or Integer.MIN_VALUE for
+     *                the first page.
+     * @param limit   The maximum number of entities to return.
+     * @param filter  Selects the entities to return, or null for all.
+     * @return The page.
+     */
+    public Page<T> page(int afterId, int limit, Predicate<? super T> filter) {
+        loadAll();
+        if (!ordered || removedIds > orderedCount / 2) {
+            rebuildOrder();
+        }
+        // First position holding an ID greater than afterId
+        int low = 0;
+        int high = orderedCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (orderedIds[middle] <= afterId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<T> items = new ArrayList<>(Math.max(0, Math.min(limit, 1024)));
+        int position = low;
+        int cursor = afterId;
+        while (position < orderedCount && items.size() < limit) {
+            int id = orderedIds[position++];
+            T entity = index.get(id);
+            cursor = id;
+            if (entity != null && (filter == null || filter.test(entity))) {
+                items.add(entity);
+            }
+        }
+        return new Page<>(items, cursor, position < orderedCount);
+    }
+
+    private void appendSlot(int id, T entity) {
+        if (slotLimit == slots.length) {
+            slots = Arrays.copyOf(slots, slotLimit * 2);
+        }
+        slotsById.put(id, slotLimit);
+        slots[slotLimit++] = entity;
+        liveCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int idOf(Object entity) {
+        return idFunction.applyAsInt((T) entity);
+    }
+
+    private void appendId(int id) {
+        if (orderedCount == orderedIds.length && removedIds > orderedCount / 2) {
+            // Mostly removed IDs; drop them instead of growing
+            rebuildOrder();
+        }
+        if (orderedCount == orderedIds.length) {
+            orderedIds = Arrays.copyOf(orderedIds, orderedCount * 2);
+        }
+        if (orderedCount > 0 && id <= orderedIds[orderedCount - 1]) {
+            ordered = false;
+        }
+        orderedIds[orderedCount++] = id;
+    }
+
+    private void rebuildOrder() {
+        Arrays.sort(orderedIds, 0, orderedCount);
+        int kept = 0;
+        for (int i = 0; i < orderedCount; i++) {
+            int id = orderedIds[i];
+            // Drop removed IDs, and the duplicate left behind when an ID was removed and registered again
+            if ((kept == 0 || orderedIds[kept - 1] != id) && index.containsKey(id)) {
+                orderedIds[kept++] = id;
+            }
+        }
+        orderedCount = kept;
+        ordered = true;
+        removedIds = 0;
+    }
+
+    /**
+     * Get a list view of the registered entities in registration order.
+     * Adding to or removing from the view goes through the registry, so the index stays consistent.
+     * Iteration skips empty slots. Positional access is O(1): while empty slots remain, it goes through an
+     * index from positions to occupied slots that is rebuilt on the first access after a change. Reading the
+     * view never moves entities, so it can be streamed or iterated by position after removals.
+     *
+     * @return The list view.
+     */
+    public List<T> view() {
+        return view;
+    }
+
+    /**
+     * One page of entities in ID order.
+     *
+     * @param items      The entities on the page that passed the filter.
+     * @param nextCursor The last ID examined; pass it as afterId to read the next page.
+     * @param hasMore    true if IDs after nextCursor remain to be examined.
+     * @param <T>        The type of entity held by the registry.
+     */
+    public record Page<T>(List<T> items, int nextCursor, boolean hasMore) {
+    }
+
+    /**
+     * Receives notifications about registry changes.
+     *
+     * @param <T> The type of entity held by the registry.
+     */
+    public interface Listener<T> {
+
+        /**
+         * Called after an entity has been added.
+         *
+         * @param entity The added entity.
+         */
+        void added(T entity);
+
+        /**
+         * Called after an entity has been removed, in the reverse of the order the listeners were registered in.
+         *
+         * @param entity The removed entity.
+         */
+        void removed(T entity);
+
+        /**
+         * Called after an entity has been materialized from the registry's loader.
+         * By default this is treated like an addition.
+         *
+         * @param entity The restored entity.
+         */
+        default void restored(T entity) {
+            added(entity);
+        }
+    }
+
+    /**
+     * Supplies entities that have not been materialized yet.
+     *
+     * @param <T> The type of entity held by the registry.
+     */
+    public interface Loader<T> {
+
+        /**
+         * Materialize the entity with the given ID and {@link EntityRegistry#restore} it into the registry.
+         *
+         * @param id The unique ID.
+         * @return The entity, or null if the loader has no (further) entity with this ID.
+         */
+        T load(int id);
+
+        /**
+         * Materialize and restore every entity not loaded yet.
+         */
+        void loadAll();
+    }
+
+    /**
+     * List view over the registry entries.
+     */
+    private class View extends AbstractList<T> implements RandomAccess {
+        private int[] positions; // positions[i] is the slot of the entity at position i, while empty slots remain
+        private int positionsModCount = -1;
+
+        @Override
+        public Iterator<T> iterator() {
+            // Load first so the iterator does not see the loader's additions as concurrent modification
+            loadAll();
+            return new Iterator<>() {
+                private int next = nextSlot(0);
+                private int last = -1;
+                private int expectedModCount = modCount;
+
+                @Override
+                public boolean hasNext() {
+                    return next < slotLimit;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public T next() {
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (next >= slotLimit) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = nextSlot(next + 1);
+                    return (T) slots[last];
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    // Without an inline compaction step the removal leaves a tombstone and nothing moves
+                    EntityRegistry.this.remove(idFunction.applyAsInt((T) slots[last]), false);
+                    last = -1;
+                    expectedModCount = modCount;
+                }
+            };
+        }
+
+        @Override
+        public ListIterator<T> listIterator(int position) {
+            loadAll();
+            return super.listIterator(position);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int position) {
+            loadAll();
+            Objects.checkIndex(position, liveCount);
+            if (slotLimit == liveCount) {
+                positions = null;
+                return (T) slots[position];
+            }
+            if (positionsModCount != modCount) {
+                indexPositions();
+            }
+            return (T) slots[positions[position]];
+        }
+
+        @Override
+        public int size() {
+            loadAll();
+            return liveCount;
+        }
+
+        @Override
+        public boolean add(T entity) {
+            if (!EntityRegistry.this.add(entity)) {
+                throw new IllegalArgumentException("Duplicate ID: " + idFunction.applyAsInt(entity));
+            }
+            return true;
+        }
+
+        @Override
+        public T remove(int position) {
+            T entity = get(position);
+            EntityRegistry.this.remove(idFunction.applyAsInt(entity));
+            return entity;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!type.isInstance(o)) {
+                return false;
+            }
+            T entity = type.cast(o);
+            int id = idFunction.applyAsInt(entity);
+            if (index.get(id) != entity) {
+                return false;
+            }
+            EntityRegistry.this.remove(id);
+            return true;
+        }
+
+        /**
+         * Record the slot of every registered entity by its position, without moving any entity.
+         */
+        private void indexPositions() {
+            if (positions == null || positions.length < liveCount) {
+                positions = new int[liveCount];
+            }
+            int position = 0;
+            for (int slot = nextSlot(0); slot < slotLimit; slot = nextSlot(slot + 1)) {
+                positions[position++] = slot;
+            }
+            positionsModCount = modCount;
+        }
+
+        private int nextSlot(int from) {
+            int slot = from;
+            while (slot < slotLimit && slots[slot] == null) {
+                slot++;
+            }
+            return slot;
+        }
+
+        private void touch() {
+            modCount++;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Calendar dates as epoch days (days since 01/01/1970).
+ * Epoch days are plain ints, which makes dates cheap to store, compare and subtract. This class holds the
+ * calendar arithmetic (civil date to day number and back), an allocation-free dd/MM/yyyy parser and
+ * formatter, and the adapters to java.util.Date and java.time used at the edges of the application.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public final class EpochDay {
+    /**
+     * Marks a missing date wherever a date is optional.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    private EpochDay() {
+    }
+
+    // ------------------------------------------------------------------ calendar arithmetic
+
+    /**
+     * Get the epoch day of a calendar date (proleptic Gregorian calendar).
+     *
+     * @param year       The year.
+     * @param month      The month, 1 to 12.
+     * @param dayOfMonth The day of the month, 1 to 31.
+     * @return The epoch day.
+     */
+    public static int of(int year, int month, int dayOfMonth) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Get the year an epoch day falls in.
+     *
+     * @param epochDay The epoch day.
+     * @return The year.
+     */
+    public static int year(int epochDay) {
+        return civil(epochDay) >> 9;
+    }
+
+    /**
+     * Get the month an epoch day falls in.
+     *
+     * @param epochDay The epoch day.
+     * @return The month, 1 to 12.
+     */
+    public static int month(int epochDay) {
+        return (civil(epochDay) >> 5) & 0xF;
+    }
+
+    /**
+     * Get the day of the month of an epoch day.
+     *
+     * @param epochDay The epoch day.
+     * @return The day of the month, 1 to 31.
+     */
+    public static int dayOfMonth(int epochDay) {
+        return civil(epochDay) & 0x1F;
+    }
+
+    /**
+     * Count the whole years from one date to another, counting a year only once its anniversary is reached
+     * (a 29 February start reaches its anniversary on 1 March in other years).
+     *
+     * @param from The earlier epoch day.
+     * @param to   The later epoch day.
+     * @return The number of complete years, or 0 if to is not after from or either date is {@link #NONE}.
+     */
+    public static int yearsBetween(int from, int to) {
+        if (to <= from || from == NONE) {
+            return 0;
+        }
+        int start = civil(from);
+        int end = civil(to);
+        int years = (end >> 9) - (start >> 9);
+        // Month and day sit in the low 9 bits, so comparing them compares the dates within the year
+        if ((end & 0x1FF) < (start & 0x1FF)) {
+            years--;
+        }
+        return years;
+    }
+
+    /**
+     * Get the anniversary of a date a number of years later: the first day on which {@link #yearsBetween}
+     * counts that many years (1 March in other years for a 29 February date).
+     *
+     * @param epochDay The date.
+     * @param years    The number of years.
+     * @return The epoch day of the anniversary.
+     */
+    public static int plusYears(int epochDay, int years) {
+        int date = civil(epochDay);
+        // 29 February in a year without one rolls over to 1 March
+        return of((date >> 9) + years, (date >> 5) & 0xF, date & 0x1F);
+    }
+
+    /**
+     * Convert an epoch day to its civil date, packed as (year << 9) | (month << 5) | dayOfMonth.
+     */
+    private static int civil(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (year << 9) | (month << 5) | day;
+    }
+
+    // ------------------------------------------------------------------ text
+
+    /**
+     * Parse a date in the format dd/MM/yyyy (day and month may have one digit) without allocating.
+     *
+     * @param text The text to parse.
+     * @return The epoch day, or {@link #NONE} if the text is not a valid date.
+     */
+    public static int parse(CharSequence text) {
+        if (text == null) {
+            return NONE;
+        }
+        int length = text.length();
+        int position = 0;
+        int day = 0;
+        int digits = 0;
+        while (position < length && digits < 2 && isDigit(text.charAt(position))) {
+            day = day * 10 + (text.charAt(position++) - '0');
+            digits++;
+        }
+        if (digits == 0 || position >= length || text.charAt(position++) != '/') {
+            return NONE;
+        }
+        int month = 0;
+        digits = 0;
+        while (position < length && digits < 2 && isDigit(text.charAt(position))) {
+            month = month * 10 + (text.charAt(position++) - '0');
+            digits++;
+        }
+        if (digits == 0 || position >= length || text.charAt(position++) != '/') {
+            return NONE;
+        }
+        int year = 0;
+        digits = 0;
+        while (position < length && isDigit(text.charAt(position))) {
+            year = year * 10 + (text.charAt(position++) - '0');
+            digits++;
+        }
+        if (digits != 4 || position != length || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return NONE;
+        }
+        return of(year, month, day);
+    }
+
+    /**
+     * Append an epoch day in the format dd/MM/yyyy without allocating.
+     *
+     * @param epochDay The epoch day, or {@link #NONE}.
+     * @param out      The builder to append to.
+     * @return The builder.
+     */
+    public static StringBuilder appendTo(int epochDay, StringBuilder out) {
+        if (epochDay == NONE) {
+            return out.append("none");
+        }
+        int civil = civil(epochDay);
+        int day = civil & 0x1F;
+        int month = (civil >> 5) & 0xF;
+        int year = civil >> 9;
+        out.append((char) ('0' + day / 10)).append((char) ('0' + day % 10)).append('/');
+        out.append((char) ('0' + month / 10)).append((char) ('0' + month % 10)).append('/');
+        if (year >= 0 && year < 1000) {
+            out.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        return out.append(year);
+    }
+
+    /**
+     * Format an epoch day as dd/MM/yyyy.
+     *
+     * @param epochDay The epoch day, or {@link #NONE}.
+     * @return The formatted date.
+     */
+    public static String format(int epochDay) {
+        return appendTo(epochDay, new StringBuilder(10)).toString();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // ------------------------------------------------------------------ clock and adapters
+
+    /**
+     * Get today's epoch day in the system time zone.
+     *
+     * @return Today's epoch day.
+     */
+    public static int today() {
+        return ofMillis(System.currentTimeMillis());
+    }
+
+    /**
+     * Get the epoch day an instant falls on in the system time zone.
+     *
+     * @param millis The instant in milliseconds since the epoch.
+     * @return The epoch day.
+     */
+    public static int ofMillis(long millis) {
+        return (int) Math.floorDiv(millis + ZONE.getOffset(millis), DAY_MILLIS);
+    }
+
+    /**
+     * Get the instant at which an epoch day starts in the system time zone.
+     *
+     * @param epochDay The epoch day.
+     * @return Midnight of that day in milliseconds since the epoch.
+     */
+    public static long toMillis(int epochDay) {
+        long localMidnight = epochDay * DAY_MILLIS;
+        long guess = localMidnight - ZONE.getOffset(localMidnight);
+        long millis = localMidnight - ZONE.getOffset(guess);
+        if (ofMillis(millis) != epochDay) {
+            // Midnight falls in a daylight saving gap; the day starts when the clocks have moved forward
+            millis = localMidnight - ZONE.getOffset(millis);
+        }
+        return millis;
+    }
+
+    /**
+     * Convert a date to the epoch day it falls on in the system time zone.
+     *
+     * @param date The date to convert, or null.
+     * @return The epoch day, or {@link #NONE} for null.
+     */
+    public static int of(Date date) {
+        return date == null ? NONE : ofMillis(date.getTime());
+    }
+
+    /**
+     * Convert an epoch day to a Date at midnight in the system time zone.
+     *
+     * @param epochDay The epoch day, or {@link #NONE}.
+     * @return A new Date, or null for {@link #NONE}.
+     */
+    public static Date toDate(int epochDay) {
+        return epochDay == NONE ? null : new Date(toMillis(epochDay));
+    }
+
+    /**
+     * Convert a LocalDate to an epoch day.
+     *
+     * @param date The date to convert, or null.
+     * @return The epoch day, or {@link #NONE} for null.
+     */
+    public static int of(LocalDate date) {
+        return date == null ? NONE : (int) date.toEpochDay();
+    }
+
+    /**
+     * Convert an epoch day to a LocalDate.
+     *
+     * @param epochDay The epoch day, or {@link #NONE}.
+     * @return The corresponding LocalDate, or null for {@link #NONE}.
+     */
+    public static LocalDate toLocalDate(int epochDay) {
+        return epochDay == NONE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
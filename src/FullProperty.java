@@ -53,7 +53,9 @@ public class FullProperty extends Property {
      * @param size The property size to set.
      */
     public void setSize(double size) {
+        double previousPrice = calculatePricePerDay();
         this.size = size;
+        firePriceChanged(previousPrice);
     }
 
     /**
@@ -62,7 +64,19 @@ public class FullProperty extends Property {
      * @return The calculated price per day.
      */
     @Override
-    public double calculatePricePerDay() {
+    protected double computePricePerDay() {
+        return calculatePricePerDay(getPricePerDay(), size);
+    }
+
+    /**
+     * Calculate the price per day of a full property from its base price and size.
+     * Shared with the columnar property store so both produce identical results.
+     *
+     * @param pricePerDay The base price per day.
+     * @param size        The size of the property in square meters.
+     * @return The price per day including the size-based tax.
+     */
+    public static double calculatePricePerDay(double pricePerDay, double size) {
         double taxRate;
         if (size <= 200) {
             taxRate = 0.01; // 1% tax
@@ -72,7 +86,7 @@ public class FullProperty extends Property {
             taxRate = 0.04; // 4% tax
         }
 
-        return getPricePerDay() * (1 + taxRate);
+        return pricePerDay * (1 + taxRate);
     }
 
     /**
@@ -100,7 +114,7 @@ public class FullProperty extends Property {
                 ", city='" + getCity() + '\'' +
                 ", size=" + size +
                 ", pricePerDay=" + getPricePerDay() +
-                ", inspection=" + getInspection().toString() +
+                ", inspection=" + inspectionsToString() +
                 '}';
     }
 }
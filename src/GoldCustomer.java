@@ -25,6 +25,22 @@ public class GoldCustomer extends Customer {
         this.goldLevel = goldLevel;
     }
 
+    /**
+     * Constructs a gold customer with dates given as epoch days.
+     *
+     * @param userId               The unique ID of the customer.
+     * @param dateOfBirth          The date of birth as an epoch day, or EpochDay.NONE.
+     * @param firstName            The first name of the customer.
+     * @param lastName             The last name of the customer.
+     * @param registrationDate     The registration date as an epoch day, or EpochDay.NONE.
+     * @param preferredPaymentMethod The preferred payment method of the customer.
+     * @param goldLevel            The gold level of the customer (1 to 3).
+     */
+    public GoldCustomer(int userId, int dateOfBirth, String firstName, String lastName, int registrationDate, String preferredPaymentMethod, int goldLevel) {
+        super(userId, dateOfBirth, firstName, lastName, registrationDate, preferredPaymentMethod);
+        this.goldLevel = goldLevel;
+    }
+
     /**
      * Get the gold level of the customer.
      *
@@ -44,14 +60,14 @@ public class GoldCustomer extends Customer {
     }
 
     /**
-     * Calculate the discount percentage for a gold customer based on their gold level.
+     * Calculate the discount percentage for a gold customer based on their gold level, under the default
+     * rules: each level is worth 1%.
      *
      * @return The discount percentage for the customer.
      */
     @Override
     public double getDiscountForUser() {
-        // Assuming the gold level is between 1 and 3, and each level corresponds to that percentage of discount.
-        return goldLevel;
+        return DiscountRules.DEFAULT.goldDiscount(goldLevel);
     }
 
     @Override
@@ -24,6 +24,21 @@ public class Host extends User {
         this.taxNumber = taxNumber;
     }
 
+    /**
+     * Constructs a host with dates given as epoch days.
+     *
+     * @param userId               The unique ID of the host.
+     * @param dateOfBirth          The date of birth as an epoch day, or EpochDay.NONE.
+     * @param firstName            The first name of the host.
+     * @param lastName             The last name of the host.
+     * @param registrationDate     The registration date as an epoch day, or EpochDay.NONE.
+     * @param taxNumber            The tax number of the host.
+     */
+    public Host(int userId, int dateOfBirth, String firstName, String lastName, int registrationDate, double taxNumber) {
+        super(userId, dateOfBirth, firstName, lastName, registrationDate);
+        this.taxNumber = taxNumber;
+    }
+
     /**
      * Get the tax number of the host.
      *
@@ -0,0 +1,335 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-host listings and revenue, maintained incrementally from registry, booking and price events so that
+ * host dashboards and tax reports read a few counters instead of scanning every property and booking.
+ *
+ * For each host the ledger keeps the properties the host owns (the reverse of {@link Property#getHost()}),
+ * the number of active listings, the nights booked, the gross revenue (the sum of {@link Booking#totalCost()}
+ * over the host's bookings) and the unpaid balance (the same sum over unpaid bookings). Since a booking's
+ * total cost follows its property's current price and seasonal rates, every listing remembers its booked
+ * and unpaid nights weighted by their rates ({@link Booking#getPricedNights()}) and the price they were last
+ * valued at, and is revalued whenever that price changes. A change of rates reweighs only the bookings
+ * overlapping the changed nights.
+ *
+ * Booking events arrive on many threads at once (one per property lock stripe), so each host's account is
+ * updated and read under its own monitor. A property's bookings are cancelled before its removal reaches
+ * the ledger, so a removed property takes its revenue with it. A property given to another host moves to
+ * that host's account with its bookings. Removing a host drops the account and detaches the host from its
+ * properties.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class HostLedger implements EntityRegistry.Listener<Property>, PropertyListener, BookingListener {
+    private final ConcurrentHashMap<Integer, Account> accounts = new ConcurrentHashMap<>();
+
+    @Override
+    public void added(Property property) {
+        Host host = property.getHost();
+        if (host != null) {
+            accounts.computeIfAbsent(host.getUserId(), id -> new Account(host)).list(property);
+        }
+    }
+
+    @Override
+    public void removed(Property property) {
+        Account account = accountOf(property);
+        if (account != null) {
+            account.unlist(property);
+        }
+    }
+
+    @Override
+    public void priceChanged(Property property, double previousPrice) {
+        Account account = accountOf(property);
+        if (account != null) {
+            account.revalue(property);
+        }
+    }
+
+    @Override
+    public void ratesChanged(Property property, PriceCalendar previousRates, int fromDay, int toDay) {
+        Account account = accountOf(property);
+        if (account != null) {
+            account.reweigh(property, previousRates, fromDay, toDay);
+        }
+    }
+
+    @Override
+    public void hostChanged(Property property, Host previousHost) {
+        Account previous = previousHost == null ? null : accounts.get(previousHost.getUserId());
+        if (previous != null) {
+            previous.transfer(property);
+        }
+        added(property);
+    }
+
+    @Override
+    public void propertyChanged(Property property) {
+    }
+
+    @Override
+    public void bookingAdded(Booking booking) {
+        Account account = accountOf(booking.getProperty());
+        if (account != null) {
+            account.book(booking.getProperty(), booking, 1);
+        }
+    }
+
+    @Override
+    public void bookingCancelled(Booking booking) {
+        Account account = accountOf(booking.getProperty());
+        if (account != null) {
+            account.book(booking.getProperty(), booking, -1);
+        }
+    }
+
+    @Override
+    public void paymentChanged(Booking booking) {
+        Account account = accountOf(booking.getProperty());
+        if (account != null) {
+            account.pay(booking.getProperty(), booking.getPricedNights(), booking.isPaid());
+        }
+    }
+
+    /**
+     * Get a listener that drops the account of a removed host and detaches the host from its properties.
+     *
+     * @return The user registry listener.
+     */
+    public EntityRegistry.Listener<User> userListener() {
+        return new EntityRegistry.Listener<>() {
+            @Override
+            public void added(User user) {
+            }
+
+            @Override
+            public void removed(User user) {
+                Account account = user instanceof Host ? accounts.remove(user.getUserId()) : null;
+                if (account != null && account.host == user) {
+                    for (Property property : account.getProperties()) {
+                        property.setHost(null);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Get the account of a host.
+     *
+     * @param hostUserId The user ID of the host.
+     * @return The account, or null if no property was ever registered for this host.
+     */
+    public Account getAccount(int hostUserId) {
+        return accounts.get(hostUserId);
+    }
+
+    /**
+     * Get the accounts of every host that owns or owned a registered property.
+     *
+     * @return The accounts in no particular order.
+     */
+    public List<Account> getAccounts() {
+        return new ArrayList<>(accounts.values());
+    }
+
+    private Account accountOf(Property property) {
+        Host host = property.getHost();
+        return host == null ? null : accounts.get(host.getUserId());
+    }
+
+    /**
+     * The listings and revenue of one host. Every method is atomic with respect to concurrent bookings.
+     */
+    public static final class Account {
+        private final Host host;
+        private final HashMap<Integer, Listing> listings = new HashMap<>();
+        private long bookedNights;
+        private double grossRevenue;
+        private double unpaidBalance;
+
+        private Account(Host host) {
+            this.host = host;
+        }
+
+        /**
+         * Get the host the account belongs to.
+         *
+         * @return The host.
+         */
+        public Host getHost() {
+            return host;
+        }
+
+        /**
+         * Get the registered properties of the host.
+         *
+         * @return A copy of the host's active listings.
+         */
+        public synchronized List<Property> getProperties() {
+            List<Property> properties = new ArrayList<>(listings.size());
+            for (Listing listing : listings.values()) {
+                properties.add(listing.property);
+            }
+            return properties;
+        }
+
+        /**
+         * Get the number of registered properties of the host.
+         *
+         * @return The number of active listings.
+         */
+        public synchronized int getActiveListings() {
+            return listings.size();
+        }
+
+        /**
+         * Get the number of nights booked across the host's properties.
+         *
+         * @return The booked nights.
+         */
+        public synchronized long getBookedNights() {
+            return bookedNights;
+        }
+
+        /**
+         * Get the total cost of every booking of the host's properties.
+         *
+         * @return The gross revenue.
+         */
+        public synchronized double getGrossRevenue() {
+            return grossRevenue;
+        }
+
+        /**
+         * Get the total cost of the unpaid bookings of the host's properties.
+         *
+         * @return The unpaid balance.
+         */
+        public synchronized double getUnpaidBalance() {
+            return unpaidBalance;
+        }
+
+        private synchronized void list(Property property) {
+            Listing listing = listings.get(property.getPropertyId());
+            if (listing == null || listing.property != property) {
+                listing = new Listing(property);
+                listings.put(property.getPropertyId(), listing);
+            }
+            // A property restored from storage arrives with its bookings already in its calendar
+            Listing restored = listing;
+            property.getCalendar().forEachOverlapping(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    booking -> book(restored, booking, 1));
+        }
+
+        private synchronized void unlist(Property property) {
+            Listing listing = listings.get(property.getPropertyId());
+            if (listing != null && listing.property == property) {
+                // Its bookings were cancelled before the removal, so it holds no more revenue
+                listings.remove(property.getPropertyId());
+            }
+        }
+
+        private synchronized void transfer(Property property) {
+            Listing listing = listings.get(property.getPropertyId());
+            if (listing != null && listing.property == property) {
+                // Unlike a removal, the property keeps its bookings, and they leave with it
+                revalue(listing);
+                bookedNights -= listing.bookedNights;
+                grossRevenue -= listing.price * listing.nights;
+                unpaidBalance -= listing.price * listing.unpaidNights;
+                listings.remove(property.getPropertyId());
+            }
+        }
+
+        private synchronized void revalue(Property property) {
+            Listing listing = listings.get(property.getPropertyId());
+            if (listing != null && listing.property == property) {
+                revalue(listing);
+            }
+        }
+
+        private synchronized void book(Property property, Booking booking, int sign) {
+            Listing listing = listings.get(property.getPropertyId());
+            if (listing != null && listing.property == property) {
+                book(listing, booking, sign);
+            }
+        }
+
+        private synchronized void pay(Property property, double pricedNights, boolean paid) {
+            Listing listing = listings.get(property.getPropertyId());
+            if (listing != null && listing.property == property) {
+                revalue(listing);
+                double delta = paid ? -pricedNights : pricedNights;
+                listing.unpaidNights += delta;
+                unpaidBalance += listing.price * delta;
+            }
+        }
+
+        private synchronized void reweigh(Property property, PriceCalendar previousRates, int fromDay, int toDay) {
+            Listing listing = listings.get(property.getPropertyId());
+            if (listing == null || listing.property != property) {
+                return;
+            }
+            revalue(listing);
+            PriceCalendar rates = property.getRates();
+            property.getCalendar().forEachOverlapping(fromDay, toDay, booking -> {
+                double delta = rates.sum(booking.getStartDay(), booking.getEndDay())
+                        - previousRates.sum(booking.getStartDay(), booking.getEndDay());
+                listing.nights += delta;
+                grossRevenue += listing.price * delta;
+                if (!booking.isPaid()) {
+                    listing.unpaidNights += delta;
+                    unpaidBalance += listing.price * delta;
+                }
+            });
+        }
+
+        private void book(Listing listing, Booking booking, int sign) {
+            revalue(listing);
+            double delta = sign * booking.getPricedNights();
+            bookedNights += (long) sign * booking.getNights();
+            listing.bookedNights += (long) sign * booking.getNights();
+            listing.nights += delta;
+            grossRevenue += listing.price * delta;
+            if (!booking.isPaid()) {
+                listing.unpaidNights += delta;
+                unpaidBalance += listing.price * delta;
+            }
+        }
+
+        /**
+         * Bring a listing's share of the revenue to its property's current price.
+         */
+        private void revalue(Listing listing) {
+            double price = listing.property.calculatePricePerDay();
+            if (Double.compare(price, listing.price) != 0) {
+                grossRevenue += (price - listing.price) * listing.nights;
+                unpaidBalance += (price - listing.price) * listing.unpaidNights;
+                listing.price = price;
+            }
+        }
+    }
+
+    /**
+     * One property of a host, with the nights counted into the account, both as booked and weighted by
+     * their seasonal rates, and the price they were valued at.
+     */
+    private static final class Listing {
+        private final Property property;
+        private long bookedNights;
+        private double price;
+        private double nights;
+        private double unpaidNights;
+
+        private Listing(Property property) {
+            this.property = property;
+            this.price = property.calculatePricePerDay();
+        }
+    }
+}
@@ -0,0 +1,746 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * HTTP/JSON front end for a BASIC instance, so many operators and programs can use the system at once.
+ * Every request runs on its own virtual thread when the JVM supports them (Java 21 and later) and on a
+ * cached thread pool otherwise.
+ *
+ * Lookups, bookings, costs, discounts and price comparisons run fully in parallel through the
+ * {@link BookingService}. Registering and removing users and properties, recording inspections, listing and
+ * checkpointing are serialized by the BASIC instance's registry lock, since the registries are
+ * single-threaded.
+ *
+ * Dates are strings in the format dd/MM/yyyy. The user and property lists are paged in ID order: they return
+ * {@code {"items":[...],"next":cursor}} with up to {@code limit} items (100 by default, at most 1000), and
+ * passing the cursor as {@code after} reads the next page; {@code next} is null on the last page. Users can be
+ * filtered by {@code type}, properties by {@code city} and {@code minBedRooms}. Endpoints:
+ * <ul>
+ *     <li>GET /users?after=&amp;limit=&amp;type=, POST /users, GET /users/{id}, DELETE /users/{id}</li>
+ *     <li>GET /users/{id}/bookings, GET /users/{id}/discount, GET /users/{id}/account (hosts only)</li>
+ *     <li>GET /properties?after=&amp;limit=&amp;city=&amp;minBedRooms=, POST /properties, GET /properties/{id}, DELETE /properties/{id}</li>
+ *     <li>GET /properties/{id}/inspections?from=&amp;to=, POST /properties/{id}/inspections,
+ *     GET /properties/{id}/inspections/latest</li>
+ *     <li>POST /bookings</li>
+ *     <li>GET /cost?userId=&amp;propertyId=</li>
+ *     <li>GET /compare?first=&amp;second=</li>
+ *     <li>GET /occupancy?city=&amp;from=&amp;to=, with months in the format yyyy-MM</li>
+ * </ul>
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class HttpApi implements Closeable {
+    private static final int BACKLOG = 4096;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    static {
+        // The JDK server closes keep-alive connections beyond 200 idle ones by default; clients holding
+        // thousands of connections open would see them dropped between requests
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", "100000");
+        }
+        // Headers and body go out in separate writes; with Nagle's algorithm on, every keep-alive request
+        // waits for the client's delayed acknowledgement
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final BASIC basic;
+    private final BookingService bookings;
+    private final ReentrantLock registryLock;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private HttpApi(BASIC basic, InetSocketAddress address) throws IOException {
+        this.basic = basic;
+        this.bookings = basic.getBookingService();
+        this.registryLock = basic.getRegistryLock();
+        this.server = HttpServer.create(address, BACKLOG);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/users", handler(this::users));
+        server.createContext("/properties", handler(this::properties));
+        server.createContext("/bookings", handler(this::bookings));
+        server.createContext("/cost", handler(this::cost));
+        server.createContext("/compare", handler(this::compare));
+        server.createContext("/occupancy", handler(this::occupancy));
+    }
+
+    /**
+     * Start serving a BASIC instance.
+     *
+     * @param basic The BASIC instance.
+     * @param port  The TCP port to listen on, or 0 for any free port.
+     * @return The running API.
+     * @throws IOException if the port cannot be bound.
+     */
+    public static HttpApi start(BASIC basic, int port) throws IOException {
+        HttpApi api = new HttpApi(basic, new InetSocketAddress(port));
+        api.server.start();
+        return api;
+    }
+
+    /**
+     * Get the port the API listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting requests, give running requests a second to finish, and release the threads.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Create the executor requests run on: one virtual thread per request where available.
+     * The build targets Java 17, so the Java 21 factory is looked up reflectively.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "basic-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // ------------------------------------------------------------------ users
+
+    private Response users(HttpExchange exchange, String[] path) {
+        String method = exchange.getRequestMethod();
+        if (path.length == 1) {
+            if (method.equals("GET")) {
+                Map<String, String> query = query(exchange);
+                String type = query.get("type");
+                Predicate<User> filter = type == null ? null : user -> userType(user).equalsIgnoreCase(type);
+                return locked(() -> new Response(200, appendPage(
+                        basic.pageUsers(pageCursor(query), pageLimit(query), filter), HttpApi::appendUser)));
+            }
+            if (method.equals("POST")) {
+                User user = readUser(readBody(exchange));
+                return locked(() -> {
+                    if (basic.getUserById(user.getUserId()) != null) {
+                        throw new ApiException(409, "A user with ID " + user.getUserId() + " already exists.");
+                    }
+                    basic.users.add(user);
+                    return new Response(201, appendUser(new StringBuilder(), user));
+                });
+            }
+            throw methodNotAllowed(method);
+        }
+        int userId = parseId(path[1]);
+        if (path.length == 2) {
+            if (method.equals("GET")) {
+                return new Response(200, appendUser(new StringBuilder(), requireUser(userId)));
+            }
+            if (method.equals("DELETE")) {
+                return locked(() -> {
+                    if (basic.removeUser(userId) == null) {
+                        throw notFound("User", userId);
+                    }
+                    return new Response(204, "");
+                });
+            }
+            throw methodNotAllowed(method);
+        }
+        if (path.length == 3 && method.equals("GET")) {
+            User user = requireUser(userId);
+            if (path[2].equals("bookings")) {
+                StringBuilder json = new StringBuilder("[");
+                for (Booking booking : bookings.getBookings(userId)) {
+                    appendBooking(json.length() > 1 ? json.append(',') : json, booking);
+                }
+                return new Response(200, json.append(']'));
+            }
+            if (path[2].equals("account") && user instanceof Host) {
+                HostLedger.Account account = basic.getHostLedger().getAccount(userId);
+                StringBuilder json = new StringBuilder("{\"userId\":").append(userId);
+                json.append(",\"taxNumber\":").append(((Host) user).getTaxNumber());
+                json.append(",\"activeListings\":").append(account == null ? 0 : account.getActiveListings());
+                json.append(",\"bookedNights\":").append(account == null ? 0 : account.getBookedNights());
+                json.append(",\"grossRevenue\":").append(account == null ? 0.0 : account.getGrossRevenue());
+                json.append(",\"unpaidBalance\":").append(account == null ? 0.0 : account.getUnpaidBalance());
+                json.append(",\"propertyIds\":[");
+                if (account != null) {
+                    List<Property> properties = account.getProperties();
+                    for (int i = 0; i < properties.size(); i++) {
+                        json.append(i > 0 ? "," : "").append(properties.get(i).getPropertyId());
+                    }
+                }
+                return new Response(200, json.append("]}"));
+            }
+            if (path[2].equals("discount")) {
+                return new Response(200, new StringBuilder("{\"userId\":").append(userId)
+                        .append(",\"discount\":").append(basic.getDiscountEngine().discountOf(user)).append('}'));
+            }
+        }
+        throw new ApiException(404, "No such resource.");
+    }
+
+    private static User readUser(Map<String, Object> body) {
+        int userId = intMember(body, "userId");
+        String firstName = stringMember(body, "firstName");
+        String lastName = stringMember(body, "lastName");
+        int dateOfBirth = dayMember(body, "dateOfBirth");
+        int registrationDate = dayMember(body, "registrationDate");
+        String type = stringMember(body, "type").trim().toLowerCase();
+        switch (type) {
+            case "host":
+                return new Host(userId, dateOfBirth, firstName, lastName, registrationDate, doubleMember(body, "taxNumber"));
+            case "standard":
+                return new StandardCustomer(userId, dateOfBirth, firstName, lastName, registrationDate,
+                        stringMember(body, "paymentMethod"));
+            case "gold":
+                int goldLevel = intMember(body, "goldLevel");
+                if (goldLevel < 1 || goldLevel > 3) {
+                    throw new ApiException(400, "Invalid gold level. Must be between 1 and 3.");
+                }
+                return new GoldCustomer(userId, dateOfBirth, firstName, lastName, registrationDate,
+                        stringMember(body, "paymentMethod"), goldLevel);
+            default:
+                throw new ApiException(400, "Invalid user type specified. Please enter 'host', 'standard' or 'gold'.");
+        }
+    }
+
+    private static StringBuilder appendUser(StringBuilder json, User user) {
+        json.append("{\"userId\":").append(user.getUserId());
+        json.append(",\"type\":");
+        Json.appendString(json, userType(user));
+        Json.appendString(json.append(",\"firstName\":"), user.getFirstName());
+        Json.appendString(json.append(",\"lastName\":"), user.getLastName());
+        appendDay(json.append(",\"dateOfBirth\":"), user.getDateOfBirthDay());
+        appendDay(json.append(",\"registrationDate\":"), user.getRegistrationDay());
+        if (user instanceof Host) {
+            json.append(",\"taxNumber\":").append(((Host) user).getTaxNumber());
+        } else if (user instanceof Customer) {
+            Json.appendString(json.append(",\"paymentMethod\":"), ((Customer) user).getPreferredPaymentMethod());
+            if (user instanceof GoldCustomer) {
+                json.append(",\"goldLevel\":").append(((GoldCustomer) user).getGoldLevel());
+            }
+        }
+        return json.append('}');
+    }
+
+    private static String userType(User user) {
+        return user instanceof Host ? "host" : user instanceof GoldCustomer ? "gold" : "standard";
+    }
+
+    // ------------------------------------------------------------------ properties
+
+    private Response properties(HttpExchange exchange, String[] path) {
+        String method = exchange.getRequestMethod();
+        if (path.length == 1) {
+            if (method.equals("GET")) {
+                Map<String, String> query = query(exchange);
+                String city = query.get("city");
+                int minBedRooms = query.containsKey("minBedRooms") ? parseId(query.get("minBedRooms")) : 0;
+                Predicate<Property> filter = property -> property.getNoBedRooms() >= minBedRooms
+                        && (city == null || property.getCity().equalsIgnoreCase(city));
+                return locked(() -> new Response(200, appendPage(
+                        basic.pageProperties(pageCursor(query), pageLimit(query), filter), HttpApi::appendProperty)));
+            }
+            if (method.equals("POST")) {
+                Map<String, Object> body = readBody(exchange);
+                return locked(() -> {
+                    Property property = readProperty(body);
+                    if (basic.getPropertyById(property.getPropertyId()) != null) {
+                        throw new ApiException(409, "A property with ID " + property.getPropertyId() + " already exists.");
+                    }
+                    basic.properties.add(property);
+                    return new Response(201, appendProperty(new StringBuilder(), property));
+                });
+            }
+            throw methodNotAllowed(method);
+        }
+        int propertyId = parseId(path[1]);
+        if (path.length == 2) {
+            if (method.equals("GET")) {
+                return new Response(200, appendProperty(new StringBuilder(), requireProperty(propertyId)));
+            }
+            if (method.equals("DELETE")) {
+                return locked(() -> {
+                    if (basic.removeProperty(propertyId) == null) {
+                        throw notFound("Property", propertyId);
+                    }
+                    return new Response(204, "");
+                });
+            }
+            throw methodNotAllowed(method);
+        }
+        if (path.length == 3 && path[2].equals("inspections")) {
+            Property property = requireProperty(propertyId);
+            if (method.equals("GET")) {
+                Map<String, String> query = query(exchange);
+                int fromDay = queryDay(query, "from", Integer.MIN_VALUE);
+                int toDay = queryDay(query, "to", Integer.MAX_VALUE);
+                return locked(() -> {
+                    StringBuilder json = new StringBuilder("[");
+                    for (InspectionLog.Inspection inspection : property.getInspections().between(fromDay, toDay)) {
+                        appendInspection(json.length() > 1 ? json.append(',') : json, inspection.day(), inspection.report());
+                    }
+                    return new Response(200, json.append(']'));
+                });
+            }
+            if (method.equals("POST")) {
+                Map<String, Object> body = readBody(exchange);
+                String report = stringMember(body, "report");
+                int day = body.get("date") == null ? EpochDay.today() : dayMember(body, "date");
+                return locked(() -> {
+                    if (!basic.addInspection(propertyId, day, report)) {
+                        throw notFound("Property", propertyId);
+                    }
+                    StringBuilder json = new StringBuilder("{\"propertyId\":").append(propertyId);
+                    appendDay(json.append(",\"date\":"), day);
+                    return new Response(201, Json.appendString(json.append(",\"report\":"), report).append('}'));
+                });
+            }
+            throw methodNotAllowed(method);
+        }
+        if (path.length == 4 && path[2].equals("inspections") && path[3].equals("latest") && method.equals("GET")) {
+            Property property = requireProperty(propertyId);
+            return locked(() -> {
+                InspectionLog inspections = property.getInspections();
+                if (inspections.isEmpty()) {
+                    throw new ApiException(404, "Property ID " + propertyId + " has never been inspected.");
+                }
+                return new Response(200, appendInspection(new StringBuilder(), inspections.latestDay(),
+                        inspections.latestReport()));
+            });
+        }
+        throw new ApiException(404, "No such resource.");
+    }
+
+    private static StringBuilder appendInspection(StringBuilder json, int day, String report) {
+        appendDay(json.append("{\"date\":"), day);
+        return Json.appendString(json.append(",\"report\":"), report).append('}');
+    }
+
+    private Property readProperty(Map<String, Object> body) {
+        int propertyId = intMember(body, "propertyId");
+        int noBedRooms = intMember(body, "noBedRooms");
+        int noRooms = intMember(body, "noRooms");
+        String city = stringMember(body, "city");
+        double pricePerDay = doubleMember(body, "pricePerDay");
+        int hostId = intMember(body, "hostId");
+        User host = basic.getUserById(hostId);
+        if (!(host instanceof Host)) {
+            throw new ApiException(400, "Host with user ID " + hostId + " does not exist. Please create the host first.");
+        }
+        switch (stringMember(body, "type").trim().toLowerCase()) {
+            case "shared":
+                return new SharedProperty(propertyId, noBedRooms, noRooms, city, pricePerDay, (Host) host);
+            case "full":
+                return new FullProperty(propertyId, noBedRooms, noRooms, city, doubleMember(body, "size"), pricePerDay, (Host) host);
+            default:
+                throw new ApiException(400, "Invalid property type specified. Please enter 'shared' or 'full'.");
+        }
+    }
+
+    private static StringBuilder appendProperty(StringBuilder json, Property property) {
+        json.append("{\"propertyId\":").append(property.getPropertyId());
+        Json.appendString(json.append(",\"type\":"), property instanceof FullProperty ? "full" : "shared");
+        Json.appendString(json.append(",\"city\":"), property.getCity());
+        json.append(",\"noBedRooms\":").append(property.getNoBedRooms());
+        json.append(",\"noRooms\":").append(property.getNoRooms());
+        if (property.getHost() != null) {
+            json.append(",\"hostId\":").append(property.getHost().getUserId());
+        }
+        if (property instanceof FullProperty) {
+            json.append(",\"size\":").append(((FullProperty) property).getSize());
+        }
+        json.append(",\"pricePerDay\":").append(property.getPricePerDay());
+        json.append(",\"calculatedPricePerDay\":").append(property.calculatePricePerDay());
+        return json.append('}');
+    }
+
+    // ------------------------------------------------------------------ bookings, cost, comparison
+
+    private Response bookings(HttpExchange exchange, String[] path) {
+        if (path.length != 1) {
+            throw new ApiException(404, "No such resource.");
+        }
+        if (!exchange.getRequestMethod().equals("POST")) {
+            throw methodNotAllowed(exchange.getRequestMethod());
+        }
+        Map<String, Object> body = readBody(exchange);
+        int userId = intMember(body, "userId");
+        int propertyId = intMember(body, "propertyId");
+        int startDay = dayMember(body, "startDate");
+        int endDay = dayMember(body, "endDate");
+        if (startDay >= endDay) {
+            throw new ApiException(400, "Start date must be before end date.");
+        }
+        requireUser(userId);
+        requireProperty(propertyId);
+        Booking booking = bookings.book(userId, propertyId, startDay, endDay);
+        if (booking == null) {
+            throw new ApiException(409, "Property ID " + propertyId + " is already booked for some of these dates.");
+        }
+        if (basic.isCheckpointDue()) {
+            locked(() -> {
+                basic.checkpointIfDue();
+                return null;
+            });
+        }
+        return new Response(201, appendBooking(new StringBuilder(), booking));
+    }
+
+    private Response cost(HttpExchange exchange, String[] path) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            throw methodNotAllowed(exchange.getRequestMethod());
+        }
+        Map<String, String> query = query(exchange);
+        int userId = parseId(query.get("userId"));
+        int propertyId = parseId(query.get("propertyId"));
+        requireUser(userId);
+        for (Booking booking : bookings.getBookings(userId)) {
+            if (booking.getProperty().getPropertyId() == propertyId) {
+                return new Response(200, appendBooking(new StringBuilder(), booking));
+            }
+        }
+        throw new ApiException(404, "No booking found for user ID " + userId + " and property ID " + propertyId);
+    }
+
+    private Response compare(HttpExchange exchange, String[] path) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            throw methodNotAllowed(exchange.getRequestMethod());
+        }
+        Map<String, String> query = query(exchange);
+        Property first = requireProperty(parseId(query.get("first")));
+        Property second = requireProperty(parseId(query.get("second")));
+        int comparison = first.compareTo(second);
+        StringBuilder json = new StringBuilder("{\"first\":").append(first.getPropertyId());
+        json.append(",\"firstPricePerDay\":").append(first.calculatePricePerDay());
+        json.append(",\"second\":").append(second.getPropertyId());
+        json.append(",\"secondPricePerDay\":").append(second.calculatePricePerDay());
+        json.append(",\"cheaper\":");
+        if (comparison == 0) {
+            json.append("null");
+        } else {
+            json.append(comparison < 0 ? first.getPropertyId() : second.getPropertyId());
+        }
+        return new Response(200, json.append('}'));
+    }
+
+    private Response occupancy(HttpExchange exchange, String[] path) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            throw methodNotAllowed(exchange.getRequestMethod());
+        }
+        Map<String, String> query = query(exchange);
+        String city = query.get("city");
+        if (city == null || city.isBlank()) {
+            throw new ApiException(400, "Missing \"city\".");
+        }
+        YearMonth from = queryMonth(query, "from");
+        YearMonth to = queryMonth(query, "to");
+        if (from.isAfter(to)) {
+            throw new ApiException(400, "\"from\" must not be after \"to\".");
+        }
+        OccupancyRollup rollup = basic.getOccupancyRollup();
+        StringBuilder json = Json.appendString(new StringBuilder("{\"city\":"), city).append(",\"months\":[");
+        boolean first = true;
+        for (OccupancyRollup.MonthStats month : rollup.range(city, from, to)) {
+            json.append(first ? "" : ",");
+            first = false;
+            Json.appendString(json.append("{\"month\":"), month.month().toString());
+            appendOccupancy(json, month.bookedNights(), month.occupancyRate(), month.revenue(), month.unpaidRevenue());
+        }
+        OccupancyRollup.RangeStats total = rollup.total(city, from, to);
+        appendOccupancy(json.append("],\"total\":{\"months\":").append(from.until(to, ChronoUnit.MONTHS) + 1),
+                total.bookedNights(), total.occupancyRate(), total.revenue(), total.unpaidRevenue());
+        return new Response(200, json.append('}'));
+    }
+
+    private static void appendOccupancy(StringBuilder json, long nights, double rate, double revenue, double unpaid) {
+        json.append(",\"bookedNights\":").append(nights);
+        json.append(",\"occupancyRate\":").append(rate);
+        json.append(",\"revenue\":").append(revenue);
+        json.append(",\"unpaidRevenue\":").append(unpaid).append('}');
+    }
+
+    private StringBuilder appendBooking(StringBuilder json, Booking booking) {
+        json.append("{\"userId\":").append(booking.getUser().getUserId());
+        json.append(",\"propertyId\":").append(booking.getProperty().getPropertyId());
+        appendDay(json.append(",\"startDate\":"), booking.getStartDay());
+        appendDay(json.append(",\"endDate\":"), booking.getEndDay());
+        json.append(",\"nights\":").append(booking.getNights());
+        json.append(",\"paid\":").append(booking.isPaid());
+        json.append(",\"totalCost\":").append(booking.totalCost());
+        json.append(",\"netCost\":").append(booking.netCost(basic.getDiscountEngine().discountOf(booking.getUser())));
+        return json.append('}');
+    }
+
+    // ------------------------------------------------------------------ plumbing
+
+    private static int pageCursor(Map<String, String> query) {
+        String after = query.get("after");
+        return after == null ? Integer.MIN_VALUE : parseId(after);
+    }
+
+    private static int pageLimit(Map<String, String> query) {
+        String limit = query.get("limit");
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        int value = parseId(limit);
+        if (value < 1) {
+            throw new ApiException(400, "Invalid limit: " + limit);
+        }
+        return Math.min(value, MAX_PAGE_SIZE);
+    }
+
+    private static <T> StringBuilder appendPage(EntityRegistry.Page<T> page, BiConsumer<StringBuilder, T> appender) {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (T item : page.items()) {
+            if (json.charAt(json.length() - 1) != '[') {
+                json.append(',');
+            }
+            appender.accept(json, item);
+        }
+        json.append("],\"next\":");
+        if (page.hasMore()) {
+            json.append(page.nextCursor());
+        } else {
+            json.append("null");
+        }
+        return json.append('}');
+    }
+
+    private User requireUser(int userId) {
+        User user = bookings.getUser(userId);
+        if (user == null) {
+            throw notFound("User", userId);
+        }
+        return user;
+    }
+
+    private Property requireProperty(int propertyId) {
+        Property property = bookings.getProperty(propertyId);
+        if (property == null) {
+            throw notFound("Property", propertyId);
+        }
+        return property;
+    }
+
+    private Response locked(Action action) {
+        registryLock.lock();
+        try {
+            return action.run();
+        } finally {
+            registryLock.unlock();
+        }
+    }
+
+    private static HttpHandler handler(Route route) {
+        return exchange -> {
+            try {
+                String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+                Response response = route.handle(exchange, path);
+                send(exchange, response.status(), response.body());
+            } catch (ApiException e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                sendError(exchange, 500, "An error occurred: " + e.getMessage());
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, Json.appendString(new StringBuilder("{\"error\":"), message).append('}'));
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        // A response without a body ends the exchange at once, and the JDK server closes the connection under
+        // a keep-alive client unless the request body was read to the end first
+        exchange.getRequestBody().close();
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) {
+        try {
+            return Json.parseObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ApiException(400, "Could not read the request body: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static int parseId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid ID: " + text);
+        }
+    }
+
+    private static String stringMember(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof String)) {
+            throw new ApiException(400, "Missing or invalid \"" + name + "\".");
+        }
+        return (String) value;
+    }
+
+    private static double doubleMember(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof Double)) {
+            throw new ApiException(400, "Missing or invalid \"" + name + "\".");
+        }
+        return (Double) value;
+    }
+
+    private static int intMember(Map<String, Object> body, String name) {
+        double value = doubleMember(body, name);
+        if (value != (int) value) {
+            throw new ApiException(400, "\"" + name + "\" must be a whole number.");
+        }
+        return (int) value;
+    }
+
+    private static int dayMember(Map<String, Object> body, String name) {
+        int day = EpochDay.parse(stringMember(body, name).trim());
+        if (day == EpochDay.NONE) {
+            throw new ApiException(400, "Invalid \"" + name + "\"; use the format dd/MM/yyyy.");
+        }
+        return day;
+    }
+
+    private static int queryDay(Map<String, String> query, String name, int absent) {
+        String text = query.get(name);
+        if (text == null) {
+            return absent;
+        }
+        int day = EpochDay.parse(text.trim());
+        if (day == EpochDay.NONE) {
+            throw new ApiException(400, "Invalid \"" + name + "\"; use the format dd/MM/yyyy.");
+        }
+        return day;
+    }
+
+    private static YearMonth queryMonth(Map<String, String> query, String name) {
+        String text = query.get(name);
+        if (text == null) {
+            throw new ApiException(400, "Missing \"" + name + "\".");
+        }
+        try {
+            return YearMonth.parse(text.trim());
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "Invalid \"" + name + "\"; use the format yyyy-MM.");
+        }
+    }
+
+    private static void appendDay(StringBuilder json, int day) {
+        if (day == EpochDay.NONE) {
+            json.append("null");
+        } else {
+            EpochDay.appendTo(day, json.append('"')).append('"');
+        }
+    }
+
+    private static ApiException notFound(String kind, int id) {
+        return new ApiException(404, kind + " with ID " + id + " does not exist.");
+    }
+
+    private static ApiException methodNotAllowed(String method) {
+        return new ApiException(405, "Method " + method + " is not supported here.");
+    }
+
+    /**
+     * Handles the requests of one context.
+     */
+    private interface Route {
+        Response handle(HttpExchange exchange, String[] path);
+    }
+
+    /**
+     * Work done while holding the registry lock.
+     */
+    private interface Action {
+        Response run();
+    }
+
+    /**
+     * A response status and JSON body.
+     */
+    private record Response(int status, CharSequence body) {
+    }
+
+    /**
+     * A request that fails with a specific HTTP status.
+     */
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
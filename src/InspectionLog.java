@@ -0,0 +1,213 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The inspection history of one property: an append-only log of (date, report) records kept in date order.
+ * Dates and report codes live in two parallel int arrays, and report texts are dictionary-encoded in one
+ * dictionary shared by every log, so a recurring report ("Clean", "Needs repairs") is stored once however
+ * many properties and dates carry it. Several reports may be recorded on the same date; they keep the order
+ * they were added in.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class InspectionLog {
+    private static final int[] EMPTY = new int[0];
+    private static final StringDictionary REPORTS = new StringDictionary();
+
+    private int[] days = EMPTY;
+    private int[] reports = EMPTY;
+    private int count;
+
+    /**
+     * Record an inspection report.
+     * Records normally arrive in date order and are appended; a back-dated record is inserted after every
+     * record on or before its date.
+     *
+     * @param day    The inspection date as an epoch day.
+     * @param report The inspection report.
+     */
+    public void append(int day, String report) {
+        int code;
+        synchronized (REPORTS) {
+            code = REPORTS.encode(report);
+        }
+        if (count == days.length) {
+            int capacity = Math.max(4, count * 2);
+            days = Arrays.copyOf(days, capacity);
+            reports = Arrays.copyOf(reports, capacity);
+        }
+        int position = count;
+        if (count > 0 && days[count - 1] > day) {
+            position = firstAfter(day);
+            System.arraycopy(days, position, days, position + 1, count - position);
+            System.arraycopy(reports, position, reports, position + 1, count - position);
+        }
+        days[position] = day;
+        reports[position] = code;
+        count++;
+    }
+
+    /**
+     * Get the number of recorded inspections.
+     *
+     * @return The number of records.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Check whether the property has never been inspected.
+     *
+     * @return true if there are no records; otherwise, false.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Get the date of a record.
+     *
+     * @param index The position of the record, oldest first.
+     * @return The inspection date as an epoch day.
+     */
+    public int day(int index) {
+        checkIndex(index);
+        return days[index];
+    }
+
+    /**
+     * Get the report of a record.
+     *
+     * @param index The position of the record, oldest first.
+     * @return The inspection report.
+     */
+    public String report(int index) {
+        checkIndex(index);
+        return decode(reports[index]);
+    }
+
+    /**
+     * Get the date of the most recent inspection.
+     *
+     * @return The date as an epoch day, or EpochDay.NONE if the property has never been inspected.
+     */
+    public int latestDay() {
+        return count == 0 ? EpochDay.NONE : days[count - 1];
+    }
+
+    /**
+     * Get the most recent inspection report; of several reports on the latest date, the last one added.
+     *
+     * @return The report, or null if the property has never been inspected.
+     */
+    public String latestReport() {
+        return count == 0 ? null : decode(reports[count - 1]);
+    }
+
+    /**
+     * Get the records dated between two days, inclusive, oldest first.
+     *
+     * @param fromDay The first day of the range as an epoch day.
+     * @param toDay   The last day of the range as an epoch day.
+     * @return The matching records.
+     */
+    public List<Inspection> between(int fromDay, int toDay) {
+        List<Inspection> inspections = new ArrayList<>();
+        if (fromDay > toDay) {
+            return inspections;
+        }
+        for (int i = firstOnOrAfter(fromDay), end = firstAfter(toDay); i < end; i++) {
+            inspections.add(new Inspection(days[i], decode(reports[i])));
+        }
+        return inspections;
+    }
+
+    /**
+     * Get every record, oldest first.
+     *
+     * @return The records.
+     */
+    public List<Inspection> all() {
+        List<Inspection> inspections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            inspections.add(new Inspection(days[i], decode(reports[i])));
+        }
+        return inspections;
+    }
+
+    /**
+     * Find the position of the first record dated after a day.
+     *
+     * @param day The day as an epoch day.
+     * @return The position, or size() if no record is dated after the day.
+     */
+    private int firstAfter(int day) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] <= day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Find the position of the first record dated on or after a day.
+     *
+     * @param day The day as an epoch day.
+     * @return The position, or size() if every record is dated before the day.
+     */
+    private int firstOnOrAfter(int day) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + count);
+        }
+    }
+
+    private static String decode(int code) {
+        synchronized (REPORTS) {
+            return REPORTS.decode(code);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            EpochDay.appendTo(days[i], out).append('=').append(decode(reports[i]));
+        }
+        return out.append('}').toString();
+    }
+
+    /**
+     * One inspection record.
+     *
+     * @param day    The inspection date as an epoch day.
+     * @param report The inspection report.
+     */
+    public record Inspection(int day, String report) {
+    }
+}
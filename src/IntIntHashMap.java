@@ -0,0 +1,178 @@
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive int keys to primitive int values.
+ * The int counterpart of {@link IntObjectHashMap}: linear probing, backward-shift deletion, no boxing.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class IntIntHashMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Constructs an empty map.
+     *
+     * @param missingValue The value returned by lookups of absent keys.
+     */
+    public IntIntHashMap(int missingValue) {
+        this.missingValue = missingValue;
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Get the value mapped to the given key.
+     *
+     * @param key The key to look up.
+     * @return The mapped value, or the missing value if the key is not present.
+     */
+    public int get(int key) {
+        int slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    /**
+     * Check whether the given key is present in the map.
+     *
+     * @param key The key to look up.
+     * @return true if the key is present; otherwise, false.
+     */
+    public boolean containsKey(int key) {
+        int slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Map the given key to the given value, replacing any previous mapping.
+     *
+     * @param key   The key.
+     * @param value The value to store.
+     * @return The previously mapped value, or the missing value if there was none.
+     */
+    public int put(int key, int value) {
+        int slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    /**
+     * Remove the mapping for the given key.
+     *
+     * @param key The key to remove.
+     * @return The removed value, or the missing value if the key was not present.
+     */
+    public int remove(int key) {
+        int slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                int value = values[slot];
+                shiftBack(slot);
+                size--;
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    /**
+     * Get the number of entries in the map.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all entries from the map, keeping its current capacity.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void shiftBack(int gap) {
+        int current = gap;
+        while (true) {
+            current = (current + 1) & mask;
+            if (!used[current]) {
+                break;
+            }
+            int home = mix(keys[current]) & mask;
+            boolean reachable = gap <= current
+                    ? (gap < home && home <= current)
+                    : (gap < home || home <= current);
+            if (!reachable) {
+                keys[gap] = keys[current];
+                values[gap] = values[current];
+                gap = current;
+            }
+        }
+        used[gap] = false;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(newCapacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * 0.6f);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map keyed by primitive int values.
+ * Keys are stored unboxed in a flat array and collisions are resolved by linear probing,
+ * so lookups touch one or two cache lines regardless of how many entries the map holds.
+ *
+ * @param <V> The type of the mapped values. Null values are not permitted.
+ * @author Albaraa
+ * @version 1.0
+ */
+public class IntObjectHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Constructs an empty map with a small default capacity.
+     */
+    public IntObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty map able to hold the given number of entries without resizing.
+     *
+     * @param expectedSize The number of entries the map is expected to hold.
+     */
+    public IntObjectHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Get the value mapped to the given key.
+     *
+     * @param key The key to look up.
+     * @return The mapped value, or null if the key is not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = mix(key) & mask;
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == key) {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Check whether the given key is present in the map.
+     *
+     * @param key The key to look up.
+     * @return true if the key is mapped to a value; otherwise, false.
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Map the given key to the given value, replacing any previous mapping.
+     *
+     * @param key   The key.
+     * @param value The value to store.
+     * @return The previously mapped value, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int slot = mix(key) & mask;
+        Object existing;
+        while ((existing = values[slot]) != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return (V) existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Map the given key to the given value only if the key is not already present.
+     *
+     * @param key   The key.
+     * @param value The value to store.
+     * @return The existing value if the key was present (the map is unchanged), or null if the value was stored.
+     */
+    public V putIfAbsent(int key, V value) {
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        put(key, value);
+        return null;
+    }
+
+    /**
+     * Remove the mapping for the given key.
+     * Uses backward-shift deletion, so the table never accumulates tombstones.
+     *
+     * @param key The key to remove.
+     * @return The removed value, or null if the key was not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = mix(key) & mask;
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == key) {
+                shiftBack(slot);
+                size--;
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of entries in the map.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether the map is empty.
+     *
+     * @return true if the map holds no entries; otherwise, false.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all entries from the map, keeping its current capacity.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Close the gap left at the given slot by moving later entries of the same probe run back.
+     *
+     * @param gap The slot that was just vacated.
+     */
+    private void shiftBack(int gap) {
+        int current = gap;
+        while (true) {
+            current = (current + 1) & mask;
+            if (values[current] == null) {
+                break;
+            }
+            int home = mix(keys[current]) & mask;
+            // Leave the entry where it is if its home slot lies cyclically in (gap, current]
+            boolean reachable = gap <= current
+                    ? (gap < home && home <= current)
+                    : (gap < home || home <= current);
+            if (!reachable) {
+                keys[gap] = keys[current];
+                values[gap] = values[current];
+                gap = current;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * 0.6f);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / 0.6);
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Spread sequential ids across the table (Fibonacci hashing).
+     *
+     * @param key The key to hash.
+     * @return The mixed hash.
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,166 @@
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+
+/**
+ * Streams users and properties as tab-separated rows, one line per entity in ascending ID order.
+ * Entities are read a page at a time through the registries' cursors and every row is formatted into one
+ * reused buffer and written through a 64 KB buffered writer, so memory stays bounded and no per-row strings
+ * are built, however many entities are listed.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class ListingWriter implements Flushable {
+    /**
+     * The number of entities read from a registry per page.
+     */
+    public static final int PAGE_SIZE = 4096;
+
+    private final Writer out;
+    private final StringBuilder row = new StringBuilder(256);
+    private char[] chars = new char[256];
+
+    /**
+     * Constructs a listing writer over a byte stream, encoding rows as UTF-8.
+     *
+     * @param out The stream to write to; it is flushed but never closed by the listing writer.
+     */
+    public ListingWriter(OutputStream out) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Constructs a listing writer over a character stream.
+     *
+     * @param out The writer to write to; it is flushed but never closed by the listing writer.
+     */
+    public ListingWriter(Writer out) {
+        this.out = new BufferedWriter(out, 1 << 16);
+    }
+
+    /**
+     * Write every user accepted by a filter: ID, type, first name, last name, date of birth, registration
+     * date and discount.
+     *
+     * @param basic  The BASIC instance to list.
+     * @param filter Selects the users to write, or null for all.
+     * @return The number of users written.
+     * @throws IOException if writing fails.
+     */
+    public long writeUsers(BASIC basic, Predicate<? super User> filter) throws IOException {
+        long written = 0;
+        int cursor = Integer.MIN_VALUE;
+        EntityRegistry.Page<User> page;
+        do {
+            page = basic.pageUsers(cursor, PAGE_SIZE, filter);
+            for (User user : page.items()) {
+                writeUser(user, basic.getDiscountEngine().discountOf(user));
+            }
+            written += page.items().size();
+            cursor = page.nextCursor();
+        } while (page.hasMore());
+        return written;
+    }
+
+    /**
+     * Write every property accepted by a filter: ID, type, city, bedrooms, rooms, size (full properties
+     * only), base price per day and calculated price per day.
+     *
+     * @param basic  The BASIC instance to list.
+     * @param filter Selects the properties to write, or null for all.
+     * @return The number of properties written.
+     * @throws IOException if writing fails.
+     */
+    public long writeProperties(BASIC basic, Predicate<? super Property> filter) throws IOException {
+        long written = 0;
+        int cursor = Integer.MIN_VALUE;
+        EntityRegistry.Page<Property> page;
+        do {
+            page = basic.pageProperties(cursor, PAGE_SIZE, filter);
+            for (Property property : page.items()) {
+                writeProperty(property);
+            }
+            written += page.items().size();
+            cursor = page.nextCursor();
+        } while (page.hasMore());
+        return written;
+    }
+
+    /**
+     * Write one user row.
+     *
+     * @param user     The user.
+     * @param discount The user's discount in percent.
+     * @throws IOException if writing fails.
+     */
+    public void writeUser(User user, double discount) throws IOException {
+        row.setLength(0);
+        row.append(user.getUserId()).append('\t');
+        row.append(user instanceof Host ? "host" : user instanceof GoldCustomer ? "gold" : "standard").append('\t');
+        row.append(user.getFirstName()).append('\t');
+        row.append(user.getLastName()).append('\t');
+        EpochDay.appendTo(user.getDateOfBirthDay(), row).append('\t');
+        EpochDay.appendTo(user.getRegistrationDay(), row).append('\t');
+        row.append(discount).append('\n');
+        flushRow();
+    }
+
+    /**
+     * Write one property row.
+     *
+     * @param property The property.
+     * @throws IOException if writing fails.
+     */
+    public void writeProperty(Property property) throws IOException {
+        row.setLength(0);
+        row.append(property.getPropertyId()).append('\t');
+        row.append(property instanceof FullProperty ? "full" : "shared").append('\t');
+        row.append(property.getCity()).append('\t');
+        row.append(property.getNoBedRooms()).append('\t');
+        row.append(property.getNoRooms()).append('\t');
+        if (property instanceof FullProperty) {
+            row.append(((FullProperty) property).getSize());
+        } else {
+            row.append('-');
+        }
+        row.append('\t').append(property.getPricePerDay());
+        row.append('\t').append(property.calculatePricePerDay()).append('\n');
+        flushRow();
+    }
+
+    /**
+     * Write a line of text, for example a header.
+     *
+     * @param line The line, without the line break.
+     * @throws IOException if writing fails.
+     */
+    public void writeLine(String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+    }
+
+    private void flushRow() throws IOException {
+        int length = row.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        row.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+    }
+
+    /**
+     * Push the buffered rows to the underlying stream.
+     *
+     * @throws IOException if writing fails.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
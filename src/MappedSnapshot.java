@@ -0,0 +1,589 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A versioned snapshot format of fixed-width binary records, read through memory-mapped buffers.
+ * Opening a snapshot only maps the file; users and properties are decoded into objects the first time
+ * they are looked up, so a BASIC instance with millions of records can serve lookups right away.
+ *
+ * Layout: a 256-byte header followed by the sections below, each holding fixed-width big-endian records.
+ * Users and properties are sorted by ID so a lookup is a binary search over the mapped section.
+ * Dates are stored as epoch days in 8-byte fields, so a snapshot reads the same dates in every time zone.
+ * Version 1 files, which have a 128-byte header, shorter property records, no rate runs and dates stored
+ * as the epoch milliseconds of their local midnight, can still be read; snapshots are always written as
+ * version 2.
+ * <ul>
+ *     <li>users: id, type, date of birth, registration date, name and payment method string refs,
+ *     gold level, tax number, and the range of the user's bookings</li>
+ *     <li>properties: id, type, host flag, bedrooms, rooms, city string ref, host user id, price per day,
+ *     size, and the ranges of the property's booking references, inspections and rate runs</li>
+ *     <li>bookings: user id, property id, start and end date, paid flag; grouped by user</li>
+ *     <li>property bookings: booking ordinals grouped by property</li>
+ *     <li>inspections: property id, date, report string ref; grouped by property</li>
+ *     <li>strings: deduplicated length-prefixed UTF-8 strings referenced by byte offset</li>
+ *     <li>rate runs: first and end date and rate of each run of nights with a seasonal rate other than 1;
+ *     grouped by property, and stored before the strings</li>
+ * </ul>
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class MappedSnapshot {
+    private static final int MAGIC = 0x4241534D; // "BASM"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 256;
+    private static final int V1_HEADER_BYTES = 128;
+    private static final int SECTIONS = 7;
+
+    private static final int USER_BYTES = 56;
+    private static final int PROPERTY_BYTES = 64;
+    private static final int V1_PROPERTY_BYTES = 56;
+    private static final int BOOKING_BYTES = 32;
+    private static final int PROPERTY_BOOKING_BYTES = 4;
+    private static final int INSPECTION_BYTES = 16;
+    private static final int RATE_RUN_BYTES = 24;
+
+    private static final long V1_NO_DATE = Long.MIN_VALUE;
+    private static final int NO_STRING = -1;
+
+    private final long lsn;
+    private final int userCount;
+    private final int propertyCount;
+    private final int propertyBytes;
+    private final boolean millisDates;
+    private final ByteBuffer users;
+    private final ByteBuffer properties;
+    private final ByteBuffer bookings;
+    private final ByteBuffer propertyBookings;
+    private final ByteBuffer inspections;
+    private final ByteBuffer strings;
+    private final ByteBuffer rateRuns;
+
+    private MappedSnapshot(FileChannel channel) throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, V1_HEADER_BYTES);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a BASIC snapshot");
+        }
+        int version = header.getInt(4);
+        if (version == VERSION) {
+            header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        } else if (version != 1) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        propertyBytes = version == 1 ? V1_PROPERTY_BYTES : PROPERTY_BYTES;
+        millisDates = version == 1;
+        lsn = header.getLong(8);
+        userCount = header.getInt(16);
+        propertyCount = header.getInt(20);
+        users = section(channel, header, 0);
+        properties = section(channel, header, 1);
+        bookings = section(channel, header, 2);
+        propertyBookings = section(channel, header, 3);
+        inspections = section(channel, header, 4);
+        strings = section(channel, header, 5);
+        rateRuns = version == 1 ? null : section(channel, header, 6);
+    }
+
+    /**
+     * Map a snapshot file. Only the header is read; records are decoded on demand.
+     *
+     * @param path The snapshot file.
+     * @return The mapped snapshot.
+     * @throws IOException if the file cannot be mapped or is not a supported snapshot.
+     */
+    public static MappedSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedSnapshot(channel);
+        }
+    }
+
+    /**
+     * Get the LSN of the last log record included in the snapshot.
+     *
+     * @return The snapshot LSN.
+     */
+    public long getLsn() {
+        return lsn;
+    }
+
+    /**
+     * Get the number of users in the snapshot.
+     *
+     * @return The number of users.
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * Get the number of properties in the snapshot.
+     *
+     * @return The number of properties.
+     */
+    public int getPropertyCount() {
+        return propertyCount;
+    }
+
+    /**
+     * Make the snapshot the backing store of two registries: users and properties are materialized when
+     * first looked up, or all at once when a registry is iterated.
+     *
+     * @param userRegistry     The registry to materialize users into.
+     * @param propertyRegistry The registry to materialize properties into.
+     */
+    public void install(EntityRegistry<User> userRegistry, EntityRegistry<Property> propertyRegistry) {
+        Materializer materializer = new Materializer(userRegistry, propertyRegistry);
+        userRegistry.setLoader(materializer.userLoader);
+        propertyRegistry.setLoader(materializer.propertyLoader);
+    }
+
+    // ------------------------------------------------------------------ writing
+
+    /**
+     * Write the state of a BASIC instance as a snapshot file.
+     *
+     * @param path  The file to write.
+     * @param basic The BASIC instance.
+     * @param lsn   The LSN of the last log record reflected in the state.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, BASIC basic, long lsn) throws IOException {
+        List<User> sortedUsers = new ArrayList<>(basic.users);
+        sortedUsers.sort(Comparator.comparingInt(User::getUserId));
+        List<Property> sortedProperties = new ArrayList<>(basic.properties);
+        sortedProperties.sort(Comparator.comparingInt(Property::getPropertyId));
+        int[] propertyIds = new int[sortedProperties.size()];
+        for (int i = 0; i < propertyIds.length; i++) {
+            propertyIds[i] = sortedProperties.get(i).getPropertyId();
+        }
+
+        // Bookings grouped by user; only bookings whose property is still registered are kept
+        List<Booking> allBookings = new ArrayList<>();
+        int[] userFirstBooking = new int[sortedUsers.size()];
+        int[] userBookingCount = new int[sortedUsers.size()];
+        int[] perProperty = new int[propertyIds.length + 1];
+        List<Integer> bookingProperty = new ArrayList<>();
+        for (int u = 0; u < sortedUsers.size(); u++) {
+            userFirstBooking[u] = allBookings.size();
+            for (Booking booking : sortedUsers.get(u).getBookings()) {
+                int p = Arrays.binarySearch(propertyIds, booking.getProperty().getPropertyId());
+                if (p >= 0 && sortedProperties.get(p) == booking.getProperty()) {
+                    allBookings.add(booking);
+                    bookingProperty.add(p);
+                    perProperty[p + 1]++;
+                }
+            }
+            userBookingCount[u] = allBookings.size() - userFirstBooking[u];
+        }
+        // Counting sort of booking ordinals by property
+        for (int p = 0; p < propertyIds.length; p++) {
+            perProperty[p + 1] += perProperty[p];
+        }
+        int[] propertyBookingOrdinals = new int[allBookings.size()];
+        int[] fill = Arrays.copyOf(perProperty, propertyIds.length);
+        for (int ordinal = 0; ordinal < allBookings.size(); ordinal++) {
+            propertyBookingOrdinals[fill[bookingProperty.get(ordinal)]++] = ordinal;
+        }
+
+        StringTable stringTable = new StringTable();
+        int inspectionCount = 0;
+        for (Property property : sortedProperties) {
+            inspectionCount += property.getInspections().size();
+        }
+        // Rate runs grouped by property: first night, end and rate of each
+        List<double[]> runs = new ArrayList<>();
+        int[] perPropertyRuns = new int[propertyIds.length + 1];
+        for (int p = 0; p < sortedProperties.size(); p++) {
+            sortedProperties.get(p).getRates().forEachRun((fromDay, toDay, rate) -> runs.add(new double[]{fromDay, toDay, rate}));
+            perPropertyRuns[p + 1] = runs.size();
+        }
+
+        long[] offsets = new long[SECTIONS];
+        long[] lengths = {
+                (long) sortedUsers.size() * USER_BYTES,
+                (long) sortedProperties.size() * PROPERTY_BYTES,
+                (long) allBookings.size() * BOOKING_BYTES,
+                (long) propertyBookingOrdinals.length * PROPERTY_BOOKING_BYTES,
+                (long) inspectionCount * INSPECTION_BYTES,
+                0,
+                (long) runs.size() * RATE_RUN_BYTES
+        };
+        // The strings come last so their length can be patched in once they are written
+        long position = HEADER_BYTES;
+        for (int s : new int[]{0, 1, 2, 3, 4, 6, 5}) {
+            offsets[s] = position;
+            position += lengths[s];
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            // Header; the string section length is patched once the strings are written
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+            out.writeInt(sortedUsers.size());
+            out.writeInt(sortedProperties.size());
+            out.writeInt(allBookings.size());
+            out.writeInt(inspectionCount);
+            for (int s = 0; s < SECTIONS; s++) {
+                out.writeLong(offsets[s]);
+                out.writeLong(lengths[s]);
+            }
+            out.write(new byte[HEADER_BYTES - out.size()]);
+
+            for (int u = 0; u < sortedUsers.size(); u++) {
+                User user = sortedUsers.get(u);
+                out.writeInt(user.getUserId());
+                out.writeByte(userType(user));
+                out.write(new byte[3]);
+                out.writeLong(user.getDateOfBirthDay());
+                out.writeLong(user.getRegistrationDay());
+                out.writeInt(stringTable.ref(user.getFirstName()));
+                out.writeInt(stringTable.ref(user.getLastName()));
+                out.writeInt(user instanceof Customer ? stringTable.ref(((Customer) user).getPreferredPaymentMethod()) : NO_STRING);
+                out.writeInt(user instanceof GoldCustomer ? ((GoldCustomer) user).getGoldLevel() : 0);
+                out.writeDouble(user instanceof Host ? ((Host) user).getTaxNumber() : 0);
+                out.writeInt(userFirstBooking[u]);
+                out.writeInt(userBookingCount[u]);
+            }
+
+            int firstInspection = 0;
+            for (int p = 0; p < sortedProperties.size(); p++) {
+                Property property = sortedProperties.get(p);
+                out.writeInt(property.getPropertyId());
+                out.writeByte(property instanceof FullProperty ? StateCodec.FULL_PROPERTY : StateCodec.SHARED_PROPERTY);
+                out.writeByte(property.getHost() != null ? 1 : 0);
+                out.write(new byte[2]);
+                out.writeInt(property.getNoBedRooms());
+                out.writeInt(property.getNoRooms());
+                out.writeInt(stringTable.ref(property.getCity()));
+                out.writeInt(property.getHost() != null ? property.getHost().getUserId() : 0);
+                out.writeDouble(property.getPricePerDay());
+                out.writeDouble(property instanceof FullProperty ? ((FullProperty) property).getSize() : 0);
+                out.writeInt(perProperty[p]);
+                out.writeInt(perProperty[p + 1] - perProperty[p]);
+                out.writeInt(firstInspection);
+                out.writeInt(property.getInspections().size());
+                firstInspection += property.getInspections().size();
+                out.writeInt(perPropertyRuns[p]);
+                out.writeInt(perPropertyRuns[p + 1] - perPropertyRuns[p]);
+            }
+
+            for (Booking booking : allBookings) {
+                out.writeInt(booking.getUser().getUserId());
+                out.writeInt(booking.getProperty().getPropertyId());
+                out.writeLong(booking.getStartDay());
+                out.writeLong(booking.getEndDay());
+                out.writeByte(booking.isPaid() ? 1 : 0);
+                out.write(new byte[7]);
+            }
+
+            for (int ordinal : propertyBookingOrdinals) {
+                out.writeInt(ordinal);
+            }
+
+            for (Property property : sortedProperties) {
+                InspectionLog inspections = property.getInspections();
+                for (int i = 0; i < inspections.size(); i++) {
+                    out.writeInt(property.getPropertyId());
+                    out.writeInt(stringTable.ref(inspections.report(i)));
+                    out.writeLong(inspections.day(i));
+                }
+            }
+
+            for (double[] run : runs) {
+                out.writeLong((int) run[0]);
+                out.writeLong((int) run[1]);
+                out.writeDouble(run[2]);
+            }
+
+            stringTable.writeTo(out);
+        }
+        // Patch the string section length in the header
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(8).putLong(0, stringTable.size());
+            channel.write(length, 32 + 5 * 16 + 8);
+            channel.force(true);
+        }
+    }
+
+    private static byte userType(User user) throws IOException {
+        if (user instanceof Host) {
+            return StateCodec.HOST;
+        } else if (user instanceof GoldCustomer) {
+            return StateCodec.GOLD_CUSTOMER;
+        } else if (user instanceof StandardCustomer) {
+            return StateCodec.STANDARD_CUSTOMER;
+        }
+        throw new IOException("Unsupported user type: " + user.getClass().getName());
+    }
+
+    /**
+     * Deduplicating string table: each distinct string is stored once and referenced by its byte offset.
+     */
+    private static final class StringTable {
+        private final HashMap<String, Integer> refs = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private long size;
+
+        int ref(String value) throws IOException {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer ref = refs.get(value);
+            if (ref == null) {
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("String table too large");
+                }
+                ref = (int) size;
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                refs.put(value, ref);
+                size += 4 + bytes.length;
+            }
+            return ref;
+        }
+
+        long size() {
+            return size;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (byte[] bytes : encoded) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ reading
+
+    private static ByteBuffer section(FileChannel channel, ByteBuffer header, int section) throws IOException {
+        long offset = header.getLong(32 + section * 16);
+        long length = header.getLong(32 + section * 16 + 8);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot section " + section + " is larger than 2GB");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    private static int find(ByteBuffer section, int recordBytes, int count, int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int candidate = section.getInt(middle * recordBytes);
+            if (candidate < id) {
+                low = middle + 1;
+            } else if (candidate > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private String string(int ref) {
+        if (ref == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[strings.getInt(ref)];
+        strings.get(ref + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int day(long stored) {
+        if (millisDates) {
+            return stored == V1_NO_DATE ? EpochDay.NONE : EpochDay.ofMillis(stored);
+        }
+        return (int) stored;
+    }
+
+    /**
+     * Turns snapshot records into objects on demand.
+     * Objects are created shallow first (a user without its bookings, a property without its calendar), so
+     * following a booking to its property does not cascade through the whole snapshot. An entity is completed
+     * (bookings attached) and handed to its registry when it is looked up there.
+     */
+    private final class Materializer {
+        private final EntityRegistry<User> userRegistry;
+        private final EntityRegistry<Property> propertyRegistry;
+        private final IntObjectHashMap<User> userObjects = new IntObjectHashMap<>();
+        private final IntObjectHashMap<Property> propertyObjects = new IntObjectHashMap<>();
+        private final IntObjectHashMap<Booking> bookingObjects = new IntObjectHashMap<>();
+        private final BitSet completedUsers = new BitSet();
+        private final BitSet completedProperties = new BitSet();
+
+        final EntityRegistry.Loader<User> userLoader = new EntityRegistry.Loader<>() {
+            @Override
+            public User load(int id) {
+                int record = find(users, USER_BYTES, userCount, id);
+                return record < 0 || completedUsers.get(record) ? null : completeUser(record);
+            }
+
+            @Override
+            public void loadAll() {
+                for (int record = completedUsers.nextClearBit(0); record < userCount; record = completedUsers.nextClearBit(record + 1)) {
+                    completeUser(record);
+                }
+            }
+        };
+
+        final EntityRegistry.Loader<Property> propertyLoader = new EntityRegistry.Loader<>() {
+            @Override
+            public Property load(int id) {
+                int record = find(properties, propertyBytes, propertyCount, id);
+                return record < 0 || completedProperties.get(record) ? null : completeProperty(record);
+            }
+
+            @Override
+            public void loadAll() {
+                for (int record = completedProperties.nextClearBit(0); record < propertyCount; record = completedProperties.nextClearBit(record + 1)) {
+                    completeProperty(record);
+                }
+            }
+        };
+
+        Materializer(EntityRegistry<User> userRegistry, EntityRegistry<Property> propertyRegistry) {
+            this.userRegistry = userRegistry;
+            this.propertyRegistry = propertyRegistry;
+        }
+
+        private User completeUser(int record) {
+            completedUsers.set(record);
+            User user = userObject(record);
+            int base = record * USER_BYTES;
+            int first = users.getInt(base + 48);
+            int count = users.getInt(base + 52);
+            for (int ordinal = first; ordinal < first + count; ordinal++) {
+                user.addBooking(booking(ordinal));
+            }
+            userRegistry.restore(user);
+            return user;
+        }
+
+        private Property completeProperty(int record) {
+            completedProperties.set(record);
+            Property property = propertyObject(record);
+            Host host = property.getHost();
+            if (host != null && userRegistry.get(host.getUserId()) != host) {
+                // The host was removed after the snapshot was written
+                property.setHost(null);
+            }
+            int base = record * propertyBytes;
+            int firstBooking = properties.getInt(base + 40);
+            int bookingCount = properties.getInt(base + 44);
+            for (int i = firstBooking; i < firstBooking + bookingCount; i++) {
+                property.getCalendar().add(booking(propertyBookings.getInt(i * PROPERTY_BOOKING_BYTES)), property.getBookingCapacity());
+            }
+            int firstInspection = properties.getInt(base + 48);
+            int inspectionCount = properties.getInt(base + 52);
+            for (int i = firstInspection; i < firstInspection + inspectionCount; i++) {
+                int at = i * INSPECTION_BYTES;
+                property.getInspections().append(day(inspections.getLong(at + 8)), string(inspections.getInt(at + 4)));
+            }
+            propertyRegistry.restore(property);
+            return property;
+        }
+
+        private Booking booking(int ordinal) {
+            Booking booking = bookingObjects.get(ordinal);
+            if (booking == null) {
+                int at = ordinal * BOOKING_BYTES;
+                User user = userObject(find(users, USER_BYTES, userCount, bookings.getInt(at)));
+                Property property = propertyObject(find(properties, propertyBytes, propertyCount, bookings.getInt(at + 4)));
+                booking = new Booking(user, property, day(bookings.getLong(at + 8)), day(bookings.getLong(at + 16)),
+                        bookings.get(at + 24) != 0);
+                bookingObjects.put(ordinal, booking);
+            }
+            return booking;
+        }
+
+        private User userObject(int record) {
+            int base = record * USER_BYTES;
+            int id = users.getInt(base);
+            User user = userObjects.get(id);
+            if (user != null) {
+                return user;
+            }
+            int dateOfBirth = day(users.getLong(base + 8));
+            int registrationDate = day(users.getLong(base + 16));
+            String firstName = string(users.getInt(base + 24));
+            String lastName = string(users.getInt(base + 28));
+            switch (users.get(base + 4)) {
+                case StateCodec.HOST:
+                    user = new Host(id, dateOfBirth, firstName, lastName, registrationDate, users.getDouble(base + 40));
+                    break;
+                case StateCodec.GOLD_CUSTOMER:
+                    user = new GoldCustomer(id, dateOfBirth, firstName, lastName, registrationDate,
+                            string(users.getInt(base + 32)), users.getInt(base + 36));
+                    break;
+                default:
+                    user = new StandardCustomer(id, dateOfBirth, firstName, lastName, registrationDate,
+                            string(users.getInt(base + 32)));
+            }
+            userObjects.put(id, user);
+            return user;
+        }
+
+        private Property propertyObject(int record) {
+            int base = record * propertyBytes;
+            int id = properties.getInt(base);
+            Property property = propertyObjects.get(id);
+            if (property != null) {
+                return property;
+            }
+            int noBedRooms = properties.getInt(base + 8);
+            int noRooms = properties.getInt(base + 12);
+            String city = string(properties.getInt(base + 16));
+            double pricePerDay = properties.getDouble(base + 24);
+            if (properties.get(base + 4) == StateCodec.FULL_PROPERTY) {
+                property = new FullProperty(id, noBedRooms, noRooms, city, properties.getDouble(base + 32), pricePerDay);
+            } else {
+                property = new SharedProperty(id, noBedRooms, noRooms, city, pricePerDay);
+            }
+            if (properties.get(base + 5) != 0) {
+                int hostRecord = find(users, USER_BYTES, userCount, properties.getInt(base + 20));
+                User host = hostRecord < 0 ? null : userObject(hostRecord);
+                if (host instanceof Host) {
+                    property.setHost((Host) host);
+                }
+            }
+            if (rateRuns != null) {
+                applyRates(property, properties.getInt(base + 56), properties.getInt(base + 60));
+            }
+            propertyObjects.put(id, property);
+            return property;
+        }
+
+        private void applyRates(Property property, int firstRun, int runCount) {
+            if (runCount == 0) {
+                return;
+            }
+            int[] fromDays = new int[runCount];
+            int[] toDays = new int[runCount];
+            double[] runRates = new double[runCount];
+            for (int run = 0; run < runCount; run++) {
+                int at = (firstRun + run) * RATE_RUN_BYTES;
+                fromDays[run] = day(rateRuns.getLong(at));
+                toDays[run] = day(rateRuns.getLong(at + 8));
+                runRates[run] = rateRuns.getDouble(at + 16);
+            }
+            property.setRates(fromDays, toDays, runRates);
+        }
+    }
+}
@@ -0,0 +1,463 @@
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Booked nights, occupancy and revenue per city and calendar month, maintained incrementally from
+ * registry, property and booking events so reports read a few array cells instead of scanning every
+ * user, booking and property.
+ *
+ * A booking's nights are split over the months they fall in, so a stay from 30 January to 2 February adds
+ * two nights to January and one to February. Revenue follows {@link Booking#totalCost()}, which uses the
+ * property's current price and seasonal rates: every property remembers how many of its booked and unpaid
+ * nights fall in each month, and the same nights weighted by their rates, so a price or city change moves
+ * exactly its own contribution and a change of rates reweighs only the bookings overlapping it. Occupancy is
+ * booked nights over the nights the city's properties can host (the sum of their booking capacities times
+ * the days of the month), using the properties registered now. A property's bookings are cancelled before
+ * its removal reaches the rollup, so they leave the rollup with it.
+ *
+ * Booking events arrive on several lock stripes at once, so they are handed to an {@link UpdateQueue} with
+ * the nights, payment state and rates they had at the time, and applied one at a time by whichever thread
+ * holds the rollup's lock; a booking never waits for the rollup. Property events and queries take the lock,
+ * which applies the queued bookings first, so a report counts every booking made before it.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class OccupancyRollup implements EntityRegistry.Listener<Property>, PropertyListener, BookingListener {
+    private final StringDictionary cities = new StringDictionary();
+    private final List<CitySeries> series = new ArrayList<>();
+    private final IdentityHashMap<Property, Contribution> contributions = new IdentityHashMap<>();
+    private final UpdateQueue updates = new UpdateQueue();
+
+    // ------------------------------------------------------------------ maintenance
+
+    @Override
+    public void added(Property property) {
+        updates.lock();
+        try {
+            Contribution contribution = new Contribution(city(property.getCity()), property.calculatePricePerDay(),
+                    property.getBookingCapacity());
+            contributions.put(property, contribution);
+            series.get(contribution.city).capacity += contribution.capacity;
+            // A property restored from storage arrives with its bookings already in its calendar
+            PriceCalendar rates = property.getRates();
+            property.getCalendar().forEachOverlapping(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    booking -> book(contribution, rates, booking.getStartDay(), booking.getEndDay(),
+                            !booking.isPaid(), 1));
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    @Override
+    public void removed(Property property) {
+        updates.lock();
+        try {
+            Contribution contribution = contributions.remove(property);
+            if (contribution != null) {
+                series.get(contribution.city).capacity -= contribution.capacity;
+            }
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    @Override
+    public void propertyChanged(Property property) {
+        updates.lock();
+        try {
+            Contribution contribution = contributions.get(property);
+            if (contribution == null) {
+                return;
+            }
+            series.get(contribution.city).capacity -= contribution.capacity;
+            contribution.capacity = property.getBookingCapacity();
+            int city = city(property.getCity());
+            if (city != contribution.city) {
+                move(contribution, city, contribution.price);
+            }
+            series.get(contribution.city).capacity += contribution.capacity;
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    @Override
+    public void priceChanged(Property property, double previousPrice) {
+        updates.lock();
+        try {
+            Contribution contribution = contributions.get(property);
+            if (contribution != null) {
+                move(contribution, contribution.city, property.calculatePricePerDay());
+            }
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    @Override
+    public void ratesChanged(Property property, PriceCalendar previousRates, int fromDay, int toDay) {
+        updates.lock();
+        try {
+            Contribution contribution = contributions.get(property);
+            if (contribution == null) {
+                return;
+            }
+            PriceCalendar rates = property.getRates();
+            CitySeries city = series.get(contribution.city);
+            property.getCalendar().forEachOverlapping(fromDay, toDay, booking -> {
+                boolean unpaid = !booking.isPaid();
+                int start = Math.max(booking.getStartDay(), fromDay);
+                int end = Math.min(booking.getEndDay(), toDay);
+                forEachMonth(start, end, (month, monthStart, monthEnd) -> {
+                    double delta = rates.sum(monthStart, monthEnd) - previousRates.sum(monthStart, monthEnd);
+                    contribution.add(month, 0, delta, unpaid ? delta : 0);
+                    city.add(month, 0, delta, unpaid ? delta : 0, contribution.price);
+                });
+            });
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    @Override
+    public void bookingAdded(Booking booking) {
+        book(booking, 1);
+    }
+
+    @Override
+    public void bookingCancelled(Booking booking) {
+        book(booking, -1);
+    }
+
+    @Override
+    public void paymentChanged(Booking booking) {
+        Property property = booking.getProperty();
+        int startDay = booking.getStartDay();
+        int endDay = booking.getEndDay();
+        // Paid: the nights leave the unpaid counters; unpaid again: they come back
+        int sign = booking.isPaid() ? -1 : 1;
+        PriceCalendar rates = property.getRates();
+        updates.submit(() -> {
+            Contribution contribution = contributions.get(property);
+            if (contribution == null) {
+                return;
+            }
+            CitySeries city = series.get(contribution.city);
+            forEachMonth(startDay, endDay, (month, start, end) -> {
+                double priced = sign * rates.sum(start, end);
+                contribution.add(month, 0, 0, priced);
+                city.add(month, 0, 0, priced, contribution.price);
+            });
+        });
+    }
+
+    private void book(Booking booking, int sign) {
+        Property property = booking.getProperty();
+        int startDay = booking.getStartDay();
+        int endDay = booking.getEndDay();
+        boolean unpaid = !booking.isPaid();
+        PriceCalendar rates = property.getRates();
+        updates.submit(() -> {
+            Contribution contribution = contributions.get(property);
+            if (contribution != null) {
+                book(contribution, rates, startDay, endDay, unpaid, sign);
+            }
+        });
+    }
+
+    private void book(Contribution contribution, PriceCalendar rates, int startDay, int endDay, boolean unpaid,
+                      int sign) {
+        CitySeries city = series.get(contribution.city);
+        forEachMonth(startDay, endDay, (month, start, end) -> {
+            long nights = (long) sign * (end - start);
+            double priced = sign * rates.sum(start, end);
+            contribution.add(month, nights, priced, unpaid ? priced : 0);
+            city.add(month, nights, priced, unpaid ? priced : 0, contribution.price);
+        });
+    }
+
+    /**
+     * Move a property's nights to another city and/or price.
+     */
+    private void move(Contribution contribution, int newCity, double newPrice) {
+        CitySeries from = series.get(contribution.city);
+        CitySeries to = series.get(newCity);
+        for (int i = 0; i < contribution.count; i++) {
+            int month = contribution.months[i];
+            long nights = contribution.nights[i];
+            double priced = contribution.pricedNights[i];
+            double unpaid = contribution.unpaidNights[i];
+            from.add(month, -nights, -priced, -unpaid, contribution.price);
+            to.add(month, nights, priced, unpaid, newPrice);
+        }
+        contribution.city = newCity;
+        contribution.price = newPrice;
+    }
+
+    private int city(String name) {
+        int code = cities.encode(name);
+        if (code == series.size()) {
+            series.add(new CitySeries());
+        }
+        return code;
+    }
+
+    // ------------------------------------------------------------------ queries
+
+    /**
+     * Get the statistics of one city for every month in a range.
+     *
+     * @param city The city name.
+     * @param from The first month.
+     * @param to   The last month, inclusive.
+     * @return One entry per month, oldest first; months without bookings have zero nights.
+     */
+    public List<MonthStats> range(String city, YearMonth from, YearMonth to) {
+        updates.lock();
+        try {
+            List<MonthStats> stats = new ArrayList<>();
+            int code = cities.find(city);
+            for (int month = index(from); month <= index(to); month++) {
+                stats.add(code < 0 ? new MonthStats(city, yearMonth(month), 0, 0, 0, 0)
+                        : series.get(code).stats(city, month));
+            }
+            return stats;
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    /**
+     * Get the statistics of every city, summed over a range of months.
+     *
+     * @param from The first month.
+     * @param to   The last month, inclusive.
+     * @return One entry per city, in the order the cities were first seen.
+     */
+    public List<RangeStats> totals(YearMonth from, YearMonth to) {
+        updates.lock();
+        try {
+            List<RangeStats> totals = new ArrayList<>();
+            for (int code = 0; code < series.size(); code++) {
+                totals.add(series.get(code).total(cities.decode(code), index(from), index(to)));
+            }
+            return totals;
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    /**
+     * Get the statistics of one city, summed over a range of months.
+     *
+     * @param city The city name.
+     * @param from The first month.
+     * @param to   The last month, inclusive.
+     * @return The totals; zero if the city has no properties or bookings.
+     */
+    public RangeStats total(String city, YearMonth from, YearMonth to) {
+        updates.lock();
+        try {
+            int code = cities.find(city);
+            return code < 0 ? new RangeStats(city, from, to, 0, 0, 0, 0)
+                    : series.get(code).total(city, index(from), index(to));
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------ months
+
+    private static int index(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private static int monthOf(int epochDay) {
+        return EpochDay.year(epochDay) * 12 + EpochDay.month(epochDay) - 1;
+    }
+
+    private static int firstDay(int month) {
+        return EpochDay.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1, 1);
+    }
+
+    private static YearMonth yearMonth(int month) {
+        return YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+    }
+
+    /**
+     * Split the nights [startDay, endDay) over the months they fall in.
+     */
+    private static void forEachMonth(int startDay, int endDay, MonthAction action) {
+        int day = startDay;
+        while (day < endDay) {
+            int month = monthOf(day);
+            int next = Math.min(endDay, firstDay(month + 1));
+            action.accept(month, day, next);
+            day = next;
+        }
+    }
+
+    private interface MonthAction {
+        void accept(int month, int startDay, int endDay);
+    }
+
+    /**
+     * Statistics of one city in one month.
+     *
+     * @param city          The city name.
+     * @param month         The month.
+     * @param bookedNights  The nights booked in the month.
+     * @param occupancyRate Booked nights over the nights the city's properties can host in the month.
+     * @param revenue       The total cost of the booked nights.
+     * @param unpaidRevenue The total cost of the booked nights not paid yet.
+     */
+    public record MonthStats(String city, YearMonth month, long bookedNights, double occupancyRate,
+                             double revenue, double unpaidRevenue) {
+    }
+
+    /**
+     * Statistics of one city summed over a range of months.
+     *
+     * @param city          The city name.
+     * @param from          The first month.
+     * @param to            The last month, inclusive.
+     * @param bookedNights  The nights booked in the range.
+     * @param occupancyRate Booked nights over the nights the city's properties can host in the range.
+     * @param revenue       The total cost of the booked nights.
+     * @param unpaidRevenue The total cost of the booked nights not paid yet.
+     */
+    public record RangeStats(String city, YearMonth from, YearMonth to, long bookedNights, double occupancyRate,
+                             double revenue, double unpaidRevenue) {
+    }
+
+    /**
+     * The monthly counters of one city, in arrays indexed by month from the first month seen.
+     */
+    private static final class CitySeries {
+        private int firstMonth;
+        private long[] nights = new long[0];
+        private double[] revenue = new double[0];
+        private double[] unpaidRevenue = new double[0];
+        private int capacity; // bookings the city's properties can host per night
+
+        private void add(int month, long nightsDelta, double pricedDelta, double unpaidDelta, double price) {
+            int slot = slot(month);
+            nights[slot] += nightsDelta;
+            revenue[slot] += pricedDelta * price;
+            unpaidRevenue[slot] += unpaidDelta * price;
+        }
+
+        private int slot(int month) {
+            if (nights.length == 0) {
+                firstMonth = month;
+            }
+            if (month < firstMonth) {
+                // Grow towards the past
+                int shift = Math.max(firstMonth - month, 12);
+                nights = shifted(nights, shift);
+                revenue = shifted(revenue, shift);
+                unpaidRevenue = shifted(unpaidRevenue, shift);
+                firstMonth -= shift;
+            }
+            int slot = month - firstMonth;
+            if (slot >= nights.length) {
+                int length = Math.max(slot + 1, nights.length + 12);
+                nights = Arrays.copyOf(nights, length);
+                revenue = Arrays.copyOf(revenue, length);
+                unpaidRevenue = Arrays.copyOf(unpaidRevenue, length);
+            }
+            return slot;
+        }
+
+        private MonthStats stats(String city, int month) {
+            int slot = month - firstMonth;
+            YearMonth yearMonth = yearMonth(month);
+            if (slot < 0 || slot >= nights.length) {
+                return new MonthStats(city, yearMonth, 0, 0, 0, 0);
+            }
+            return new MonthStats(city, yearMonth, nights[slot],
+                    rate(nights[slot], (long) capacity * yearMonth.lengthOfMonth()), revenue[slot], unpaidRevenue[slot]);
+        }
+
+        private RangeStats total(String city, int from, int to) {
+            long totalNights = 0;
+            double totalRevenue = 0;
+            double totalUnpaid = 0;
+            for (int slot = Math.max(0, from - firstMonth); slot <= Math.min(nights.length - 1, to - firstMonth); slot++) {
+                totalNights += nights[slot];
+                totalRevenue += revenue[slot];
+                totalUnpaid += unpaidRevenue[slot];
+            }
+            long days = to < from ? 0 : firstDay(to + 1) - firstDay(from);
+            return new RangeStats(city, yearMonth(from), yearMonth(to), totalNights,
+                    rate(totalNights, capacity * days), totalRevenue, totalUnpaid);
+        }
+
+        private static double rate(long nights, long available) {
+            return available <= 0 ? 0 : (double) nights / available;
+        }
+
+        private static long[] shifted(long[] values, int shift) {
+            long[] copy = new long[values.length + shift];
+            System.arraycopy(values, 0, copy, shift, values.length);
+            return copy;
+        }
+
+        private static double[] shifted(double[] values, int shift) {
+            double[] copy = new double[values.length + shift];
+            System.arraycopy(values, 0, copy, shift, values.length);
+            return copy;
+        }
+    }
+
+    /**
+     * The nights one property contributes per month, in total and weighted by their seasonal rates, and the
+     * city and price they are counted at. The unpaid nights are weighted too.
+     */
+    private static final class Contribution {
+        private int city;
+        private double price;
+        private int capacity;
+        private int[] months = new int[4];
+        private long[] nights = new long[4];
+        private double[] pricedNights = new double[4];
+        private double[] unpaidNights = new double[4];
+        private int count;
+
+        private Contribution(int city, double price, int capacity) {
+            this.city = city;
+            this.price = price;
+            this.capacity = capacity;
+        }
+
+        private void add(int month, long nightsDelta, double pricedDelta, double unpaidDelta) {
+            // Months are kept sorted; find the month or the position it belongs at
+            int position = Arrays.binarySearch(months, 0, count, month);
+            if (position < 0) {
+                position = -position - 1;
+                if (count == months.length) {
+                    months = Arrays.copyOf(months, count * 2);
+                    nights = Arrays.copyOf(nights, count * 2);
+                    pricedNights = Arrays.copyOf(pricedNights, count * 2);
+                    unpaidNights = Arrays.copyOf(unpaidNights, count * 2);
+                }
+                System.arraycopy(months, position, months, position + 1, count - position);
+                System.arraycopy(nights, position, nights, position + 1, count - position);
+                System.arraycopy(pricedNights, position, pricedNights, position + 1, count - position);
+                System.arraycopy(unpaidNights, position, unpaidNights, position + 1, count - position);
+                months[position] = month;
+                nights[position] = 0;
+                pricedNights[position] = 0;
+                unpaidNights[position] = 0;
+                count++;
+            }
+            nights[position] += nightsDelta;
+            pricedNights[position] += pricedDelta;
+            unpaidNights[position] += unpaidDelta;
+        }
+    }
+}
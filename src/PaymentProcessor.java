@@ -0,0 +1,21 @@
+import java.util.List;
+
+/**
+ * Settles payments for bookings with an external payment provider, a whole group at a time.
+ * Called by {@link PaymentSettlement} with the confirmations of one batch that share a payment method.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public interface PaymentProcessor {
+
+    /**
+     * Settle the payments for a group of bookings paid with the same method.
+     * Each booking is charged {@link Booking#totalCost()}.
+     *
+     * @param paymentMethod The customers' preferred payment method, or null for users without one.
+     * @param bookings      The bookings to settle.
+     * @return For each booking in order, true if its payment was settled; false if it was declined.
+     */
+    boolean[] settle(String paymentMethod, List<Booking> bookings);
+}
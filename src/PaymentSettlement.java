@@ -0,0 +1,252 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settles payment confirmations in batches on background threads and publishes the outcome of each.
+ * A batch of confirmations is queued as a whole; a worker looks each booking up with one search of its
+ * property's calendar, groups the unpaid ones by their customer's preferred payment method, hands every
+ * group to the {@link PaymentProcessor} in one call, and marks the settled bookings as paid through the
+ * booking service, so the host ledger, the rollups and the stored state follow as for any payment.
+ * Each booking is claimed through the booking service before it is handed over, and stays claimed until
+ * it is paid or declined, so the processor sees a booking at most once however many workers and
+ * duplicate confirmations there are, and an expiring reservation hold cannot cancel a booking that is being
+ * charged: it is only released once its payment has failed.
+ *
+ * Both queues are bounded. {@link #submit} blocks while the incoming queue is full, and workers block
+ * while the result queue is full, so a consumer that stops draining results slows the producers down
+ * instead of letting either queue grow without limit. A confirmation fails if its booking does not exist,
+ * is already paid or being settled, is declined by the processor, or is cancelled (for example because its
+ * user is removed) while the payment is being processed. If settling a batch throws, for example because
+ * the processor fails, every confirmation of the batch without a result yet fails and the worker goes on
+ * with the next batch.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PaymentSettlement implements Closeable {
+    private final BASIC basic;
+    private final BookingService bookings;
+    private final PaymentProcessor processor;
+    private final BlockingQueue<List<Confirmation>> incoming;
+    private final BlockingQueue<Result> results;
+    private final ExecutorService workers;
+    private volatile boolean closed;
+
+    private PaymentSettlement(BASIC basic, PaymentProcessor processor, int batchCapacity, int resultCapacity,
+                              int workerCount) {
+        this.basic = basic;
+        this.bookings = basic.getBookingService();
+        this.processor = processor;
+        this.incoming = new ArrayBlockingQueue<>(batchCapacity);
+        this.results = new ArrayBlockingQueue<>(resultCapacity);
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "basic-payment-settlement");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start settling payments for a BASIC instance.
+     * Must be called from the thread that registers users and properties.
+     *
+     * @param basic          The BASIC instance.
+     * @param processor      The payment processor.
+     * @param batchCapacity  The number of batches that may wait to be settled.
+     * @param resultCapacity The number of results that may wait to be taken.
+     * @param workerCount    The number of batches settled at once.
+     * @return The running settlement pipeline.
+     */
+    public static PaymentSettlement start(BASIC basic, PaymentProcessor processor, int batchCapacity,
+                                          int resultCapacity, int workerCount) {
+        PaymentSettlement settlement = new PaymentSettlement(basic, processor, batchCapacity, resultCapacity,
+                workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            settlement.workers.execute(settlement::work);
+        }
+        return settlement;
+    }
+
+    /**
+     * Queue a batch of confirmations, waiting while the incoming queue is full.
+     *
+     * @param batch The confirmations; the list must not be changed afterwards.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws IllegalStateException if the pipeline has been closed.
+     */
+    public void submit(List<Confirmation> batch) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Payment settlement is closed");
+        }
+        incoming.put(batch);
+    }
+
+    /**
+     * Queue a batch of confirmations if there is room, without waiting.
+     *
+     * @param batch The confirmations; the list must not be changed afterwards.
+     * @return true if the batch was queued; false if the incoming queue is full or the pipeline is closed.
+     */
+    public boolean offer(List<Confirmation> batch) {
+        return !closed && incoming.offer(batch);
+    }
+
+    /**
+     * Take the next result, waiting until one is published.
+     *
+     * @return The result.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Result take() throws InterruptedException {
+        return results.take();
+    }
+
+    /**
+     * Take the next result, waiting up to a timeout for one to be published.
+     *
+     * @param timeout The longest time to wait.
+     * @param unit    The unit of the timeout.
+     * @return The result, or null if none was published in time.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Result poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return results.poll(timeout, unit);
+    }
+
+    /**
+     * Take the results published so far, without waiting.
+     *
+     * @param target     The collection the results are added to.
+     * @param maxResults The most results to take.
+     * @return The number of results taken.
+     */
+    public int drainResults(Collection<? super Result> target, int maxResults) {
+        return results.drainTo(target, maxResults);
+    }
+
+    /**
+     * Stop settling. Batches still queued are dropped and their bookings stay unpaid; a batch in progress
+     * may be cut short after some of its payments were applied.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        workers.shutdownNow();
+    }
+
+    // ------------------------------------------------------------------ workers
+
+    private void work() {
+        try {
+            while (!closed) {
+                settle(incoming.take());
+                basic.checkpointInBackground();
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    private void settle(List<Confirmation> batch) throws InterruptedException {
+        boolean[] published = new boolean[batch.size()];
+        List<Booking> claimed = new ArrayList<>();
+        try {
+            Map<String, Group> groups = new HashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Confirmation confirmation = batch.get(i);
+                Booking booking = bookings.claimUnpaid(confirmation.userId(), confirmation.propertyId(),
+                        confirmation.startDay());
+                if (booking == null) {
+                    publish(batch, published, i, false, unclaimedReason(confirmation));
+                } else {
+                    claimed.add(booking);
+                    User user = booking.getUser();
+                    String method = user instanceof Customer ? ((Customer) user).getPreferredPaymentMethod() : null;
+                    groups.computeIfAbsent(method, key -> new Group()).add(i, booking);
+                }
+            }
+            for (Map.Entry<String, Group> entry : groups.entrySet()) {
+                Group group = entry.getValue();
+                boolean[] settled = processor.settle(entry.getKey(), group.bookings);
+                for (int i = 0; i < group.bookings.size(); i++) {
+                    Booking booking = group.bookings.get(i);
+                    int index = group.indexes.get(i);
+                    if (!settled[i]) {
+                        publish(batch, published, index, false, "Payment was declined.");
+                    } else if (bookings.setPaid(booking, true)) {
+                        publish(batch, published, index, true, null);
+                    } else {
+                        publish(batch, published, index, false, booking.isPaid()
+                                ? "Booking is already paid." : "Booking was cancelled during settlement.");
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // For example a processor that throws; the rest of the batch fails and the worker carries on
+            for (int i = 0; i < batch.size(); i++) {
+                if (!published[i]) {
+                    publish(batch, published, i, false, "Settlement failed: " + e.getMessage());
+                }
+            }
+        } finally {
+            for (Booking booking : claimed) {
+                bookings.unclaim(booking);
+            }
+        }
+    }
+
+    private String unclaimedReason(Confirmation confirmation) {
+        Booking booking = bookings.findBooking(confirmation.userId(), confirmation.propertyId(),
+                confirmation.startDay());
+        if (booking == null) {
+            return "Booking not found.";
+        }
+        return booking.isPaid() ? "Booking is already paid." : "Booking is already being settled.";
+    }
+
+    private void publish(List<Confirmation> batch, boolean[] published, int index, boolean settled, String reason)
+            throws InterruptedException {
+        results.put(new Result(batch.get(index), settled, reason));
+        published[index] = true;
+    }
+
+    private static final class Group {
+        private final List<Integer> indexes = new ArrayList<>();
+        private final List<Booking> bookings = new ArrayList<>();
+
+        private void add(int index, Booking booking) {
+            indexes.add(index);
+            bookings.add(booking);
+        }
+    }
+
+    /**
+     * A confirmation that a booking has been paid, identifying the booking by its user, property and
+     * first night.
+     *
+     * @param userId     The unique ID of the user who made the booking.
+     * @param propertyId The unique ID of the booked property.
+     * @param startDay   The first night of the booking (epoch day).
+     */
+    public record Confirmation(int userId, int propertyId, int startDay) {
+    }
+
+    /**
+     * The outcome of settling a confirmation.
+     *
+     * @param confirmation The confirmation.
+     * @param settled      true if the booking is now paid; otherwise, false.
+     * @param reason       Why the confirmation failed, or null if it was settled.
+     */
+    public record Result(Confirmation confirmation, boolean settled, String reason) {
+    }
+}
@@ -1,19 +1,15 @@
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.HashMap;
 
 public class PopulateData {
 
     public static void populate(BASIC basicApp) {
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-
         // Create users
         try {
-            Date registrationDate = sdf.parse("01/01/2010"); // A fixed registration date for example
+            int registrationDate = EpochDay.parse("01/01/2010"); // A fixed registration date for example
 
-            GoldCustomer user1 = new GoldCustomer(1, sdf.parse("15/06/1985"), "John", "Doe", registrationDate, "Credit Card", 2);
-            StandardCustomer user2 = new StandardCustomer(2, sdf.parse("22/09/1990"), "Jane", "Smith", registrationDate, "PayPal");
-            Host user3 = new Host(3, sdf.parse("30/12/1975"), "Bob", "Brown", registrationDate, 123456789);
+            GoldCustomer user1 = new GoldCustomer(1, EpochDay.parse("15/06/1985"), "John", "Doe", registrationDate, "Credit Card", 2);
+            StandardCustomer user2 = new StandardCustomer(2, EpochDay.parse("22/09/1990"), "Jane", "Smith", registrationDate, "PayPal");
+            Host user3 = new Host(3, EpochDay.parse("30/12/1975"), "Bob", "Brown", registrationDate, 123456789);
 
             // Add users to the BASIC application
             basicApp.users.add(user1);
@@ -31,17 +27,17 @@ public class PopulateData {
             basicApp.properties.add(property3);
 
             // Create bookings
-            Date startDate = sdf.parse("10/10/2023");
-            Date endDate = sdf.parse("20/10/2023");
+            int startDate = EpochDay.parse("10/10/2023");
+            int endDate = EpochDay.parse("20/10/2023");
 
             Booking booking1 = new Booking(user1, property1, startDate, endDate, true);
             Booking booking2 = new Booking(user2, property2, startDate, endDate, true);
             Booking booking3 = new Booking(user3, property3, startDate, endDate, true);
 
-            // Add bookings to users
-            user1.addBooking(booking1);
-            user2.addBooking(booking2);
-            user3.addBooking(booking3);
+            // Add bookings to property calendars and users
+            basicApp.addBooking(booking1);
+            basicApp.addBooking(booking2);
+            basicApp.addBooking(booking3);
         } catch (Exception e) {
             e.printStackTrace(); // Handle the exception properly in production code
         }
@@ -0,0 +1,284 @@
+import java.util.Arrays;
+
+/**
+ * The seasonal rates of a property: a factor per night that scales the property's price per day, for
+ * example 1.25 on weekends, 1.5 in high season or 3 on the night of an event. Nights without a rate of
+ * their own have the rate 1, so a property without seasons costs its price per day every night.
+ *
+ * Rates are kept in chunks of {@value #CHUNK} days, each with the prefix sums of its rates, plus the
+ * running total at the start of every chunk, so the sum of the rates over any stay, and hence its cost, is
+ * a couple of array reads however long the stay is. Calendars are immutable: changing the rates of a range
+ * returns a new calendar that rebuilds only the chunks the range touches and the chunk totals, and shares
+ * every other chunk with the old one. A calendar can therefore be read on any thread while a new one
+ * replaces it, and the old one still prices stays as they were before the change.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public final class PriceCalendar {
+    /**
+     * The calendar without seasonal rates: every night has the rate 1.
+     */
+    public static final PriceCalendar FLAT = new PriceCalendar(0, new double[0][], new double[0][], new double[1]);
+
+    private static final int CHUNK_BITS = 7;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK - 1;
+
+    private final int firstChunk;
+    // Per chunk: the rates, and their prefix sums (CHUNK + 1 entries); null for a chunk of rate 1 throughout
+    private final double[][] rates;
+    private final double[][] prefixes;
+    // The sum of the rates from the first chunk up to the start of each chunk, and up to the end
+    private final double[] chunkStarts;
+
+    private PriceCalendar(int firstChunk, double[][] rates, double[][] prefixes, double[] chunkStarts) {
+        this.firstChunk = firstChunk;
+        this.rates = rates;
+        this.prefixes = prefixes;
+        this.chunkStarts = chunkStarts;
+    }
+
+    /**
+     * Get the rate of a night.
+     *
+     * @param day The night (epoch day).
+     * @return The factor the price per day is multiplied by on that night.
+     */
+    public double rate(int day) {
+        int chunk = (day >> CHUNK_BITS) - firstChunk;
+        if (chunk < 0 || chunk >= rates.length || rates[chunk] == null) {
+            return 1;
+        }
+        return rates[chunk][day & CHUNK_MASK];
+    }
+
+    /**
+     * Sum the rates over the nights of a stay: the stay's cost in multiples of the price per day.
+     * Without seasonal rates this is the number of nights.
+     *
+     * @param startDay The first night of the stay (epoch day).
+     * @param endDay   The checkout day (epoch day, exclusive).
+     * @return The sum of the rates of the nights [startDay, endDay), or 0 for an empty stay.
+     */
+    public double sum(int startDay, int endDay) {
+        if (startDay >= endDay) {
+            return 0;
+        }
+        if (rates.length == 0) {
+            return endDay - startDay;
+        }
+        return cumulative(endDay) - cumulative(startDay);
+    }
+
+    /**
+     * Check whether every night has the rate 1.
+     *
+     * @return true if the calendar has no seasonal rates; otherwise, false.
+     */
+    public boolean isFlat() {
+        for (double[] chunk : rates) {
+            if (chunk != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get a calendar with new rates for a range of nights, and the rates of this calendar elsewhere.
+     * Only the chunks the range touches are rebuilt.
+     *
+     * @param fromDay  The first night of the range (epoch day).
+     * @param newRates The rate of each night of the range, in order.
+     * @return The new calendar.
+     * @throws IllegalArgumentException if a rate is negative or not finite.
+     */
+    public PriceCalendar withRates(int fromDay, double[] newRates) {
+        if (newRates.length == 0) {
+            return this;
+        }
+        for (double rate : newRates) {
+            if (!(rate >= 0) || Double.isInfinite(rate)) {
+                throw new IllegalArgumentException("Rates must be finite and not negative: " + rate);
+            }
+        }
+        int toDay = fromDay + newRates.length;
+        int lowChunk = fromDay >> CHUNK_BITS;
+        int highChunk = (toDay - 1) >> CHUNK_BITS;
+        int first = rates.length == 0 ? lowChunk : Math.min(firstChunk, lowChunk);
+        int last = rates.length == 0 ? highChunk : Math.max(firstChunk + rates.length - 1, highChunk);
+
+        // Untouched chunks are shared with this calendar
+        double[][] chunkRates = new double[last - first + 1][];
+        double[][] chunkPrefixes = new double[chunkRates.length][];
+        if (rates.length > 0) {
+            System.arraycopy(rates, 0, chunkRates, firstChunk - first, rates.length);
+            System.arraycopy(prefixes, 0, chunkPrefixes, firstChunk - first, prefixes.length);
+        }
+        for (int chunk = lowChunk; chunk <= highChunk; chunk++) {
+            int index = chunk - first;
+            double[] values = chunkRates[index] == null ? flatChunk() : chunkRates[index].clone();
+            int chunkFirstDay = chunk << CHUNK_BITS;
+            int from = Math.max(fromDay, chunkFirstDay);
+            int to = Math.min(toDay, chunkFirstDay + CHUNK);
+            System.arraycopy(newRates, from - fromDay, values, from - chunkFirstDay, to - from);
+            seal(chunkRates, chunkPrefixes, index, values);
+        }
+        return rebuilt(first, chunkRates, chunkPrefixes, lowChunk);
+    }
+
+    /**
+     * Get a calendar with new rates for runs of nights, and the rates of this calendar elsewhere, including
+     * the nights between the runs. Only the chunks the runs touch are rebuilt, and the nights between runs
+     * are never filled in, however far apart the runs are.
+     *
+     * @param fromDays The first night of each run (epoch day).
+     * @param toDays   The end of each run (epoch day, exclusive).
+     * @param runRates The rate of every night of each run; a later run overrides an earlier one it overlaps.
+     * @return The new calendar.
+     * @throws IllegalArgumentException if the arrays differ in length or a rate is negative or not finite.
+     */
+    public PriceCalendar withRuns(int[] fromDays, int[] toDays, double[] runRates) {
+        if (fromDays.length != toDays.length || fromDays.length != runRates.length) {
+            throw new IllegalArgumentException("Every run needs a first night, an end and a rate");
+        }
+        int lowChunk = Integer.MAX_VALUE;
+        int highChunk = Integer.MIN_VALUE;
+        for (int run = 0; run < runRates.length; run++) {
+            if (!(runRates[run] >= 0) || Double.isInfinite(runRates[run])) {
+                throw new IllegalArgumentException("Rates must be finite and not negative: " + runRates[run]);
+            }
+            if (fromDays[run] < toDays[run]) {
+                lowChunk = Math.min(lowChunk, fromDays[run] >> CHUNK_BITS);
+                highChunk = Math.max(highChunk, (toDays[run] - 1) >> CHUNK_BITS);
+            }
+        }
+        if (lowChunk > highChunk) {
+            return this;
+        }
+        int first = rates.length == 0 ? lowChunk : Math.min(firstChunk, lowChunk);
+        int last = rates.length == 0 ? highChunk : Math.max(firstChunk + rates.length - 1, highChunk);
+
+        double[][] chunkRates = new double[last - first + 1][];
+        double[][] chunkPrefixes = new double[chunkRates.length][];
+        if (rates.length > 0) {
+            System.arraycopy(rates, 0, chunkRates, firstChunk - first, rates.length);
+            System.arraycopy(prefixes, 0, chunkPrefixes, firstChunk - first, prefixes.length);
+        }
+        // A touched chunk is copied once and filled by every run that covers it; the others stay shared
+        double[][] touched = new double[chunkRates.length][];
+        for (int run = 0; run < runRates.length; run++) {
+            for (int day = fromDays[run]; day < toDays[run]; day = (day | CHUNK_MASK) + 1) {
+                int index = (day >> CHUNK_BITS) - first;
+                if (touched[index] == null) {
+                    touched[index] = chunkRates[index] == null ? flatChunk() : chunkRates[index].clone();
+                }
+                int to = Math.min(toDays[run], (day | CHUNK_MASK) + 1);
+                Arrays.fill(touched[index], day & CHUNK_MASK, to - (day & ~CHUNK_MASK), runRates[run]);
+            }
+        }
+        for (int index = lowChunk - first; index <= highChunk - first; index++) {
+            if (touched[index] != null) {
+                seal(chunkRates, chunkPrefixes, index, touched[index]);
+            }
+        }
+        return rebuilt(first, chunkRates, chunkPrefixes, lowChunk);
+    }
+
+    /**
+     * Visit the runs of consecutive nights that share a rate other than 1, in day order.
+     *
+     * @param action Receives the first night, the end (exclusive) and the rate of each run.
+     */
+    public void forEachRun(RunAction action) {
+        int runStart = 0;
+        double runRate = 1;
+        for (int index = 0; index < rates.length; index++) {
+            int chunkFirstDay = (firstChunk + index) << CHUNK_BITS;
+            for (int offset = 0; offset < CHUNK; offset++) {
+                double rate = rates[index] == null ? 1 : rates[index][offset];
+                if (Double.compare(rate, runRate) != 0) {
+                    if (Double.compare(runRate, 1) != 0) {
+                        action.accept(runStart, chunkFirstDay + offset, runRate);
+                    }
+                    runStart = chunkFirstDay + offset;
+                    runRate = rate;
+                }
+            }
+        }
+        if (Double.compare(runRate, 1) != 0) {
+            action.accept(runStart, (firstChunk + rates.length) << CHUNK_BITS, runRate);
+        }
+    }
+
+    // Store a rebuilt chunk with its prefix sums, or as null if it has the rate 1 throughout
+    private static void seal(double[][] chunkRates, double[][] chunkPrefixes, int index, double[] values) {
+        if (isFlat(values)) {
+            chunkRates[index] = null;
+            chunkPrefixes[index] = null;
+        } else {
+            double[] prefix = new double[CHUNK + 1];
+            for (int i = 0; i < CHUNK; i++) {
+                prefix[i + 1] = prefix[i] + values[i];
+            }
+            chunkRates[index] = values;
+            chunkPrefixes[index] = prefix;
+        }
+    }
+
+    // The chunk totals up to the first rebuilt chunk are unchanged unless the calendar grew backwards
+    private PriceCalendar rebuilt(int first, double[][] chunkRates, double[][] chunkPrefixes, int lowChunk) {
+        double[] starts = new double[chunkRates.length + 1];
+        int rebuildFrom = 0;
+        if (first == firstChunk && rates.length > 0) {
+            rebuildFrom = Math.min(lowChunk - first, rates.length);
+            System.arraycopy(chunkStarts, 0, starts, 0, rebuildFrom + 1);
+        }
+        for (int index = rebuildFrom; index < chunkRates.length; index++) {
+            starts[index + 1] = starts[index] + (chunkPrefixes[index] == null ? CHUNK : chunkPrefixes[index][CHUNK]);
+        }
+        return new PriceCalendar(first, chunkRates, chunkPrefixes, starts);
+    }
+
+    private double cumulative(int day) {
+        int chunk = (day >> CHUNK_BITS) - firstChunk;
+        if (chunk < 0) {
+            return day - (firstChunk << CHUNK_BITS);
+        }
+        if (chunk >= rates.length) {
+            return chunkStarts[rates.length] + (day - ((firstChunk + rates.length) << CHUNK_BITS));
+        }
+        double[] prefix = prefixes[chunk];
+        return chunkStarts[chunk] + (prefix == null ? day & CHUNK_MASK : prefix[day & CHUNK_MASK]);
+    }
+
+    private static double[] flatChunk() {
+        double[] values = new double[CHUNK];
+        Arrays.fill(values, 1);
+        return values;
+    }
+
+    private static boolean isFlat(double[] values) {
+        for (double value : values) {
+            if (value != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Receives a run of nights that share a rate.
+     */
+    public interface RunAction {
+        /**
+         * Called for each run.
+         *
+         * @param fromDay The first night of the run (epoch day).
+         * @param toDay   The end of the run (epoch day, exclusive).
+         * @param rate    The rate of every night of the run.
+         */
+        void accept(int fromDay, int toDay, double rate);
+    }
+}
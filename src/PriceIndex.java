@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps the registered properties ordered by calculated price per day, then property ID, so the cheapest
+ * listings, a price range or the cheapest properties of a city are read in O(log n + k) instead of sorting
+ * every property per request.
+ *
+ * The index follows the property registry and property change notifications. It is built on concurrent
+ * skip lists, so queries may run on other threads while properties are added, removed or repriced.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PriceIndex implements EntityRegistry.Listener<Property>, PropertyListener {
+    private final ConcurrentSkipListMap<PriceKey, Property> byPrice = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<PriceKey, Property>> byCity = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Indexed> indexed = new ConcurrentHashMap<>();
+
+    @Override
+    public void added(Property property) {
+        insert(property);
+    }
+
+    @Override
+    public void removed(Property property) {
+        Indexed entry = indexed.remove(property.getPropertyId());
+        if (entry != null) {
+            delete(entry);
+        }
+    }
+
+    /**
+     * Re-key a property whose price per day changed.
+     *
+     * @param property      The repriced property.
+     * @param previousPrice The price per day before the change.
+     */
+    @Override
+    public void priceChanged(Property property, double previousPrice) {
+        reindex(property);
+    }
+
+    /**
+     * Move a property to its new city's list if its city changed.
+     *
+     * @param property The changed property.
+     */
+    @Override
+    public void propertyChanged(Property property) {
+        Indexed entry = indexed.get(property.getPropertyId());
+        if (entry != null && !entry.city().equals(cityKey(property.getCity()))) {
+            reindex(property);
+        }
+    }
+
+    private void reindex(Property property) {
+        Indexed entry = indexed.get(property.getPropertyId());
+        if (entry != null) {
+            delete(entry);
+            insert(property);
+        }
+    }
+
+    private void insert(Property property) {
+        PriceKey key = new PriceKey(property.calculatePricePerDay(), property.getPropertyId());
+        String city = cityKey(property.getCity());
+        byPrice.put(key, property);
+        byCity.computeIfAbsent(city, c -> new ConcurrentSkipListMap<>()).put(key, property);
+        indexed.put(property.getPropertyId(), new Indexed(key, city));
+    }
+
+    private void delete(Indexed entry) {
+        byPrice.remove(entry.key());
+        ConcurrentSkipListMap<PriceKey, Property> city = byCity.get(entry.city());
+        if (city != null) {
+            city.remove(entry.key());
+        }
+    }
+
+    /**
+     * Get the number of indexed properties.
+     *
+     * @return The number of properties.
+     */
+    public int size() {
+        return indexed.size();
+    }
+
+    /**
+     * Find the cheapest properties.
+     *
+     * @param k The maximum number of properties to return.
+     * @return Up to k properties, cheapest first; ties are ordered by property ID.
+     */
+    public List<Property> cheapest(int k) {
+        return take(byPrice, k);
+    }
+
+    /**
+     * Find the cheapest properties in a city.
+     *
+     * @param city The city (case-insensitive).
+     * @param k    The maximum number of properties to return.
+     * @return Up to k properties in the city, cheapest first.
+     */
+    public List<Property> cheapestInCity(String city, int k) {
+        ConcurrentSkipListMap<PriceKey, Property> properties = byCity.get(cityKey(city));
+        if (properties == null) {
+            return Collections.emptyList();
+        }
+        return take(properties, k);
+    }
+
+    /**
+     * Find the properties whose calculated price per day lies in a range.
+     *
+     * @param minPrice The lowest price per day (inclusive).
+     * @param maxPrice The highest price per day (inclusive).
+     * @param limit    The maximum number of properties to return.
+     * @return Up to limit properties in the range, cheapest first.
+     */
+    public List<Property> inPriceRange(double minPrice, double maxPrice, int limit) {
+        if (minPrice > maxPrice) {
+            return Collections.emptyList();
+        }
+        ConcurrentNavigableMap<PriceKey, Property> range = byPrice.subMap(
+                new PriceKey(minPrice, Integer.MIN_VALUE), true, new PriceKey(maxPrice, Integer.MAX_VALUE), true);
+        return take(range, limit);
+    }
+
+    private static List<Property> take(ConcurrentNavigableMap<PriceKey, Property> properties, int k) {
+        List<Property> result = new ArrayList<>(Math.min(Math.max(k, 0), 1024));
+        for (Property property : properties.values()) {
+            if (result.size() >= k) {
+                break;
+            }
+            result.add(property);
+        }
+        return result;
+    }
+
+    private static String cityKey(String city) {
+        return city == null ? "" : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The sort key of a property: its calculated price per day, then its ID.
+     */
+    private record PriceKey(double price, int propertyId) implements Comparable<PriceKey> {
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Double.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Integer.compare(propertyId, other.propertyId);
+        }
+    }
+
+    /**
+     * Where a property is currently indexed, so it can be found again after its attributes changed.
+     */
+    private record Indexed(PriceKey key, String city) {
+    }
+}
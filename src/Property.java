@@ -1,6 +1,3 @@
-import java.util.Date;
-import java.util.HashMap;
-
 /**
  * This abstract class represents a property in the property management system.
  *
@@ -13,7 +10,16 @@ public abstract class Property implements PropertyPrice, Comparable<Property> {
     private int noRooms;
     private String city;
     private double pricePerDay;
-    private HashMap<Date, String> inspection;
+    private Host host;
+    private final InspectionLog inspections = new InspectionLog();
+    private final BookingCalendar calendar = new BookingCalendar();
+    private PriceCalendar rates = PriceCalendar.FLAT;
+    private PropertyListener listener;
+    // Set while the property is registered, so a payment made on one of its bookings reaches the listeners
+    private volatile BookingService bookingService;
+    // NaN until computed, and again after a pricing input changes; volatile so a thread pricing a stay sees
+    // the NaN a setter on another thread wrote after changing the input
+    private volatile double effectivePricePerDay = Double.NaN;
 
     /**
      * Constructs a property with basic information and a host.
@@ -31,7 +37,7 @@ public abstract class Property implements PropertyPrice, Comparable<Property> {
         this.noRooms = noRooms;
         this.city = city;
         this.pricePerDay = pricePerDay;
-        this.inspection = new HashMap<>();
+        this.host = host;
     }
 
     /**
@@ -47,7 +53,6 @@ public abstract class Property implements PropertyPrice, Comparable<Property> {
         this.noBedRooms = noBedRooms;
         this.noRooms = noRooms;
         this.city = city;
-        this.inspection = new HashMap<>();
     }
 
     public Property(int propertyId, int noBedRooms, int noRooms, String city, double pricePerDay) {
@@ -84,11 +89,19 @@ public abstract class Property implements PropertyPrice, Comparable<Property> {
 
     /**
      * Set the number of bedrooms in the property.
+     * If this changes the booking capacity, the calendar's full nights are recomputed for the new capacity;
+     * while the property can be booked concurrently, change it through {@link BookingService#setBedRooms}.
      *
      * @param noBedRooms The number of bedrooms to set.
      */
     public void setNoBedRooms(int noBedRooms) {
+        double previousPrice = calculatePricePerDay();
+        int previousCapacity = getBookingCapacity();
         this.noBedRooms = noBedRooms;
+        if (getBookingCapacity() != previousCapacity) {
+            calendar.recomputeFullNights(getBookingCapacity());
+        }
+        firePriceChanged(previousPrice);
     }
 
     /**
@@ -107,6 +120,7 @@ public abstract class Property implements PropertyPrice, Comparable<Property> {
      */
     public void setNoRooms(int noRooms) {
         this.noRooms = noRooms;
+        fireChanged();
     }
 
     /**
@@ -125,6 +139,7 @@ public abstract class Property implements PropertyPrice, Comparable<Property> {
      */
     public void setCity(String city) {
         this.city = city;
+        fireChanged();
     }
 
     /**
@@ -142,34 +157,218 @@ public abstract class Property implements PropertyPrice, Comparable<Property> {
      * @param pricePerDay The price per day to set.
      */
     public void setPricePerDay(double pricePerDay) {
+        double previousPrice = calculatePricePerDay();
         this.pricePerDay = pricePerDay;
+        firePriceChanged(previousPrice);
+    }
+
+    /**
+     * Get the seasonal rates of the property.
+     *
+     * @return The rate calendar; {@link PriceCalendar#FLAT} if the property has no seasonal rates.
+     */
+    public PriceCalendar getRates() {
+        return rates;
+    }
+
+    /**
+     * Set the seasonal rates of a range of nights. Nights outside the range keep their rates.
+     *
+     * @param fromDay  The first night of the range (epoch day).
+     * @param newRates The rate of each night of the range, in order; 1 charges the price per day.
+     */
+    public void setRates(int fromDay, double[] newRates) {
+        PriceCalendar previousRates = rates;
+        rates = previousRates.withRates(fromDay, newRates);
+        if (listener != null && newRates.length > 0) {
+            listener.ratesChanged(this, previousRates, fromDay, fromDay + newRates.length);
+        }
+    }
+
+    /**
+     * Set the seasonal rates of runs of nights. Nights outside the runs, including those between them, keep
+     * their rates.
+     *
+     * @param fromDays The first night of each run (epoch day).
+     * @param toDays   The end of each run (epoch day, exclusive).
+     * @param runRates The rate of every night of each run; 1 charges the price per day.
+     */
+    public void setRates(int[] fromDays, int[] toDays, double[] runRates) {
+        PriceCalendar previousRates = rates;
+        rates = previousRates.withRuns(fromDays, toDays, runRates);
+        if (listener != null && rates != previousRates) {
+            int fromDay = Integer.MAX_VALUE;
+            int toDay = Integer.MIN_VALUE;
+            for (int run = 0; run < fromDays.length; run++) {
+                fromDay = Math.min(fromDay, fromDays[run]);
+                toDay = Math.max(toDay, toDays[run]);
+            }
+            listener.ratesChanged(this, previousRates, fromDay, toDay);
+        }
+    }
+
+    /**
+     * Calculate the cost of a stay: the price per day, with the per-bedroom split or size-based tax of the
+     * subclass, times the sum of the seasonal rates of the nights.
+     *
+     * @param startDay The first night of the stay (epoch day).
+     * @param endDay   The checkout day (epoch day, exclusive).
+     * @return The cost of the stay.
+     */
+    public double calculateStayCost(int startDay, int endDay) {
+        return calculatePricePerDay() * rates.sum(startDay, endDay);
+    }
+
+    /**
+     * Get the host who owns the property.
+     *
+     * @return The host, or null if the property has no host.
+     */
+    public Host getHost() {
+        return host;
+    }
+
+    /**
+     * Set the host who owns the property, and notify the listener, if any, when the owner changed.
+     * The host ledger then moves the property and its revenue to the new host's account; while the property
+     * can be booked concurrently, change it through {@link BookingService#setHost}.
+     *
+     * @param host The host, or null for no host.
+     */
+    public void setHost(Host host) {
+        Host previousHost = this.host;
+        this.host = host;
+        if (listener != null && host != previousHost) {
+            listener.hostChanged(this, previousHost);
+        }
+    }
+
+    /**
+     * Get the inspection history of the property.
+     *
+     * @return The time-ordered inspection log.
+     */
+    public InspectionLog getInspections() {
+        return inspections;
+    }
+
+    /**
+     * Record an inspection report for the property.
+     * Earlier reports, including ones from the same day, are kept.
+     *
+     * @param day    The inspection date as an epoch day.
+     * @param report The inspection report.
+     */
+    public void addInspection(int day, String report) {
+        inspections.append(day, report);
+        if (listener != null) {
+            listener.inspectionAdded(this, day);
+        }
+    }
+
+    /**
+     * Format the inspection records with dates as dd/MM/yyyy, oldest first.
+     *
+     * @return The inspection records, for example {01/02/2024=Clean}.
+     */
+    protected String inspectionsToString() {
+        return inspections.toString();
+    }
+
+    /**
+     * Set the listener notified when the attributes of the property change.
+     *
+     * @param listener The listener, or null to stop notifications.
+     */
+    public void setListener(PropertyListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Get the booking service the property's bookings are made through.
+     *
+     * @return The booking service, or null if the property is not registered with one.
+     */
+    public BookingService getBookingService() {
+        return bookingService;
+    }
+
+    /**
+     * Set the booking service the property's bookings are made through.
+     *
+     * @param bookingService The booking service, or null when the property leaves it.
+     */
+    public void setBookingService(BookingService bookingService) {
+        this.bookingService = bookingService;
+    }
+
+    /**
+     * Notify the listener, if any, that an attribute of the property has changed.
+     */
+    protected void fireChanged() {
+        if (listener != null) {
+            listener.propertyChanged(this);
+        }
     }
 
     /**
-     * Get the inspection records for the property.
+     * Discard the cached price per day after one of its inputs changed, then notify the listener, if any,
+     * of the price change (when the price actually moved) and of the attribute change.
      *
-     * @return A HashMap containing inspection records with dates as keys and descriptions as values.
+     * @param previousPrice The price per day before the change.
      */
-    public HashMap<Date, String> getInspection() {
-        return inspection;
+    protected void firePriceChanged(double previousPrice) {
+        effectivePricePerDay = Double.NaN;
+        if (listener != null) {
+            if (Double.compare(previousPrice, calculatePricePerDay()) != 0) {
+                listener.priceChanged(this, previousPrice);
+            }
+            listener.propertyChanged(this);
+        }
     }
 
     /**
-     * Set the inspection records for the property.
+     * Get the booking calendar of the property.
      *
-     * @param inspection A HashMap containing inspection records with dates as keys and descriptions as values.
+     * @return The calendar holding every booking made for this property.
      */
-    public void setInspection(HashMap<Date, String> inspection) {
-        this.inspection = inspection;
+    public BookingCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * Get the number of bookings the property can host on the same night.
+     * A property is let as a whole unless a subclass says otherwise.
+     *
+     * @return The booking capacity per night.
+     */
+    public int getBookingCapacity() {
+        return 1;
     }
 
     /**
      * Implement the calculatePricePerDay method from the PropertyPrice interface.
+     * The price is computed once and cached until the base price, the number of bedrooms or another
+     * pricing input of the subclass changes.
      *
      * @return The calculated price per day.
      */
     @Override
-    public abstract double calculatePricePerDay();
+    public final double calculatePricePerDay() {
+        double price = effectivePricePerDay;
+        if (Double.isNaN(price)) {
+            price = computePricePerDay();
+            effectivePricePerDay = price;
+        }
+        return price;
+    }
+
+    /**
+     * Compute the price per day from the current attributes, bypassing the cache.
+     *
+     * @return The calculated price per day.
+     */
+    protected abstract double computePricePerDay();
 
     /**
      * Abstract compareTo method as per Comparable interface.
@@ -0,0 +1,68 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fans out property change notifications to every interested index.
+ * Registered on the property registry, it attaches itself to each property as it is added and detaches
+ * when the property is removed, so indexes only subscribe once instead of once per property.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PropertyEvents implements EntityRegistry.Listener<Property>, PropertyListener {
+    private final List<PropertyListener> listeners = new ArrayList<>();
+
+    /**
+     * Subscribe to changes of every registered property.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener(PropertyListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void added(Property property) {
+        property.setListener(this);
+    }
+
+    @Override
+    public void removed(Property property) {
+        property.setListener(null);
+    }
+
+    @Override
+    public void propertyChanged(Property property) {
+        for (PropertyListener listener : listeners) {
+            listener.propertyChanged(property);
+        }
+    }
+
+    @Override
+    public void priceChanged(Property property, double previousPrice) {
+        for (PropertyListener listener : listeners) {
+            listener.priceChanged(property, previousPrice);
+        }
+    }
+
+    @Override
+    public void ratesChanged(Property property, PriceCalendar previousRates, int fromDay, int toDay) {
+        for (PropertyListener listener : listeners) {
+            listener.ratesChanged(property, previousRates, fromDay, toDay);
+        }
+    }
+
+    @Override
+    public void hostChanged(Property property, Host previousHost) {
+        for (PropertyListener listener : listeners) {
+            listener.hostChanged(property, previousHost);
+        }
+    }
+
+    @Override
+    public void inspectionAdded(Property property, int day) {
+        for (PropertyListener listener : listeners) {
+            listener.inspectionAdded(property, day);
+        }
+    }
+}
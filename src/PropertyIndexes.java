@@ -0,0 +1,365 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bitmap secondary indexes over the rows of a {@link PropertyStore}, and the planner that answers a
+ * {@link PropertyQuery} with them.
+ *
+ * Each indexed attribute maps every key to a bitmap of the rows holding it, plus a count of those rows:
+ * city (dictionary code), type tag, bedrooms, rooms, size band (full properties only) and band of the
+ * calculated price per day. Bedroom and room counts above {@value #MAX_KEY}, sizes and prices share keys
+ * by band, so a range predicate becomes the union of the bitmaps of the keys it covers, and the planner
+ * checks the exact bounds on the store's columns afterwards.
+ *
+ * The planner orders the query's predicates by the number of rows their keys cover, starts from the most
+ * selective bitmap and intersects the next ones until few candidates are left; only the candidate rows are
+ * then checked against the full query. The store keeps the indexes current: it calls {@link #update} after
+ * writing a row and {@link #remove} before freeing one.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PropertyIndexes {
+    /**
+     * The highest key of the bedroom, room, size and price indexes; larger values share it.
+     */
+    public static final int MAX_KEY = 63;
+    /**
+     * The width of a size band in square meters.
+     */
+    public static final double SIZE_BAND = 25;
+    /**
+     * The width of a price band per day.
+     */
+    public static final double PRICE_BAND = 10;
+
+    /**
+     * Below this many candidates, checking the remaining predicates on the columns is cheaper than
+     * intersecting another bitmap.
+     */
+    private static final int INTERSECT_THRESHOLD = 64;
+
+    private final PropertyStore store;
+    private final Index city = new Index();
+    private final Index type = new Index();
+    private final Index bedRooms = new Index();
+    private final Index rooms = new Index();
+    private final Index size = new Index();
+    private final Index price = new Index();
+
+    /**
+     * Constructs empty indexes over a store.
+     *
+     * @param store The store whose rows are indexed.
+     */
+    public PropertyIndexes(PropertyStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Index the current contents of a row.
+     *
+     * @param row The row that was just written.
+     */
+    public void update(int row) {
+        byte rowType = store.type(row);
+        city.put(row, store.cityId(row));
+        type.put(row, rowType);
+        bedRooms.put(row, clamp(store.noBedRooms(row)));
+        rooms.put(row, clamp(store.noRooms(row)));
+        size.put(row, rowType == PropertyStore.FULL ? band(store.size(row), SIZE_BAND) : -1);
+        price.put(row, band(store.effectivePricePerDay(row), PRICE_BAND));
+    }
+
+    /**
+     * Drop a row from every index.
+     *
+     * @param row The row about to be freed.
+     */
+    public void remove(int row) {
+        city.put(row, -1);
+        type.put(row, -1);
+        bedRooms.put(row, -1);
+        rooms.put(row, -1);
+        size.put(row, -1);
+        price.put(row, -1);
+    }
+
+    /**
+     * Find the rows matching a query.
+     *
+     * @param query The query.
+     * @return The matching rows in ascending row order.
+     */
+    public int[] rows(PropertyQuery query) {
+        return execute(query, null);
+    }
+
+    /**
+     * Describe how a query would be answered: the bitmaps used, in order, with the number of rows each
+     * covers, and the number of candidates checked against the full query.
+     *
+     * @param query The query.
+     * @return The plan, one step per line.
+     */
+    public String explain(PropertyQuery query) {
+        List<String> steps = new ArrayList<>();
+        execute(query, steps);
+        return String.join("\n", steps);
+    }
+
+    private int[] execute(PropertyQuery query, List<String> steps) {
+        boolean[] cityCodes = query.city() == null ? null : cityCodes(query.city());
+        List<Candidate> candidates = candidates(query, cityCodes);
+        candidates.sort(Comparator.comparingInt(Candidate::estimate));
+        BitSet rows = null;
+        for (Candidate candidate : candidates) {
+            if (rows != null && (rows.cardinality() <= INTERSECT_THRESHOLD || candidate.estimate() >= store.size())) {
+                // Not worth another bitmap; checked on the columns instead
+                continue;
+            }
+            BitSet bitmap = candidate.index().union(candidate.keys());
+            if (rows == null) {
+                rows = bitmap;
+            } else {
+                rows.and(bitmap);
+            }
+            if (steps != null) {
+                steps.add((steps.isEmpty() ? "bitmap " : "and bitmap ") + candidate.description()
+                        + " (" + candidate.estimate() + " rows) -> " + rows.cardinality() + " candidates");
+            }
+            if (rows.isEmpty()) {
+                break;
+            }
+        }
+        int[] matches = new int[64];
+        int found = 0;
+        int checked = 0;
+        if (rows == null) {
+            for (int row = 0; row < store.rowLimit(); row++) {
+                checked++;
+                if (matches(row, query, cityCodes)) {
+                    if (found == matches.length) {
+                        matches = Arrays.copyOf(matches, found * 2);
+                    }
+                    matches[found++] = row;
+                }
+            }
+        } else {
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                checked++;
+                if (matches(row, query, cityCodes)) {
+                    if (found == matches.length) {
+                        matches = Arrays.copyOf(matches, found * 2);
+                    }
+                    matches[found++] = row;
+                }
+            }
+        }
+        if (steps != null) {
+            steps.add((rows == null ? "scan all " : "check ") + checked + " rows on the columns -> " + found + " matches");
+        }
+        return Arrays.copyOf(matches, found);
+    }
+
+    private List<Candidate> candidates(PropertyQuery query, boolean[] cityCodes) {
+        List<Candidate> candidates = new ArrayList<>();
+        if (cityCodes != null) {
+            int count = 0;
+            for (boolean code : cityCodes) {
+                if (code) {
+                    count++;
+                }
+            }
+            int[] keys = new int[count];
+            for (int code = 0, k = 0; code < cityCodes.length; code++) {
+                if (cityCodes[code]) {
+                    keys[k++] = code;
+                }
+            }
+            candidates.add(candidate(city, "city = " + query.city(), keys));
+        }
+        if (query.hasSize()) {
+            // The size index only holds full properties, so it covers the type predicate as well
+            if (query.type() == PropertyStore.SHARED) {
+                candidates.add(new Candidate("type = shared with a size", type, new int[0], 0));
+            }
+            candidates.add(candidate(size, describe("size", query.minSize(), query.maxSize()),
+                    range(band(query.minSize(), SIZE_BAND), band(query.maxSize(), SIZE_BAND))));
+        } else if (query.type() != PropertyStore.FREE) {
+            candidates.add(candidate(type, "type = " + (query.type() == PropertyStore.FULL ? "full" : "shared"),
+                    new int[]{query.type()}));
+        }
+        if (query.hasBedRooms()) {
+            candidates.add(candidate(bedRooms, describe("bedrooms", query.minBedRooms(), query.maxBedRooms()),
+                    range(clamp(query.minBedRooms()), clamp(query.maxBedRooms()))));
+        }
+        if (query.hasRooms()) {
+            candidates.add(candidate(rooms, describe("rooms", query.minRooms(), query.maxRooms()),
+                    range(clamp(query.minRooms()), clamp(query.maxRooms()))));
+        }
+        if (query.hasPrice()) {
+            candidates.add(candidate(price, describe("price", query.minPrice(), query.maxPrice()),
+                    range(band(query.minPrice(), PRICE_BAND), band(query.maxPrice(), PRICE_BAND))));
+        }
+        return candidates;
+    }
+
+    private boolean matches(int row, PropertyQuery query, boolean[] cityCodes) {
+        byte rowType = store.type(row);
+        if (rowType == PropertyStore.FREE) {
+            return false;
+        }
+        if (cityCodes != null) {
+            int code = store.cityId(row);
+            if (code >= cityCodes.length || !cityCodes[code]) {
+                return false;
+            }
+        }
+        if (query.type() != PropertyStore.FREE && rowType != query.type()) {
+            return false;
+        }
+        int rowBedRooms = store.noBedRooms(row);
+        if (rowBedRooms < query.minBedRooms() || rowBedRooms > query.maxBedRooms()) {
+            return false;
+        }
+        int rowRooms = store.noRooms(row);
+        if (rowRooms < query.minRooms() || rowRooms > query.maxRooms()) {
+            return false;
+        }
+        if (query.hasSize() && (rowType != PropertyStore.FULL
+                || store.size(row) < query.minSize() || store.size(row) > query.maxSize())) {
+            return false;
+        }
+        if (query.hasPrice()) {
+            double rowPrice = store.effectivePricePerDay(row);
+            return rowPrice >= query.minPrice() && rowPrice <= query.maxPrice();
+        }
+        return true;
+    }
+
+    /**
+     * Find the dictionary codes of the city names equal to a name, ignoring case.
+     */
+    private boolean[] cityCodes(String name) {
+        StringDictionary cities = store.cities();
+        boolean[] codes = new boolean[cities.size()];
+        for (int code = 0; code < codes.length; code++) {
+            codes[code] = cities.decode(code).equalsIgnoreCase(name);
+        }
+        return codes;
+    }
+
+    private static Candidate candidate(Index index, String description, int[] keys) {
+        return new Candidate(description, index, keys, index.count(keys));
+    }
+
+    private static String describe(String attribute, double min, double max) {
+        boolean hasMin = min != Double.NEGATIVE_INFINITY && min != Integer.MIN_VALUE;
+        boolean hasMax = max != Double.POSITIVE_INFINITY && max != Integer.MAX_VALUE;
+        String from = min == Math.rint(min) ? String.valueOf((long) min) : String.valueOf(min);
+        String to = max == Math.rint(max) ? String.valueOf((long) max) : String.valueOf(max);
+        if (hasMin && hasMax) {
+            return attribute + " " + from + ".." + to;
+        }
+        return hasMin ? attribute + " >= " + from : attribute + " <= " + to;
+    }
+
+    private static int[] range(int fromKey, int toKey) {
+        if (fromKey > toKey) {
+            return new int[0];
+        }
+        int[] keys = new int[toKey - fromKey + 1];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = fromKey + i;
+        }
+        return keys;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(value, MAX_KEY));
+    }
+
+    private static int band(double value, double width) {
+        if (!(value > 0)) {
+            return 0;
+        }
+        return (int) Math.min(value / width, MAX_KEY);
+    }
+
+    /**
+     * One predicate of a query, as the keys of one index it covers.
+     *
+     * @param description The predicate, for query plans.
+     * @param index       The index.
+     * @param keys        The keys the predicate covers.
+     * @param estimate    The number of rows holding one of the keys.
+     */
+    private record Candidate(String description, Index index, int[] keys, int estimate) {
+    }
+
+    /**
+     * The bitmaps of one attribute.
+     */
+    private static final class Index {
+        private BitSet[] bitmaps = new BitSet[8];
+        private int[] counts = new int[8];
+        private int[] rowKeys = new int[1024]; // key + 1 of every row, 0 for rows not indexed
+
+        /**
+         * Move a row to a key.
+         *
+         * @param row The row.
+         * @param key The new key, or -1 to drop the row.
+         */
+        private void put(int row, int key) {
+            if (row >= rowKeys.length) {
+                rowKeys = Arrays.copyOf(rowKeys, Math.max(row + 1, rowKeys.length * 2));
+            }
+            int previous = rowKeys[row] - 1;
+            if (previous == key) {
+                return;
+            }
+            if (previous >= 0) {
+                bitmaps[previous].clear(row);
+                counts[previous]--;
+            }
+            if (key >= 0) {
+                if (key >= bitmaps.length) {
+                    int capacity = Math.max(key + 1, bitmaps.length * 2);
+                    bitmaps = Arrays.copyOf(bitmaps, capacity);
+                    counts = Arrays.copyOf(counts, capacity);
+                }
+                if (bitmaps[key] == null) {
+                    bitmaps[key] = new BitSet();
+                }
+                bitmaps[key].set(row);
+                counts[key]++;
+            }
+            rowKeys[row] = key + 1;
+        }
+
+        private int count(int[] keys) {
+            int count = 0;
+            for (int key : keys) {
+                if (key < counts.length) {
+                    count += counts[key];
+                }
+            }
+            return count;
+        }
+
+        private BitSet union(int[] keys) {
+            BitSet union = new BitSet();
+            for (int key : keys) {
+                if (key < bitmaps.length && bitmaps[key] != null) {
+                    union.or(bitmaps[key]);
+                }
+            }
+            return union;
+        }
+    }
+}
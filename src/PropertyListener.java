@@ -0,0 +1,59 @@
+/**
+ * Receives notifications when the attributes of a property change through its setters.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public interface PropertyListener {
+
+    /**
+     * Called after one of the property's attributes has changed.
+     *
+     * @param property The changed property.
+     */
+    void propertyChanged(Property property);
+
+    /**
+     * Called after the price per day of a property has changed, before {@link #propertyChanged}.
+     * The new price is available from {@link Property#calculatePricePerDay()}.
+     *
+     * @param property      The repriced property.
+     * @param previousPrice The price per day before the change.
+     */
+    default void priceChanged(Property property, double previousPrice) {
+    }
+
+    /**
+     * Called after the seasonal rates of a range of nights of a property have changed.
+     * Only stays overlapping [fromDay, toDay) changed cost; {@link #propertyChanged} is not called.
+     * The new rates are available from {@link Property#getRates()}.
+     *
+     * @param property      The property.
+     * @param previousRates The rates before the change.
+     * @param fromDay       The first night whose rate may have changed (epoch day).
+     * @param toDay         The end of the changed range (epoch day, exclusive).
+     */
+    default void ratesChanged(Property property, PriceCalendar previousRates, int fromDay, int toDay) {
+    }
+
+    /**
+     * Called after the host who owns a property has changed.
+     * The host changes no attribute the other indexes use, so {@link #propertyChanged} is not called.
+     * The new host is available from {@link Property#getHost()}.
+     *
+     * @param property     The property.
+     * @param previousHost The host before the change, or null if the property had no host.
+     */
+    default void hostChanged(Property property, Host previousHost) {
+    }
+
+    /**
+     * Called after an inspection report has been recorded for a property.
+     * Recording an inspection changes no other attribute, so {@link #propertyChanged} is not called.
+     *
+     * @param property The inspected property.
+     * @param day      The inspection date as an epoch day.
+     */
+    default void inspectionAdded(Property property, int day) {
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * A conjunction of predicates over property attributes, answered by {@link PropertyStore#query} through
+ * its secondary indexes. Every predicate is optional; ranges are inclusive and an unset bound is open.
+ * For example, full properties in Limassol with at least 3 bedrooms at up to 200 per day:
+ * {@code new PropertyQuery().city("Limassol").type(PropertyStore.FULL).minBedRooms(3).maxPrice(200)}
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PropertyQuery {
+    private String city;
+    private byte type = PropertyStore.FREE;
+    private int minBedRooms = Integer.MIN_VALUE;
+    private int maxBedRooms = Integer.MAX_VALUE;
+    private int minRooms = Integer.MIN_VALUE;
+    private int maxRooms = Integer.MAX_VALUE;
+    private double minSize = Double.NEGATIVE_INFINITY;
+    private double maxSize = Double.POSITIVE_INFINITY;
+    private double minPrice = Double.NEGATIVE_INFINITY;
+    private double maxPrice = Double.POSITIVE_INFINITY;
+
+    /**
+     * Match properties in a city, ignoring case.
+     *
+     * @param city The city name.
+     * @return This query.
+     */
+    public PropertyQuery city(String city) {
+        this.city = city;
+        return this;
+    }
+
+    /**
+     * Match properties of one type.
+     *
+     * @param type {@link PropertyStore#SHARED} or {@link PropertyStore#FULL}.
+     * @return This query.
+     */
+    public PropertyQuery type(byte type) {
+        if (type != PropertyStore.SHARED && type != PropertyStore.FULL) {
+            throw new IllegalArgumentException("Unknown property type: " + type);
+        }
+        this.type = type;
+        return this;
+    }
+
+    /**
+     * Match properties with at least the given number of bedrooms.
+     *
+     * @param minBedRooms The minimum number of bedrooms.
+     * @return This query.
+     */
+    public PropertyQuery minBedRooms(int minBedRooms) {
+        this.minBedRooms = minBedRooms;
+        return this;
+    }
+
+    /**
+     * Match properties with at most the given number of bedrooms.
+     *
+     * @param maxBedRooms The maximum number of bedrooms.
+     * @return This query.
+     */
+    public PropertyQuery maxBedRooms(int maxBedRooms) {
+        this.maxBedRooms = maxBedRooms;
+        return this;
+    }
+
+    /**
+     * Match properties with at least the given number of rooms.
+     *
+     * @param minRooms The minimum number of rooms.
+     * @return This query.
+     */
+    public PropertyQuery minRooms(int minRooms) {
+        this.minRooms = minRooms;
+        return this;
+    }
+
+    /**
+     * Match properties with at most the given number of rooms.
+     *
+     * @param maxRooms The maximum number of rooms.
+     * @return This query.
+     */
+    public PropertyQuery maxRooms(int maxRooms) {
+        this.maxRooms = maxRooms;
+        return this;
+    }
+
+    /**
+     * Match full properties with a size in a range. Shared properties have no size and never match.
+     *
+     * @param minSize The minimum size in square meters.
+     * @param maxSize The maximum size in square meters.
+     * @return This query.
+     */
+    public PropertyQuery size(double minSize, double maxSize) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Match properties whose calculated price per day is at least the given price.
+     *
+     * @param minPrice The minimum price per day.
+     * @return This query.
+     */
+    public PropertyQuery minPrice(double minPrice) {
+        this.minPrice = minPrice;
+        return this;
+    }
+
+    /**
+     * Match properties whose calculated price per day is at most the given price.
+     *
+     * @param maxPrice The maximum price per day.
+     * @return This query.
+     */
+    public PropertyQuery maxPrice(double maxPrice) {
+        this.maxPrice = maxPrice;
+        return this;
+    }
+
+    String city() {
+        return city;
+    }
+
+    byte type() {
+        return type;
+    }
+
+    boolean hasBedRooms() {
+        return minBedRooms != Integer.MIN_VALUE || maxBedRooms != Integer.MAX_VALUE;
+    }
+
+    int minBedRooms() {
+        return minBedRooms;
+    }
+
+    int maxBedRooms() {
+        return maxBedRooms;
+    }
+
+    boolean hasRooms() {
+        return minRooms != Integer.MIN_VALUE || maxRooms != Integer.MAX_VALUE;
+    }
+
+    int minRooms() {
+        return minRooms;
+    }
+
+    int maxRooms() {
+        return maxRooms;
+    }
+
+    boolean hasSize() {
+        return minSize != Double.NEGATIVE_INFINITY || maxSize != Double.POSITIVE_INFINITY;
+    }
+
+    double minSize() {
+        return minSize;
+    }
+
+    double maxSize() {
+        return maxSize;
+    }
+
+    boolean hasPrice() {
+        return minPrice != Double.NEGATIVE_INFINITY || maxPrice != Double.POSITIVE_INFINITY;
+    }
+
+    double minPrice() {
+        return minPrice;
+    }
+
+    double maxPrice() {
+        return maxPrice;
+    }
+}
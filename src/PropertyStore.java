@@ -0,0 +1,463 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A columnar (struct-of-arrays) copy of the registered properties for analytical scans.
+ * Each attribute lives in its own primitive array indexed by row, cities are dictionary-encoded, and a
+ * type tag distinguishes shared from full properties, so price rankings, per-city statistics and
+ * bedroom filters stream through a few dense arrays instead of chasing one object per property. The date
+ * of each property's latest inspection is kept as a column too, for overdue-inspection scans, and
+ * {@link PropertyIndexes} keeps bitmap secondary indexes over the rows for {@link #query}.
+ *
+ * Rows are stable: a deleted property leaves a free row (type tag 0) that is reused by the next insert.
+ * The store follows the property registry and property change notifications, and {@link #view(int)}
+ * hands back the Property object of a row when a caller needs one.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class PropertyStore implements EntityRegistry.Listener<Property>, PropertyListener {
+    /**
+     * Type tag of a free row.
+     */
+    public static final byte FREE = 0;
+    /**
+     * Type tag of a SharedProperty row.
+     */
+    public static final byte SHARED = 1;
+    /**
+     * Type tag of a FullProperty row.
+     */
+    public static final byte FULL = 2;
+
+    private static final int INITIAL_ROWS = 1024;
+
+    private int[] propertyIds = new int[INITIAL_ROWS];
+    private int[] noBedRooms = new int[INITIAL_ROWS];
+    private int[] noRooms = new int[INITIAL_ROWS];
+    private int[] cityIds = new int[INITIAL_ROWS];
+    private double[] pricePerDay = new double[INITIAL_ROWS];
+    private double[] size = new double[INITIAL_ROWS];
+    private int[] lastInspected = new int[INITIAL_ROWS];
+    private byte[] types = new byte[INITIAL_ROWS];
+    private Property[] objects = new Property[INITIAL_ROWS];
+
+    private final StringDictionary cities = new StringDictionary();
+    private final PropertyIndexes indexes = new PropertyIndexes(this);
+    private final IntIntHashMap rowsById = new IntIntHashMap(-1);
+    private int[] freeRows = new int[16];
+    private int freeCount;
+    private int rowLimit;
+    private int liveRows;
+
+    // ------------------------------------------------------------------ maintenance
+
+    @Override
+    public void added(Property property) {
+        int row = freeCount > 0 ? freeRows[--freeCount] : allocateRow();
+        rowsById.put(property.getPropertyId(), row);
+        write(row, property);
+        liveRows++;
+    }
+
+    @Override
+    public void removed(Property property) {
+        int row = rowsById.remove(property.getPropertyId());
+        if (row < 0) {
+            return;
+        }
+        indexes.remove(row);
+        types[row] = FREE;
+        objects[row] = null;
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+        }
+        freeRows[freeCount++] = row;
+        liveRows--;
+    }
+
+    @Override
+    public void propertyChanged(Property property) {
+        int row = rowsById.get(property.getPropertyId());
+        if (row >= 0) {
+            write(row, property);
+        }
+    }
+
+    @Override
+    public void inspectionAdded(Property property, int day) {
+        int row = rowsById.get(property.getPropertyId());
+        if (row >= 0) {
+            lastInspected[row] = property.getInspections().latestDay();
+        }
+    }
+
+    private void write(int row, Property property) {
+        propertyIds[row] = property.getPropertyId();
+        noBedRooms[row] = property.getNoBedRooms();
+        noRooms[row] = property.getNoRooms();
+        cityIds[row] = cities.encode(property.getCity());
+        pricePerDay[row] = property.getPricePerDay();
+        if (property instanceof FullProperty) {
+            types[row] = FULL;
+            size[row] = ((FullProperty) property).getSize();
+        } else {
+            types[row] = SHARED;
+            size[row] = 0;
+        }
+        lastInspected[row] = property.getInspections().latestDay();
+        objects[row] = property;
+        indexes.update(row);
+    }
+
+    private int allocateRow() {
+        if (rowLimit == types.length) {
+            int capacity = types.length * 2;
+            propertyIds = Arrays.copyOf(propertyIds, capacity);
+            noBedRooms = Arrays.copyOf(noBedRooms, capacity);
+            noRooms = Arrays.copyOf(noRooms, capacity);
+            cityIds = Arrays.copyOf(cityIds, capacity);
+            pricePerDay = Arrays.copyOf(pricePerDay, capacity);
+            size = Arrays.copyOf(size, capacity);
+            lastInspected = Arrays.copyOf(lastInspected, capacity);
+            types = Arrays.copyOf(types, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+        }
+        return rowLimit++;
+    }
+
+    // ------------------------------------------------------------------ column access
+
+    /**
+     * Get the number of properties in the store.
+     *
+     * @return The number of live rows.
+     */
+    public int size() {
+        return liveRows;
+    }
+
+    /**
+     * Get the exclusive upper bound of row numbers; rows below it may be live or free.
+     *
+     * @return The row limit.
+     */
+    public int rowLimit() {
+        return rowLimit;
+    }
+
+    /**
+     * Get the row holding a property.
+     *
+     * @param propertyId The unique ID of the property.
+     * @return The row, or -1 if the property is not in the store.
+     */
+    public int rowOf(int propertyId) {
+        return rowsById.get(propertyId);
+    }
+
+    /**
+     * Get the type tag of a row.
+     *
+     * @param row The row.
+     * @return {@link #SHARED}, {@link #FULL}, or {@link #FREE} for a deleted row.
+     */
+    public byte type(int row) {
+        return types[row];
+    }
+
+    /**
+     * Get the property ID stored in a row.
+     *
+     * @param row The row.
+     * @return The property ID.
+     */
+    public int propertyId(int row) {
+        return propertyIds[row];
+    }
+
+    /**
+     * Get the number of bedrooms stored in a row.
+     *
+     * @param row The row.
+     * @return The number of bedrooms.
+     */
+    public int noBedRooms(int row) {
+        return noBedRooms[row];
+    }
+
+    /**
+     * Get the number of rooms stored in a row.
+     *
+     * @param row The row.
+     * @return The number of rooms.
+     */
+    public int noRooms(int row) {
+        return noRooms[row];
+    }
+
+    /**
+     * Get the dictionary code of the city stored in a row.
+     *
+     * @param row The row.
+     * @return The city code; see {@link #cities()}.
+     */
+    public int cityId(int row) {
+        return cityIds[row];
+    }
+
+    /**
+     * Get the base price per day stored in a row.
+     *
+     * @param row The row.
+     * @return The base price per day.
+     */
+    public double pricePerDay(int row) {
+        return pricePerDay[row];
+    }
+
+    /**
+     * Get the size stored in a row (0 for shared properties).
+     *
+     * @param row The row.
+     * @return The size in square meters.
+     */
+    public double size(int row) {
+        return size[row];
+    }
+
+    /**
+     * Get the date of the most recent inspection stored in a row.
+     *
+     * @param row The row.
+     * @return The date as an epoch day, or EpochDay.NONE if the property has never been inspected.
+     */
+    public int lastInspected(int row) {
+        return lastInspected[row];
+    }
+
+    /**
+     * Compute the effective price per day of a row from its columns, exactly as calculatePricePerDay would.
+     *
+     * @param row The row.
+     * @return The effective price per day.
+     */
+    public double effectivePricePerDay(int row) {
+        return types[row] == FULL
+                ? FullProperty.calculatePricePerDay(pricePerDay[row], size[row])
+                : SharedProperty.calculatePricePerDay(pricePerDay[row], noBedRooms[row]);
+    }
+
+    /**
+     * Get the Property object a row describes.
+     *
+     * @param row The row.
+     * @return The property, or null for a free row.
+     */
+    public Property view(int row) {
+        return objects[row];
+    }
+
+    /**
+     * Get the dictionary of city names used by the city column.
+     *
+     * @return The city dictionary.
+     */
+    public StringDictionary cities() {
+        return cities;
+    }
+
+    // ------------------------------------------------------------------ scans
+
+    /**
+     * Count the properties matching a filter.
+     *
+     * @param cityId      The city code to match, or -1 for any city.
+     * @param minBedRooms The minimum number of bedrooms.
+     * @param minRooms    The minimum number of rooms.
+     * @return The number of matching properties.
+     */
+    public int count(int cityId, int minBedRooms, int minRooms) {
+        int count = 0;
+        for (int row = 0; row < rowLimit; row++) {
+            if (types[row] != FREE
+                    && (cityId < 0 || cityIds[row] == cityId)
+                    && noBedRooms[row] >= minBedRooms
+                    && noRooms[row] >= minRooms) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find the rows matching a query through the secondary indexes; see {@link PropertyIndexes}.
+     *
+     * @param query The query.
+     * @return The matching rows in ascending row order.
+     */
+    public int[] query(PropertyQuery query) {
+        return indexes.rows(query);
+    }
+
+    /**
+     * Describe how {@link #query} would answer a query.
+     *
+     * @param query The query.
+     * @return The query plan, one step per line.
+     */
+    public String explain(PropertyQuery query) {
+        return indexes.explain(query);
+    }
+
+    /**
+     * Find the properties whose latest inspection is dated before a day, or that were never inspected,
+     * with one pass over the inspection date column.
+     *
+     * @param cutoffDay The epoch day; inspections on or after it count as recent.
+     * @return The matching rows in ascending row order.
+     */
+    public int[] rowsNotInspectedSince(int cutoffDay) {
+        int[] rows = new int[64];
+        int found = 0;
+        for (int row = 0; row < rowLimit; row++) {
+            // EpochDay.NONE is Integer.MIN_VALUE, so never-inspected rows are always before the cutoff
+            if (lastInspected[row] < cutoffDay && types[row] != FREE) {
+                if (found == rows.length) {
+                    rows = Arrays.copyOf(rows, found * 2);
+                }
+                rows[found++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, found);
+    }
+
+    /**
+     * Compute price statistics for every city in one pass over the columns.
+     *
+     * @return One entry per city that has at least one property.
+     */
+    public List<CityStats> statsByCity() {
+        int cityCount = cities.size();
+        int[] counts = new int[cityCount];
+        double[] sums = new double[cityCount];
+        double[] mins = new double[cityCount];
+        double[] maxs = new double[cityCount];
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        for (int row = 0; row < rowLimit; row++) {
+            if (types[row] == FREE) {
+                continue;
+            }
+            int city = cityIds[row];
+            double price = effectivePricePerDay(row);
+            counts[city]++;
+            sums[city] += price;
+            mins[city] = Math.min(mins[city], price);
+            maxs[city] = Math.max(maxs[city], price);
+        }
+        List<CityStats> stats = new ArrayList<>();
+        for (int city = 0; city < cityCount; city++) {
+            if (counts[city] > 0) {
+                stats.add(new CityStats(cities.decode(city), counts[city], mins[city], maxs[city], sums[city] / counts[city]));
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Find the rows with the lowest effective price per day, using a bounded heap over primitive arrays.
+     * Ties are broken by property ID.
+     *
+     * @param k The number of rows to return.
+     * @return Up to k rows ordered from cheapest to most expensive.
+     */
+    public int[] cheapestRows(int k) {
+        int capacity = Math.min(k, liveRows);
+        double[] heapPrices = new double[capacity];
+        int[] heapRows = new int[capacity];
+        int heapSize = 0;
+        for (int row = 0; row < rowLimit && capacity > 0; row++) {
+            if (types[row] == FREE) {
+                continue;
+            }
+            double price = effectivePricePerDay(row);
+            if (heapSize < capacity) {
+                heapPrices[heapSize] = price;
+                heapRows[heapSize] = row;
+                siftUp(heapPrices, heapRows, heapSize++);
+            } else if (before(price, row, heapPrices[0], heapRows[0])) {
+                heapPrices[0] = price;
+                heapRows[0] = row;
+                siftDown(heapPrices, heapRows, heapSize);
+            }
+        }
+        // Pop the max-heap from the back to get ascending order
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heapRows[0];
+            heapPrices[0] = heapPrices[i];
+            heapRows[0] = heapRows[i];
+            siftDown(heapPrices, heapRows, i);
+        }
+        return result;
+    }
+
+    private boolean before(double price, int row, double otherPrice, int otherRow) {
+        int cmp = Double.compare(price, otherPrice);
+        return cmp != 0 ? cmp < 0 : propertyIds[row] < propertyIds[otherRow];
+    }
+
+    private void siftUp(double[] prices, int[] rows, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(prices[parent], rows[parent], prices[index], rows[index])) {
+                break;
+            }
+            swap(prices, rows, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(double[] prices, int[] rows, int heapSize) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && before(prices[largest], rows[largest], prices[left], rows[left])) {
+                largest = left;
+            }
+            if (right < heapSize && before(prices[largest], rows[largest], prices[right], rows[right])) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(prices, rows, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(double[] prices, int[] rows, int a, int b) {
+        double price = prices[a];
+        prices[a] = prices[b];
+        prices[b] = price;
+        int row = rows[a];
+        rows[a] = rows[b];
+        rows[b] = row;
+    }
+
+    /**
+     * Price statistics of the properties in one city.
+     *
+     * @param city         The city name.
+     * @param count        The number of properties.
+     * @param minPrice     The lowest effective price per day.
+     * @param maxPrice     The highest effective price per day.
+     * @param averagePrice The average effective price per day.
+     */
+    public record CityStats(String city, int count, double minPrice, double maxPrice, double averagePrice) {
+    }
+}
@@ -0,0 +1,69 @@
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reclaims the slots that removals leave in the user and property registries, in the background.
+ * Every few milliseconds it takes the registry lock, if no front end holds it, and lets each registry
+ * examine a bounded number of slots, so a pass over millions of entities is spread over many short steps
+ * and never holds up lookups, bookings or listings for long. Lookups and bookings through the booking
+ * service do not take the registry lock at all.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class RegistryCompactor implements Closeable {
+    /**
+     * The slots each registry examines per step.
+     */
+    public static final int STEP_SLOTS = 4096;
+
+    private final ScheduledExecutorService executor;
+    private final BASIC basic;
+    private final ReentrantLock registryLock;
+
+    private RegistryCompactor(BASIC basic) {
+        this.basic = basic;
+        this.registryLock = basic.getRegistryLock();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "basic-registry-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start compacting the registries of a BASIC instance.
+     *
+     * @param basic        The BASIC instance.
+     * @param periodMillis The delay between steps in milliseconds.
+     * @return The running compactor.
+     */
+    public static RegistryCompactor start(BASIC basic, long periodMillis) {
+        RegistryCompactor compactor = new RegistryCompactor(basic);
+        compactor.executor.scheduleWithFixedDelay(compactor::step, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return compactor;
+    }
+
+    private void step() {
+        // A front end holding the lock is busy with the registries; try again on the next step
+        if (!registryLock.tryLock()) {
+            return;
+        }
+        try {
+            basic.compactRegistries(STEP_SLOTS);
+        } finally {
+            registryLock.unlock();
+        }
+    }
+
+    /**
+     * Stop compacting. A step in progress finishes.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Releases unpaid bookings that are not paid in time. Every unpaid booking holds its dates for a fixed
+ * time to live; a booking still unpaid when its hold expires is cancelled, which frees its nights for
+ * other guests. Marking a booking as paid, whether through the booking service or {@link Booking#setPaid},
+ * cancels its hold at once, and marking it unpaid again starts a new one.
+ *
+ * Holds are timers on a {@link TimingWheel}, so placing and cancelling one takes constant time with
+ * millions pending, and a single thread expires them all. Booking events arrive under the property lock
+ * stripes, so they never wait for the wheel: each hold or cancellation is handed to an {@link UpdateQueue}
+ * and applied by whichever thread holds the wheel, usually the expiry thread. Expired bookings are released
+ * outside the wheel's lock through {@link BookingService#release}, which only cancels a booking that is
+ * still unpaid under its property's stripe, so a payment racing with the expiry always wins or always loses
+ * as a whole. Holds are not stored: unpaid bookings recovered from storage get a full hold from the moment
+ * the holds are started.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class ReservationHolds implements BookingListener, Closeable {
+    /**
+     * The resolution of the holds in milliseconds; a hold expires up to this much after its deadline.
+     */
+    public static final long TICK_MILLIS = 100;
+
+    private final BASIC basic;
+    private final BookingService bookings;
+    private final long ttlMillis;
+    private final TimingWheel<Booking> wheel;
+    private final IdentityHashMap<Booking, TimingWheel.Timer<Booking>> holds = new IdentityHashMap<>();
+    private final UpdateQueue updates = new UpdateQueue();
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs holds that are expired by calling {@link #expire} rather than by a thread of their own.
+     * The holds must still be registered with the booking service, as {@link #start} does.
+     *
+     * @param basic       The BASIC instance whose bookings are held.
+     * @param ttlMillis   How long an unpaid booking holds its dates, in milliseconds.
+     * @param startMillis The current time in milliseconds.
+     */
+    public ReservationHolds(BASIC basic, long ttlMillis, long startMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Hold time must be positive: " + ttlMillis);
+        }
+        this.basic = basic;
+        this.bookings = basic.getBookingService();
+        this.ttlMillis = ttlMillis;
+        this.wheel = new TimingWheel<>(TICK_MILLIS, startMillis);
+    }
+
+    /**
+     * Start holding the unpaid bookings of a BASIC instance, expiring them on a background thread.
+     * Unpaid bookings that already exist get a full hold from now.
+     * Must be called from the thread that registers users and properties.
+     *
+     * @param basic     The BASIC instance.
+     * @param ttlMillis How long an unpaid booking holds its dates, in milliseconds.
+     * @return The running holds.
+     */
+    public static ReservationHolds start(BASIC basic, long ttlMillis) {
+        ReservationHolds holds = new ReservationHolds(basic, ttlMillis, System.currentTimeMillis());
+        holds.attach();
+        holds.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "basic-reservation-holds");
+            thread.setDaemon(true);
+            return thread;
+        });
+        holds.executor.scheduleWithFixedDelay(() -> holds.expire(System.currentTimeMillis()),
+                TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        return holds;
+    }
+
+    /**
+     * Register with the booking service and place a hold on every unpaid booking that already exists.
+     * Must be called from the thread that registers users and properties.
+     */
+    public void attach() {
+        // Listening first means a booking made during the scan is held by one path or the other
+        bookings.addListener(this);
+        for (Property property : basic.properties) {
+            for (Booking booking : bookings.getPropertyBookings(property.getPropertyId())) {
+                if (!booking.isPaid()) {
+                    hold(booking);
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ booking events
+
+    @Override
+    public void bookingAdded(Booking booking) {
+        if (!booking.isPaid()) {
+            hold(booking);
+        }
+    }
+
+    @Override
+    public void bookingCancelled(Booking booking) {
+        unhold(booking);
+    }
+
+    @Override
+    public void paymentChanged(Booking booking) {
+        if (booking.isPaid()) {
+            unhold(booking);
+        } else {
+            hold(booking);
+        }
+    }
+
+    private void hold(Booking booking) {
+        // The hold runs from now, however long the wheel takes to place it
+        long deadline = System.currentTimeMillis() + ttlMillis;
+        updates.submit(() -> {
+            if (!holds.containsKey(booking)) {
+                holds.put(booking, wheel.schedule(booking, deadline));
+            }
+        });
+    }
+
+    private void unhold(Booking booking) {
+        updates.submit(() -> {
+            TimingWheel.Timer<Booking> timer = holds.remove(booking);
+            if (timer != null) {
+                wheel.cancel(timer);
+            }
+        });
+    }
+
+    // ------------------------------------------------------------------ expiry
+
+    /**
+     * Release every booking whose hold has expired by the given time.
+     * Must not be called while holding a booking lock stripe.
+     *
+     * @param nowMillis The current time in milliseconds.
+     * @return The number of bookings released.
+     */
+    public int expire(long nowMillis) {
+        List<Booking> expired = new ArrayList<>();
+        updates.lock();
+        try {
+            wheel.advance(nowMillis, booking -> {
+                holds.remove(booking);
+                expired.add(booking);
+            });
+        } finally {
+            updates.unlock();
+        }
+        int released = 0;
+        for (Booking booking : expired) {
+            if (bookings.release(booking)) {
+                released++;
+            }
+        }
+        if (released > 0) {
+            basic.checkpointInBackground();
+        }
+        return released;
+    }
+
+    /**
+     * Get the number of unpaid bookings currently holding their dates.
+     *
+     * @return The number of pending holds.
+     */
+    public int size() {
+        updates.lock();
+        try {
+            return holds.size();
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    /**
+     * Check whether a booking is holding its dates.
+     *
+     * @param booking The booking.
+     * @return true if the booking has a pending hold; otherwise, false.
+     */
+    public boolean isHeld(Booking booking) {
+        updates.lock();
+        try {
+            return holds.containsKey(booking);
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    /**
+     * Stop expiring holds. A round in progress finishes.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
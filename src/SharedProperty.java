@@ -39,8 +39,30 @@ public class SharedProperty extends Property {
      * @return The calculated price per day.
      */
     @Override
-    public double calculatePricePerDay() {
-        return getPricePerDay() / getNoBedRooms();
+    protected double computePricePerDay() {
+        return calculatePricePerDay(getPricePerDay(), getNoBedRooms());
+    }
+
+    /**
+     * Calculate the price per day of a shared property from its base price and number of bedrooms.
+     * Shared with the columnar property store so both produce identical results.
+     *
+     * @param pricePerDay The base price per day.
+     * @param noBedRooms  The number of bedrooms.
+     * @return The price per day per bedroom.
+     */
+    public static double calculatePricePerDay(double pricePerDay, int noBedRooms) {
+        return pricePerDay / noBedRooms;
+    }
+
+    /**
+     * Get the number of bookings the shared property can host on the same night: one per bedroom.
+     *
+     * @return The booking capacity per night.
+     */
+    @Override
+    public int getBookingCapacity() {
+        return getNoBedRooms();
     }
 
     /**
@@ -67,7 +89,7 @@ public class SharedProperty extends Property {
                 ", noRooms=" + getNoRooms() +
                 ", city='" + getCity() + '\'' +
                 ", pricePerDay=" + getPricePerDay() +
-                ", inspection=" + getInspection().toString() +
+                ", inspection=" + inspectionsToString() +
                 '}';
     }
 }
@@ -1,5 +1,4 @@
 import java.util.Date;
-import java.util.Calendar;
 
 /**
  * This class represents a standard customer in the property management system.
@@ -24,27 +23,28 @@ public class StandardCustomer extends Customer {
     }
 
     /**
-     * Calculate the discount percentage for a standard customer based on registration years.
+     * Constructs a standard customer with dates given as epoch days.
+     *
+     * @param userId               The unique ID of the customer.
+     * @param dateOfBirth          The date of birth as an epoch day, or EpochDay.NONE.
+     * @param firstName            The first name of the customer.
+     * @param lastName             The last name of the customer.
+     * @param registrationDate     The registration date as an epoch day, or EpochDay.NONE.
+     * @param preferredPaymentMethod The preferred payment method of the customer.
+     */
+    public StandardCustomer(int userId, int dateOfBirth, String firstName, String lastName, int registrationDate, String preferredPaymentMethod) {
+        super(userId, dateOfBirth, firstName, lastName, registrationDate, preferredPaymentMethod);
+    }
+
+    /**
+     * Calculate the discount percentage for a standard customer based on registration years, under the
+     * default rules: 2% once registered for 10 or more years.
      *
      * @return The discount percentage for the customer.
      */
     @Override
     public double getDiscountForUser() {
-        Calendar current = Calendar.getInstance();
-        Calendar registration = Calendar.getInstance();
-        registration.setTime(getRegistrationDate());
-
-        int yearsBetween = current.get(Calendar.YEAR) - registration.get(Calendar.YEAR);
-        if (registration.get(Calendar.DAY_OF_YEAR) > current.get(Calendar.DAY_OF_YEAR)) {
-            yearsBetween--;
-        }
-
-        // If registered for 10 or more years, they get a 2% discount.
-        if (yearsBetween >= 10) {
-            return 2.0;
-        } else {
-            return 0.0;
-        }
+        return DiscountRules.DEFAULT.loyaltyDiscount(EpochDay.yearsBetween(getRegistrationDay(), EpochDay.today()));
     }
 
     @Override
@@ -0,0 +1,198 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding of users and properties shared by the write-ahead log and snapshots.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public final class StateCodec {
+    static final byte HOST = 1;
+    static final byte STANDARD_CUSTOMER = 2;
+    static final byte GOLD_CUSTOMER = 3;
+    static final byte SHARED_PROPERTY = 1;
+    static final byte FULL_PROPERTY = 2;
+
+    private StateCodec() {
+    }
+
+    /**
+     * Write a user, including the fields of its concrete type.
+     *
+     * @param out  The output to write to.
+     * @param user The user to write.
+     * @throws IOException if writing fails.
+     */
+    public static void writeUser(DataOutput out, User user) throws IOException {
+        if (user instanceof Host) {
+            out.writeByte(HOST);
+        } else if (user instanceof GoldCustomer) {
+            out.writeByte(GOLD_CUSTOMER);
+        } else if (user instanceof StandardCustomer) {
+            out.writeByte(STANDARD_CUSTOMER);
+        } else {
+            throw new IOException("Unsupported user type: " + user.getClass().getName());
+        }
+        out.writeInt(user.getUserId());
+        writeDay(out, user.getDateOfBirthDay());
+        writeString(out, user.getFirstName());
+        writeString(out, user.getLastName());
+        writeDay(out, user.getRegistrationDay());
+        if (user instanceof Host) {
+            out.writeDouble(((Host) user).getTaxNumber());
+        } else {
+            writeString(out, ((Customer) user).getPreferredPaymentMethod());
+            if (user instanceof GoldCustomer) {
+                out.writeInt(((GoldCustomer) user).getGoldLevel());
+            }
+        }
+    }
+
+    /**
+     * Read a user written by {@link #writeUser}.
+     *
+     * @param in The input to read from.
+     * @return The decoded user, without bookings.
+     * @throws IOException if reading fails or the data is malformed.
+     */
+    public static User readUser(DataInput in) throws IOException {
+        byte type = in.readByte();
+        int userId = in.readInt();
+        int dateOfBirth = readDay(in);
+        String firstName = readString(in);
+        String lastName = readString(in);
+        int registrationDate = readDay(in);
+        switch (type) {
+            case HOST:
+                return new Host(userId, dateOfBirth, firstName, lastName, registrationDate, in.readDouble());
+            case STANDARD_CUSTOMER:
+                return new StandardCustomer(userId, dateOfBirth, firstName, lastName, registrationDate, readString(in));
+            case GOLD_CUSTOMER:
+                String paymentMethod = readString(in);
+                return new GoldCustomer(userId, dateOfBirth, firstName, lastName, registrationDate, paymentMethod, in.readInt());
+            default:
+                throw new IOException("Unknown user type: " + type);
+        }
+    }
+
+    /**
+     * Write a property, optionally followed by its inspection records.
+     *
+     * @param out             The output to write to.
+     * @param property        The property to write.
+     * @param withInspections Whether to include the inspection records.
+     * @throws IOException if writing fails.
+     */
+    public static void writeProperty(DataOutput out, Property property, boolean withInspections) throws IOException {
+        out.writeByte(property instanceof FullProperty ? FULL_PROPERTY : SHARED_PROPERTY);
+        out.writeInt(property.getPropertyId());
+        out.writeInt(property.getNoBedRooms());
+        out.writeInt(property.getNoRooms());
+        writeString(out, property.getCity());
+        out.writeDouble(property.getPricePerDay());
+        if (property instanceof FullProperty) {
+            out.writeDouble(((FullProperty) property).getSize());
+        }
+        if (withInspections) {
+            InspectionLog inspections = property.getInspections();
+            out.writeInt(inspections.size());
+            for (int i = 0; i < inspections.size(); i++) {
+                writeDay(out, inspections.day(i));
+                writeString(out, inspections.report(i));
+            }
+        }
+    }
+
+    /**
+     * Read a property written by {@link #writeProperty}.
+     *
+     * @param in              The input to read from.
+     * @param withInspections Whether the record includes inspection records.
+     * @return The decoded property.
+     * @throws IOException if reading fails or the data is malformed.
+     */
+    public static Property readProperty(DataInput in, boolean withInspections) throws IOException {
+        byte type = in.readByte();
+        int propertyId = in.readInt();
+        int noBedRooms = in.readInt();
+        int noRooms = in.readInt();
+        String city = readString(in);
+        double pricePerDay = in.readDouble();
+        Property property;
+        if (type == FULL_PROPERTY) {
+            property = new FullProperty(propertyId, noBedRooms, noRooms, city, in.readDouble(), pricePerDay);
+        } else if (type == SHARED_PROPERTY) {
+            property = new SharedProperty(propertyId, noBedRooms, noRooms, city, pricePerDay);
+        } else {
+            throw new IOException("Unknown property type: " + type);
+        }
+        if (withInspections) {
+            int inspections = in.readInt();
+            for (int i = 0; i < inspections; i++) {
+                int day = readDay(in);
+                property.getInspections().append(day, readString(in));
+            }
+        }
+        return property;
+    }
+
+    /**
+     * Write an optional epoch day as the int itself, so a log replayed in another time zone reads the same
+     * dates.
+     *
+     * @param out      The output to write to.
+     * @param epochDay The epoch day, or EpochDay.NONE.
+     * @throws IOException if writing fails.
+     */
+    public static void writeDay(DataOutput out, int epochDay) throws IOException {
+        out.writeInt(epochDay);
+    }
+
+    /**
+     * Read an optional epoch day written by {@link #writeDay}.
+     *
+     * @param in The input to read from.
+     * @return The epoch day, or EpochDay.NONE.
+     * @throws IOException if reading fails.
+     */
+    public static int readDay(DataInput in) throws IOException {
+        return in.readInt();
+    }
+
+    /**
+     * Write a nullable string as a length-prefixed UTF-8 byte sequence (no 64KB limit, unlike writeUTF).
+     *
+     * @param out   The output to write to.
+     * @param value The string, or null.
+     * @throws IOException if writing fails.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read a nullable string written by {@link #writeString}.
+     *
+     * @param in The input to read from.
+     * @return The string, or null.
+     * @throws IOException if reading fails.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
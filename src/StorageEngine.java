@@ -0,0 +1,502 @@
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable storage for the state of a BASIC instance.
+ * Every mutation (users, properties, bookings, inspections, price changes) is appended to a
+ * {@link WriteAheadLog}. Every {@code checkpointInterval} mutations the whole state is written to a
+ * {@link MappedSnapshot} and a new log segment is started, so recovery maps the latest snapshot and replays
+ * only the records logged after it.
+ *
+ * Directory layout: {@code snapshot-<lsn>.bin} holds the state up to and including that LSN, and
+ * {@code wal-<lsn>.log} holds the records logged after the snapshot or restart that created it.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class StorageEngine implements Closeable {
+    static final byte ADD_USER = 1;
+    static final byte DELETE_USER = 2;
+    static final byte ADD_PROPERTY = 3;
+    static final byte DELETE_PROPERTY = 4;
+    static final byte ADD_BOOKING = 5;
+    static final byte ADD_INSPECTION = 6;
+    static final byte SET_PRICE = 7;
+    static final byte ADD_HOSTED_PROPERTY = 8;
+    static final byte SET_PAID = 9;
+    static final byte CANCEL_BOOKING = 10;
+    static final byte SET_RATES = 11;
+
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
+
+    private final Path directory;
+    private final BASIC basic;
+    private final boolean syncEachMutation;
+    private final int checkpointInterval;
+    private final ScheduledExecutorService flusher;
+    private volatile WriteAheadLog wal;
+    private long segmentFirstLsn;
+    private final AtomicInteger sinceCheckpoint = new AtomicInteger();
+
+    private StorageEngine(Path directory, BASIC basic, boolean syncEachMutation, int checkpointInterval) {
+        this.directory = directory;
+        this.basic = basic;
+        this.syncEachMutation = syncEachMutation;
+        this.checkpointInterval = checkpointInterval;
+        if (syncEachMutation) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "basic-wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Open the storage directory, recover its state into the given (empty) BASIC instance and start
+     * logging the instance's mutations.
+     *
+     * @param directory          The storage directory; created if missing.
+     * @param basic              The BASIC instance to recover into.
+     * @param syncEachMutation   true to make every mutation durable before it returns (concurrent mutations
+     *                           share one fsync); false to fsync in the background every 10ms.
+     * @param checkpointInterval The number of mutations between snapshots.
+     * @return The open storage engine.
+     * @throws IOException if the directory cannot be read or written.
+     */
+    public static StorageEngine open(Path directory, BASIC basic, boolean syncEachMutation, int checkpointInterval) throws IOException {
+        Files.createDirectories(directory);
+        StorageEngine engine = new StorageEngine(directory, basic, syncEachMutation, checkpointInterval);
+        long lastLsn = engine.recover();
+        // A segment starting after the last recovered record holds nothing valid (at most a torn record)
+        Path segment = directory.resolve(segmentName(lastLsn + 1));
+        Files.deleteIfExists(segment);
+        engine.wal = new WriteAheadLog(segment, lastLsn);
+        engine.segmentFirstLsn = lastLsn + 1;
+        if (engine.flusher != null) {
+            engine.flusher.scheduleWithFixedDelay(engine::backgroundSync, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        basic.attachStorage(engine);
+        return engine;
+    }
+
+    // ------------------------------------------------------------------ logging
+
+    /**
+     * Log that a user was added.
+     *
+     * @param user The added user.
+     */
+    public void logUserAdded(User user) {
+        log(ADD_USER, out -> StateCodec.writeUser(out, user));
+    }
+
+    /**
+     * Log that a user was deleted.
+     *
+     * @param userId The ID of the deleted user.
+     */
+    public void logUserDeleted(int userId) {
+        log(DELETE_USER, out -> out.writeInt(userId));
+    }
+
+    /**
+     * Log that a property was added.
+     *
+     * @param property The added property.
+     */
+    public void logPropertyAdded(Property property) {
+        Host host = property.getHost();
+        if (host == null) {
+            log(ADD_PROPERTY, out -> StateCodec.writeProperty(out, property, false));
+        } else {
+            log(ADD_HOSTED_PROPERTY, out -> {
+                out.writeInt(host.getUserId());
+                StateCodec.writeProperty(out, property, false);
+            });
+        }
+    }
+
+    /**
+     * Log that a property was deleted.
+     *
+     * @param propertyId The ID of the deleted property.
+     */
+    public void logPropertyDeleted(int propertyId) {
+        log(DELETE_PROPERTY, out -> out.writeInt(propertyId));
+    }
+
+    /**
+     * Log that a booking was added.
+     * Bookings are logged while their property's lock stripe is held, so this never starts a checkpoint
+     * itself; the booking thread calls {@link #checkpointIfDue()} once it has released the stripe.
+     *
+     * @param booking The added booking.
+     */
+    public void logBookingAdded(Booking booking) {
+        append(ADD_BOOKING, out -> writeBooking(out, booking));
+    }
+
+    /**
+     * Log that a booking was marked as paid or unpaid.
+     * Like bookings, payments are logged while the property's lock stripe is held.
+     *
+     * @param booking The booking; {@link Booking#isPaid()} holds the new state.
+     */
+    public void logPaymentChanged(Booking booking) {
+        append(SET_PAID, out -> writeBooking(out, booking));
+    }
+
+    /**
+     * Log that a booking was cancelled on its own, for example because its reservation hold expired.
+     * Bookings cancelled because their user or property was removed are not logged; replaying the
+     * removal cancels them again. Like bookings, cancellations are logged while the property's lock
+     * stripe is held.
+     *
+     * @param booking The cancelled booking.
+     */
+    public void logBookingCancelled(Booking booking) {
+        append(CANCEL_BOOKING, out -> writeBooking(out, booking));
+    }
+
+    /**
+     * Log that an inspection report was recorded for a property.
+     *
+     * @param propertyId The ID of the inspected property.
+     * @param day        The inspection date as an epoch day.
+     * @param report     The inspection report.
+     */
+    public void logInspectionAdded(int propertyId, int day, String report) {
+        log(ADD_INSPECTION, out -> {
+            out.writeInt(propertyId);
+            StateCodec.writeDay(out, day);
+            StateCodec.writeString(out, report);
+        });
+    }
+
+    /**
+     * Log that the base price per day of a property changed.
+     *
+     * @param propertyId  The ID of the property.
+     * @param pricePerDay The new base price per day.
+     */
+    public void logPriceChanged(int propertyId, double pricePerDay) {
+        log(SET_PRICE, out -> {
+            out.writeInt(propertyId);
+            out.writeDouble(pricePerDay);
+        });
+    }
+
+    /**
+     * Log that the seasonal rates of a range of a property's nights changed.
+     *
+     * @param propertyId The ID of the property.
+     * @param fromDay    The first night of the range as an epoch day.
+     * @param rates      The rate of each night of the range.
+     */
+    public void logRatesChanged(int propertyId, int fromDay, double[] rates) {
+        log(SET_RATES, out -> {
+            out.writeInt(propertyId);
+            StateCodec.writeDay(out, fromDay);
+            out.writeInt(rates.length);
+            for (double rate : rates) {
+                out.writeDouble(rate);
+            }
+        });
+    }
+
+    private void log(byte type, WriteAheadLog.RecordWriter writer) {
+        append(type, writer);
+        checkpointIfDue();
+    }
+
+    private void append(byte type, WriteAheadLog.RecordWriter writer) {
+        try {
+            WriteAheadLog current = wal;
+            long lsn = current.append(type, writer);
+            if (syncEachMutation) {
+                current.awaitDurable(lsn);
+            }
+            sinceCheckpoint.incrementAndGet();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not log mutation", e);
+        }
+    }
+
+    /**
+     * Write a checkpoint if {@code checkpointInterval} mutations have been logged since the last one.
+     * Must not be called while holding a booking lock stripe.
+     */
+    public void checkpointIfDue() {
+        if (!isCheckpointDue()) {
+            return;
+        }
+        synchronized (this) {
+            // Another booking thread may have checkpointed while this one waited
+            if (isCheckpointDue()) {
+                try {
+                    checkpoint();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not write checkpoint", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether {@code checkpointInterval} mutations have been logged since the last checkpoint.
+     *
+     * @return true if a checkpoint is due; otherwise, false.
+     */
+    public boolean isCheckpointDue() {
+        return sinceCheckpoint.get() >= checkpointInterval;
+    }
+
+    private void backgroundSync() {
+        try {
+            wal.sync();
+        } catch (IOException e) {
+            System.out.println("Background log sync failed: " + e.getMessage());
+        }
+    }
+
+    // ------------------------------------------------------------------ snapshots
+
+    /**
+     * Write a snapshot of the current state, start a new log segment, and delete the snapshots and
+     * segments the new snapshot makes obsolete.
+     * Must be called from the thread that registers users and properties, and not while holding a
+     * booking lock stripe; bookings made on other threads wait until the snapshot is written.
+     *
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public synchronized void checkpoint() throws IOException {
+        // Holding every booking stripe keeps concurrent bookings out of the log and the state while the
+        // log is synced, the snapshot is written and the segment is switched
+        BookingService bookings = basic.getBookingService();
+        long lsn;
+        bookings.lockAll();
+        try {
+            WriteAheadLog previous = wal;
+            previous.sync();
+            lsn = previous.lastLsn();
+
+            Path temporary = directory.resolve("snapshot.tmp");
+            MappedSnapshot.write(temporary, basic, lsn);
+            Files.move(temporary, directory.resolve(snapshotName(lsn)), StandardCopyOption.ATOMIC_MOVE);
+
+            // An empty current segment already starts right after the snapshot
+            if (segmentFirstLsn != lsn + 1) {
+                wal = new WriteAheadLog(directory.resolve(segmentName(lsn + 1)), lsn);
+                segmentFirstLsn = lsn + 1;
+                previous.close();
+            }
+            sinceCheckpoint.set(0);
+        } finally {
+            bookings.unlockAll();
+        }
+        deleteObsoleteFiles(lsn);
+    }
+
+    // ------------------------------------------------------------------ recovery
+
+    /**
+     * Load the latest snapshot and replay the log records written after it.
+     *
+     * @return The LSN of the last recovered record.
+     */
+    private long recover() throws IOException {
+        long snapshotLsn = 0;
+        for (long lsn : lsnsOf("snapshot-", ".bin")) {
+            snapshotLsn = Math.max(snapshotLsn, lsn);
+        }
+        if (snapshotLsn > 0) {
+            // Records are materialized lazily; replay only touches the entities it mutates
+            basic.attachSnapshot(MappedSnapshot.open(directory.resolve(snapshotName(snapshotLsn))));
+        }
+        long lastLsn = snapshotLsn;
+        List<Long> segments = lsnsOf("wal-", ".log");
+        segments.sort(null);
+        for (long firstLsn : segments) {
+            lastLsn = Math.max(lastLsn, WriteAheadLog.replay(directory.resolve(segmentName(firstLsn)), lastLsn, this::apply));
+        }
+        return lastLsn;
+    }
+
+    private void apply(long lsn, byte type, DataInput in) throws IOException {
+        switch (type) {
+            case ADD_USER:
+                basic.users.add(StateCodec.readUser(in));
+                break;
+            case DELETE_USER:
+                basic.removeUser(in.readInt());
+                break;
+            case ADD_PROPERTY:
+                basic.properties.add(StateCodec.readProperty(in, false));
+                break;
+            case ADD_HOSTED_PROPERTY:
+                User host = basic.getUserById(in.readInt());
+                Property hosted = StateCodec.readProperty(in, false);
+                if (host instanceof Host) {
+                    hosted.setHost((Host) host);
+                }
+                basic.properties.add(hosted);
+                break;
+            case DELETE_PROPERTY:
+                basic.removeProperty(in.readInt());
+                break;
+            case ADD_BOOKING:
+                applyBooking(in);
+                break;
+            case ADD_INSPECTION:
+                Property inspected = basic.getPropertyById(in.readInt());
+                int day = StateCodec.readDay(in);
+                String report = StateCodec.readString(in);
+                if (inspected != null) {
+                    inspected.addInspection(day, report);
+                }
+                break;
+            case SET_PRICE:
+                basic.setPropertyPrice(in.readInt(), in.readDouble());
+                break;
+            case SET_PAID:
+                applyPayment(in);
+                break;
+            case CANCEL_BOOKING:
+                applyCancel(in);
+                break;
+            case SET_RATES:
+                applyRates(in);
+                break;
+            default:
+                throw new IOException("Unknown log record type " + type + " at LSN " + lsn);
+        }
+    }
+
+    private static void writeBooking(DataOutput out, Booking booking) throws IOException {
+        out.writeInt(booking.getUser().getUserId());
+        out.writeInt(booking.getProperty().getPropertyId());
+        StateCodec.writeDay(out, booking.getStartDay());
+        StateCodec.writeDay(out, booking.getEndDay());
+        out.writeBoolean(booking.isPaid());
+    }
+
+    private void applyPayment(DataInput in) throws IOException {
+        User user = basic.getUserById(in.readInt());
+        int propertyId = in.readInt();
+        int startDay = StateCodec.readDay(in);
+        int endDay = StateCodec.readDay(in);
+        boolean paid = in.readBoolean();
+        if (user == null) {
+            return;
+        }
+        for (Booking booking : user.getBookings()) {
+            if (booking.getProperty().getPropertyId() == propertyId && booking.getStartDay() == startDay
+                    && booking.getEndDay() == endDay && booking.isPaid() != paid) {
+                basic.setBookingPaid(booking, paid);
+                return;
+            }
+        }
+    }
+
+    private void applyRates(DataInput in) throws IOException {
+        int propertyId = in.readInt();
+        int fromDay = StateCodec.readDay(in);
+        double[] rates = new double[in.readInt()];
+        for (int i = 0; i < rates.length; i++) {
+            rates[i] = in.readDouble();
+        }
+        basic.setPropertyRates(propertyId, fromDay, rates);
+    }
+
+    private void applyCancel(DataInput in) throws IOException {
+        User user = basic.getUserById(in.readInt());
+        int propertyId = in.readInt();
+        int startDay = StateCodec.readDay(in);
+        int endDay = StateCodec.readDay(in);
+        boolean paid = in.readBoolean();
+        if (user == null) {
+            return;
+        }
+        for (Booking booking : user.getBookings()) {
+            if (booking.getProperty().getPropertyId() == propertyId && booking.getStartDay() == startDay
+                    && booking.getEndDay() == endDay && booking.isPaid() == paid) {
+                basic.cancelBooking(booking);
+                return;
+            }
+        }
+    }
+
+    private void applyBooking(DataInput in) throws IOException {
+        User user = basic.getUserById(in.readInt());
+        Property property = basic.getPropertyById(in.readInt());
+        int startDay = StateCodec.readDay(in);
+        int endDay = StateCodec.readDay(in);
+        boolean paid = in.readBoolean();
+        if (user != null && property != null) {
+            basic.addBooking(new Booking(user, property, startDay, endDay, paid));
+        }
+    }
+
+    // ------------------------------------------------------------------ files
+
+    private void deleteObsoleteFiles(long snapshotLsn) throws IOException {
+        for (long lsn : lsnsOf("snapshot-", ".bin")) {
+            if (lsn < snapshotLsn) {
+                Files.deleteIfExists(directory.resolve(snapshotName(lsn)));
+            }
+        }
+        for (long firstLsn : lsnsOf("wal-", ".log")) {
+            if (firstLsn <= snapshotLsn) {
+                Files.deleteIfExists(directory.resolve(segmentName(firstLsn)));
+            }
+        }
+    }
+
+    private List<Long> lsnsOf(String prefix, String suffix) throws IOException {
+        List<Long> lsns = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                lsns.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+            }
+        }
+        return lsns;
+    }
+
+    private static String snapshotName(long lsn) {
+        return String.format("snapshot-%020d.bin", lsn);
+    }
+
+    private static String segmentName(long firstLsn) {
+        return String.format("wal-%020d.log", firstLsn);
+    }
+
+    /**
+     * Stop the background flusher, sync the log and close it.
+     *
+     * @throws IOException if the final sync fails.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        wal.close();
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Dictionary encoding for repeated strings: each distinct string gets a dense int code.
+ * Codes are assigned in order of first appearance and never change.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class StringDictionary {
+    private final HashMap<String, Integer> codes = new HashMap<>();
+    private final ArrayList<String> values = new ArrayList<>();
+
+    /**
+     * Get the code of a string, assigning a new one if the string has not been seen before.
+     *
+     * @param value The string to encode.
+     * @return The code of the string.
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Get the code of a string without assigning one.
+     *
+     * @param value The string to look up.
+     * @return The code of the string, or -1 if it has never been encoded.
+     */
+    public int find(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Get the string for a code.
+     *
+     * @param code The code.
+     * @return The string the code was assigned to.
+     */
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    /**
+     * Get the number of distinct strings in the dictionary.
+     *
+     * @return The number of codes assigned.
+     */
+    public int size() {
+        return values.size();
+    }
+}
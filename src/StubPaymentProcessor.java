@@ -0,0 +1,56 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A local stand-in for a payment provider, for testing settlement throughput without one.
+ * Every call waits a fixed round-trip latency plus a small cost per booking, like a provider's batch
+ * endpoint, and every n-th payment it sees is declined, so results are repeatable.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class StubPaymentProcessor implements PaymentProcessor {
+    private final long callNanos;
+    private final long bookingNanos;
+    private final int declineEvery;
+    private final AtomicLong seen = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+
+    /**
+     * Constructs a stub processor.
+     *
+     * @param callMicros    The latency of each call in microseconds.
+     * @param bookingMicros The additional latency per booking in microseconds.
+     * @param declineEvery  Decline every n-th payment, or 0 to settle every payment.
+     */
+    public StubPaymentProcessor(long callMicros, long bookingMicros, int declineEvery) {
+        this.callNanos = callMicros * 1000;
+        this.bookingNanos = bookingMicros * 1000;
+        this.declineEvery = declineEvery;
+    }
+
+    @Override
+    public boolean[] settle(String paymentMethod, List<Booking> bookings) {
+        calls.incrementAndGet();
+        long latency = callNanos + bookingNanos * bookings.size();
+        if (latency > 0) {
+            LockSupport.parkNanos(latency);
+        }
+        boolean[] settled = new boolean[bookings.size()];
+        for (int i = 0; i < settled.length; i++) {
+            long number = seen.incrementAndGet();
+            settled[i] = declineEvery <= 0 || number % declineEvery != 0;
+        }
+        return settled;
+    }
+
+    /**
+     * Get the number of calls made to the processor.
+     *
+     * @return The number of calls.
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+}
@@ -0,0 +1,218 @@
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel: timers are hashed by deadline into four levels of 64 slots each, where a
+ * slot of level 0 covers one tick and a slot of each higher level covers all 64 slots of the level below.
+ * Scheduling and cancelling a timer link and unlink it from its slot's list in constant time, and advancing
+ * the clock by one tick expires one slot of level 0; every 64 ticks the next slot of level 1 is redistributed
+ * into level 0, and so on up. A timer is therefore touched at most once per level it passes through, however
+ * many timers are pending, and no thread or task is kept per timer.
+ *
+ * The four levels cover 2^24 ticks; timers further out are parked in the last slot of the top level and
+ * redistributed until they come within range. Not thread-safe; callers synchronize.
+ *
+ * @param <T> The type of value carried by the timers.
+ * @author Albaraa
+ * @version 1.0
+ */
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long RANGE = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final long originMillis;
+    // One sentinel per slot heads a circular doubly linked list of that slot's timers
+    private final Timer<T>[] slots;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Constructs an empty wheel.
+     *
+     * @param tickMillis  The resolution of the wheel in milliseconds; timers expire up to one tick late.
+     * @param startMillis The current time in milliseconds.
+     */
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.originMillis = startMillis;
+        this.slots = newSlots(LEVELS * SLOTS);
+        for (int i = 0; i < slots.length; i++) {
+            Timer<T> sentinel = new Timer<>(null, 0);
+            sentinel.previous = sentinel;
+            sentinel.next = sentinel;
+            slots[i] = sentinel;
+        }
+    }
+
+    /**
+     * Schedule a timer.
+     *
+     * @param value          The value handed back when the timer expires.
+     * @param deadlineMillis The time in milliseconds at which the timer expires.
+     * @return The scheduled timer, which can be passed to {@link #cancel}.
+     */
+    public Timer<T> schedule(T value, long deadlineMillis) {
+        // Round up, so a timer never expires before its deadline
+        long deadlineTick = Math.floorDiv(deadlineMillis - originMillis + tickMillis - 1, tickMillis);
+        Timer<T> timer = new Timer<>(value, deadlineTick);
+        insert(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * Cancel a pending timer.
+     *
+     * @param timer The timer.
+     * @return true if the timer was pending; false if it had already expired or been cancelled.
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (timer.next == null) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advance the clock, expiring every timer whose deadline has passed.
+     *
+     * @param nowMillis The current time in milliseconds.
+     * @param expired   Receives the value of each expired timer, in deadline order to within a tick.
+     * @return The number of timers that expired.
+     */
+    public int advance(long nowMillis, Consumer<? super T> expired) {
+        long targetTick = Math.floorDiv(nowMillis - originMillis, tickMillis);
+        int count = 0;
+        while (currentTick <= targetTick) {
+            if (size == 0) {
+                // Nothing to expire or redistribute on the way
+                currentTick = targetTick + 1;
+                break;
+            }
+            int index = (int) (currentTick & SLOT_MASK);
+            if (index == 0) {
+                for (int level = 1; level < LEVELS; level++) {
+                    int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                    redistribute(level * SLOTS + slot);
+                    if (slot != 0) {
+                        break;
+                    }
+                }
+            }
+            Timer<T> sentinel = slots[index];
+            while (sentinel.next != sentinel) {
+                Timer<T> timer = sentinel.next;
+                unlink(timer);
+                if (timer.deadlineTick > currentTick) {
+                    // Parked beyond the range of the wheel; not due yet
+                    insert(timer);
+                    continue;
+                }
+                size--;
+                count++;
+                expired.accept(timer.value);
+            }
+            currentTick++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of pending timers.
+     *
+     * @return The number of timers scheduled and neither expired nor cancelled.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void redistribute(int slotIndex) {
+        Timer<T> sentinel = slots[slotIndex];
+        Timer<T> timer = sentinel.next;
+        sentinel.previous = sentinel;
+        sentinel.next = sentinel;
+        while (timer != sentinel) {
+            Timer<T> next = timer.next;
+            insert(timer);
+            timer = next;
+        }
+    }
+
+    private void insert(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        int slotIndex;
+        if (delta < 0) {
+            // Already due: expires on the next tick processed
+            slotIndex = (int) (currentTick & SLOT_MASK);
+        } else if (delta >= RANGE) {
+            slotIndex = slotOf(currentTick + RANGE - 1, LEVELS - 1);
+        } else {
+            int level = (63 - Long.numberOfLeadingZeros(delta | 1)) / SLOT_BITS;
+            slotIndex = slotOf(timer.deadlineTick, level);
+        }
+        Timer<T> sentinel = slots[slotIndex];
+        timer.previous = sentinel.previous;
+        timer.next = sentinel;
+        sentinel.previous.next = timer;
+        sentinel.previous = timer;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Timer<T>[] newSlots(int length) {
+        return new Timer[length];
+    }
+
+    private static int slotOf(long tick, int level) {
+        return level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private static <T> void unlink(Timer<T> timer) {
+        timer.previous.next = timer.next;
+        timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+    }
+
+    /**
+     * A timer scheduled on a wheel.
+     *
+     * @param <T> The type of value carried by the timer.
+     */
+    public static final class Timer<T> {
+        private final T value;
+        private final long deadlineTick;
+        private Timer<T> previous;
+        private Timer<T> next;
+
+        private Timer(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Get the value handed back when the timer expires.
+         *
+         * @return The value.
+         */
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * Check whether the timer is still waiting to expire.
+         *
+         * @return true if the timer has neither expired nor been cancelled; otherwise, false.
+         */
+        public boolean isPending() {
+            return next != null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes the updates of an index without making the threads that submit them wait for each other.
+ *
+ * Booking events are delivered under a property's lock stripe, so an index that applied them under its own
+ * lock would make every stripe queue up behind it. Instead a submitted update joins a lock-free queue and
+ * whichever thread holds the index's lock applies it: the submitter itself when the lock is free, otherwise
+ * the thread holding it, before it lets go. Updates are applied one at a time and in the order they were
+ * submitted, so the updates of one property, submitted under its stripe, keep their order. Reads and updates
+ * that must see every earlier one take the lock, which first applies whatever is still queued.
+ *
+ * An update runs later than the event it reflects, so it must capture what it needs from the event's
+ * objects when it is submitted, not read them when it runs.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class UpdateQueue {
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Submit an update, applying it now if no other thread holds the lock. Never waits for the lock.
+     *
+     * @param update The update.
+     */
+    public void submit(Runnable update) {
+        pending.add(update);
+        drainIfFree();
+    }
+
+    /**
+     * Take the lock, waiting for it if needed, and apply every queued update.
+     */
+    public void lock() {
+        lock.lock();
+        try {
+            drain();
+        } catch (RuntimeException | Error e) {
+            unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Release the lock taken by {@link #lock()}, applying any update submitted while it was held.
+     */
+    public void unlock() {
+        lock.unlock();
+        drainIfFree();
+    }
+
+    private void drainIfFree() {
+        // A submitter that found the lock taken just before its holder released it leaves its update behind,
+        // so check again after every release
+        while (!pending.isEmpty() && lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void drain() {
+        Runnable update;
+        while ((update = pending.poll()) != null) {
+            update.run();
+        }
+    }
+}
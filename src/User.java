@@ -9,10 +9,10 @@ import java.util.Date;
  */
 public abstract class User {
     private int userId;
-    private Date dateOfBirth;
+    private int dateOfBirth = EpochDay.NONE;
     private String firstName;
     private String lastName;
-    private Date registrationDate;
+    private int registrationDate = EpochDay.NONE;
     private ArrayList<Booking> bookings = new ArrayList<>();
 
     /**
@@ -31,6 +31,19 @@ public abstract class User {
      * @param registrationDate The date of user registration.
      */
     public User(int userId, Date dateOfBirth, String firstName, String lastName, Date registrationDate) {
+        this(userId, EpochDay.of(dateOfBirth), firstName, lastName, EpochDay.of(registrationDate));
+    }
+
+    /**
+     * Constructor with user information and dates as epoch days.
+     *
+     * @param userId           The unique ID of the user.
+     * @param dateOfBirth      The date of birth of the user as an epoch day, or EpochDay.NONE.
+     * @param firstName        The first name of the user.
+     * @param lastName         The last name of the user.
+     * @param registrationDate The date of user registration as an epoch day, or EpochDay.NONE.
+     */
+    public User(int userId, int dateOfBirth, String firstName, String lastName, int registrationDate) {
         this.userId = userId;
         this.dateOfBirth = dateOfBirth;
         this.firstName = firstName;
@@ -71,7 +84,7 @@ public abstract class User {
      * @return The date of birth.
      */
     public Date getDateOfBirth() {
-        return dateOfBirth;
+        return EpochDay.toDate(dateOfBirth);
     }
 
     /**
@@ -80,7 +93,16 @@ public abstract class User {
      * @param dateOfBirth The date of birth to set.
      */
     public void setDateOfBirth(Date dateOfBirth) {
-        this.dateOfBirth = dateOfBirth;
+        this.dateOfBirth = EpochDay.of(dateOfBirth);
+    }
+
+    /**
+     * Get the date of birth of the user as an epoch day.
+     *
+     * @return The date of birth, or EpochDay.NONE if unknown.
+     */
+    public int getDateOfBirthDay() {
+        return dateOfBirth;
     }
 
     /**
@@ -125,7 +147,7 @@ public abstract class User {
      * @return The registration date.
      */
     public Date getRegistrationDate() {
-        return registrationDate;
+        return EpochDay.toDate(registrationDate);
     }
 
     /**
@@ -134,7 +156,16 @@ public abstract class User {
      * @param registrationDate The registration date to set.
      */
     public void setRegistrationDate(Date registrationDate) {
-        this.registrationDate = registrationDate;
+        this.registrationDate = EpochDay.of(registrationDate);
+    }
+
+    /**
+     * Get the date of user registration as an epoch day.
+     *
+     * @return The registration date, or EpochDay.NONE if unknown.
+     */
+    public int getRegistrationDay() {
+        return registrationDate;
     }
 
     /**
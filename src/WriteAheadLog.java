@@ -0,0 +1,295 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only binary log of mutations.
+ * Each record is framed as [payload length][CRC32][LSN][type][payload], so a record torn by a crash is
+ * detected on replay and everything after it is ignored.
+ * Appends only copy the record into a memory buffer; {@link #awaitDurable} uses group commit: the first
+ * caller to find no flush in progress writes and fsyncs everything appended so far, and callers whose
+ * records were part of that batch return without issuing a flush of their own. A batch that fails to
+ * write or sync is cut from the file and put back in front of the records appended since, so the next
+ * flush writes it again and no LSN counts as durable before it is on disk.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+public class WriteAheadLog implements Closeable {
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 1;
+
+    private final FileChannel channel;
+    private final Object lock = new Object();
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer flushing = ByteBuffer.allocate(1 << 16);
+    private long lastLsn;
+    private long durableLsn;
+    private boolean flushInProgress;
+    private IOException failure; // set once a failed batch could not be cut from the file
+
+    /**
+     * Writes the payload of a record.
+     */
+    @FunctionalInterface
+    public interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * Receives records during replay.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(long lsn, byte type, DataInput payload) throws IOException;
+    }
+
+    /**
+     * Creates a new log segment.
+     *
+     * @param path    The segment file to create.
+     * @param lastLsn The LSN of the last record already made durable elsewhere; new records continue after it.
+     * @throws IOException if the file cannot be created.
+     */
+    public WriteAheadLog(Path path, long lastLsn) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), lastLsn);
+    }
+
+    /**
+     * Creates a log segment that writes to an open, empty channel.
+     *
+     * @param channel The channel of the segment.
+     * @param lastLsn The LSN of the last record already made durable elsewhere; new records continue after it.
+     */
+    WriteAheadLog(FileChannel channel, long lastLsn) {
+        this.channel = channel;
+        this.lastLsn = lastLsn;
+        this.durableLsn = lastLsn;
+    }
+
+    /**
+     * Append a record to the in-memory batch.
+     * The record is not durable until {@link #awaitDurable} returns for its LSN.
+     *
+     * @param type   The record type.
+     * @param writer Writes the record payload.
+     * @return The LSN assigned to the record.
+     * @throws IOException if the payload cannot be encoded, or the log failed earlier.
+     */
+    public long append(byte type, RecordWriter writer) throws IOException {
+        synchronized (lock) {
+            checkNotFailed();
+            scratch.reset();
+            writer.write(scratchOut);
+            long lsn = lastLsn + 1;
+            byte[] payload = scratch.toByteArray();
+
+            crc.reset();
+            crc.update(longBytes(lsn));
+            crc.update(type);
+            crc.update(payload);
+
+            ensureCapacity(HEADER_BYTES + payload.length);
+            pending.putInt(payload.length);
+            pending.putInt((int) crc.getValue());
+            pending.putLong(lsn);
+            pending.put(type);
+            pending.put(payload);
+            lastLsn = lsn;
+            return lsn;
+        }
+    }
+
+    /**
+     * Block until the record with the given LSN (and every record before it) is on disk.
+     *
+     * @param lsn The LSN to wait for.
+     * @throws IOException if writing or syncing the log fails, now or earlier.
+     */
+    public void awaitDurable(long lsn) throws IOException {
+        ByteBuffer batch;
+        long batchLsn;
+        long batchStart;
+        synchronized (lock) {
+            while (durableLsn < lsn && flushInProgress) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the log to sync", e);
+                }
+            }
+            if (durableLsn >= lsn) {
+                return;
+            }
+            checkNotFailed();
+            // Become the leader for everything appended so far
+            batchStart = channel.position();
+            flushInProgress = true;
+            batch = pending;
+            pending = flushing;
+            flushing = batch;
+            batchLsn = lastLsn;
+        }
+        boolean synced = false;
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+            synced = true;
+        } finally {
+            synchronized (lock) {
+                if (synced) {
+                    durableLsn = batchLsn;
+                } else {
+                    requeue(batch, batchStart);
+                }
+                batch.clear();
+                flushInProgress = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Make every record appended so far durable.
+     *
+     * @throws IOException if writing or syncing the log fails.
+     */
+    public void sync() throws IOException {
+        awaitDurable(lastLsn());
+    }
+
+    /**
+     * Get the LSN of the last appended record.
+     *
+     * @return The last LSN.
+     */
+    public long lastLsn() {
+        synchronized (lock) {
+            return lastLsn;
+        }
+    }
+
+    /**
+     * Sync outstanding records and close the segment.
+     *
+     * @throws IOException if syncing or closing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Replay the records of a segment in order, stopping at the first torn or corrupt record.
+     *
+     * @param path     The segment file.
+     * @param afterLsn Records with an LSN at or below this value are skipped.
+     * @param handler  Receives each record.
+     * @return The LSN of the last valid record in the segment, or afterLsn if there was none after it.
+     * @throws IOException if the file cannot be read or the handler fails.
+     */
+    public static long replay(Path path, long afterLsn, RecordHandler handler) throws IOException {
+        long last = afterLsn;
+        CRC32 check = new CRC32();
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+             InputStream stream = new BufferedInputStream(Channels.newInputStream(file), 1 << 16);
+             DataInputStream in = new DataInputStream(stream)) {
+            long remaining = file.size();
+            while (true) {
+                int length;
+                int expectedCrc;
+                long lsn;
+                byte type;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    expectedCrc = in.readInt();
+                    lsn = in.readLong();
+                    type = in.readByte();
+                    remaining -= HEADER_BYTES;
+                    // A length beyond the end of the file is a corrupt header, not a record to allocate
+                    if (length < 0 || length > remaining) {
+                        break;
+                    }
+                    remaining -= length;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break; // Clean end of segment or a torn final record
+                }
+                check.reset();
+                check.update(longBytes(lsn));
+                check.update(type);
+                check.update(payload);
+                if ((int) check.getValue() != expectedCrc) {
+                    break;
+                }
+                if (lsn > afterLsn) {
+                    handler.handle(lsn, type, new DataInputStream(new ByteArrayInputStream(payload)));
+                    last = lsn;
+                }
+            }
+        }
+        return last;
+    }
+
+    // Cut a batch that failed to flush from the file and put it back in front of the records appended since
+    private void requeue(ByteBuffer batch, long batchStart) {
+        try {
+            channel.truncate(batchStart);
+            channel.position(batchStart);
+        } catch (IOException e) {
+            // Bytes of the batch may remain in the file, so writing anything after them could hide records
+            failure = e;
+        }
+        batch.rewind();
+        ByteBuffer merged = ByteBuffer.allocate(Math.max(pending.capacity(), batch.remaining() + pending.position()));
+        merged.put(batch);
+        pending.flip();
+        merged.put(pending);
+        pending = merged;
+    }
+
+    private void checkNotFailed() throws IOException {
+        if (failure != null) {
+            throw new IOException("The log could not recover from a failed flush", failure);
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    private static byte[] longBytes(long value) {
+        return ByteBuffer.allocate(8).putLong(value).array();
+    }
+}
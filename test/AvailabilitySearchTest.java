@@ -0,0 +1,79 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link AvailabilitySearch} through the property registry of {@link BASIC}.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class AvailabilitySearchTest {
+    private static final int FIRST_DAY = EpochDay.of(2024, 6, 1);
+
+    private static BASIC basicWithProperties() {
+        BASIC basic = new BASIC();
+        basic.users.add(new StandardCustomer(1, EpochDay.of(1990, 1, 1), "Ada", "Lee", EpochDay.of(2020, 1, 1),
+                "Card"));
+        basic.properties.add(new FullProperty(1, 2, 4, "Oslo", 80, 150));
+        basic.properties.add(new FullProperty(2, 3, 5, "Oslo", 120, 90));
+        basic.properties.add(new SharedProperty(3, 2, 3, "Bergen", 60));
+        return basic;
+    }
+
+    private static List<Integer> ids(List<Property> properties) {
+        return properties.stream().map(Property::getPropertyId).toList();
+    }
+
+    @Test
+    void findsFreePropertiesInACityCheapestFirst() {
+        BASIC basic = basicWithProperties();
+        AvailabilitySearch search = basic.getAvailabilitySearch();
+        assertEquals(List.of(2, 1), ids(search.findAvailable(" oslo ", FIRST_DAY, FIRST_DAY + 3, 0, 0, true)));
+        assertEquals(List.of(2), ids(search.findAvailable("Oslo", FIRST_DAY, FIRST_DAY + 3, 3, 0, false)));
+        assertEquals(List.of(), ids(search.findAvailable("Paris", FIRST_DAY, FIRST_DAY + 3, 0, 0, true)));
+        assertThrows(IllegalArgumentException.class,
+                () -> search.findAvailable("Oslo", FIRST_DAY, FIRST_DAY, 0, 0, true));
+    }
+
+    @Test
+    void skipsPropertiesBookedOnAnyNight() {
+        BASIC basic = basicWithProperties();
+        User user = basic.getUserById(1);
+        assertTrue(basic.addBooking(new Booking(user, basic.getPropertyById(2), FIRST_DAY + 2, FIRST_DAY + 4,
+                false)));
+        AvailabilitySearch search = basic.getAvailabilitySearch();
+        assertEquals(List.of(1), ids(search.findAvailable("Oslo", FIRST_DAY, FIRST_DAY + 3, 0, 0, true)));
+        assertEquals(List.of(2, 1), ids(search.findAvailable("Oslo", FIRST_DAY + 4, FIRST_DAY + 9, 0, 0, true)));
+
+        // The shared property has room for one booking per bedroom
+        Property shared = basic.getPropertyById(3);
+        assertTrue(basic.addBooking(new Booking(user, shared, FIRST_DAY, FIRST_DAY + 2, false)));
+        assertEquals(List.of(3), ids(search.findAvailable("Bergen", FIRST_DAY, FIRST_DAY + 2, 0, 0, true)));
+        assertTrue(basic.addBooking(new Booking(user, shared, FIRST_DAY + 1, FIRST_DAY + 2, false)));
+        assertEquals(List.of(), ids(search.findAvailable("Bergen", FIRST_DAY, FIRST_DAY + 2, 0, 0, true)));
+        assertEquals(List.of(3), ids(search.findAvailable("Bergen", FIRST_DAY, FIRST_DAY + 1, 0, 0, true)));
+    }
+
+    @Test
+    void movesAPropertyWhenItsCityChanges() {
+        BASIC basic = basicWithProperties();
+        AvailabilitySearch search = basic.getAvailabilitySearch();
+        basic.getPropertyById(1).setCity("Bergen");
+        assertEquals(1, search.countInCity("Oslo"));
+        assertEquals(2, search.countInCity("Bergen"));
+        assertEquals(List.of(3, 1), ids(search.findAvailable("Bergen", FIRST_DAY, FIRST_DAY + 1, 0, 0, true)));
+
+        // Other attribute changes keep the property where it is
+        basic.getPropertyById(1).setNoRooms(6);
+        assertEquals(2, search.countInCity("Bergen"));
+
+        basic.properties.remove(basic.getPropertyById(1));
+        assertEquals(1, search.countInCity("Bergen"));
+        assertEquals(1, search.countInCity("Oslo"));
+    }
+}
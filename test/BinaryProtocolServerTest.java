@@ -0,0 +1,198 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests pipelined requests and the response encoding of {@link BinaryProtocolServer}.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class BinaryProtocolServerTest {
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+
+    private BASIC basic;
+    private BinaryProtocolServer server;
+    private Socket socket;
+    private DataOutputStream out;
+    private DataInputStream in;
+
+    @BeforeEach
+    void start() throws IOException {
+        basic = new BASIC();
+        basic.users.add(new GoldCustomer(1, EpochDay.of(1990, 5, 6), "Åse", "L", EpochDay.of(2020, 1, 1), "Card", 2));
+        basic.properties.add(new SharedProperty(10, 1, 3, "Oslo", 90));
+        basic.properties.add(new FullProperty(11, 2, 4, "Bergen", 120, 150));
+        server = BinaryProtocolServer.start(basic, 0);
+        socket = new Socket("localhost", server.getPort());
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        socket.close();
+        server.close();
+    }
+
+    private void request(int requestId, byte opcode, int... arguments) throws IOException {
+        out.writeInt(5 + 4 * arguments.length);
+        out.writeInt(requestId);
+        out.writeByte(opcode);
+        for (int argument : arguments) {
+            out.writeInt(argument);
+        }
+    }
+
+    /**
+     * Read one response frame and return its status, leaving the result in the stream.
+     */
+    private byte response(int requestId) throws IOException {
+        in.readInt();
+        assertEquals(requestId, in.readInt());
+        return in.readByte();
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void answersPipelinedRequestsInOrder() throws IOException {
+        request(1, BinaryProtocolServer.GET_USER, 1);
+        request(2, BinaryProtocolServer.GET_PROPERTY, 11);
+        request(3, BinaryProtocolServer.ADD_BOOKING, 1, 10, FIRST_DAY, FIRST_DAY + 3);
+        request(4, BinaryProtocolServer.ADD_BOOKING, 1, 10, FIRST_DAY + 2, FIRST_DAY + 4);
+        request(5, BinaryProtocolServer.GET_BOOKING_COST, 1, 10);
+        request(6, BinaryProtocolServer.COMPARE_PRICES, 10, 11);
+        out.flush();
+
+        assertEquals(BinaryProtocolServer.OK, response(1));
+        assertEquals(1, in.readInt());
+        assertEquals(2, in.readByte());
+        assertEquals("Åse", readString());
+        assertEquals("L", readString());
+        assertEquals(EpochDay.of(1990, 5, 6), in.readInt());
+        assertEquals(EpochDay.of(2020, 1, 1), in.readInt());
+        assertEquals(basic.getDiscountEngine().discountOf(basic.getUserById(1)), in.readDouble());
+
+        assertEquals(BinaryProtocolServer.OK, response(2));
+        assertEquals(11, in.readInt());
+        assertEquals(PropertyStore.FULL, in.readByte());
+        assertEquals(2, in.readInt());
+        assertEquals(4, in.readInt());
+        assertEquals("Bergen", readString());
+        assertEquals(150.0, in.readDouble());
+        assertEquals(basic.getPropertyById(11).calculatePricePerDay(), in.readDouble());
+
+        assertEquals(BinaryProtocolServer.OK, response(3));
+        assertEquals(BinaryProtocolServer.CONFLICT, response(4));
+
+        assertEquals(BinaryProtocolServer.OK, response(5));
+        Booking booking = basic.getBookingService().getBookings(1).get(0);
+        assertEquals(booking.netCost(basic.getDiscountEngine().discountOf(booking.getUser())), in.readDouble());
+        assertEquals(booking.totalCost(), in.readDouble());
+
+        assertEquals(BinaryProtocolServer.OK, response(6));
+        assertEquals(basic.getPropertyById(10).compareTo(basic.getPropertyById(11)), in.readInt());
+    }
+
+    @Test
+    void reportsMissingIdsAndBadRequests() throws IOException {
+        request(1, BinaryProtocolServer.GET_USER, 99);
+        request(2, BinaryProtocolServer.GET_PROPERTY);
+        request(3, BinaryProtocolServer.ADD_BOOKING, 1, 10, FIRST_DAY, FIRST_DAY);
+        request(4, BinaryProtocolServer.ADD_BOOKING, 1, 99, FIRST_DAY, FIRST_DAY + 1);
+        request(5, (byte) 42);
+        request(6, BinaryProtocolServer.COMPARE_PRICES, 10, 99);
+        out.flush();
+        assertEquals(BinaryProtocolServer.NOT_FOUND, response(1));
+        assertEquals(BinaryProtocolServer.BAD_REQUEST, response(2));
+        assertEquals(BinaryProtocolServer.BAD_REQUEST, response(3));
+        assertEquals(BinaryProtocolServer.NOT_FOUND, response(4));
+        assertEquals(BinaryProtocolServer.BAD_REQUEST, response(5));
+        assertEquals(BinaryProtocolServer.NOT_FOUND, response(6));
+    }
+
+    @Test
+    void acceptsFramesLargerThanTheReadBuffer() throws IOException {
+        // Padding after the arguments is ignored, so the frame only has to fit within MAX_FRAME
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(frame);
+        body.writeInt(7);
+        body.writeByte(BinaryProtocolServer.GET_PROPERTY);
+        body.writeInt(10);
+        body.write(new byte[40_000]);
+        out.writeInt(frame.size());
+        frame.writeTo(out);
+        request(8, BinaryProtocolServer.GET_USER, 1);
+        out.flush();
+        assertEquals(BinaryProtocolServer.OK, response(7));
+        assertEquals(10, in.readInt());
+        in.skipBytes(1 + 4 + 4);
+        assertEquals("Oslo", readString());
+        in.skipBytes(16);
+        assertEquals(BinaryProtocolServer.OK, response(8));
+    }
+
+    @Test
+    void servesOtherConnectionsWhileABookingWaits() throws Exception {
+        CountDownLatch booking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Stands in for a booking that waits for the disk
+        basic.getBookingService().addListener(added -> {
+            booking.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        request(1, BinaryProtocolServer.ADD_BOOKING, 1, 10, FIRST_DAY, FIRST_DAY + 3);
+        request(2, BinaryProtocolServer.GET_BOOKING_COST, 1, 10);
+        out.flush();
+        assertTrue(booking.await(10, TimeUnit.SECONDS));
+
+        try (Socket other = new Socket("localhost", server.getPort())) {
+            DataOutputStream otherOut = new DataOutputStream(other.getOutputStream());
+            DataInputStream otherIn = new DataInputStream(other.getInputStream());
+            otherOut.writeInt(9);
+            otherOut.writeInt(5);
+            otherOut.writeByte(BinaryProtocolServer.GET_USER);
+            otherOut.writeInt(1);
+            otherOut.flush();
+            otherIn.readInt();
+            assertEquals(5, otherIn.readInt());
+            assertEquals(BinaryProtocolServer.OK, otherIn.readByte());
+        }
+
+        // The request after the booking sees it once it is made
+        release.countDown();
+        assertEquals(BinaryProtocolServer.OK, response(1));
+        assertEquals(BinaryProtocolServer.OK, response(2));
+    }
+
+    @Test
+    void closesConnectionsSendingOversizedFrames() throws IOException {
+        out.writeInt(BinaryProtocolServer.MAX_FRAME + 1);
+        out.writeInt(1);
+        out.flush();
+        assertTrue(in.read() < 0);
+    }
+}
@@ -0,0 +1,115 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the overlap detection and full-nights bitmap of {@link BookingCalendar}.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class BookingCalendarTest {
+    private static final int FIRST_DAY = EpochDay.of(2024, 1, 1);
+
+    private static Booking booking(Property property, int start, int end) {
+        return new Booking(null, property, FIRST_DAY + start, FIRST_DAY + end, false);
+    }
+
+    @Test
+    void rejectsOverlappingStaysOfAWholeProperty() {
+        Property property = new FullProperty(1, 2, 4, "Oslo", 80, 100);
+        BookingCalendar calendar = property.getCalendar();
+        assertTrue(calendar.add(booking(property, 0, 5), 1));
+        assertTrue(calendar.add(booking(property, 5, 8), 1));
+        assertFalse(calendar.add(booking(property, 4, 6), 1));
+        assertFalse(calendar.add(booking(property, 7, 9), 1));
+        assertTrue(calendar.add(booking(property, 8, 9), 1));
+        assertEquals(3, calendar.size());
+        assertThrows(IllegalArgumentException.class, () -> calendar.isAvailable(FIRST_DAY, FIRST_DAY, 1));
+    }
+
+    @Test
+    void matchesBruteForceUnderRandomBookingsAndCancellations() {
+        Property property = new SharedProperty(1, 3, 5, "Oslo", 90);
+        BookingCalendar calendar = property.getCalendar();
+        List<Booking> booked = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            if (!booked.isEmpty() && random.nextInt(3) == 0) {
+                Booking cancelled = booked.remove(random.nextInt(booked.size()));
+                assertTrue(calendar.remove(cancelled));
+                assertFalse(calendar.remove(cancelled));
+                continue;
+            }
+            int start = random.nextInt(300);
+            Booking booking = booking(property, start, start + 1 + random.nextInt(14));
+            boolean fits = true;
+            for (int day = booking.getStartDay(); day < booking.getEndDay(); day++) {
+                fits &= occupants(booked, day) < 3;
+            }
+            assertEquals(fits, calendar.hasRoom(booking.getStartDay(), booking.getEndDay()));
+            assertEquals(fits, calendar.add(booking, 3));
+            if (fits) {
+                booked.add(booking);
+            }
+        }
+        for (int day = FIRST_DAY - 1; day < FIRST_DAY + 320; day++) {
+            assertEquals(occupants(booked, day), calendar.countOccupants(day));
+            assertEquals(occupants(booked, day) >= 3, calendar.getFullNights().isMarked(day));
+        }
+    }
+
+    @Test
+    void findsBookingsByStartDay() {
+        Property property = new FullProperty(1, 2, 4, "Oslo", 80, 100);
+        Booking first = booking(property, 0, 2);
+        Booking second = booking(property, 2, 4);
+        property.getCalendar().add(first, 1);
+        property.getCalendar().add(second, 1);
+        assertSame(second, property.getCalendar().find(FIRST_DAY + 2, candidate -> candidate == second));
+        assertNull(property.getCalendar().find(FIRST_DAY + 1, candidate -> true));
+    }
+
+    @Test
+    void recomputesFullNightsWhenBedroomsChange() {
+        SharedProperty property = new SharedProperty(1, 2, 4, "Oslo", 90);
+        BookingCalendar calendar = property.getCalendar();
+        assertTrue(calendar.add(booking(property, 0, 4), property.getBookingCapacity()));
+        assertTrue(calendar.add(booking(property, 2, 6), property.getBookingCapacity()));
+        assertFalse(calendar.hasRoom(FIRST_DAY + 2, FIRST_DAY + 4));
+
+        // A third bedroom frees the nights both stays share
+        property.setNoBedRooms(3);
+        assertTrue(calendar.hasRoom(FIRST_DAY, FIRST_DAY + 6));
+        assertTrue(calendar.add(booking(property, 3, 5), property.getBookingCapacity()));
+        assertFalse(calendar.hasRoom(FIRST_DAY + 3, FIRST_DAY + 4));
+        assertTrue(calendar.hasRoom(FIRST_DAY + 4, FIRST_DAY + 5));
+
+        // Back to one bedroom: every booked night is full, and nothing else is
+        property.setNoBedRooms(1);
+        for (int day = FIRST_DAY - 1; day < FIRST_DAY + 8; day++) {
+            assertEquals(day >= FIRST_DAY && day < FIRST_DAY + 6, calendar.getFullNights().isMarked(day));
+        }
+        assertFalse(calendar.isAvailable(FIRST_DAY + 5, FIRST_DAY + 6, property.getBookingCapacity()));
+        assertTrue(calendar.hasRoom(FIRST_DAY + 6, FIRST_DAY + 7));
+    }
+
+    private static int occupants(List<Booking> bookings, int day) {
+        int count = 0;
+        for (Booking booking : bookings) {
+            if (booking.getStartDay() <= day && day < booking.getEndDay()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
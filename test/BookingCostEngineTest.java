@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that {@link BookingCostEngine} prices a batch bit for bit like {@link Booking#netCost(double)}.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class BookingCostEngineTest {
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+    private static final DiscountRules RULES = new DiscountRules(List.of(new DiscountRules.Tier(0, 1, 1.5)),
+            List.of(new DiscountRules.Tier(3, 4, 0)));
+
+    @Test
+    void batchCostsAreBitIdenticalToSingleBookings() {
+        Random random = new Random(9);
+        List<User> users = new ArrayList<>();
+        for (int id = 1; id <= 300; id++) {
+            int registered = EpochDay.today() - random.nextInt(20 * 365);
+            users.add(switch (id % 3) {
+                case 0 -> new Host(id, EpochDay.of(1970, 1, 1), "H", "H", registered, 1);
+                case 1 -> new GoldCustomer(id, EpochDay.of(1980, 1, 1), "G", "G", registered, "Card",
+                        random.nextInt(5));
+                default -> new StandardCustomer(id, EpochDay.of(1990, 1, 1), "S", "S", registered, "Cash");
+            });
+        }
+        List<Property> properties = new ArrayList<>();
+        for (int id = 1; id <= 200; id++) {
+            Property property = random.nextBoolean()
+                    ? new SharedProperty(id, 1 + random.nextInt(4), 5, "Oslo", 33.3 + random.nextInt(200))
+                    : new FullProperty(id, 2, 4, "Oslo", 100 + random.nextInt(300), 47.1 + random.nextInt(200));
+            if (id % 4 == 0) {
+                double[] rates = new double[90];
+                for (int i = 0; i < rates.length; i++) {
+                    rates[i] = 0.5 + random.nextInt(8) * 0.25;
+                }
+                property.setRates(FIRST_DAY + random.nextInt(200), rates);
+            }
+            properties.add(property);
+        }
+
+        // Other rules than the default, which every discount must follow
+        DiscountEngine discounts = new DiscountEngine(RULES);
+        // More than two chunks, so the batch is priced in parallel
+        int count = 40_000;
+        int[] propertyIds = new int[count];
+        int[] userIds = new int[count];
+        int[] startDays = new int[count];
+        int[] endDays = new int[count];
+        double[] expected = new double[count];
+        for (int i = 0; i < count; i++) {
+            User user = users.get(random.nextInt(users.size()));
+            Property property = properties.get(random.nextInt(properties.size()));
+            int start = FIRST_DAY + random.nextInt(365);
+            Booking booking = new Booking(user, property, start, start + 1 + random.nextInt(30), false);
+            propertyIds[i] = property.getPropertyId();
+            userIds[i] = user.getUserId();
+            startDays[i] = booking.getStartDay();
+            endDays[i] = booking.getEndDay();
+            expected[i] = booking.netCost(discounts.discountOf(user));
+        }
+
+        double[] costs = new double[count];
+        double total = new BookingCostEngine(users, properties, discounts).price(propertyIds, userIds, startDays,
+                endDays, costs);
+        for (int i = 0; i < count; i++) {
+            assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(costs[i]), "booking " + i);
+        }
+        // The total adds the chunks in index order
+        double expectedTotal = 0;
+        for (int from = 0; from < count; from += 1 << 14) {
+            double chunk = 0;
+            for (int i = from; i < Math.min(from + (1 << 14), count); i++) {
+                chunk += expected[i];
+            }
+            expectedTotal += chunk;
+        }
+        assertEquals(expectedTotal, total);
+    }
+
+    @Test
+    void rejectsUnknownIdsAndMismatchedArrays() {
+        List<User> users = List.of(new StandardCustomer(1, EpochDay.NONE, "S", "S", EpochDay.today(), "Cash"));
+        List<Property> properties = List.of(new SharedProperty(1, 2, 3, "Oslo", 100));
+        BookingCostEngine engine = new BookingCostEngine(users, properties, new DiscountEngine(DiscountRules.DEFAULT));
+        int[] one = {1};
+        int[] days = {FIRST_DAY};
+        int[] ends = {FIRST_DAY + 2};
+        assertEquals(100.0, engine.price(one, one, days, ends, new double[1]));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.price(new int[]{2}, one, days, ends, new double[1]));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.price(one, new int[]{2}, days, ends, new double[1]));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.price(one, one, days, ends, new double[0]));
+    }
+}
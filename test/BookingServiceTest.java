@@ -0,0 +1,207 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the striped locking of {@link BookingService} under concurrent bookings.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class BookingServiceTest {
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+
+    private static BASIC basic(int users, int properties) {
+        BASIC basic = new BASIC();
+        for (int id = 1; id <= users; id++) {
+            basic.users.add(new StandardCustomer(id, EpochDay.NONE, "U" + id, "L", EpochDay.of(2020, 1, 1), "Card"));
+        }
+        for (int id = 1; id <= properties; id++) {
+            basic.properties.add(id % 2 == 0
+                    ? new SharedProperty(id, 3, 4, "Oslo", 90)
+                    : new FullProperty(id, 2, 4, "Oslo", 100, 120));
+        }
+        return basic;
+    }
+
+    @Test
+    void concurrentBookingsNeverOverbook() throws Exception {
+        BASIC basic = basic(50, 20);
+        BookingService service = basic.getBookingService();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            results.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                int booked = 0;
+                for (int i = 0; i < 5000; i++) {
+                    int start = FIRST_DAY + random.nextInt(200);
+                    Booking booking = service.book(1 + random.nextInt(50), 1 + random.nextInt(20), start,
+                            start + 1 + random.nextInt(10));
+                    if (booking != null) {
+                        booked++;
+                        if (random.nextInt(4) == 0) {
+                            assertTrue(service.cancel(booking));
+                            booked--;
+                        }
+                    }
+                }
+                return booked;
+            }));
+        }
+        int booked = 0;
+        for (Future<Integer> result : results) {
+            booked += result.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        int inCalendars = 0;
+        for (int propertyId = 1; propertyId <= 20; propertyId++) {
+            Property property = service.getProperty(propertyId);
+            List<Booking> bookings = service.getPropertyBookings(propertyId);
+            inCalendars += bookings.size();
+            for (int day = FIRST_DAY; day < FIRST_DAY + 210; day++) {
+                int occupants = 0;
+                for (Booking booking : bookings) {
+                    if (booking.getStartDay() <= day && day < booking.getEndDay()) {
+                        occupants++;
+                    }
+                }
+                assertTrue(occupants <= property.getBookingCapacity(), "overbooked property " + propertyId);
+            }
+        }
+        int inUserLists = 0;
+        for (int userId = 1; userId <= 50; userId++) {
+            for (Booking booking : service.getBookings(userId)) {
+                // A shared property may hold several of the user's bookings starting that day
+                Booking found = service.findBooking(userId, booking.getProperty().getPropertyId(),
+                        booking.getStartDay());
+                assertSame(booking.getUser(), found.getUser());
+                assertEquals(booking.getStartDay(), found.getStartDay());
+                inUserLists++;
+            }
+        }
+        assertEquals(booked, inCalendars);
+        assertEquals(booked, inUserLists);
+    }
+
+    @Test
+    void bedroomChangesKeepFullNightsConsistent() throws Exception {
+        BASIC basic = basic(50, 2);
+        BookingService service = basic.getBookingService();
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            results.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 5000; i++) {
+                    int start = FIRST_DAY + random.nextInt(100);
+                    Booking booking = service.book(1 + random.nextInt(50), 2, start, start + 1 + random.nextInt(5));
+                    if (booking != null && random.nextBoolean()) {
+                        assertTrue(service.cancel(booking));
+                    }
+                }
+            }));
+        }
+        results.add(pool.submit(() -> {
+            for (int i = 0; i < 2000; i++) {
+                assertTrue(basic.setPropertyBedRooms(2, 1 + i % 4));
+            }
+        }));
+        for (Future<?> result : results) {
+            result.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        // The last change left four bedrooms; the full nights are exactly those with four guests
+        Property property = service.getProperty(2);
+        List<Booking> bookings = service.getPropertyBookings(2);
+        for (int day = FIRST_DAY; day < FIRST_DAY + 110; day++) {
+            int occupants = 0;
+            for (Booking booking : bookings) {
+                if (booking.getStartDay() <= day && day < booking.getEndDay()) {
+                    occupants++;
+                }
+            }
+            assertTrue(occupants <= 4, "overbooked night " + day);
+            assertEquals(occupants == 4, property.getCalendar().getFullNights().isMarked(day), "night " + day);
+        }
+        assertFalse(basic.setPropertyBedRooms(99, 2));
+    }
+
+    @Test
+    void paymentsOnlyChangeBookedStays() {
+        BASIC basic = basic(1, 1);
+        BookingService service = basic.getBookingService();
+        Booking booking = service.book(1, 1, FIRST_DAY, FIRST_DAY + 3);
+        assertNull(service.book(1, 1, FIRST_DAY + 2, FIRST_DAY + 4));
+        assertTrue(service.setPaid(booking, true));
+        assertFalse(service.setPaid(booking, true));
+        assertFalse(service.release(booking));
+        assertTrue(service.cancel(booking));
+        assertFalse(service.cancel(booking));
+        assertFalse(service.setPaid(booking, false));
+        assertTrue(service.isAvailable(1, FIRST_DAY, FIRST_DAY + 3));
+        assertThrows(IllegalArgumentException.class, () -> service.book(2, 1, FIRST_DAY, FIRST_DAY + 1));
+        assertThrows(IllegalArgumentException.class, () -> service.book(1, 2, FIRST_DAY, FIRST_DAY + 1));
+    }
+
+    @Test
+    void claimedBookingsAreOnlyReleasedOnceUnclaimed() {
+        BASIC basic = basic(1, 1);
+        BookingService service = basic.getBookingService();
+        Booking paid = service.book(1, 1, FIRST_DAY, FIRST_DAY + 2);
+        Booking unpaid = service.book(1, 1, FIRST_DAY + 2, FIRST_DAY + 4);
+        assertSame(paid, service.claimUnpaid(1, 1, FIRST_DAY));
+        assertSame(unpaid, service.claimUnpaid(1, 1, FIRST_DAY + 2));
+        assertNull(service.claimUnpaid(1, 1, FIRST_DAY));
+        assertFalse(service.release(paid));
+        assertFalse(service.release(unpaid));
+        assertTrue(service.setPaid(paid, true));
+        assertFalse(service.unclaim(paid));
+        assertTrue(service.unclaim(unpaid));
+        assertEquals(List.of(paid), service.getPropertyBookings(1));
+
+        // Without an expired hold, dropping the claim keeps the booking
+        Booking kept = service.book(1, 1, FIRST_DAY + 4, FIRST_DAY + 6);
+        assertSame(kept, service.claimUnpaid(1, 1, FIRST_DAY + 4));
+        assertFalse(service.unclaim(kept));
+        assertTrue(service.release(kept));
+    }
+
+    @Test
+    void removalsCancelBookings() {
+        BASIC basic = basic(2, 2);
+        BookingService service = basic.getBookingService();
+        Booking first = service.book(1, 1, FIRST_DAY, FIRST_DAY + 3);
+        Booking second = service.book(2, 1, FIRST_DAY + 3, FIRST_DAY + 5);
+        Booking third = service.book(1, 2, FIRST_DAY, FIRST_DAY + 2);
+        basic.removeUser(1);
+        assertEquals(List.of(second), service.getPropertyBookings(1));
+        assertEquals(List.of(), service.getPropertyBookings(2));
+        assertFalse(service.cancel(first));
+        assertFalse(service.cancel(third));
+        basic.removeProperty(1);
+        assertEquals(List.of(), service.getBookings(2));
+        assertNull(service.getProperty(1));
+        assertFalse(service.add(new Booking(basic.getUserById(2), second.getProperty(), FIRST_DAY + 10,
+                FIRST_DAY + 11, false)));
+    }
+}
@@ -0,0 +1,200 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the reports of {@link BookingStore} match sums over the bookings themselves.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class BookingStoreTest {
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+    private static final String[] METHODS = {"Card", "Cash", "Transfer"};
+
+    private static BASIC populate(Random random) {
+        BASIC basic = new BASIC();
+        basic.users.add(new Host(1, EpochDay.NONE, "H", "L", EpochDay.of(2020, 1, 1), 1));
+        for (int id = 2; id <= 60; id++) {
+            int registered = EpochDay.today() - random.nextInt(10 * 365);
+            basic.users.add(id % 3 == 0
+                    ? new GoldCustomer(id, EpochDay.NONE, "G", "L", registered, METHODS[id % 3], 1 + random.nextInt(3))
+                    : new StandardCustomer(id, EpochDay.NONE, "S", "L", registered, id % 7 == 0 ? null : METHODS[id % 3]));
+        }
+        for (int id = 1; id <= 30; id++) {
+            basic.properties.add(random.nextBoolean()
+                    ? new SharedProperty(id, 1 + random.nextInt(3), 4, "Oslo", 50 + random.nextInt(100))
+                    : new FullProperty(id, 2, 4, "Oslo", 80 + random.nextInt(200), 60 + random.nextInt(100)));
+        }
+        BookingService service = basic.getBookingService();
+        List<Booking> booked = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            switch (random.nextInt(6)) {
+                case 0 -> {
+                    if (!booked.isEmpty()) {
+                        service.cancel(booked.remove(random.nextInt(booked.size())));
+                    }
+                }
+                case 1 -> {
+                    if (!booked.isEmpty()) {
+                        service.setPaid(booked.get(random.nextInt(booked.size())), random.nextBoolean());
+                    }
+                }
+                default -> {
+                    int start = FIRST_DAY + random.nextInt(300);
+                    Booking booking = service.book(2 + random.nextInt(59), 1 + random.nextInt(30), start,
+                            start + 1 + random.nextInt(10));
+                    if (booking != null) {
+                        booked.add(booking);
+                    }
+                }
+            }
+        }
+        double[] rates = new double[40];
+        for (int day = 0; day < rates.length; day++) {
+            rates[day] = 0.75 + random.nextInt(4) * 0.25;
+        }
+        basic.setPropertyRates(4, FIRST_DAY + 50, rates);
+        basic.removeUser(9);
+        basic.removeProperty(12);
+        return basic;
+    }
+
+    @Test
+    void reportMatchesTheBookings() {
+        BASIC basic = populate(new Random(20));
+        long bookings = 0;
+        long nights = 0;
+        double[] revenue = new double[3];
+        double standardDiscounts = 0;
+        double goldDiscounts = 0;
+        Map<String, Double> unpaid = new LinkedHashMap<>();
+        for (Property property : new ArrayList<>(basic.properties)) {
+            for (Booking booking : basic.getBookingService().getPropertyBookings(property.getPropertyId())) {
+                User user = booking.getUser();
+                double gross = booking.totalCost();
+                double net = booking.netCost(basic.getDiscountEngine().discountOf(user));
+                bookings++;
+                nights += booking.getNights();
+                revenue[property instanceof FullProperty ? PropertyStore.FULL : PropertyStore.SHARED] += gross;
+                if (user instanceof GoldCustomer) {
+                    goldDiscounts += gross - net;
+                } else if (user instanceof StandardCustomer) {
+                    standardDiscounts += gross - net;
+                }
+                if (!booking.isPaid()) {
+                    String method = ((Customer) user).getPreferredPaymentMethod();
+                    unpaid.merge(method == null ? "none" : method, net, Double::sum);
+                }
+            }
+        }
+
+        BookingStore.BookingReport report = basic.getBookingStore().report();
+        assertEquals(bookings, report.bookings());
+        assertEquals(basic.getBookingStore().size(), report.bookings());
+        assertEquals(nights, report.nights());
+        assertEquals((double) nights / bookings, report.averageStay(), 1e-12);
+        assertEquals(revenue[PropertyStore.SHARED], report.sharedRevenue(), 1e-6);
+        assertEquals(revenue[PropertyStore.FULL], report.fullRevenue(), 1e-6);
+        assertEquals(standardDiscounts, report.standardDiscounts(), 1e-6);
+        assertEquals(goldDiscounts, report.goldDiscounts(), 1e-6);
+        for (Map.Entry<String, Double> method : unpaid.entrySet()) {
+            assertEquals(method.getValue(), report.unpaidByPaymentMethod().get(method.getKey()), 1e-6,
+                    method.getKey());
+        }
+        for (Map.Entry<String, Double> method : report.unpaidByPaymentMethod().entrySet()) {
+            assertEquals(unpaid.getOrDefault(method.getKey(), 0.0), method.getValue(), 1e-6, method.getKey());
+        }
+    }
+
+    @Test
+    void reportDoesNotDependOnThePool() {
+        BASIC basic = populate(new Random(21));
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool several = new ForkJoinPool(4);
+        try {
+            assertEquals(basic.getBookingStore().report(single), basic.getBookingStore().report(several));
+        } finally {
+            single.shutdown();
+            several.shutdown();
+        }
+    }
+
+    @Test
+    void paymentsMoveOneRowOfInterchangeableBookings() {
+        BASIC basic = new BASIC();
+        basic.users.add(new StandardCustomer(1, EpochDay.NONE, "S", "L", EpochDay.of(2020, 1, 1), "Card"));
+        basic.properties.add(new SharedProperty(1, 3, 4, "Oslo", 90));
+        BookingService service = basic.getBookingService();
+        Booking first = service.book(1, 1, FIRST_DAY, FIRST_DAY + 2);
+        Booking second = service.book(1, 1, FIRST_DAY, FIRST_DAY + 2);
+        service.setPaid(first, true);
+        double net = second.netCost(basic.getDiscountEngine().discountOf(second.getUser()));
+        assertEquals(net, basic.getBookingStore().report().unpaidByPaymentMethod().get("Card"), 1e-9);
+        service.cancel(second);
+        assertEquals(0.0, basic.getBookingStore().report().unpaidByPaymentMethod().get("Card"));
+        assertEquals(1, basic.getBookingStore().size());
+    }
+
+    @Test
+    void keepsUpWithConcurrentBookings() throws InterruptedException {
+        BASIC basic = new BASIC();
+        for (int id = 1; id <= 8; id++) {
+            basic.users.add(new StandardCustomer(id, EpochDay.NONE, "S", "L", EpochDay.of(2020, 1, 1), "Card"));
+        }
+        for (int id = 1; id <= 16; id++) {
+            basic.properties.add(new SharedProperty(id, 3, 4, "Oslo", 50 + id));
+        }
+        BookingService service = basic.getBookingService();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int userId = t + 1;
+            Thread thread = new Thread(() -> {
+                Random random = new Random(userId);
+                List<Booking> booked = new ArrayList<>();
+                for (int i = 0; i < 2000; i++) {
+                    int start = FIRST_DAY + random.nextInt(300);
+                    Booking booking = service.book(userId, 1 + random.nextInt(16), start, start + 1 + random.nextInt(10));
+                    if (booking != null) {
+                        booked.add(booking);
+                    }
+                    if (!booked.isEmpty() && random.nextInt(3) == 0) {
+                        Booking other = booked.get(random.nextInt(booked.size()));
+                        if (random.nextBoolean()) {
+                            service.setPaid(other, !other.isPaid());
+                        } else {
+                            service.cancel(other);
+                            booked.remove(other);
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long bookings = 0;
+        long nights = 0;
+        double unpaid = 0;
+        for (Property property : new ArrayList<>(basic.properties)) {
+            for (Booking booking : service.getPropertyBookings(property.getPropertyId())) {
+                bookings++;
+                nights += booking.getNights();
+                unpaid += booking.isPaid() ? 0 : booking.netCost(basic.getDiscountEngine().discountOf(booking.getUser()));
+            }
+        }
+        BookingStore.BookingReport report = basic.getBookingStore().report();
+        assertEquals(bookings, report.bookings());
+        assertEquals(nights, report.nights());
+        assertEquals(unpaid, report.unpaidByPaymentMethod().get("Card"), 1e-6);
+    }
+}
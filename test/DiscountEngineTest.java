@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link DiscountEngine} returns the discount its rules give on the day asked for, through rule,
+ * user and registry changes and while other threads look discounts up.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class DiscountEngineTest {
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+    private static final DiscountRules STEPPED = new DiscountRules(
+            List.of(new DiscountRules.Tier(0, 1, 2)),
+            List.of(new DiscountRules.Tier(2, 1, 0), new DiscountRules.Tier(5, 3, 0.5)));
+
+    private static double expected(DiscountRules rules, User user, int day) {
+        if (user instanceof GoldCustomer) {
+            return rules.goldDiscount(((GoldCustomer) user).getGoldLevel());
+        } else if (user instanceof StandardCustomer) {
+            return rules.loyaltyDiscount(EpochDay.yearsBetween(user.getRegistrationDay(), day));
+        }
+        return 0;
+    }
+
+    private static User user(int id, Random random) {
+        int registered = FIRST_DAY - random.nextInt(20 * 365);
+        switch (random.nextInt(3)) {
+            case 0:
+                return new GoldCustomer(id, EpochDay.NONE, "G", "L", registered, "Card", 1 + random.nextInt(5));
+            case 1:
+                return new StandardCustomer(id, EpochDay.NONE, "S", "L", registered, "Cash");
+            default:
+                return new Host(id, EpochDay.NONE, "H", "L", registered, 4);
+        }
+    }
+
+    @Test
+    void followsRulesDaysAndUsers() {
+        Random random = new Random(25);
+        DiscountEngine engine = new DiscountEngine(DiscountRules.DEFAULT);
+        List<User> users = new ArrayList<>();
+        for (int id = 0; id < 200; id++) {
+            users.add(user(id, random));
+        }
+        for (int i = 0; i < 20_000; i++) {
+            User user = users.get(random.nextInt(users.size()));
+            switch (random.nextInt(40)) {
+                case 0 -> engine.setRules(engine.getRules() == STEPPED ? DiscountRules.DEFAULT : STEPPED);
+                case 1 -> {
+                    if (user instanceof GoldCustomer) {
+                        ((GoldCustomer) user).setGoldLevel(1 + random.nextInt(5));
+                    } else {
+                        user.setRegistrationDate(EpochDay.toDate(FIRST_DAY - random.nextInt(20 * 365)));
+                    }
+                }
+                case 2 -> {
+                    // A replacement with the same ID takes the old user's place
+                    engine.removed(user);
+                    users.set(users.indexOf(user), user(user.getUserId(), random));
+                }
+                default -> {
+                    // Days move back and forth over several anniversaries
+                    int day = FIRST_DAY - 365 + random.nextInt(8 * 365);
+                    assertEquals(expected(engine.getRules(), user, day), engine.discountOf(user, day), 1e-12,
+                            () -> user + " on " + day);
+                }
+            }
+        }
+        User user = users.get(0);
+        assertEquals(expected(engine.getRules(), user, EpochDay.today()), engine.discountOf(user), 1e-12);
+    }
+
+    @Test
+    void tiersFollowTheKindOfUserWithAnId() {
+        DiscountEngine engine = new DiscountEngine(STEPPED);
+        int registered = FIRST_DAY - 7 * 365;
+        User gold = new GoldCustomer(5000, EpochDay.NONE, "G", "L", registered, "Card", registered);
+        User standard = new StandardCustomer(5000, EpochDay.NONE, "S", "L", registered, "Cash");
+        User host = new Host(5000, EpochDay.NONE, "H", "L", registered, 4);
+        User unlisted = new StandardCustomer(-3, EpochDay.NONE, "S", "L", registered, "Cash");
+        // The gold level and the registration day are the same number, so only the kind tells the tiers apart
+        for (User user : List.of(gold, standard, host, unlisted, gold)) {
+            assertEquals(expected(STEPPED, user, FIRST_DAY), engine.discountOf(user, FIRST_DAY), 1e-12,
+                    user::toString);
+        }
+        engine.removed(gold);
+        assertEquals(expected(STEPPED, standard, FIRST_DAY), engine.discountOf(standard, FIRST_DAY), 1e-12);
+    }
+
+    @Test
+    void readersSeeOneRulesOrTheOther() throws Exception {
+        DiscountEngine engine = new DiscountEngine(DiscountRules.DEFAULT);
+        List<User> users = new ArrayList<>();
+        Random random = new Random(26);
+        for (int id = 0; id < 100; id++) {
+            users.add(user(id, random));
+        }
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        AtomicBoolean stop = new AtomicBoolean();
+        try {
+            List<Future<Integer>> lookups = new ArrayList<>();
+            for (int reader = 0; reader < 4; reader++) {
+                lookups.add(readers.submit(() -> {
+                    int count = 0;
+                    while (!stop.get()) {
+                        for (User user : users) {
+                            double discount = engine.discountOf(user, FIRST_DAY);
+                            assertTrue(discount == expected(DiscountRules.DEFAULT, user, FIRST_DAY)
+                                    || discount == expected(STEPPED, user, FIRST_DAY), user::toString);
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            long until = System.nanoTime() + 200_000_000L;
+            for (int i = 0; System.nanoTime() < until; i++) {
+                engine.setRules(i % 2 == 0 ? STEPPED : DiscountRules.DEFAULT);
+            }
+            engine.setRules(DiscountRules.DEFAULT);
+            stop.set(true);
+            for (Future<Integer> lookup : lookups) {
+                assertTrue(lookup.get() > 0);
+            }
+        } finally {
+            stop.set(true);
+            readers.shutdown();
+        }
+        // The last rules win once the readers are done
+        for (User user : users) {
+            assertEquals(expected(DiscountRules.DEFAULT, user, FIRST_DAY), engine.discountOf(user, FIRST_DAY));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the ID index of {@link EntityRegistry} and its list view.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class EntityRegistryTest {
+
+    private static EntityRegistry<User> registry(int users) {
+        EntityRegistry<User> registry = new EntityRegistry<>(User.class, User::getUserId);
+        for (int id = 1; id <= users; id++) {
+            registry.add(user(id));
+        }
+        return registry;
+    }
+
+    private static User user(int id) {
+        return new StandardCustomer(id, EpochDay.of(1990, 1, 1), "First" + id, "Last" + id,
+                EpochDay.of(2020, 1, 1), "Card");
+    }
+
+    @Test
+    void findsEntitiesById() {
+        EntityRegistry<User> registry = registry(1000);
+        for (int id = 1; id <= 1000; id++) {
+            assertEquals(id, registry.get(id).getUserId());
+        }
+        assertNull(registry.get(0));
+        assertNull(registry.get(1001));
+        assertEquals(1000, registry.size());
+    }
+
+    @Test
+    void rejectsDuplicateIds() {
+        EntityRegistry<User> registry = registry(3);
+        User first = registry.get(2);
+        assertFalse(registry.add(user(2)));
+        assertSame(first, registry.get(2));
+        assertEquals(3, registry.size());
+        assertThrows(IllegalArgumentException.class, () -> registry.view().add(user(3)));
+    }
+
+    @Test
+    void removesEntitiesFromIndexAndView() {
+        EntityRegistry<User> registry = registry(5);
+        User removed = registry.remove(3);
+        assertEquals(3, removed.getUserId());
+        assertNull(registry.get(3));
+        assertFalse(registry.contains(3));
+        assertNull(registry.remove(3));
+        List<Integer> ids = new ArrayList<>();
+        for (User user : registry.view()) {
+            ids.add(user.getUserId());
+        }
+        assertEquals(List.of(1, 2, 4, 5), ids);
+        assertTrue(registry.add(user(3)));
+        assertEquals(3, registry.get(3).getUserId());
+    }
+
+    @Test
+    void viewKeepsRegistrationOrder() {
+        EntityRegistry<User> registry = new EntityRegistry<>(User.class, User::getUserId);
+        for (int id : new int[]{7, 2, 9, 4}) {
+            registry.add(user(id));
+        }
+        List<User> view = registry.view();
+        assertEquals(4, view.size());
+        assertEquals(7, view.get(0).getUserId());
+        assertEquals(4, view.get(3).getUserId());
+        assertTrue(view.remove(registry.get(9)));
+        assertFalse(registry.contains(9));
+        assertFalse(view.remove(user(2)));
+        assertFalse(view.remove("2"));
+        assertFalse(view.remove(null));
+        assertEquals(List.of(registry.get(7), registry.get(2), registry.get(4)), new ArrayList<>(view));
+    }
+
+    @Test
+    void compactionKeepsOrderThroughTombstones() {
+        EntityRegistry<User> registry = registry(10_000);
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 1; id <= 10_000; id++) {
+            if (id % 3 == 0) {
+                registry.remove(id);
+            } else {
+                expected.add(id);
+            }
+        }
+        assertEquals(3333, registry.emptySlots());
+        // Positional access and iteration agree part way through a compaction pass
+        assertTrue(registry.compact(2500));
+        List<User> view = registry.view();
+        for (int position = 0; position < expected.size(); position += 7) {
+            assertEquals(expected.get(position), view.get(position).getUserId());
+        }
+        registry.remove(2);
+        expected.remove(Integer.valueOf(2));
+        while (registry.compact(1000)) {
+            assertEquals(expected, view.stream().map(User::getUserId).toList());
+        }
+        assertEquals(0, registry.emptySlots());
+        assertEquals(expected, view.stream().map(User::getUserId).toList());
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(expected.size()));
+    }
+
+    @Test
+    void streamsViewAfterRemovals() {
+        EntityRegistry<User> registry = registry(100);
+        for (int id = 2; id <= 100; id += 2) {
+            registry.remove(id);
+        }
+        // The view's spliterator reads by position and checks for modification at the end
+        List<Integer> ids = registry.view().stream().map(User::getUserId).toList();
+        assertEquals(50, ids.size());
+        assertEquals(99, ids.get(49));
+        assertEquals(50, registry.emptySlots());
+        assertEquals(ids, registry.view().parallelStream().map(User::getUserId).toList());
+        List<User> view = registry.view();
+        assertEquals(51, view.get(25).getUserId());
+        view.remove(25);
+        assertEquals(53, view.get(25).getUserId());
+        assertFalse(registry.contains(51));
+    }
+
+    @Test
+    void notifiesListeners() {
+        EntityRegistry<User> registry = new EntityRegistry<>(User.class, User::getUserId);
+        List<String> events = new ArrayList<>();
+        registry.addListener(new EntityRegistry.Listener<>() {
+            @Override
+            public void added(User user) {
+                events.add("added " + user.getUserId());
+            }
+
+            @Override
+            public void removed(User user) {
+                events.add("removed " + user.getUserId());
+            }
+        });
+        registry.add(user(1));
+        registry.add(user(1));
+        registry.remove(1);
+        registry.remove(1);
+        assertEquals(List.of("added 1", "removed 1"), events);
+    }
+}
@@ -0,0 +1,76 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests the calendar arithmetic, parser and formatter of {@link EpochDay} against java.time.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class EpochDayTest {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd/MM/uuuu");
+
+    @Test
+    void agreesWithLocalDate() {
+        for (int day = EpochDay.of(1600, 1, 1); day < EpochDay.of(2400, 12, 31); day++) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            assertEquals(day, EpochDay.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+            assertEquals(date.getYear(), EpochDay.year(day));
+            assertEquals(date.getMonthValue(), EpochDay.month(day));
+            assertEquals(date.getDayOfMonth(), EpochDay.dayOfMonth(day));
+        }
+    }
+
+    @Test
+    void parsesAndFormats() {
+        for (int day = EpochDay.of(1900, 1, 1); day < EpochDay.of(2100, 1, 1); day += 7) {
+            String text = LocalDate.ofEpochDay(day).format(FORMAT);
+            assertEquals(text, EpochDay.format(day));
+            assertEquals(day, EpochDay.parse(text));
+        }
+        assertEquals(EpochDay.of(2024, 2, 9), EpochDay.parse("9/2/2024"));
+        assertEquals(EpochDay.of(2024, 2, 29), EpochDay.parse("29/02/2024"));
+        assertEquals("none", EpochDay.format(EpochDay.NONE));
+        for (String invalid : new String[]{null, "", "29/02/2023", "31/04/2024", "00/01/2024", "1/13/2024",
+                "01/01/24", "01/01/20245", "01-01-2024", "001/01/2024", "01/01/2024 ", "a1/01/2024"}) {
+            assertEquals(EpochDay.NONE, EpochDay.parse(invalid), String.valueOf(invalid));
+        }
+    }
+
+    @Test
+    void countsWholeYearsLikePeriod() {
+        Random random = new Random(4);
+        for (int i = 0; i < 200_000; i++) {
+            int from = EpochDay.of(1950, 1, 1) + random.nextInt(40_000);
+            int to = from + random.nextInt(20_000);
+            int years = Period.between(LocalDate.ofEpochDay(from), LocalDate.ofEpochDay(to)).getYears();
+            assertEquals(years, EpochDay.yearsBetween(from, to));
+            int anniversary = EpochDay.plusYears(from, years + 1);
+            assertEquals(years + 1, EpochDay.yearsBetween(from, anniversary));
+            assertEquals(years, EpochDay.yearsBetween(from, anniversary - 1));
+        }
+        assertEquals(0, EpochDay.yearsBetween(EpochDay.NONE, EpochDay.today()));
+        assertEquals(0, EpochDay.yearsBetween(EpochDay.today(), EpochDay.today() - 400));
+        // A 29 February date reaches its anniversary on 1 March in other years
+        assertEquals(EpochDay.of(2025, 3, 1), EpochDay.plusYears(EpochDay.of(2024, 2, 29), 1));
+    }
+
+    @Test
+    void convertsToAndFromDates() {
+        for (int day = EpochDay.of(1960, 1, 1); day < EpochDay.of(2060, 1, 1); day += 3) {
+            assertEquals(day, EpochDay.of(EpochDay.toDate(day)));
+            assertEquals(day, EpochDay.ofMillis(EpochDay.toMillis(day)));
+            assertEquals(day, EpochDay.of(EpochDay.toLocalDate(day)));
+        }
+        assertNull(EpochDay.toDate(EpochDay.NONE));
+        assertEquals(EpochDay.NONE, EpochDay.of((Date) null));
+    }
+}
@@ -0,0 +1,162 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that the accounts of {@link HostLedger} match totals recomputed from every booking.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class HostLedgerTest {
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+    private static final int HOSTS = 5;
+
+    private static void checkAccounts(BASIC basic) {
+        for (int hostId = 1; hostId <= HOSTS; hostId++) {
+            HostLedger.Account account = basic.getHostLedger().getAccount(hostId);
+            if (basic.getUserById(hostId) == null) {
+                assertNull(account);
+                continue;
+            }
+            long nights = 0;
+            double gross = 0;
+            double unpaid = 0;
+            List<Integer> listed = new ArrayList<>();
+            for (Property property : new ArrayList<>(basic.properties)) {
+                if (property.getHost() == null || property.getHost().getUserId() != hostId) {
+                    continue;
+                }
+                listed.add(property.getPropertyId());
+                for (Booking booking : basic.getBookingService().getPropertyBookings(property.getPropertyId())) {
+                    nights += booking.getNights();
+                    gross += booking.totalCost();
+                    unpaid += booking.isPaid() ? 0 : booking.totalCost();
+                }
+            }
+            assertEquals(listed.size(), account.getActiveListings(), "host " + hostId);
+            assertEquals(listed, account.getProperties().stream().map(Property::getPropertyId).sorted().toList());
+            assertEquals(nights, account.getBookedNights(), "host " + hostId);
+            assertEquals(gross, account.getGrossRevenue(), 1e-6 * Math.max(1, gross), "host " + hostId);
+            assertEquals(unpaid, account.getUnpaidBalance(), 1e-6 * Math.max(1, gross), "host " + hostId);
+        }
+    }
+
+    @Test
+    void matchesRecomputedTotalsThroughChanges() {
+        BASIC basic = new BASIC();
+        Random random = new Random(18);
+        for (int id = 1; id <= HOSTS; id++) {
+            basic.users.add(new Host(id, EpochDay.NONE, "H" + id, "L", EpochDay.of(2020, 1, 1), id));
+        }
+        for (int id = 100; id < 120; id++) {
+            basic.users.add(new StandardCustomer(id, EpochDay.NONE, "C", "L", EpochDay.of(2021, 1, 1), "Card"));
+        }
+        for (int id = 1; id <= 60; id++) {
+            Host host = (Host) basic.getUserById(1 + random.nextInt(HOSTS));
+            basic.properties.add(random.nextBoolean()
+                    ? new SharedProperty(id, 1 + random.nextInt(3), 4, "Oslo", 50 + random.nextInt(100), host)
+                    : new FullProperty(id, 2, 4, "Oslo", 80 + random.nextInt(200), 60 + random.nextInt(100), host));
+        }
+        BookingService service = basic.getBookingService();
+        List<Booking> booked = new ArrayList<>();
+        for (int i = 0; i < 6000; i++) {
+            int propertyId = 1 + random.nextInt(60);
+            switch (random.nextInt(9)) {
+                case 0 -> basic.setPropertyPrice(propertyId, 40 + random.nextInt(150));
+                case 1 -> {
+                    double[] rates = new double[1 + random.nextInt(60)];
+                    for (int day = 0; day < rates.length; day++) {
+                        rates[day] = 0.5 + random.nextInt(6) * 0.25;
+                    }
+                    basic.setPropertyRates(propertyId, FIRST_DAY + random.nextInt(300), rates);
+                }
+                case 2 -> {
+                    if (!booked.isEmpty()) {
+                        service.setPaid(booked.get(random.nextInt(booked.size())), random.nextBoolean());
+                    }
+                }
+                case 3 -> {
+                    if (!booked.isEmpty()) {
+                        service.cancel(booked.remove(random.nextInt(booked.size())));
+                    }
+                }
+                case 4 -> basic.setPropertyHost(propertyId, 1 + random.nextInt(HOSTS));
+                default -> {
+                    int start = FIRST_DAY + random.nextInt(330);
+                    int userId = 100 + random.nextInt(20);
+                    if (service.getProperty(propertyId) != null && service.getUser(userId) != null) {
+                        Booking booking = service.book(userId, propertyId, start,
+                                start + 1 + random.nextInt(14));
+                        if (booking != null) {
+                            booked.add(booking);
+                        }
+                    }
+                }
+            }
+            if (i == 3000) {
+                basic.removeProperty(7);
+                basic.removeUser(105);
+            }
+            if (i % 1000 == 999) {
+                checkAccounts(basic);
+            }
+        }
+        basic.removeUser(2);
+        checkAccounts(basic);
+    }
+
+    @Test
+    void removingAHostDetachesItsProperties() {
+        BASIC basic = new BASIC();
+        Host host = new Host(1, EpochDay.NONE, "H", "L", EpochDay.of(2020, 1, 1), 9);
+        basic.users.add(host);
+        basic.users.add(new StandardCustomer(2, EpochDay.NONE, "C", "L", EpochDay.of(2021, 1, 1), "Card"));
+        basic.properties.add(new SharedProperty(1, 2, 3, "Oslo", 100, host));
+        Booking booking = basic.getBookingService().book(2, 1, FIRST_DAY, FIRST_DAY + 4);
+        HostLedger.Account account = basic.getHostLedger().getAccount(1);
+        assertEquals(4, account.getBookedNights());
+        assertEquals(booking.totalCost(), account.getUnpaidBalance());
+        basic.getBookingService().setPaid(booking, true);
+        assertEquals(0.0, account.getUnpaidBalance());
+        assertEquals(booking.totalCost(), account.getGrossRevenue());
+
+        basic.removeUser(1);
+        assertNull(basic.getHostLedger().getAccount(1));
+        assertNull(basic.getPropertyById(1).getHost());
+    }
+
+    @Test
+    void reassigningAPropertyMovesItsRevenue() {
+        BASIC basic = new BASIC();
+        Host first = new Host(1, EpochDay.NONE, "H", "L", EpochDay.of(2020, 1, 1), 9);
+        basic.users.add(first);
+        basic.users.add(new Host(2, EpochDay.NONE, "G", "L", EpochDay.of(2020, 1, 1), 8));
+        basic.users.add(new StandardCustomer(3, EpochDay.NONE, "C", "L", EpochDay.of(2021, 1, 1), "Card"));
+        basic.properties.add(new SharedProperty(1, 2, 3, "Oslo", 100, first));
+        Booking booking = basic.getBookingService().book(3, 1, FIRST_DAY, FIRST_DAY + 4);
+
+        assertTrue(basic.setPropertyHost(1, 2));
+        HostLedger.Account from = basic.getHostLedger().getAccount(1);
+        HostLedger.Account to = basic.getHostLedger().getAccount(2);
+        assertEquals(0, from.getActiveListings());
+        assertEquals(0, from.getBookedNights());
+        assertEquals(0.0, from.getGrossRevenue(), 1e-9);
+        assertEquals(4, to.getBookedNights());
+        assertEquals(booking.totalCost(), to.getUnpaidBalance(), 1e-9);
+
+        basic.getBookingService().setPaid(booking, true);
+        assertEquals(0.0, from.getUnpaidBalance(), 1e-9);
+        assertEquals(0.0, to.getUnpaidBalance(), 1e-9);
+        assertEquals(booking.totalCost(), to.getGrossRevenue(), 1e-9);
+        assertFalse(basic.setPropertyHost(1, 3));
+        assertEquals(2, basic.getPropertyById(1).getHost().getUserId());
+    }
+}
@@ -0,0 +1,121 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the HTTP/JSON endpoints of {@link HttpApi} against a running server.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class HttpApiTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private BASIC basic;
+    private HttpApi api;
+
+    @BeforeEach
+    void start() throws IOException {
+        basic = new BASIC();
+        api = HttpApi.start(basic, 0);
+    }
+
+    @AfterEach
+    void stop() {
+        api.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + api.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void register() throws Exception {
+        assertEquals(201, send("POST", "/users", "{\"userId\":1,\"type\":\"host\",\"firstName\":\"Ada\","
+                + "\"lastName\":\"L\",\"dateOfBirth\":\"01/01/1980\",\"registrationDate\":\"01/01/2020\","
+                + "\"taxNumber\":42}").statusCode());
+        assertEquals(201, send("POST", "/users", "{\"userId\":2,\"type\":\"standard\",\"firstName\":\"Bo\","
+                + "\"lastName\":\"K\",\"dateOfBirth\":\"01/01/1990\",\"registrationDate\":\"01/01/2021\","
+                + "\"paymentMethod\":\"Card\"}").statusCode());
+        for (int id = 10; id <= 11; id++) {
+            assertEquals(201, send("POST", "/properties", "{\"propertyId\":" + id + ",\"type\":\"shared\","
+                    + "\"noBedRooms\":" + (id - 8) + ",\"noRooms\":4,\"city\":\"Oslo\",\"pricePerDay\":100,"
+                    + "\"hostId\":1}").statusCode());
+        }
+    }
+
+    @Test
+    void booksAndPricesStays() throws Exception {
+        register();
+        String booking = "{\"userId\":2,\"propertyId\":10,\"startDate\":\"01/03/2030\",\"endDate\":\"04/03/2030\"}";
+        HttpResponse<String> created = send("POST", "/bookings", booking);
+        assertEquals(201, created.statusCode());
+        Map<String, Object> json = Json.parseObject(created.body());
+        assertEquals("01/03/2030", json.get("startDate"));
+        assertEquals(3.0, ((Number) json.get("nights")).doubleValue());
+
+        // Two bedrooms: the second stay fits, the third overbooks
+        assertEquals(201, send("POST", "/bookings", booking).statusCode());
+        assertEquals(409, send("POST", "/bookings", booking).statusCode());
+
+        HttpResponse<String> cost = send("GET", "/cost?userId=2&propertyId=10", null);
+        assertEquals(200, cost.statusCode());
+        assertEquals(json, Json.parseObject(cost.body()));
+        assertEquals(404, send("GET", "/cost?userId=2&propertyId=11", null).statusCode());
+
+        HttpResponse<String> compare = send("GET", "/compare?first=10&second=11", null);
+        assertEquals(200, compare.statusCode());
+        assertEquals(11.0, ((Number) Json.parseObject(compare.body()).get("cheaper")).doubleValue());
+    }
+
+    @Test
+    void rejectsUnsupportedMethods() throws Exception {
+        register();
+        for (String method : List.of("POST", "PUT", "DELETE")) {
+            assertEquals(405, send(method, "/cost?userId=2&propertyId=10", "{}").statusCode(), method);
+            assertEquals(405, send(method, "/compare?first=10&second=11", "{}").statusCode(), method);
+            assertEquals(405, send(method, "/occupancy?city=Oslo&from=2030-01&to=2030-02", "{}").statusCode());
+        }
+        assertEquals(405, send("GET", "/bookings", null).statusCode());
+        assertEquals(405, send("PUT", "/users", "{}").statusCode());
+    }
+
+    @Test
+    void reportsMissingAndInvalidInput() throws Exception {
+        register();
+        assertEquals(404, send("GET", "/users/99", null).statusCode());
+        assertEquals(404, send("GET", "/compare?first=10&second=99", null).statusCode());
+        assertEquals(409, send("POST", "/users", "{\"userId\":2,\"type\":\"standard\",\"firstName\":\"C\","
+                + "\"lastName\":\"D\",\"dateOfBirth\":\"01/01/1990\",\"registrationDate\":\"01/01/2021\","
+                + "\"paymentMethod\":\"Cash\"}").statusCode());
+        HttpResponse<String> invalid = send("POST", "/bookings",
+                "{\"userId\":2,\"propertyId\":10,\"startDate\":\"05/03/2030\",\"endDate\":\"04/03/2030\"}");
+        assertEquals(400, invalid.statusCode());
+        assertTrue(Json.parseObject(invalid.body()).containsKey("error"));
+        assertEquals(204, send("DELETE", "/users/2", null).statusCode());
+        assertEquals(404, send("DELETE", "/users/2", null).statusCode());
+    }
+
+    @Test
+    void reusesConnectionsAfterEmptyResponses() throws Exception {
+        for (int id = 1; id <= 50; id++) {
+            basic.users.add(new StandardCustomer(id, EpochDay.NONE, "F", "L", EpochDay.of(2020, 1, 1), "Card"));
+            assertEquals(204, send("DELETE", "/users/" + id, null).statusCode());
+            // Sent on the connection the 204 arrived on; unlike a GET, the client does not retry a DELETE
+            assertEquals(404, send("DELETE", "/users/" + id, null).statusCode());
+        }
+    }
+}
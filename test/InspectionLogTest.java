@@ -0,0 +1,94 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link InspectionLog} keeps records in date order, stable within a date.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class InspectionLogTest {
+    private static final int FIRST_DAY = EpochDay.of(2024, 1, 1);
+    private static final String[] REPORTS = {"Clean", "Needs repairs", "Damaged", "Spotless"};
+
+    @Test
+    void matchesAStableSortAfterBackDatedRecords() {
+        InspectionLog log = new InspectionLog();
+        List<InspectionLog.Inspection> expected = new ArrayList<>();
+        Random random = new Random(16);
+        for (int i = 0; i < 2000; i++) {
+            // Mostly in date order, with some back-dated records
+            int day = FIRST_DAY + i / 4 - (random.nextInt(5) == 0 ? random.nextInt(100) : 0);
+            String report = REPORTS[random.nextInt(REPORTS.length)] + (i % 50 == 0 ? " #" + i : "");
+            log.append(day, report);
+            expected.add(new InspectionLog.Inspection(day, report));
+        }
+        // List.sort is stable, so reports on the same date stay in the order they were added
+        expected.sort(Comparator.comparingInt(InspectionLog.Inspection::day));
+        assertEquals(expected, log.all());
+        assertEquals(expected.size(), log.size());
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertEquals(expected.get(i).day(), log.day(i));
+            assertEquals(expected.get(i).report(), log.report(i));
+        }
+        InspectionLog.Inspection latest = expected.get(expected.size() - 1);
+        assertEquals(latest.day(), log.latestDay());
+        assertEquals(latest.report(), log.latestReport());
+
+        int from = FIRST_DAY + 100;
+        int to = FIRST_DAY + 150;
+        assertEquals(expected.stream().filter(r -> r.day() >= from && r.day() <= to).toList(), log.between(from, to));
+        assertEquals(List.of(), log.between(to, from));
+    }
+
+    @Test
+    void describesAnEmptyLog() {
+        InspectionLog log = new InspectionLog();
+        assertTrue(log.isEmpty());
+        assertEquals(EpochDay.NONE, log.latestDay());
+        assertNull(log.latestReport());
+        assertEquals("{}", log.toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> log.day(0));
+    }
+
+    @Test
+    void formatsRecordsOldestFirst() {
+        InspectionLog log = new InspectionLog();
+        log.append(EpochDay.of(2024, 2, 3), "Clean");
+        log.append(EpochDay.of(2024, 1, 5), "Damaged");
+        log.append(EpochDay.of(2024, 2, 3), "Spotless");
+        assertEquals("{05/01/2024=Damaged, 03/02/2024=Clean, 03/02/2024=Spotless}", log.toString());
+        assertEquals("Spotless", log.latestReport());
+    }
+
+    @Test
+    void propertiesReportNewInspections() {
+        BASIC basic = new BASIC();
+        basic.properties.add(new SharedProperty(1, 2, 3, "Oslo", 100));
+        List<Integer> days = new ArrayList<>();
+        basic.getPropertyById(1).setListener(new PropertyListener() {
+            @Override
+            public void propertyChanged(Property property) {
+            }
+
+            @Override
+            public void inspectionAdded(Property property, int day) {
+                days.add(day);
+            }
+        });
+        assertTrue(basic.addInspection(1, FIRST_DAY, "Clean"));
+        assertEquals(List.of(FIRST_DAY), days);
+        assertEquals("Clean", basic.getPropertyById(1).getInspections().latestReport());
+        assertFalse(basic.addInspection(2, FIRST_DAY, "Clean"));
+    }
+}
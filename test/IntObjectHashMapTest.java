@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link IntObjectHashMap} against a {@link HashMap} under random puts and removals.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class IntObjectHashMapTest {
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            // A small key range forces collisions, removals in the middle of probe runs and reinsertions
+            int key = random.nextInt(4096) - 2048;
+            switch (random.nextInt(4)) {
+                case 0, 1 -> assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+                case 2 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.putIfAbsent(key, "w" + i), map.putIfAbsent(key, "w" + i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int key = -2048; key < 2048; key++) {
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>(4);
+        for (int key = 0; key < 100; key++) {
+            map.put(key * 16, "v");
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(16));
+        assertNull(map.remove(16));
+    }
+}
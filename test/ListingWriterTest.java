@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Tests keyset paging of {@link EntityRegistry} and the rows written by {@link ListingWriter}.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class ListingWriterTest {
+
+    private static List<Integer> pageAll(EntityRegistry<Integer> registry, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        int cursor = Integer.MIN_VALUE;
+        EntityRegistry.Page<Integer> page;
+        do {
+            page = registry.page(cursor, limit, null);
+            ids.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (page.hasMore());
+        return ids;
+    }
+
+    @Test
+    void pagesInIdOrderThroughChanges() {
+        EntityRegistry<Integer> registry = new EntityRegistry<>(Integer.class, Integer::intValue);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(15);
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt(5000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), registry.remove(id) != null);
+            } else {
+                assertEquals(expected.add(id), registry.add(id));
+            }
+            if (i % 2000 == 0) {
+                assertEquals(new ArrayList<>(expected), pageAll(registry, 1 + random.nextInt(300)));
+            }
+        }
+        assertEquals(new ArrayList<>(expected), pageAll(registry, 7));
+    }
+
+    @Test
+    void laterPagesDoNotShiftWhenEarlierIdsChange() {
+        EntityRegistry<Integer> registry = new EntityRegistry<>(Integer.class, Integer::intValue);
+        for (int id = 10; id >= 1; id--) {
+            registry.add(id);
+        }
+        EntityRegistry.Page<Integer> first = registry.page(Integer.MIN_VALUE, 4, null);
+        assertEquals(List.of(1, 2, 3, 4), first.items());
+        registry.remove(2);
+        registry.remove(5);
+        registry.add(0);
+        EntityRegistry.Page<Integer> second = registry.page(first.nextCursor(), 4, null);
+        assertEquals(List.of(6, 7, 8, 9), second.items());
+        EntityRegistry.Page<Integer> last = registry.page(second.nextCursor(), 4, null);
+        assertEquals(List.of(10), last.items());
+        assertFalse(last.hasMore());
+    }
+
+    @Test
+    void filtersCountExaminedIds() {
+        EntityRegistry<Integer> registry = new EntityRegistry<>(Integer.class, Integer::intValue);
+        for (int id = 1; id <= 10; id++) {
+            registry.add(id);
+        }
+        EntityRegistry.Page<Integer> page = registry.page(Integer.MIN_VALUE, 3, id -> id % 4 == 0);
+        assertEquals(List.of(4, 8), page.items());
+        assertEquals(10, page.nextCursor());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void writesEveryRowAcrossPages() throws IOException {
+        BASIC basic = new BASIC();
+        int count = ListingWriter.PAGE_SIZE * 2 + 5;
+        for (int id = count; id >= 1; id--) {
+            basic.users.add(new StandardCustomer(id, EpochDay.of(1990, 1, 2), "F" + id, "L", EpochDay.of(2020, 3, 4),
+                    "Card"));
+        }
+        basic.users.add(new Host(count + 1, EpochDay.NONE, "H", "O", EpochDay.of(2021, 1, 1), 7));
+        basic.properties.add(new SharedProperty(1, 2, 3, "Oslo", 100));
+        basic.properties.add(new FullProperty(2, 2, 3, "Bergen", 120, 80));
+
+        StringWriter text = new StringWriter();
+        ListingWriter writer = new ListingWriter(text);
+        assertEquals(count, writer.writeUsers(basic, user -> user instanceof StandardCustomer));
+        assertEquals(2, writer.writeProperties(basic, null));
+        writer.flush();
+
+        String[] lines = text.toString().split("\n");
+        assertEquals(count + 2, lines.length);
+        User user = basic.getUserById(1);
+        assertEquals("1\tstandard\tF1\tL\t02/01/1990\t04/03/2020\t" + basic.getDiscountEngine().discountOf(user),
+                lines[0]);
+        assertEquals(count + "\tstandard\tF" + count + "\tL\t02/01/1990\t04/03/2020\t"
+                + basic.getDiscountEngine().discountOf(basic.getUserById(count)), lines[count - 1]);
+        assertEquals("1\tshared\tOslo\t2\t3\t-\t100.0\t50.0", lines[count]);
+        assertEquals("2\tfull\tBergen\t2\t3\t120.0\t80.0\t" + basic.getPropertyById(2).calculatePricePerDay(),
+                lines[count + 1]);
+    }
+}
@@ -0,0 +1,162 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests writing, mapping and lazily materializing {@link MappedSnapshot} files.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class MappedSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsEveryRecord() throws IOException {
+        BASIC original = new BASIC();
+        StorageEngineTest.populate(original);
+        Path file = directory.resolve("snapshot.bin");
+        MappedSnapshot.write(file, original, 42);
+
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+        assertEquals(42, snapshot.getLsn());
+        assertEquals(3, snapshot.getUserCount());
+        assertEquals(3, snapshot.getPropertyCount());
+        BASIC restored = new BASIC();
+        restored.attachSnapshot(snapshot);
+        assertEquals(StorageEngineTest.describe(original), StorageEngineTest.describe(restored));
+    }
+
+    @Test
+    void restoresRatesYearsApart() throws IOException {
+        BASIC original = new BASIC();
+        StorageEngineTest.populate(original);
+        int first = StorageEngineTest.FIRST_DAY;
+        assertTrue(original.setPropertyRates(11, first - 20_000, new double[]{2, 2, 0.5}));
+        assertTrue(original.setPropertyRates(11, first + 20_000, new double[]{1.25}));
+        Path file = directory.resolve("snapshot.bin");
+        MappedSnapshot.write(file, original, 7);
+
+        BASIC restored = new BASIC();
+        restored.attachSnapshot(MappedSnapshot.open(file));
+        PriceCalendar rates = restored.getPropertyById(11).getRates();
+        assertEquals(2 + 2 + 0.5 + 40_001 - 4 + 1.25, rates.sum(first - 20_000, first + 20_001), 1e-9);
+        assertEquals(StorageEngineTest.describe(original), StorageEngineTest.describe(restored));
+    }
+
+    @Test
+    void materializesEntitiesOnFirstLookup() throws IOException {
+        BASIC original = new BASIC();
+        StorageEngineTest.populate(original);
+        Path file = directory.resolve("snapshot.bin");
+        MappedSnapshot.write(file, original, 1);
+
+        EntityRegistry<User> users = new EntityRegistry<>(User.class, User::getUserId);
+        EntityRegistry<Property> properties = new EntityRegistry<>(Property.class, Property::getPropertyId);
+        List<String> restored = new ArrayList<>();
+        users.addListener(recorder("user", restored));
+        properties.addListener(recorder("property", restored));
+        MappedSnapshot.open(file).install(users, properties);
+
+        User gold = users.get(2);
+        assertEquals(List.of("user 2"), restored);
+        assertSame(gold, users.get(2));
+        assertNull(users.get(99));
+        // The bookings point at the property the registry hands out once it is looked up
+        Property booked = gold.getBookings().get(0).getProperty();
+        assertSame(booked, properties.get(booked.getPropertyId()));
+        assertEquals(10, booked.getPropertyId());
+        assertEquals(1, booked.getCalendar().size());
+        // Completing the property looks its host up to check the host was not removed since
+        assertEquals(List.of("user 2", "user 1", "property 10"), restored);
+
+        assertEquals(3, properties.size());
+        assertEquals(3, users.size());
+        assertEquals(6, restored.size());
+    }
+
+    @Test
+    void readsVersion1Files() throws IOException {
+        int start = EpochDay.of(2024, 3, 30);
+        int inspected = EpochDay.of(2023, 10, 29);
+        byte[] city = "Oslo".getBytes(StandardCharsets.UTF_8);
+        byte[] report = "Clean".getBytes(StandardCharsets.UTF_8);
+        byte[] payment = "Cash".getBytes(StandardCharsets.UTF_8);
+        int[] lengths = {56, 56, 32, 4, 16, 12 + city.length + report.length + payment.length};
+        ByteBuffer file = ByteBuffer.allocate(128 + 56 + 56 + 32 + 4 + 16 + lengths[5]);
+        file.putInt(0x4241534D).putInt(1).putLong(7).putInt(1).putInt(1).putInt(1).putInt(1);
+        long offset = 128;
+        for (int length : lengths) {
+            file.putLong(offset).putLong(length);
+            offset += length;
+        }
+        file.position(128);
+        // User 5, a standard customer without a date of birth, and its booking
+        file.putInt(5).put(StateCodec.STANDARD_CUSTOMER).put(new byte[3]).putLong(Long.MIN_VALUE)
+                .putLong(EpochDay.toMillis(EpochDay.of(2010, 6, 1))).putInt(-1).putInt(-1)
+                .putInt(4 + city.length + 4 + report.length).putInt(0).putDouble(0).putInt(0).putInt(1);
+        // Shared property 8 in Oslo with one booking and one inspection
+        file.putInt(8).put(StateCodec.SHARED_PROPERTY).put((byte) 0).put(new byte[2]).putInt(2).putInt(3)
+                .putInt(0).putInt(0).putDouble(100).putDouble(0).putInt(0).putInt(1).putInt(0).putInt(1);
+        file.putInt(5).putInt(8).putLong(EpochDay.toMillis(start)).putLong(EpochDay.toMillis(start + 3))
+                .put((byte) 1).put(new byte[7]);
+        file.putInt(0);
+        file.putInt(8).putInt(4 + city.length).putLong(EpochDay.toMillis(inspected));
+        file.putInt(city.length).put(city).putInt(report.length).put(report).putInt(payment.length).put(payment);
+        Path path = directory.resolve("v1.bin");
+        Files.write(path, file.array());
+
+        BASIC basic = new BASIC();
+        basic.attachSnapshot(MappedSnapshot.open(path));
+        User user = basic.getUserById(5);
+        assertEquals(EpochDay.NONE, user.getDateOfBirthDay());
+        assertEquals(EpochDay.of(2010, 6, 1), user.getRegistrationDay());
+        assertEquals("Cash", ((Customer) user).getPreferredPaymentMethod());
+        Booking booking = user.getBookings().get(0);
+        assertEquals(start, booking.getStartDay());
+        assertEquals(start + 3, booking.getEndDay());
+        assertTrue(booking.isPaid());
+        Property property = basic.getPropertyById(8);
+        assertSame(property, booking.getProperty());
+        assertEquals("Oslo", property.getCity());
+        assertEquals(inspected, property.getInspections().latestDay());
+        assertEquals("Clean", property.getInspections().latestReport());
+        assertTrue(property.getRates().isFlat());
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path path = directory.resolve("other.bin");
+        Files.write(path, new byte[256]);
+        assertThrows(IOException.class, () -> MappedSnapshot.open(path));
+    }
+
+    private static <T> EntityRegistry.Listener<T> recorder(String kind, List<String> restored) {
+        return new EntityRegistry.Listener<>() {
+            @Override
+            public void added(T entity) {
+                restored.add(kind + " " + (entity instanceof User ? ((User) entity).getUserId()
+                        : ((Property) entity).getPropertyId()));
+            }
+
+            @Override
+            public void removed(T entity) {
+            }
+        };
+    }
+}
@@ -0,0 +1,180 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the monthly city statistics of {@link OccupancyRollup} match a scan of every booking.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class OccupancyRollupTest {
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+    private static final String[] CITIES = {"Oslo", "Bergen", "Tromsø"};
+    private static final YearMonth FROM = YearMonth.of(2029, 12);
+    private static final YearMonth TO = YearMonth.of(2031, 2);
+
+    private static void checkRollup(BASIC basic) {
+        List<Property> properties = new ArrayList<>(basic.properties);
+        for (String city : CITIES) {
+            List<OccupancyRollup.MonthStats> stats = basic.getOccupancyRollup().range(city, FROM, TO);
+            long totalNights = 0;
+            long totalCapacity = 0;
+            for (OccupancyRollup.MonthStats month : stats) {
+                int first = EpochDay.of(month.month().getYear(), month.month().getMonthValue(), 1);
+                int end = first + month.month().lengthOfMonth();
+                long nights = 0;
+                long capacity = 0;
+                double revenue = 0;
+                double unpaid = 0;
+                for (Property property : properties) {
+                    if (!property.getCity().equals(city)) {
+                        continue;
+                    }
+                    capacity += (long) property.getBookingCapacity() * month.month().lengthOfMonth();
+                    for (Booking booking : basic.getBookingService().getPropertyBookings(property.getPropertyId())) {
+                        int start = Math.max(first, booking.getStartDay());
+                        int stop = Math.min(end, booking.getEndDay());
+                        if (start < stop) {
+                            nights += stop - start;
+                            double cost = property.calculateStayCost(start, stop);
+                            revenue += cost;
+                            unpaid += booking.isPaid() ? 0 : cost;
+                        }
+                    }
+                }
+                String label = city + " " + month.month();
+                assertEquals(nights, month.bookedNights(), label);
+                assertEquals(capacity == 0 ? 0 : (double) nights / capacity, month.occupancyRate(), 1e-9, label);
+                assertEquals(revenue, month.revenue(), 1e-6 * Math.max(1, revenue), label);
+                assertEquals(unpaid, month.unpaidRevenue(), 1e-6 * Math.max(1, revenue), label);
+                totalNights += nights;
+                totalCapacity += capacity;
+            }
+            OccupancyRollup.RangeStats total = basic.getOccupancyRollup().total(city, FROM, TO);
+            assertEquals(totalNights, total.bookedNights(), city);
+            assertEquals(totalCapacity == 0 ? 0 : (double) totalNights / totalCapacity, total.occupancyRate(), 1e-9);
+        }
+    }
+
+    @Test
+    void matchesAScanThroughChanges() {
+        BASIC basic = new BASIC();
+        Random random = new Random(19);
+        for (int id = 1; id <= 20; id++) {
+            basic.users.add(new StandardCustomer(id, EpochDay.NONE, "C", "L", EpochDay.of(2021, 1, 1), "Card"));
+        }
+        for (int id = 1; id <= 40; id++) {
+            String city = CITIES[random.nextInt(CITIES.length)];
+            basic.properties.add(random.nextBoolean()
+                    ? new SharedProperty(id, 1 + random.nextInt(3), 4, city, 50 + random.nextInt(100))
+                    : new FullProperty(id, 2, 4, city, 80 + random.nextInt(200), 60 + random.nextInt(100)));
+        }
+        BookingService service = basic.getBookingService();
+        List<Booking> booked = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Property property = service.getProperty(1 + random.nextInt(40));
+            if (property == null) {
+                continue;
+            }
+            switch (random.nextInt(10)) {
+                case 0 -> basic.setPropertyPrice(property.getPropertyId(), 40 + random.nextInt(150));
+                case 1 -> property.setCity(CITIES[random.nextInt(CITIES.length)]);
+                case 2 -> property.setNoBedRooms(1 + random.nextInt(4));
+                case 3 -> {
+                    double[] rates = new double[1 + random.nextInt(60)];
+                    for (int day = 0; day < rates.length; day++) {
+                        rates[day] = 0.5 + random.nextInt(6) * 0.25;
+                    }
+                    basic.setPropertyRates(property.getPropertyId(), FIRST_DAY + random.nextInt(330), rates);
+                }
+                case 4 -> {
+                    if (!booked.isEmpty()) {
+                        service.setPaid(booked.get(random.nextInt(booked.size())), random.nextBoolean());
+                    }
+                }
+                case 5 -> {
+                    if (!booked.isEmpty()) {
+                        service.cancel(booked.remove(random.nextInt(booked.size())));
+                    }
+                }
+                default -> {
+                    // Stays cross month and year boundaries
+                    int start = FIRST_DAY - 20 + random.nextInt(380);
+                    Booking booking = service.book(1 + random.nextInt(20), property.getPropertyId(), start,
+                            start + 1 + random.nextInt(40));
+                    if (booking != null) {
+                        booked.add(booking);
+                    }
+                }
+            }
+            if (i == 2500) {
+                basic.removeProperty(3);
+            }
+            if (i % 1000 == 999) {
+                checkRollup(basic);
+            }
+        }
+    }
+
+    @Test
+    void splitsStaysOverMonths() {
+        BASIC basic = new BASIC();
+        basic.users.add(new StandardCustomer(1, EpochDay.NONE, "C", "L", EpochDay.of(2021, 1, 1), "Card"));
+        basic.properties.add(new FullProperty(1, 2, 4, "Oslo", 100, 100));
+        basic.getBookingService().book(1, 1, EpochDay.of(2030, 1, 30), EpochDay.of(2030, 2, 2));
+        List<OccupancyRollup.MonthStats> stats = basic.getOccupancyRollup().range("Oslo", YearMonth.of(2030, 1),
+                YearMonth.of(2030, 3));
+        assertEquals(List.of(2L, 1L, 0L), stats.stream().map(OccupancyRollup.MonthStats::bookedNights).toList());
+        assertEquals(2 / 31.0, stats.get(0).occupancyRate(), 1e-12);
+        assertEquals(0, basic.getOccupancyRollup().total("Paris", YearMonth.of(2030, 1), YearMonth.of(2030, 3))
+                .bookedNights());
+    }
+
+    @Test
+    void countsConcurrentBookings() throws InterruptedException {
+        BASIC basic = new BASIC();
+        for (int id = 1; id <= 8; id++) {
+            basic.users.add(new StandardCustomer(id, EpochDay.NONE, "C", "L", EpochDay.of(2021, 1, 1), "Card"));
+        }
+        for (int id = 1; id <= 16; id++) {
+            basic.properties.add(new SharedProperty(id, 3, 4, CITIES[id % CITIES.length], 50 + id));
+        }
+        BookingService service = basic.getBookingService();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int userId = t + 1;
+            Thread thread = new Thread(() -> {
+                Random random = new Random(userId);
+                List<Booking> booked = new ArrayList<>();
+                for (int i = 0; i < 2000; i++) {
+                    int start = FIRST_DAY - 20 + random.nextInt(380);
+                    Booking booking = service.book(userId, 1 + random.nextInt(16), start, start + 1 + random.nextInt(20));
+                    if (booking != null) {
+                        booked.add(booking);
+                    }
+                    if (!booked.isEmpty() && random.nextInt(3) == 0) {
+                        Booking other = booked.get(random.nextInt(booked.size()));
+                        if (random.nextBoolean()) {
+                            service.setPaid(other, !other.isPaid());
+                        } else {
+                            service.cancel(other);
+                            booked.remove(other);
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        checkRollup(basic);
+    }
+}
@@ -0,0 +1,209 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link PaymentSettlement} hands every booking to the processor at most once and survives a
+ * failing processor.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class PaymentSettlementTest {
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+
+    private static BASIC basic() {
+        BASIC basic = new BASIC();
+        for (int id = 1; id <= 20; id++) {
+            basic.users.add(new StandardCustomer(id, EpochDay.NONE, "C", "L", EpochDay.of(2021, 1, 1),
+                    id % 2 == 0 ? "Card" : "Cash"));
+        }
+        for (int id = 1; id <= 10; id++) {
+            basic.properties.add(new SharedProperty(id, 3, 4, "Oslo", 90));
+        }
+        return basic;
+    }
+
+    private static PaymentSettlement.Confirmation confirm(Booking booking) {
+        return new PaymentSettlement.Confirmation(booking.getUser().getUserId(),
+                booking.getProperty().getPropertyId(), booking.getStartDay());
+    }
+
+    private static List<PaymentSettlement.Result> take(PaymentSettlement settlement, int count)
+            throws InterruptedException {
+        List<PaymentSettlement.Result> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            PaymentSettlement.Result result = settlement.poll(10, TimeUnit.SECONDS);
+            assertNotNull(result, "result " + i);
+            results.add(result);
+        }
+        return results;
+    }
+
+    @Test
+    void processorSeesEachBookingOnceAcrossWorkers() throws InterruptedException {
+        BASIC basic = basic();
+        BookingService service = basic.getBookingService();
+        List<Booking> booked = new ArrayList<>();
+        for (int day = 0; day < 100; day++) {
+            for (int propertyId = 1; propertyId <= 10; propertyId++) {
+                booked.add(service.book(1 + (day + propertyId) % 20, propertyId, FIRST_DAY + day, FIRST_DAY + day + 1));
+            }
+        }
+        Map<Booking, Integer> seen = Collections.synchronizedMap(new IdentityHashMap<>());
+        PaymentProcessor processor = (method, bookings) -> {
+            for (Booking booking : bookings) {
+                seen.merge(booking, 1, Integer::sum);
+            }
+            boolean[] settled = new boolean[bookings.size()];
+            Arrays.fill(settled, true);
+            return settled;
+        };
+        PaymentSettlement settlement = PaymentSettlement.start(basic, processor, 8, 64, 4);
+        try {
+            // Every booking is confirmed three times, in overlapping batches and within batches
+            Random random = new Random(23);
+            List<List<PaymentSettlement.Confirmation>> batches = new ArrayList<>();
+            int confirmations = 0;
+            for (int round = 0; round < 3; round++) {
+                List<Booking> order = new ArrayList<>(booked);
+                Collections.shuffle(order, random);
+                for (int from = 0; from < order.size(); from += 50) {
+                    List<PaymentSettlement.Confirmation> batch = new ArrayList<>();
+                    for (Booking booking : order.subList(from, from + 50)) {
+                        batch.add(confirm(booking));
+                        if (random.nextInt(10) == 0) {
+                            batch.add(confirm(booking));
+                        }
+                    }
+                    batches.add(batch);
+                    confirmations += batch.size();
+                }
+            }
+            // Both queues are bounded, so results are taken while the batches are submitted
+            Thread producer = new Thread(() -> {
+                try {
+                    for (List<PaymentSettlement.Confirmation> batch : batches) {
+                        settlement.submit(batch);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            producer.start();
+            List<PaymentSettlement.Result> results = take(settlement, confirmations);
+            producer.join();
+            assertEquals(booked.size(), results.stream().filter(PaymentSettlement.Result::settled).count());
+        } finally {
+            settlement.close();
+        }
+        assertEquals(booked.size(), seen.size());
+        for (Booking booking : booked) {
+            assertEquals(1, seen.get(booking));
+            assertTrue(booking.isPaid());
+        }
+    }
+
+    @Test
+    void duplicatesWithinABatchFail() throws InterruptedException {
+        BASIC basic = basic();
+        Booking booking = basic.getBookingService().book(2, 1, FIRST_DAY, FIRST_DAY + 2);
+        Booking twin = basic.getBookingService().book(4, 1, FIRST_DAY, FIRST_DAY + 2);
+        PaymentSettlement settlement = PaymentSettlement.start(basic, new StubPaymentProcessor(0, 0, 0), 4, 16, 1);
+        try {
+            settlement.submit(List.of(confirm(booking), confirm(booking), confirm(twin),
+                    new PaymentSettlement.Confirmation(2, 1, FIRST_DAY + 1)));
+            List<PaymentSettlement.Result> results = take(settlement, 4);
+            assertEquals(List.of("Booking is already being settled.", "Booking not found."),
+                    results.stream().filter(r -> !r.settled()).map(PaymentSettlement.Result::reason).toList());
+            assertEquals(2, results.stream().filter(PaymentSettlement.Result::settled).count());
+            settlement.submit(List.of(confirm(booking)));
+            assertEquals("Booking is already paid.", take(settlement, 1).get(0).reason());
+        } finally {
+            settlement.close();
+        }
+    }
+
+    @Test
+    void failingProcessorFailsTheBatchAndWorkerContinues() throws InterruptedException {
+        BASIC basic = basic();
+        BookingService service = basic.getBookingService();
+        Booking cash = service.book(1, 1, FIRST_DAY, FIRST_DAY + 2);
+        Booking card = service.book(2, 1, FIRST_DAY, FIRST_DAY + 2);
+        boolean[] failing = {true};
+        PaymentProcessor processor = (method, bookings) -> {
+            if (failing[0]) {
+                throw new IllegalStateException("provider unavailable");
+            }
+            boolean[] settled = new boolean[bookings.size()];
+            Arrays.fill(settled, true);
+            return settled;
+        };
+        PaymentSettlement settlement = PaymentSettlement.start(basic, processor, 4, 16, 1);
+        try {
+            settlement.submit(List.of(confirm(cash), confirm(card),
+                    new PaymentSettlement.Confirmation(3, 1, FIRST_DAY)));
+            List<PaymentSettlement.Result> results = take(settlement, 3);
+            assertTrue(results.stream().noneMatch(PaymentSettlement.Result::settled));
+            assertEquals(2, results.stream()
+                    .filter(r -> r.reason().equals("Settlement failed: provider unavailable")).count());
+            assertFalse(cash.isPaid());
+
+            // The same worker settles the next batch, and the failed bookings were released for it
+            failing[0] = false;
+            settlement.submit(List.of(confirm(cash), confirm(card)));
+            assertTrue(take(settlement, 2).stream().allMatch(PaymentSettlement.Result::settled));
+            assertTrue(cash.isPaid());
+            assertTrue(card.isPaid());
+        } finally {
+            settlement.close();
+        }
+    }
+
+    @Test
+    void holdsExpiringDuringSettlementWaitForTheOutcome() throws InterruptedException {
+        BASIC basic = basic();
+        BookingService service = basic.getBookingService();
+        ReservationHolds holds = new ReservationHolds(basic, 60_000, System.currentTimeMillis());
+        holds.attach();
+        Booking charged = service.book(2, 1, FIRST_DAY, FIRST_DAY + 2);
+        Booking declined = service.book(4, 1, FIRST_DAY, FIRST_DAY + 2);
+        int[] expired = new int[1];
+        PaymentProcessor processor = (method, bookings) -> {
+            // Every hold expires while the provider is charging
+            expired[0] = holds.expire(System.currentTimeMillis() + 120_000);
+            boolean[] settled = new boolean[bookings.size()];
+            for (int i = 0; i < settled.length; i++) {
+                settled[i] = bookings.get(i) == charged;
+            }
+            return settled;
+        };
+        PaymentSettlement settlement = PaymentSettlement.start(basic, processor, 4, 16, 1);
+        try {
+            settlement.submit(List.of(confirm(charged), confirm(declined)));
+            List<PaymentSettlement.Result> results = take(settlement, 2);
+            assertEquals(1, results.stream().filter(PaymentSettlement.Result::settled).count());
+            assertEquals(0, expired[0]);
+            assertTrue(charged.isPaid());
+            // The declined booking is released once its claim is dropped, after its result is published
+            for (int i = 0; i < 100 && service.getPropertyBookings(1).size() > 1; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of(charged), service.getPropertyBookings(1));
+        } finally {
+            settlement.close();
+        }
+    }
+}
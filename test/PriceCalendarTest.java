@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link PriceCalendar} sums rates as a night-by-night scan would, whether they are set as a range
+ * or as runs.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class PriceCalendarTest {
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+
+    @Test
+    void runsMatchOneRangePerRun() {
+        Random random = new Random(24);
+        PriceCalendar byRuns = PriceCalendar.FLAT;
+        PriceCalendar byRanges = PriceCalendar.FLAT;
+        for (int round = 0; round < 50; round++) {
+            int runCount = random.nextInt(6);
+            int[] fromDays = new int[runCount];
+            int[] toDays = new int[runCount];
+            double[] runRates = new double[runCount];
+            for (int run = 0; run < runCount; run++) {
+                // Runs years apart, before and after the nights already rated, some overlapping
+                fromDays[run] = FIRST_DAY - 2000 + random.nextInt(4000);
+                toDays[run] = fromDays[run] + random.nextInt(300);
+                runRates[run] = random.nextInt(8) * 0.25;
+                double[] rates = new double[toDays[run] - fromDays[run]];
+                Arrays.fill(rates, runRates[run]);
+                byRanges = byRanges.withRates(fromDays[run], rates);
+            }
+            byRuns = byRuns.withRuns(fromDays, toDays, runRates);
+            for (int i = 0; i < 200; i++) {
+                int start = FIRST_DAY - 2100 + random.nextInt(4200);
+                int end = start + random.nextInt(400);
+                assertEquals(byRanges.sum(start, end), byRuns.sum(start, end), 1e-9);
+                assertEquals(byRanges.rate(start), byRuns.rate(start));
+            }
+            assertEquals(runs(byRanges), runs(byRuns));
+        }
+    }
+
+    @Test
+    void keepsRatesBetweenRuns() {
+        PriceCalendar calendar = PriceCalendar.FLAT.withRates(FIRST_DAY, new double[]{2, 2, 2, 2});
+        PriceCalendar runs = calendar.withRuns(new int[]{FIRST_DAY, FIRST_DAY + 3, FIRST_DAY + 10_000},
+                new int[]{FIRST_DAY + 1, FIRST_DAY + 4, FIRST_DAY + 10_002}, new double[]{1, 3, 0.5});
+        assertEquals(List.of(FIRST_DAY + 1 + ".." + (FIRST_DAY + 3) + " x2.0",
+                FIRST_DAY + 3 + ".." + (FIRST_DAY + 4) + " x3.0",
+                FIRST_DAY + 10_000 + ".." + (FIRST_DAY + 10_002) + " x0.5"), runs(runs));
+        assertEquals(1 + 4 + 3 + 9_996 + 1, runs.sum(FIRST_DAY, FIRST_DAY + 10_002), 1e-9);
+        assertEquals(List.of(FIRST_DAY + ".." + (FIRST_DAY + 4) + " x2.0"), runs(calendar));
+        assertSame(calendar, calendar.withRuns(new int[]{FIRST_DAY}, new int[]{FIRST_DAY}, new double[]{5}));
+        assertTrue(runs.withRuns(new int[]{FIRST_DAY + 1, FIRST_DAY + 3, FIRST_DAY + 10_000},
+                new int[]{FIRST_DAY + 3, FIRST_DAY + 4, FIRST_DAY + 10_002}, new double[]{1, 1, 1}).isFlat());
+        assertThrows(IllegalArgumentException.class,
+                () -> calendar.withRuns(new int[]{FIRST_DAY}, new int[]{FIRST_DAY + 1}, new double[]{-1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> calendar.withRuns(new int[]{FIRST_DAY}, new int[0], new double[]{1}));
+    }
+
+    private static List<String> runs(PriceCalendar calendar) {
+        List<String> runs = new ArrayList<>();
+        calendar.forEachRun((fromDay, toDay, rate) -> runs.add(fromDay + ".." + toDay + " x" + rate));
+        return runs;
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that {@link PriceIndex} stays ordered by price through additions, repricing, city changes and
+ * removals.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class PriceIndexTest {
+    private static final Comparator<Property> BY_PRICE = Comparator.comparingDouble(Property::calculatePricePerDay)
+            .thenComparingInt(Property::getPropertyId);
+    private static final String[] CITIES = {"Oslo", "Bergen", "Tromsø"};
+
+    private static List<Property> sorted(List<Property> properties, int k) {
+        List<Property> copy = new ArrayList<>(properties);
+        copy.sort(BY_PRICE);
+        return copy.subList(0, Math.min(k, copy.size()));
+    }
+
+    @Test
+    void matchesSortingAfterRandomChanges() {
+        BASIC basic = new BASIC();
+        Random random = new Random(11);
+        for (int id = 1; id <= 1000; id++) {
+            String city = CITIES[random.nextInt(CITIES.length)];
+            basic.properties.add(random.nextBoolean()
+                    ? new SharedProperty(id, 1 + random.nextInt(4), 5, city, 20 + random.nextInt(100))
+                    : new FullProperty(id, 2, 5, city, 100 + random.nextInt(300), 20 + random.nextInt(100)));
+        }
+        for (int i = 0; i < 500; i++) {
+            Property property = basic.getPropertyById(1 + random.nextInt(1000));
+            if (property == null) {
+                continue;
+            }
+            switch (random.nextInt(4)) {
+                case 0 -> basic.setPropertyPrice(property.getPropertyId(), 20 + random.nextInt(100));
+                case 1 -> property.setNoBedRooms(1 + random.nextInt(4));
+                case 2 -> property.setCity(CITIES[random.nextInt(CITIES.length)]);
+                default -> basic.removeProperty(property.getPropertyId());
+            }
+        }
+        PriceIndex index = basic.getPriceIndex();
+        List<Property> properties = new ArrayList<>(basic.properties);
+        assertEquals(properties.size(), index.size());
+        assertEquals(sorted(properties, 50), index.cheapest(50));
+        assertEquals(sorted(properties, 5000), index.cheapest(5000));
+        for (String city : CITIES) {
+            List<Property> inCity = properties.stream().filter(p -> p.getCity().equals(city)).toList();
+            assertEquals(sorted(inCity, 20), index.cheapestInCity(city.toUpperCase(), 20));
+        }
+        List<Property> inRange = properties.stream()
+                .filter(p -> p.calculatePricePerDay() >= 30 && p.calculatePricePerDay() <= 45).toList();
+        assertEquals(sorted(inRange, 10), index.inPriceRange(30, 45, 10));
+        assertEquals(List.of(), index.inPriceRange(45, 30, 10));
+        assertEquals(List.of(), index.cheapestInCity("Paris", 10));
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the cached price per day of a property follows every pricing input and that price changes
+ * are reported with the previous price.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class PropertyPriceTest {
+
+    private static List<String> listen(Property property) {
+        List<String> events = new ArrayList<>();
+        property.setListener(new PropertyListener() {
+            @Override
+            public void propertyChanged(Property changed) {
+                events.add("changed");
+            }
+
+            @Override
+            public void priceChanged(Property changed, double previousPrice) {
+                events.add(previousPrice + " -> " + changed.calculatePricePerDay());
+            }
+        });
+        return events;
+    }
+
+    @Test
+    void sharedPriceFollowsBaseAndBedrooms() {
+        SharedProperty property = new SharedProperty(1, 4, 6, "Oslo", 100);
+        List<String> events = listen(property);
+        assertEquals(25.0, property.calculatePricePerDay());
+        property.setNoBedRooms(5);
+        assertEquals(20.0, property.calculatePricePerDay());
+        property.setPricePerDay(150);
+        assertEquals(30.0, property.calculatePricePerDay());
+        property.setNoRooms(7);
+        assertEquals(30.0, property.calculatePricePerDay());
+        assertEquals(List.of("25.0 -> 20.0", "changed", "20.0 -> 30.0", "changed", "changed"), events);
+    }
+
+    @Test
+    void fullPriceFollowsBaseAndSize() {
+        FullProperty property = new FullProperty(1, 2, 4, "Oslo", 150, 100);
+        List<String> events = listen(property);
+        assertEquals(FullProperty.calculatePricePerDay(100, 150), property.calculatePricePerDay());
+        property.setSize(250);
+        assertEquals(FullProperty.calculatePricePerDay(100, 250), property.calculatePricePerDay());
+        property.setPricePerDay(200);
+        assertEquals(FullProperty.calculatePricePerDay(200, 250), property.calculatePricePerDay());
+        assertEquals(4, events.size());
+    }
+
+    @Test
+    void unchangedPriceIsNotReported() {
+        FullProperty property = new FullProperty(1, 2, 4, "Oslo", 150, 100);
+        List<String> events = listen(property);
+        // Both sizes fall into the same tax band
+        property.setSize(180);
+        property.setPricePerDay(100);
+        assertEquals(List.of("changed", "changed"), events);
+        assertEquals(FullProperty.calculatePricePerDay(100, 180), property.calculatePricePerDay());
+    }
+}
@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that queries answered through {@link PropertyIndexes} match a scan of every property, also after
+ * the properties change.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class PropertyQueryTest {
+    private static final String[] CITIES = {"Oslo", "Bergen", "Limassol", "Nicosia"};
+
+    private static List<Integer> ids(List<Property> properties) {
+        return properties.stream().map(Property::getPropertyId).sorted(Comparator.naturalOrder()).toList();
+    }
+
+    private static void check(BASIC basic, PropertyQuery query, Predicate<Property> expected) {
+        List<Property> all = new ArrayList<>(basic.properties);
+        assertEquals(ids(all.stream().filter(expected).toList()), ids(basic.findProperties(query)),
+                basic.getPropertyStore().explain(query));
+    }
+
+    @Test
+    void matchesAScanThroughChanges() {
+        BASIC basic = new BASIC();
+        Random random = new Random(17);
+        for (int id = 1; id <= 3000; id++) {
+            String city = CITIES[random.nextInt(CITIES.length)];
+            // Some bedroom and room counts fall beyond the last exact key
+            int bedRooms = 1 + random.nextInt(random.nextInt(10) == 0 ? 100 : 6);
+            basic.properties.add(random.nextBoolean()
+                    ? new SharedProperty(id, bedRooms, bedRooms + random.nextInt(4), city, 20 + random.nextInt(300))
+                    : new FullProperty(id, bedRooms, bedRooms + random.nextInt(4), city, 30 + random.nextInt(400),
+                    50 + random.nextInt(300)));
+        }
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 400; i++) {
+                Property property = basic.getPropertyById(1 + random.nextInt(3000));
+                if (property == null) {
+                    continue;
+                }
+                switch (random.nextInt(5)) {
+                    case 0 -> property.setCity(CITIES[random.nextInt(CITIES.length)].toUpperCase());
+                    case 1 -> property.setNoBedRooms(1 + random.nextInt(8));
+                    case 2 -> basic.setPropertyPrice(property.getPropertyId(), 20 + random.nextInt(300));
+                    case 3 -> {
+                        if (property instanceof FullProperty) {
+                            ((FullProperty) property).setSize(30 + random.nextInt(400));
+                        }
+                    }
+                    default -> basic.removeProperty(property.getPropertyId());
+                }
+            }
+            String city = CITIES[random.nextInt(CITIES.length)];
+            int minBedRooms = 1 + random.nextInt(5);
+            double maxPrice = 20 + random.nextInt(200);
+            check(basic, new PropertyQuery().city(city.toLowerCase()).minBedRooms(minBedRooms).maxPrice(maxPrice),
+                    p -> p.getCity().equalsIgnoreCase(city) && p.getNoBedRooms() >= minBedRooms
+                            && p.calculatePricePerDay() <= maxPrice);
+            check(basic, new PropertyQuery().type(PropertyStore.FULL).size(100, 180).minRooms(3),
+                    p -> p instanceof FullProperty && ((FullProperty) p).getSize() >= 100
+                            && ((FullProperty) p).getSize() <= 180 && p.getNoRooms() >= 3);
+            check(basic, new PropertyQuery().minBedRooms(40).maxRooms(60),
+                    p -> p.getNoBedRooms() >= 40 && p.getNoRooms() <= 60);
+            check(basic, new PropertyQuery().type(PropertyStore.SHARED).minPrice(25.5).maxPrice(31.5),
+                    p -> p instanceof SharedProperty && p.calculatePricePerDay() >= 25.5
+                            && p.calculatePricePerDay() <= 31.5);
+            check(basic, new PropertyQuery(), p -> true);
+        }
+    }
+
+    @Test
+    void answersEmptyAndUnknownPredicates() {
+        BASIC basic = new BASIC();
+        basic.properties.add(new SharedProperty(1, 2, 3, "Oslo", 100));
+        basic.properties.add(new FullProperty(2, 2, 3, "Oslo", 120, 80));
+        assertEquals(List.of(), basic.findProperties(new PropertyQuery().city("Paris")));
+        assertEquals(List.of(), basic.findProperties(new PropertyQuery().minBedRooms(3).maxBedRooms(2)));
+        assertEquals(List.of(2), ids(basic.findProperties(new PropertyQuery().size(0, 1000))));
+        assertThrows(IllegalArgumentException.class, () -> new PropertyQuery().type((byte) 7));
+        assertTrue(basic.getPropertyStore().explain(new PropertyQuery().city("Oslo")).contains("candidates"));
+    }
+}
@@ -0,0 +1,136 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests that the columns of {@link PropertyStore} follow the property registry and that its scans agree
+ * with the same computation over the property objects.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class PropertyStoreTest {
+    private static final String[] CITIES = {"Oslo", "Bergen", "Tromsø", "Stavanger"};
+
+    private static BASIC randomProperties(int count, Random random) {
+        BASIC basic = new BASIC();
+        for (int id = 1; id <= count; id++) {
+            String city = CITIES[random.nextInt(CITIES.length)];
+            int bedRooms = 1 + random.nextInt(5);
+            double price = 20 + random.nextInt(300);
+            basic.properties.add(random.nextBoolean()
+                    ? new SharedProperty(id, bedRooms, bedRooms + random.nextInt(4), city, price)
+                    : new FullProperty(id, bedRooms, bedRooms + random.nextInt(4), city, 30 + random.nextInt(200),
+                    price));
+        }
+        return basic;
+    }
+
+    private static void assertMatchesProperties(BASIC basic) {
+        PropertyStore store = basic.getPropertyStore();
+        assertEquals(basic.properties.size(), store.size());
+        for (Property property : basic.properties) {
+            int row = store.rowOf(property.getPropertyId());
+            assertSame(property, store.view(row));
+            assertEquals(property instanceof FullProperty ? PropertyStore.FULL : PropertyStore.SHARED,
+                    store.type(row));
+            assertEquals(property.getNoBedRooms(), store.noBedRooms(row));
+            assertEquals(property.getNoRooms(), store.noRooms(row));
+            assertEquals(property.getCity(), store.cities().decode(store.cityId(row)));
+            assertEquals(property.getPricePerDay(), store.pricePerDay(row));
+            // Bit for bit, since both go through the same static price functions
+            assertEquals(property.calculatePricePerDay(), store.effectivePricePerDay(row));
+            assertEquals(property.getInspections().latestDay(), store.lastInspected(row));
+        }
+    }
+
+    @Test
+    void followsAdditionsChangesAndRemovals() {
+        Random random = new Random(3);
+        BASIC basic = randomProperties(500, random);
+        assertMatchesProperties(basic);
+        for (int i = 0; i < 200; i++) {
+            Property property = basic.getPropertyById(1 + random.nextInt(500));
+            if (property == null) {
+                continue;
+            }
+            switch (random.nextInt(5)) {
+                case 0 -> property.setCity(CITIES[random.nextInt(CITIES.length)]);
+                case 1 -> property.setNoBedRooms(1 + random.nextInt(5));
+                case 2 -> basic.setPropertyPrice(property.getPropertyId(), 10 + random.nextInt(400));
+                case 3 -> basic.addInspection(property.getPropertyId(), EpochDay.of(2024, 1, 1) + i, "Fine");
+                default -> basic.removeProperty(property.getPropertyId());
+            }
+        }
+        int rowLimit = basic.getPropertyStore().rowLimit();
+        // New properties reuse the rows of removed ones
+        for (int id = 1000; id < 1000 + 500 - basic.properties.size(); id++) {
+            basic.properties.add(new SharedProperty(id, 2, 3, "Oslo", 50));
+        }
+        assertEquals(rowLimit, basic.getPropertyStore().rowLimit());
+        assertMatchesProperties(basic);
+    }
+
+    @Test
+    void scansAgreeWithTheObjects() {
+        BASIC basic = randomProperties(2000, new Random(5));
+        PropertyStore store = basic.getPropertyStore();
+
+        List<Property> byPrice = new ArrayList<>(basic.properties);
+        byPrice.sort(Comparator.comparingDouble(Property::calculatePricePerDay)
+                .thenComparingInt(Property::getPropertyId));
+        int[] cheapest = store.cheapestRows(25);
+        assertEquals(25, cheapest.length);
+        for (int i = 0; i < cheapest.length; i++) {
+            assertSame(byPrice.get(i), store.view(cheapest[i]));
+        }
+        assertEquals(2000, store.cheapestRows(5000).length);
+
+        int oslo = store.cities().find("Oslo");
+        long expected = basic.properties.stream()
+                .filter(p -> p.getCity().equals("Oslo") && p.getNoBedRooms() >= 3 && p.getNoRooms() >= 4).count();
+        assertEquals(expected, store.count(oslo, 3, 4));
+        assertEquals(2000, store.count(-1, 0, 0));
+
+        Map<String, List<Double>> prices = new HashMap<>();
+        for (Property property : basic.properties) {
+            prices.computeIfAbsent(property.getCity(), city -> new ArrayList<>()).add(property.calculatePricePerDay());
+        }
+        List<PropertyStore.CityStats> stats = store.statsByCity();
+        assertEquals(prices.size(), stats.size());
+        for (PropertyStore.CityStats city : stats) {
+            List<Double> cityPrices = prices.get(city.city());
+            assertEquals(cityPrices.size(), city.count());
+            assertEquals(cityPrices.stream().mapToDouble(Double::doubleValue).min().getAsDouble(), city.minPrice());
+            assertEquals(cityPrices.stream().mapToDouble(Double::doubleValue).max().getAsDouble(), city.maxPrice());
+            assertEquals(cityPrices.stream().mapToDouble(Double::doubleValue).average().getAsDouble(),
+                    city.averagePrice(), 1e-9);
+        }
+    }
+
+    @Test
+    void findsPropertiesNotInspectedSince() {
+        BASIC basic = randomProperties(10, new Random(1));
+        int day = EpochDay.of(2024, 5, 1);
+        basic.addInspection(1, day - 30, "Old");
+        basic.addInspection(2, day, "Recent");
+        basic.addInspection(3, day - 30, "Old");
+        basic.addInspection(3, day + 1, "Recent");
+        PropertyStore store = basic.getPropertyStore();
+        List<Integer> overdue = new ArrayList<>();
+        for (int row : store.rowsNotInspectedSince(day)) {
+            overdue.add(store.propertyId(row));
+        }
+        assertEquals(List.of(1, 4, 5, 6, 7, 8, 9, 10), overdue);
+        // Never-inspected properties are always overdue
+        assertEquals(7, store.rowsNotInspectedSince(day - 30).length);
+    }
+}
@@ -0,0 +1,118 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link ReservationHolds} releases exactly the bookings still unpaid when their hold expires.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class ReservationHoldsTest {
+    private static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+    private static final long TTL = 60_000;
+
+    private static BASIC basic() {
+        BASIC basic = new BASIC();
+        for (int id = 1; id <= 3; id++) {
+            basic.users.add(new StandardCustomer(id, EpochDay.NONE, "C", "L", EpochDay.of(2021, 1, 1), "Card"));
+        }
+        basic.properties.add(new SharedProperty(1, 1, 2, "Oslo", 90));
+        return basic;
+    }
+
+    private static long afterExpiry() {
+        return System.currentTimeMillis() + TTL + 2 * ReservationHolds.TICK_MILLIS;
+    }
+
+    @Test
+    void releasesUnpaidBookingsWhenTheirHoldExpires() {
+        BASIC basic = basic();
+        BookingService service = basic.getBookingService();
+        Booking existing = service.book(1, 1, FIRST_DAY, FIRST_DAY + 2);
+        ReservationHolds holds = new ReservationHolds(basic, TTL, System.currentTimeMillis());
+        holds.attach();
+        Booking later = service.book(2, 1, FIRST_DAY + 2, FIRST_DAY + 4);
+        Booking paid = service.book(3, 1, FIRST_DAY + 4, FIRST_DAY + 6);
+        assertTrue(holds.isHeld(existing));
+        assertEquals(3, holds.size());
+
+        assertTrue(service.setPaid(paid, true));
+        assertFalse(holds.isHeld(paid));
+        assertTrue(service.cancel(later));
+        assertEquals(1, holds.size());
+
+        assertEquals(0, holds.expire(System.currentTimeMillis()));
+        assertEquals(1, holds.expire(afterExpiry()));
+        assertEquals(0, holds.size());
+        assertEquals(1, service.getPropertyBookings(1).size());
+        assertTrue(service.isAvailable(1, FIRST_DAY, FIRST_DAY + 2));
+    }
+
+    @Test
+    void unpayingStartsANewHold() {
+        BASIC basic = basic();
+        BookingService service = basic.getBookingService();
+        ReservationHolds holds = new ReservationHolds(basic, TTL, System.currentTimeMillis());
+        holds.attach();
+        Booking booking = service.book(1, 1, FIRST_DAY, FIRST_DAY + 2);
+        service.setPaid(booking, true);
+        assertEquals(0, holds.size());
+        service.setPaid(booking, false);
+        assertTrue(holds.isHeld(booking));
+        assertEquals(1, holds.expire(afterExpiry()));
+        assertFalse(service.cancel(booking));
+    }
+
+    @Test
+    void payingABookingDirectlyCancelsItsHold() {
+        BASIC basic = basic();
+        BookingService service = basic.getBookingService();
+        ReservationHolds holds = new ReservationHolds(basic, TTL, System.currentTimeMillis());
+        holds.attach();
+        Booking booking = service.book(1, 1, FIRST_DAY, FIRST_DAY + 2);
+        booking.setPaid(true);
+        assertFalse(holds.isHeld(booking));
+        assertEquals(0, holds.expire(afterExpiry()));
+        assertEquals(1, service.getPropertyBookings(1).size());
+        assertFalse(service.isAvailable(1, FIRST_DAY, FIRST_DAY + 2));
+        booking.setPaid(false);
+        assertTrue(holds.isHeld(booking));
+    }
+
+    @Test
+    void holdsBookingsMadeConcurrently() throws InterruptedException {
+        BASIC basic = basic();
+        for (int id = 2; id <= 16; id++) {
+            basic.properties.add(new SharedProperty(id, 3, 4, "Oslo", 90));
+        }
+        BookingService service = basic.getBookingService();
+        ReservationHolds holds = new ReservationHolds(basic, TTL, System.currentTimeMillis());
+        holds.attach();
+        Thread[] threads = new Thread[3];
+        for (int t = 0; t < threads.length; t++) {
+            int userId = t + 1;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    Booking booking = service.book(userId, 1 + i % 16, FIRST_DAY + i, FIRST_DAY + i + 1);
+                    if (booking != null && i % 2 == 0) {
+                        booking.setPaid(true);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long unpaid = 0;
+        for (int id = 1; id <= 16; id++) {
+            unpaid += service.getPropertyBookings(id).stream().filter(booking -> !booking.isPaid()).count();
+        }
+        assertEquals(unpaid, holds.size());
+        assertEquals(unpaid, holds.expire(afterExpiry()));
+        assertEquals(0, holds.size());
+    }
+}
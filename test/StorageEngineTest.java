@@ -0,0 +1,179 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link StorageEngine} recovers the state of a BASIC instance from its write-ahead log and
+ * snapshots.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class StorageEngineTest {
+    static final int FIRST_DAY = EpochDay.of(2030, 1, 1);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Fill a BASIC instance with users, properties, bookings and every other kind of logged mutation.
+     *
+     * @param basic The instance to fill.
+     */
+    static void populate(BASIC basic) {
+        Host host = new Host(1, EpochDay.of(1970, 3, 29), "Hana", "Berg", EpochDay.of(2015, 10, 31), 4711);
+        basic.users.add(host);
+        basic.users.add(new GoldCustomer(2, EpochDay.of(1985, 6, 15), "Gus", "Ode", EpochDay.of(2019, 2, 28),
+                "Credit Card", 3));
+        basic.users.add(new StandardCustomer(3, EpochDay.NONE, "Sam", null, EpochDay.of(2001, 12, 31), "Cash"));
+        basic.users.add(new StandardCustomer(4, EpochDay.of(2000, 1, 1), "Del", "Eted", EpochDay.of(2022, 1, 1),
+                "Cash"));
+        basic.properties.add(new FullProperty(10, 3, 6, "Oslo", 120, 200, host));
+        basic.properties.add(new SharedProperty(11, 2, 3, "Bergen", 90, host));
+        basic.properties.add(new SharedProperty(12, 4, 5, "Tromsø", 60));
+        basic.properties.add(new FullProperty(13, 1, 2, "Oslo", 40, 70));
+
+        User gold = basic.getUserById(2);
+        User standard = basic.getUserById(3);
+        Booking paid = new Booking(gold, basic.getPropertyById(10), FIRST_DAY, FIRST_DAY + 5, false);
+        Booking cancelled = new Booking(standard, basic.getPropertyById(10), FIRST_DAY + 5, FIRST_DAY + 7, false);
+        assertTrue(basic.addBooking(paid));
+        assertTrue(basic.addBooking(cancelled));
+        assertTrue(basic.addBooking(new Booking(gold, basic.getPropertyById(11), FIRST_DAY + 1, FIRST_DAY + 3,
+                true)));
+        assertTrue(basic.addBooking(new Booking(standard, basic.getPropertyById(11), FIRST_DAY + 2,
+                FIRST_DAY + 4, false)));
+        assertTrue(basic.addBooking(new Booking(basic.getUserById(4), basic.getPropertyById(12), FIRST_DAY,
+                FIRST_DAY + 2, false)));
+        assertTrue(basic.addBooking(new Booking(standard, basic.getPropertyById(13), FIRST_DAY, FIRST_DAY + 2,
+                false)));
+        assertTrue(basic.setBookingPaid(paid, true));
+        assertTrue(basic.cancelBooking(cancelled));
+        assertTrue(basic.addInspection(10, EpochDay.of(2024, 3, 31), "Clean"));
+        assertTrue(basic.addInspection(10, EpochDay.of(2024, 3, 31), "Clean again"));
+        assertTrue(basic.addInspection(12, EpochDay.of(2023, 10, 29), "Leaking tap"));
+        assertTrue(basic.setPropertyPrice(11, 95.5));
+        assertTrue(basic.setPropertyRates(10, FIRST_DAY + 3, new double[]{1.5, 2, 2, 1, 0.5}));
+        assertTrue(basic.setPropertyRates(12, FIRST_DAY - 400, new double[]{3}));
+        basic.removeUser(4);
+        basic.removeProperty(13);
+    }
+
+    /**
+     * Describe every user, property and booking of a BASIC instance in ID order, so two instances can be
+     * compared field by field.
+     *
+     * @param basic The instance to describe.
+     * @return One line per user, booking and property.
+     */
+    static List<String> describe(BASIC basic) {
+        List<String> lines = new ArrayList<>();
+        List<User> users = new ArrayList<>(basic.users);
+        users.sort(Comparator.comparingInt(User::getUserId));
+        for (User user : users) {
+            String details = user instanceof Host ? "tax " + ((Host) user).getTaxNumber()
+                    : ((Customer) user).getPreferredPaymentMethod()
+                    + (user instanceof GoldCustomer ? " gold " + ((GoldCustomer) user).getGoldLevel() : "");
+            lines.add(user.getClass().getSimpleName() + " " + user.getUserId() + " " + user.getDateOfBirthDay()
+                    + " " + user.getFirstName() + " " + user.getLastName() + " " + user.getRegistrationDay() + " "
+                    + details);
+            for (Booking booking : user.getBookings()) {
+                lines.add("  booking " + booking.getProperty().getPropertyId() + " " + booking.getStartDay() + " "
+                        + booking.getEndDay() + " " + booking.isPaid());
+            }
+        }
+        List<Property> properties = new ArrayList<>(basic.properties);
+        properties.sort(Comparator.comparingInt(Property::getPropertyId));
+        for (Property property : properties) {
+            lines.add(property.getClass().getSimpleName() + " " + property.getPropertyId() + " "
+                    + property.getNoBedRooms() + " " + property.getNoRooms() + " " + property.getCity() + " "
+                    + property.getPricePerDay() + " "
+                    + (property instanceof FullProperty ? ((FullProperty) property).getSize() : "-") + " host "
+                    + (property.getHost() == null ? "-" : property.getHost().getUserId()) + " bookings "
+                    + property.getCalendar().size() + " inspections " + property.getInspections().all());
+            property.getRates().forEachRun((fromDay, toDay, rate) ->
+                    lines.add("  rate " + fromDay + " " + toDay + " " + rate));
+        }
+        return lines;
+    }
+
+    @Test
+    void replaysTheLogAfterARestart() throws IOException {
+        BASIC original = new BASIC();
+        try (StorageEngine ignored = StorageEngine.open(directory, original, true, 1_000_000)) {
+            populate(original);
+        }
+        BASIC recovered = new BASIC();
+        try (StorageEngine ignored = StorageEngine.open(directory, recovered, true, 1_000_000)) {
+            assertEquals(describe(original), describe(recovered));
+            assertNull(recovered.getUserById(4));
+            assertNull(recovered.getPropertyById(13));
+        }
+    }
+
+    @Test
+    void recoversFromASnapshotAndTheRecordsAfterIt() throws IOException {
+        BASIC original = new BASIC();
+        try (StorageEngine storage = StorageEngine.open(directory, original, false, 1_000_000)) {
+            populate(original);
+            storage.checkpoint();
+            original.addInspection(11, FIRST_DAY, "After the snapshot");
+            original.setPropertyRates(11, FIRST_DAY, new double[]{1.25});
+        }
+        BASIC recovered = new BASIC();
+        try (StorageEngine storage = StorageEngine.open(directory, recovered, false, 1_000_000)) {
+            assertEquals(describe(original), describe(recovered));
+            // Recovering again from a fresh snapshot gives the same state
+            storage.checkpoint();
+        }
+        BASIC again = new BASIC();
+        try (StorageEngine ignored = StorageEngine.open(directory, again, false, 1_000_000)) {
+            assertEquals(describe(original), describe(again));
+        }
+    }
+
+    @Test
+    void checkpointsEveryIntervalOfMutations() throws IOException {
+        BASIC original = new BASIC();
+        try (StorageEngine ignored = StorageEngine.open(directory, original, false, 5)) {
+            populate(original);
+        }
+        BASIC recovered = new BASIC();
+        try (StorageEngine ignored = StorageEngine.open(directory, recovered, false, 5)) {
+            assertEquals(describe(original), describe(recovered));
+        }
+    }
+
+    @Test
+    void storesDatesAsEpochDays() throws IOException {
+        // The encoding must not depend on the time zone the log is written or replayed in
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        StateCodec.writeDay(out, FIRST_DAY);
+        StateCodec.writeDay(out, EpochDay.NONE);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(FIRST_DAY, in.readInt());
+        assertEquals(EpochDay.NONE, in.readInt());
+
+        User user = new StandardCustomer(3, EpochDay.NONE, "Sam", null, EpochDay.of(2001, 12, 31), "Cash");
+        bytes.reset();
+        StateCodec.writeUser(out, user);
+        User decoded = StateCodec.readUser(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(EpochDay.NONE, decoded.getDateOfBirthDay());
+        assertEquals(EpochDay.of(2001, 12, 31), decoded.getRegistrationDay());
+        assertNull(decoded.getLastName());
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link TimingWheel} expires exactly the timers that are due, across every level and beyond
+ * its range.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class TimingWheelTest {
+
+    @Test
+    void expiresExactlyTheDueTimers() {
+        long start = 1_000_000;
+        TimingWheel<Long> wheel = new TimingWheel<>(1, start);
+        Map<Long, TimingWheel.Timer<Long>> pending = new HashMap<>();
+        Random random = new Random(22);
+        long now = start;
+        long nextValue = 0;
+        while (now < start + 40_000_000L) {
+            for (int i = random.nextInt(50); i > 0; i--) {
+                // Deadlines on every level, and some beyond the 2^24 ticks the wheel covers
+                long deadline = now + (long) Math.pow(2, random.nextDouble() * 25);
+                long value = nextValue++ * 100_000_000L + deadline;
+                pending.put(value, wheel.schedule(value, deadline));
+            }
+            if (!pending.isEmpty() && random.nextInt(3) == 0) {
+                Long value = new ArrayList<>(pending.keySet()).get(random.nextInt(pending.size()));
+                TimingWheel.Timer<Long> timer = pending.remove(value);
+                assertTrue(timer.isPending());
+                assertTrue(wheel.cancel(timer));
+                assertFalse(wheel.cancel(timer));
+            }
+            now += random.nextInt(300_000);
+            long due = now;
+            List<Long> expected = pending.keySet().stream().filter(v -> v % 100_000_000L <= due).sorted().toList();
+            List<Long> expired = new ArrayList<>();
+            assertEquals(expected.size(), wheel.advance(now, expired::add));
+            expired.sort(null);
+            assertEquals(expected, expired);
+            for (Long value : expired) {
+                assertFalse(pending.remove(value).isPending());
+            }
+            assertEquals(pending.size(), wheel.size());
+        }
+    }
+
+    @Test
+    void roundsDeadlinesUpToTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 0);
+        wheel.schedule("a", 150);
+        wheel.schedule("b", 200);
+        List<String> expired = new ArrayList<>();
+        assertEquals(0, wheel.advance(199, expired::add));
+        assertEquals(2, wheel.advance(200, expired::add));
+        assertEquals(List.of("a", "b"), expired);
+        // A deadline already passed expires with the next tick processed
+        wheel.schedule("c", 50);
+        assertEquals(0, wheel.advance(299, expired::add));
+        assertEquals(1, wheel.advance(300, expired::add));
+        assertEquals(List.of("a", "b", "c"), expired);
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(0, 0));
+    }
+}
@@ -0,0 +1,185 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that {@link WriteAheadLog} keeps records through a failed flush and stops replay at a corrupt header.
+ *
+ * @author Albaraa
+ * @version 1.0
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<Long> replay(Path path) throws IOException {
+        List<Long> lsns = new ArrayList<>();
+        WriteAheadLog.replay(path, 0, (lsn, type, payload) -> {
+            assertEquals(lsn, payload.readLong());
+            lsns.add(lsn);
+        });
+        return lsns;
+    }
+
+    @Test
+    void failedFlushIsWrittenAgain() throws IOException {
+        Path path = directory.resolve("wal.log");
+        FailingChannel channel = new FailingChannel(FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE));
+        WriteAheadLog log = new WriteAheadLog(channel, 0);
+        log.append((byte) 1, out -> out.writeLong(1));
+        log.awaitDurable(1);
+        log.append((byte) 1, out -> out.writeLong(2));
+        log.append((byte) 1, out -> out.writeLong(3));
+
+        // The write stops part way into the batch, then a record is appended behind it
+        channel.failWrite = true;
+        assertThrows(IOException.class, () -> log.awaitDurable(2));
+        log.append((byte) 1, out -> out.writeLong(4));
+        channel.failForce = true;
+        assertThrows(IOException.class, () -> log.awaitDurable(4));
+        log.awaitDurable(2);
+        log.close();
+        assertEquals(List.of(1L, 2L, 3L, 4L), replay(path));
+    }
+
+    @Test
+    void stopsAtALengthBeyondTheFile() throws IOException {
+        Path path = directory.resolve("wal.log");
+        try (WriteAheadLog log = new WriteAheadLog(path, 0)) {
+            log.append((byte) 1, out -> out.writeLong(1));
+            log.append((byte) 1, out -> out.writeLong(2));
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // The second record's header claims a payload of almost 2 GB
+            file.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE - 8), 4 + 4 + 8 + 1 + 8);
+        }
+        assertEquals(List.of(1L), replay(path));
+    }
+
+    /**
+     * A channel that fails its next write after a few bytes, or its next force, when asked to.
+     */
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel file;
+        boolean failWrite;
+        boolean failForce;
+
+        FailingChannel(FileChannel file) {
+            this.file = file;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (failWrite) {
+                failWrite = false;
+                ByteBuffer part = src.duplicate();
+                part.limit(part.position() + Math.min(5, part.remaining()));
+                src.position(src.position() + file.write(part));
+                throw new IOException("disk full");
+            }
+            return file.write(src);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failForce) {
+                failForce = false;
+                throw new IOException("device error");
+            }
+            file.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return file.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return file.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return file.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return file.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            file.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return file.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            file.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return file.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return file.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return file.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return file.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return file.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return file.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return file.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            file.close();
+        }
+    }
+}